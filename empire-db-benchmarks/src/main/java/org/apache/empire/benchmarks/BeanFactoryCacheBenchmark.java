@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.benchmarks;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.empire.db.list.DBBeanFactoryCache;
+import org.apache.empire.db.list.DBBeanListFactory;
+import org.apache.empire.db.list.DBBeanListFactoryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BeanFactoryCacheBenchmark
+ * Measures concurrent factory lookups with DBBeanFactoryCache using a concurrent and a synchronized map implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class BeanFactoryCacheBenchmark
+{
+    private static final Class<?>[] BEAN_TYPES = {
+        EmployeeBean.class, String.class, Integer.class, Long.class, Double.class, Float.class, Short.class, Byte.class,
+        Boolean.class, Character.class, Object.class, Number.class, StringBuilder.class, Thread.class, Class.class, Enum.class
+    };
+
+    /**
+     * The position of each thread in the list of bean types
+     */
+    @State(Scope.Thread)
+    public static class Position
+    {
+        int index = 0;
+    }
+    
+    @Param({"concurrent", "synchronized"})
+    public String mapType;
+
+    private DBBeanFactoryCache.FactoryCreator<Object> creator;
+
+    @Setup(Level.Trial)
+    public void setup(DatabaseState state)
+    {
+        Map<Class<?>, DBBeanListFactory<?>> map = ("synchronized".equals(mapType)) 
+            ? Collections.synchronizedMap(new HashMap<Class<?>, DBBeanListFactory<?>>())
+            : new ConcurrentHashMap<Class<?>, DBBeanListFactory<?>>();
+        DBBeanFactoryCache.setMapImplementation(map);
+        // register a factory for all types
+        BenchmarkDB db = state.getDb();
+        DBBeanListFactory<EmployeeBean> factory = new DBBeanListFactoryImpl<EmployeeBean>(EmployeeBean.class, db.EMPLOYEES.getColumns());
+        for (Class<?> beanType : BEAN_TYPES)
+            DBBeanFactoryCache.setFactoryForType(beanType, factory);
+        // never called
+        creator = new DBBeanFactoryCache.FactoryCreator<Object>() {
+            @Override
+            public DBBeanListFactory<Object> createFactory(Class<Object> beanType)
+            {
+                throw new IllegalStateException("Factory not found for "+beanType.getName());
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        DBBeanFactoryCache.setMapImplementation(new ConcurrentHashMap<Class<?>, DBBeanListFactory<?>>());
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public DBBeanListFactory<Object> getFactoryForType(Position pos)
+    {
+        Class<Object> beanType = (Class<Object>)BEAN_TYPES[(pos.index++) & (BEAN_TYPES.length-1)];
+        return DBBeanFactoryCache.getFactoryForType(beanType, creator);
+    }
+}
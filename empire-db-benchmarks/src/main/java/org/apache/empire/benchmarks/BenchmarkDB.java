@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.benchmarks;
+
+import org.apache.empire.data.DataType;
+import org.apache.empire.db.DBDatabase;
+import org.apache.empire.db.DBTable;
+import org.apache.empire.db.DBTableColumn;
+
+/**
+ * BenchmarkDB
+ * The data model used by the benchmarks.
+ * It consists of departments, employees and their monthly payments as well as a log table for the batch benchmarks.
+ */
+public class BenchmarkDB extends DBDatabase
+{
+    // *Deprecated* private static final long serialVersionUID = 1L;
+
+    /**
+     * Table DEPARTMENTS
+     */
+    public static class Departments extends DBTable
+    {
+        // *Deprecated* private static final long serialVersionUID = 1L;
+
+        public final DBTableColumn ID;
+        public final DBTableColumn NAME;
+        public final DBTableColumn BUSINESS_UNIT;
+        public final DBTableColumn UPDATE_TIMESTAMP;
+
+        public Departments(DBDatabase db)
+        {
+            super("DEPARTMENTS", db);
+            // ID
+            ID              = addIdentity  ("ID",               "DEP_ID_SEQUENCE");
+            NAME            = addColumn    ("NAME",             DataType.VARCHAR,      80, true);
+            BUSINESS_UNIT   = addColumn    ("BUSINESS_UNIT",    DataType.VARCHAR,       4, true, "ITTK");
+            UPDATE_TIMESTAMP= addTimestamp ("UPDATE_TIMESTAMP");
+            // Indexes
+            addIndex("DEPARTMENT_NAME_IDX", true, new DBTableColumn[] { NAME });
+        }
+    }
+
+    /**
+     * Table EMPLOYEES
+     */
+    public static class Employees extends DBTable
+    {
+        // *Deprecated* private static final long serialVersionUID = 1L;
+
+        public final DBTableColumn ID;
+        public final DBTableColumn DEPARTMENT_ID;
+        public final DBTableColumn FIRST_NAME;
+        public final DBTableColumn LAST_NAME;
+        public final DBTableColumn GENDER;
+        public final DBTableColumn DATE_OF_BIRTH;
+        public final DBTableColumn SALARY;
+        public final DBTableColumn RETIRED;
+        public final DBTableColumn UPDATE_TIMESTAMP;
+
+        public Employees(DBDatabase db)
+        {
+            super("EMPLOYEES", db);
+            // ID
+            ID              = addIdentity  ("ID",               "EMPLOYEE_ID_SEQUENCE");
+            DEPARTMENT_ID   = addForeignKey("DEPARTMENT_ID",    ((BenchmarkDB)db).DEPARTMENTS, true);
+            FIRST_NAME      = addColumn    ("FIRST_NAME",       DataType.VARCHAR,      40, true);
+            LAST_NAME       = addColumn    ("LAST_NAME",        DataType.VARCHAR,      40, true);
+            GENDER          = addColumn    ("GENDER",           DataType.VARCHAR,       1, false);
+            DATE_OF_BIRTH   = addColumn    ("DATE_OF_BIRTH",    DataType.DATE,          0, false);
+            SALARY          = addColumn    ("SALARY",           DataType.DECIMAL,    10.2, false);
+            RETIRED         = addColumn    ("RETIRED",          DataType.BOOL,          0, true, false);
+            UPDATE_TIMESTAMP= addTimestamp ("UPDATE_TIMESTAMP");
+        }
+    }
+
+    /**
+     * Table PAYMENTS
+     */
+    public static class Payments extends DBTable
+    {
+        // *Deprecated* private static final long serialVersionUID = 1L;
+
+        public final DBTableColumn EMPLOYEE_ID;
+        public final DBTableColumn YEAR;
+        public final DBTableColumn MONTH;
+        public final DBTableColumn AMOUNT;
+
+        public Payments(DBDatabase db)
+        {
+            super("PAYMENTS", db);
+            // ID
+            EMPLOYEE_ID     = addForeignKey("EMPLOYEE_ID",      ((BenchmarkDB)db).EMPLOYEES, true);
+            YEAR            = addColumn    ("PAYMENT_YEAR",     DataType.DECIMAL,     4.0, true);
+            MONTH           = addColumn    ("PAYMENT_MONTH",    DataType.DECIMAL,     2.0, true);
+            AMOUNT          = addColumn    ("AMOUNT",           DataType.DECIMAL,     8.2, true);
+            // Primary Key
+            setPrimaryKey(EMPLOYEE_ID, YEAR, MONTH);
+        }
+    }
+
+    /**
+     * Table LOG_ENTRIES
+     */
+    public static class LogEntries extends DBTable
+    {
+        // *Deprecated* private static final long serialVersionUID = 1L;
+
+        public final DBTableColumn ID;
+        public final DBTableColumn EMPLOYEE_ID;
+        public final DBTableColumn MESSAGE;
+        public final DBTableColumn AMOUNT;
+
+        public LogEntries(DBDatabase db)
+        {
+            super("LOG_ENTRIES", db);
+            // ID
+            ID              = addColumn    ("ID",               DataType.INTEGER,       0, true);
+            EMPLOYEE_ID     = addColumn    ("EMPLOYEE_ID",      DataType.INTEGER,       0, true);
+            MESSAGE         = addColumn    ("MESSAGE",          DataType.VARCHAR,     100, true);
+            AMOUNT          = addColumn    ("AMOUNT",           DataType.DECIMAL,     8.2, false);
+            // Primary key (values are assigned by the script)
+            setPrimaryKey(ID);
+        }
+    }
+
+    // Declare all Tables and Views here
+    public final Departments DEPARTMENTS = new Departments(this);
+    public final Employees   EMPLOYEES   = new Employees(this);
+    public final Payments    PAYMENTS    = new Payments(this);
+    public final LogEntries  LOG_ENTRIES = new LogEntries(this);
+
+    /**
+     * Constructor of the benchmark data model.
+     * The foreign key relations are created by addForeignKey().
+     */
+    public BenchmarkDB()
+    {
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.benchmarks;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.empire.data.DataType;
+import org.apache.empire.db.DBColumn;
+import org.apache.empire.db.DBCommand;
+import org.apache.empire.db.DBContext;
+import org.apache.empire.db.DBSQLScript;
+import org.apache.empire.db.DBTableColumn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * BenchmarkData
+ * Creates a reproducible dataset for the benchmarks.<br>
+ * All values are derived from a random generator with a fixed seed. 
+ * Hence the same data is generated on every run and for every dbms.
+ */
+public class BenchmarkData
+{
+    // Logger
+    private static final Logger log = LoggerFactory.getLogger(BenchmarkData.class);
+
+    public static final long SEED = 4711L;
+
+    public static final int DEPARTMENT_COUNT = 10;
+
+    public static final int EMPLOYEES_PER_DEPARTMENT = 100;
+
+    public static final int PAYMENT_MONTHS = 12;
+    
+    public static final int PAYMENT_YEAR = 2020;
+
+    private static final String[] FIRST_NAMES = { "Anna", "Ben", "Clara", "David", "Emma", "Felix", "Greta", "Hugo", "Ida", "Jonas", "Lena", "Max", "Nora", "Oskar", "Paula", "Paul" };
+    private static final String[] LAST_NAMES  = { "Miller", "Smith", "Meyer", "Schulz", "Fischer", "Weber", "Wagner", "Becker", "Hoffmann", "Koch", "Richter", "Klein" };
+    private static final String[] UNITS       = { "ITTK", "SALE", "PROD", "ADMN" };
+
+    private BenchmarkData()
+    {
+        /* No instances */
+    }
+
+    /**
+     * Fills the benchmark tables
+     * @param context the database context
+     * @param db the benchmark database
+     */
+    public static void populate(DBContext context, BenchmarkDB db)
+    {
+        Random random = new Random(SEED);
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+        // Departments
+        DBSQLScript script = new DBSQLScript(context);
+        for (int i=0; i<DEPARTMENT_COUNT; i++)
+        {
+            DBCommand cmd = context.createCommand();
+            setAutoValue(context, db, cmd, db.DEPARTMENTS.ID);
+            cmd.set(db.DEPARTMENTS.NAME.to("Department "+(i+1)));
+            cmd.set(db.DEPARTMENTS.BUSINESS_UNIT.to(UNITS[i % UNITS.length]));
+            cmd.set(db.DEPARTMENTS.UPDATE_TIMESTAMP.to(timestamp));
+            script.addInsert(cmd);
+        }
+        script.executeBatch();
+        script.clear();
+        // Employees
+        Calendar cal = Calendar.getInstance();
+        for (Object depId : queryIds(context, db.DEPARTMENTS.ID))
+        {
+            for (int i=0; i<EMPLOYEES_PER_DEPARTMENT; i++)
+            {
+                cal.clear();
+                cal.set(1960 + random.nextInt(40), random.nextInt(12), 1 + random.nextInt(28));
+                DBCommand cmd = context.createCommand();
+                setAutoValue(context, db, cmd, db.EMPLOYEES.ID);
+                cmd.set(db.EMPLOYEES.DEPARTMENT_ID.to(depId));
+                cmd.set(db.EMPLOYEES.FIRST_NAME.to(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]));
+                cmd.set(db.EMPLOYEES.LAST_NAME.to(LAST_NAMES[random.nextInt(LAST_NAMES.length)]));
+                cmd.set(db.EMPLOYEES.GENDER.to(random.nextBoolean() ? "F" : "M"));
+                cmd.set(db.EMPLOYEES.DATE_OF_BIRTH.to(new Date(cal.getTimeInMillis())));
+                cmd.set(db.EMPLOYEES.SALARY.to(amount(random, 2000, 8000)));
+                cmd.set(db.EMPLOYEES.RETIRED.to(random.nextInt(20)==0));
+                cmd.set(db.EMPLOYEES.UPDATE_TIMESTAMP.to(timestamp));
+                script.addInsert(cmd);
+            }
+            script.executeBatch();
+            script.clear();
+        }
+        // Payments
+        for (Object empId : queryIds(context, db.EMPLOYEES.ID))
+        {
+            for (int month=1; month<=PAYMENT_MONTHS; month++)
+            {
+                DBCommand cmd = context.createCommand();
+                cmd.set(db.PAYMENTS.EMPLOYEE_ID.to(empId));
+                cmd.set(db.PAYMENTS.YEAR.to(PAYMENT_YEAR));
+                cmd.set(db.PAYMENTS.MONTH.to(month));
+                cmd.set(db.PAYMENTS.AMOUNT.to(amount(random, 1000, 5000)));
+                script.addInsert(cmd);
+            }
+            if (script.getCount()>=1000)
+            {   script.executeBatch();
+                script.clear();
+            }
+        }
+        script.executeBatch();
+        context.commit();
+        log.info("Benchmark data created: {} departments, {} employees, {} payments.", DEPARTMENT_COUNT, getEmployeeCount(), getEmployeeCount()*PAYMENT_MONTHS);
+    }
+
+    /**
+     * Returns the total number of employees
+     * @return the number of employees
+     */
+    public static int getEmployeeCount()
+    {
+        return DEPARTMENT_COUNT * EMPLOYEES_PER_DEPARTMENT;
+    }
+
+    private static void setAutoValue(DBContext context, BenchmarkDB db, DBCommand cmd, DBTableColumn idColumn)
+    {   // Sequence value (if supported)
+        Object value = context.getDbms().getColumnAutoValue(db, idColumn, context.getConnection());
+        if (value!=null)
+            cmd.set(idColumn.to(value));
+    }
+
+    private static List<Object> queryIds(DBContext context, DBColumn idColumn)
+    {
+        DBCommand cmd = context.createCommand();
+        cmd.select(idColumn);
+        cmd.orderBy(idColumn);
+        List<Object> list = new ArrayList<Object>();
+        context.getUtils().querySimpleList(Object.class, cmd.getSelect(), cmd.getParamValues(), DataType.UNKNOWN, list, -1);
+        return list;
+    }
+
+    private static BigDecimal amount(Random random, int min, int max)
+    {
+        return BigDecimal.valueOf(min*100L + random.nextInt((max-min)*100), 2);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.empire.db.DBColumnExpr;
+import org.apache.empire.db.DBCommand;
+import org.apache.empire.db.DBContext;
+import org.apache.empire.db.DBJoinType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CommandBenchmark
+ * Measures building a complex select command and generating its sql statement with DBCommand.getSelect().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandBenchmark
+{
+    private DBContext context;
+    private BenchmarkDB db;
+    private DBCommand command;
+
+    @Setup(Level.Trial)
+    public void setup(DatabaseState state)
+    {
+        this.context = state.getContext();
+        this.db = state.getDb();
+        this.command = createCommand();
+    }
+
+    /**
+     * Creates a select command with three tables, a left join, an aggregation, a subquery and several constraints
+     * @return the command
+     */
+    protected DBCommand createCommand()
+    {
+        BenchmarkDB.Departments DEP = db.DEPARTMENTS;
+        BenchmarkDB.Employees EMP = db.EMPLOYEES;
+        BenchmarkDB.Payments PAY = db.PAYMENTS;
+        // subquery for departments with at least ten employees
+        DBCommand depCmd = context.createCommand();
+        depCmd.select(EMP.DEPARTMENT_ID);
+        depCmd.groupBy(EMP.DEPARTMENT_ID);
+        depCmd.having(EMP.ID.count().isMoreOrEqual(10));
+        // the query
+        DBColumnExpr FULL_NAME = EMP.LAST_NAME.append(", ").append(EMP.FIRST_NAME).as("FULL_NAME");
+        DBColumnExpr PAYMENTS_TOTAL = PAY.AMOUNT.sum().coalesce(0).as("PAYMENTS_TOTAL");
+        DBCommand cmd = context.createCommand();
+        cmd.select(EMP.ID, FULL_NAME, EMP.GENDER, EMP.DATE_OF_BIRTH, EMP.SALARY, DEP.NAME, DEP.BUSINESS_UNIT, PAYMENTS_TOTAL);
+        cmd.join(EMP.DEPARTMENT_ID, DEP.ID);
+        cmd.join(EMP.ID, PAY.EMPLOYEE_ID, DBJoinType.LEFT, PAY.YEAR.is(BenchmarkData.PAYMENT_YEAR));
+        cmd.where(DEP.BUSINESS_UNIT.in("ITTK", "SALE", "PROD"));
+        cmd.where(EMP.LAST_NAME.upper().like("%E%"));
+        cmd.where(EMP.SALARY.isBetween(new BigDecimal(2500), new BigDecimal(7500)));
+        cmd.where(EMP.RETIRED.is(false));
+        cmd.where(EMP.SALARY.isNot(null));
+        cmd.where(EMP.DEPARTMENT_ID.in(depCmd));
+        cmd.groupBy(EMP.ID, FULL_NAME, EMP.GENDER, EMP.DATE_OF_BIRTH, EMP.SALARY, DEP.NAME, DEP.BUSINESS_UNIT);
+        cmd.having(PAY.AMOUNT.sum().isGreaterThan(1000));
+        cmd.orderBy(DEP.NAME);
+        cmd.orderBy(PAYMENTS_TOTAL, true);
+        return cmd;
+    }
+
+    /**
+     * Builds the command and generates the sql statement
+     * @return the sql statement
+     */
+    @Benchmark
+    public String buildAndGetSelect()
+    {
+        return createCommand().getSelect();
+    }
+
+    /**
+     * Generates the sql statement for a prebuilt command
+     * @return the sql statement
+     */
+    @Benchmark
+    public String getSelect()
+    {
+        return command.getSelect();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.empire.db.DBContext;
+import org.apache.empire.db.DBSQLScript;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.dbms.DBMSHandler;
+import org.apache.empire.dbms.h2.DBMSHandlerH2;
+import org.apache.empire.dbms.hsql.DBMSHandlerHSql;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * DatabaseState
+ * Provides an in-memory database populated with the benchmark data.<br>
+ * A new database is created for each benchmark trial.
+ */
+@State(Scope.Benchmark)
+public class DatabaseState
+{
+    /**
+     * The databases used for the benchmarks
+     */
+    public enum Dbms
+    {
+        HSQLDB("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:benchmark"),
+        H2("org.h2.Driver", "jdbc:h2:mem:benchmark");
+        
+        private final String jdbcClass;
+        private final String jdbcURL;
+        
+        private Dbms(String jdbcClass, String jdbcURL)
+        {
+            this.jdbcClass = jdbcClass;
+            this.jdbcURL = jdbcURL;
+        }
+
+        public DBMSHandler createHandler()
+        {
+            return (this==HSQLDB ? new DBMSHandlerHSql() : new DBMSHandlerH2());
+        }
+    }
+
+    private static final AtomicInteger instanceCount = new AtomicInteger();
+    
+    @Param({"HSQLDB", "H2"})
+    public Dbms dbms;
+    
+    private Connection conn;
+    private DBContextStatic context;
+    private BenchmarkDB db;
+
+    @Setup(Level.Trial)
+    public void setup()
+        throws ClassNotFoundException, SQLException
+    {
+        // connect to a new in-memory database
+        Class.forName(dbms.jdbcClass);
+        conn = DriverManager.getConnection(dbms.jdbcURL+instanceCount.incrementAndGet(), "sa", "");
+        conn.setAutoCommit(false);
+        context = new DBContextStatic(dbms.createHandler(), conn, false);
+        // create the model
+        db = new BenchmarkDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+        context.commit();
+        // load data
+        BenchmarkData.populate(context, db);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+        throws SQLException
+    {
+        db.close(context);
+        context.discard();
+        // drop the in-memory database
+        Statement stmt = conn.createStatement();
+        try {
+            stmt.execute("SHUTDOWN");
+        } finally {
+            stmt.close();
+            conn.close();
+        }
+    }
+
+    public DBContext getContext()
+    {
+        return context;
+    }
+
+    public BenchmarkDB getDb()
+    {
+        return db;
+    }
+}
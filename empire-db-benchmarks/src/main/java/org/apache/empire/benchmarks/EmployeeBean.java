@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * EmployeeBean
+ * A Java bean for the queryBeanList benchmark.
+ * The properties are set by their setters using the column names.
+ */
+public class EmployeeBean
+{
+    private long        id;
+    private long        departmentId;
+    private String      firstName;
+    private String      lastName;
+    private String      gender;
+    private Date        dateOfBirth;
+    private BigDecimal  salary;
+    private boolean     retired;
+    private String      name;  // department name
+
+    public long getId()
+    {
+        return id;
+    }
+    public void setId(long id)
+    {
+        this.id = id;
+    }
+    public long getDepartmentId()
+    {
+        return departmentId;
+    }
+    public void setDepartmentId(long departmentId)
+    {
+        this.departmentId = departmentId;
+    }
+    public String getFirstName()
+    {
+        return firstName;
+    }
+    public void setFirstName(String firstName)
+    {
+        this.firstName = firstName;
+    }
+    public String getLastName()
+    {
+        return lastName;
+    }
+    public void setLastName(String lastName)
+    {
+        this.lastName = lastName;
+    }
+    public String getGender()
+    {
+        return gender;
+    }
+    public void setGender(String gender)
+    {
+        this.gender = gender;
+    }
+    public Date getDateOfBirth()
+    {
+        return dateOfBirth;
+    }
+    public void setDateOfBirth(Date dateOfBirth)
+    {
+        this.dateOfBirth = dateOfBirth;
+    }
+    public BigDecimal getSalary()
+    {
+        return salary;
+    }
+    public void setSalary(BigDecimal salary)
+    {
+        this.salary = salary;
+    }
+    public boolean isRetired()
+    {
+        return retired;
+    }
+    public void setRetired(boolean retired)
+    {
+        this.retired = retired;
+    }
+    public String getName()
+    {
+        return name;
+    }
+    public void setName(String name)
+    {
+        this.name = name;
+    }
+}
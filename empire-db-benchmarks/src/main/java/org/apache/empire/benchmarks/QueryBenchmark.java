@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.empire.data.list.DataListEntry;
+import org.apache.empire.db.DBCommand;
+import org.apache.empire.db.DBContext;
+import org.apache.empire.db.DBReader;
+import org.apache.empire.db.DBRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * QueryBenchmark
+ * Measures reading all employees with their department using a DBReader and the list query functions of DBUtils.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark
+{
+    private DBContext context;
+    private BenchmarkDB db;
+    private DBCommand joinCmd;
+    private DBCommand employeeCmd;
+
+    @Setup(Level.Trial)
+    public void setup(DatabaseState state)
+    {
+        this.context = state.getContext();
+        this.db = state.getDb();
+        // employees with department name
+        joinCmd = context.createCommand();
+        joinCmd.select(db.EMPLOYEES.getColumns());
+        joinCmd.select(db.DEPARTMENTS.NAME);
+        joinCmd.join(db.EMPLOYEES.DEPARTMENT_ID, db.DEPARTMENTS.ID);
+        joinCmd.orderBy(db.EMPLOYEES.ID);
+        // employees only
+        employeeCmd = context.createCommand();
+        employeeCmd.select(db.EMPLOYEES.getColumns());
+        employeeCmd.orderBy(db.EMPLOYEES.ID);
+    }
+
+    @Benchmark
+    public void readerIteration(Blackhole bh)
+    {
+        DBReader reader = new DBReader(context);
+        try {
+            reader.open(joinCmd);
+            while (reader.moveNext())
+            {
+                bh.consume(reader.getLong(db.EMPLOYEES.ID));
+                bh.consume(reader.getString(db.EMPLOYEES.LAST_NAME));
+                bh.consume(reader.getDateTime(db.EMPLOYEES.DATE_OF_BIRTH));
+                bh.consume(reader.getDecimal(db.EMPLOYEES.SALARY));
+                bh.consume(reader.getBoolean(db.EMPLOYEES.RETIRED));
+                bh.consume(reader.getString(db.DEPARTMENTS.NAME));
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Benchmark
+    public List<EmployeeBean> queryBeanList()
+    {
+        return context.getUtils().queryBeanList(joinCmd, EmployeeBean.class, null);
+    }
+
+    @Benchmark
+    public List<DataListEntry> queryDataList()
+    {
+        return context.getUtils().queryDataList(joinCmd);
+    }
+
+    @Benchmark
+    public List<DBRecord> queryRecordList()
+    {
+        return context.getUtils().queryRecordList(employeeCmd, db.EMPLOYEES);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.empire.db.DBCommand;
+import org.apache.empire.db.DBContext;
+import org.apache.empire.db.DBSQLScript;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ScriptBenchmark
+ * Measures executing a script of insert statements with DBSQLScript.executeBatch().<br>
+ * The inserted rows are removed and committed after each invocation.<br>
+ * Note: Invocation level fixtures add some timing noise for very short calls, so results for small batch sizes should be read with care.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScriptBenchmark
+{
+    @Param({"10", "100", "1000"})
+    public int batchSize;
+
+    private DBContext context;
+    private BenchmarkDB db;
+    private DBSQLScript script;
+
+    @Setup(Level.Trial)
+    public void setup(DatabaseState state)
+    {
+        this.context = state.getContext();
+        this.db = state.getDb();
+        // create the script
+        script = new DBSQLScript(context);
+        for (int i=0; i<batchSize; i++)
+        {
+            DBCommand cmd = context.createCommand();
+            cmd.set(db.LOG_ENTRIES.ID.to(i+1));
+            cmd.set(db.LOG_ENTRIES.EMPLOYEE_ID.to(i));
+            cmd.set(db.LOG_ENTRIES.MESSAGE.to("Log entry "+i));
+            cmd.set(db.LOG_ENTRIES.AMOUNT.to(BigDecimal.valueOf(i, 2)));
+            script.addInsert(cmd);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void cleanup()
+    {
+        context.executeDelete(db.LOG_ENTRIES, context.createCommand());
+        context.commit();
+    }
+
+    @Benchmark
+    public int executeBatch()
+    {
+        return script.executeBatch();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.empire.db.DBCommand;
+import org.apache.empire.db.DBContext;
+import org.apache.empire.db.DBRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * UpdateBenchmark
+ * Measures inserting and updating single records with DBRecord.update() i.e. DBRowSet.updateRecord().<br>
+ * Inserted records are removed and all changes are committed after each iteration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateBenchmark
+{
+    private static final int RECORD_COUNT = 100;
+
+    private DBContext context;
+    private BenchmarkDB db;
+    private Object departmentId;
+    private long maxEmployeeId;
+    private DBRecord[] records;
+    private int next = 0;
+    private int counter = 0;
+
+    @Setup(Level.Trial)
+    public void setup(DatabaseState state)
+    {
+        this.context = state.getContext();
+        this.db = state.getDb();
+        // first department
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENTS.ID.min());
+        departmentId = context.getUtils().querySingleValue(cmd);
+        // last employee
+        cmd = context.createCommand();
+        cmd.select(db.EMPLOYEES.ID.max());
+        maxEmployeeId = context.getUtils().querySingleLong(cmd);
+        // records to update
+        cmd = context.createCommand();
+        cmd.select(db.EMPLOYEES.getColumns());
+        cmd.orderBy(db.EMPLOYEES.ID);
+        List<DBRecord> list = context.getUtils().queryRecordList(cmd, db.EMPLOYEES, DBRecord.class);
+        records = new DBRecord[RECORD_COUNT];
+        for (int i=0; i<RECORD_COUNT; i++)
+            records[i] = list.get(i * (list.size() / RECORD_COUNT));
+    }
+
+    @TearDown(Level.Iteration)
+    public void cleanup()
+    {
+        DBCommand cmd = context.createCommand();
+        cmd.where(db.EMPLOYEES.ID.isGreaterThan(maxEmployeeId));
+        context.executeDelete(db.EMPLOYEES, cmd);
+        context.commit();
+    }
+
+    @Benchmark
+    public DBRecord insertRecord()
+    {
+        DBRecord rec = new DBRecord(context, db.EMPLOYEES);
+        rec.create();
+        rec.set(db.EMPLOYEES.DEPARTMENT_ID, departmentId);
+        rec.set(db.EMPLOYEES.FIRST_NAME, "Bench");
+        rec.set(db.EMPLOYEES.LAST_NAME, "Mark");
+        rec.set(db.EMPLOYEES.GENDER, "F");
+        rec.set(db.EMPLOYEES.DATE_OF_BIRTH, new Date());
+        rec.set(db.EMPLOYEES.SALARY, new BigDecimal("4711.00"));
+        rec.update();
+        return rec;
+    }
+
+    @Benchmark
+    public DBRecord updateRecord()
+    {
+        DBRecord rec = records[next];
+        next = (next+1) % RECORD_COUNT;
+        rec.set(db.EMPLOYEES.SALARY, BigDecimal.valueOf(300000 + (++counter % 1000), 2));
+        rec.update();
+        return rec;
+    }
+}
@@ -70,6 +70,8 @@ public abstract class WebApplication
     private FacesImplementation facesImpl			  = null;
     
     private static WebApplication appInstance         = null;
+
+    private final WebConnectionMetrics connectionMetrics = new WebConnectionMetrics();
     
     /**
      * Returns the one and only instance of the WebApplication (Singleton)
@@ -415,57 +417,103 @@ public abstract class WebApplication
     }
 
     /**
-     * Obtains a JDBC-Connection from the connection pool
+     * Returns the statistics about connections obtained from the pool and their commit and rollback latency
+     * @return the connection metrics
+     */
+    public WebConnectionMetrics getConnectionMetrics()
+    {
+        return connectionMetrics;
+    }
+
+    /**
+     * Obtains a JDBC-Connection from the connection pool<br>
+     * This method is called concurrently by all request threads and must not hold a global lock.
      * @param db the database for which to obtain a connection
      * @return the connection
      */
-    protected synchronized Connection getConnection(DBDatabase db)
+    protected Connection getConnection(DBDatabase db)
     {
         // Get From Pool
+        long start = System.nanoTime();
+        Connection conn = null;
         try
         { // Obtain a connection
-            Connection conn = getAppDataSource(db).getConnection();
+            conn = getAppDataSource(db).getConnection();
             conn.setAutoCommit(false);
+            connectionMetrics.connectionObtained(System.nanoTime()-start);
             log.trace("Connection {} obtained from pool", conn.hashCode());
             return conn;
         }
         catch (SQLException e)
         {
+            connectionMetrics.connectionFailed();
             log.error("Failed to get connection from pool.", e);
+            // return connection to the pool
+            if (conn != null)
+            {   try
+                {   conn.close();
+                }
+                catch (SQLException e2)
+                {   log.warn("Failed to close connection: {}", e2.getMessage());
+                }
+            }
             throw new InternalException(e);
         }
     }
 
     /**
-     * Releases a JDBC-Connection from the connection pool
+     * Releases a JDBC-Connection from the connection pool<br>
+     * This method is called concurrently by all request threads and must not hold a global lock.
      * @param conn the connection to release
      * @param commit flag whether to commit changes
      * @param dbrm the rollback manager
      */
-    protected synchronized void releaseConnection(Connection conn, boolean commit, DBRollbackManager dbrm)
+    protected void releaseConnection(Connection conn, boolean commit, DBRollbackManager dbrm)
     {
+        // check
+        if (conn == null)
+            return;
         try
-        {   // check
-            if (conn == null)
-                return;
-            // release connection
+        {   // release connection
             log.trace("releasing Connection {}", conn.hashCode());
             // Commit or rollback connection depending on the exit code
+            long start = System.nanoTime();
             if (commit)
             {   // success: commit all changes
                 if (dbrm!=null)
                     dbrm.releaseConnection(conn, ReleaseAction.Discard);  // before commit
                 conn.commit();
+                connectionMetrics.getCommit().record(System.nanoTime()-start);
                 log.debug("REQUEST commited.");
             }
             else
             {   // failure: rollback all changes
                 conn.rollback();
+                connectionMetrics.getRollback().record(System.nanoTime()-start);
                 if (dbrm!=null)
                     dbrm.releaseConnection(conn, ReleaseAction.Rollback); // after rollback
                 log.debug("REQUEST rolled back.");
             }
-            // Release Connection
+        }
+        catch (SQLException e)
+        {
+            connectionMetrics.connectionFailed();
+            log.error("Error releasing connection", e);
+        }
+        finally
+        {   // Release Connection
+            closeConnection(conn);
+        }
+    }
+
+    /**
+     * Returns a JDBC-Connection to the connection pool
+     * @param conn the connection to close
+     */
+    private void closeConnection(Connection conn)
+    {
+        try
+        {   // close
             conn.close();
             // done
             if (log.isDebugEnabled())
@@ -473,8 +521,12 @@ public abstract class WebApplication
         }
         catch (SQLException e)
         {
-            log.error("Error releasing connection", e);
-            e.printStackTrace();
+            connectionMetrics.connectionFailed();
+            log.error("Error closing connection", e);
+        }
+        finally
+        {
+            connectionMetrics.connectionReleased();
         }
     }
 
@@ -544,8 +596,10 @@ public abstract class WebApplication
             return; // Nothing to do
         // Walk the connection map
         DBRollbackManager dbrm = getRollbackManagerForRequest(fc, false);
-        for (Connection conn : connMap.values())
-        {
+        for (Map.Entry<DBDatabase, Connection> entry : connMap.entrySet())
+        {   // release cached statements first
+            Connection conn = entry.getValue();
+            entry.getKey().getDbms().clearStatementCache(conn);
             releaseConnection(conn, commit, dbrm);
         }
         // remove from request map
@@ -578,6 +632,7 @@ public abstract class WebApplication
         DBRollbackManager dbrm = getRollbackManagerForRequest(fc, false);
         // Release Connection   
         Connection conn = connMap.get(db);
+        db.getDbms().clearStatementCache(conn);
         releaseConnection(conn, commit, dbrm);
         // Remove from map
         connMap.remove(db);
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.jsf2.app;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebConnectionMetrics
+ * Collects statistics about the connections obtained and released by the WebApplication.<br>
+ * All methods are thread-safe and do not block.
+ */
+public class WebConnectionMetrics
+{
+    /**
+     * Timer
+     * Accumulates the number and duration of a particular operation
+     */
+    public static class Timer
+    {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        public void record(long nanos)
+        {
+            count.increment();
+            totalNanos.add(nanos);
+            // update max
+            long max = maxNanos.get();
+            while (nanos>max && !maxNanos.compareAndSet(max, nanos))
+                max = maxNanos.get();
+        }
+
+        public long getCount()
+        {
+            return count.sum();
+        }
+
+        public long getTotalMillis()
+        {
+            return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum());
+        }
+
+        public double getAverageMillis()
+        {
+            long n = count.sum();
+            return (n>0 ? (totalNanos.sum() / (double)n) / 1000000d : 0d);
+        }
+
+        public long getMaxMillis()
+        {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+
+        public void reset()
+        {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("count=%d avg=%.2fms max=%dms", getCount(), getAverageMillis(), getMaxMillis());
+        }
+    }
+
+    private final Timer poolWait = new Timer();
+    private final Timer commit   = new Timer();
+    private final Timer rollback = new Timer();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong openConnections = new AtomicLong();
+
+    /**
+     * Returns the time spent waiting for a connection from the pool
+     * @return the pool wait timer
+     */
+    public Timer getPoolWait()
+    {
+        return poolWait;
+    }
+
+    /**
+     * Returns the time spent for committing connections
+     * @return the commit timer
+     */
+    public Timer getCommit()
+    {
+        return commit;
+    }
+
+    /**
+     * Returns the time spent for rolling back connections
+     * @return the rollback timer
+     */
+    public Timer getRollback()
+    {
+        return rollback;
+    }
+
+    /**
+     * Returns the number of connections that could not be obtained or released
+     * @return the number of failures
+     */
+    public long getFailureCount()
+    {
+        return failures.sum();
+    }
+
+    /**
+     * Returns the number of connections currently obtained from the pool and not yet released
+     * @return the number of open connections
+     */
+    public long getOpenConnectionCount()
+    {
+        return openConnections.get();
+    }
+
+    /**
+     * Resets all statistics except the number of open connections
+     */
+    public void reset()
+    {
+        poolWait.reset();
+        commit.reset();
+        rollback.reset();
+        failures.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "open="+getOpenConnectionCount()+" failures="+getFailureCount()
+             +" poolWait["+poolWait+"] commit["+commit+"] rollback["+rollback+"]";
+    }
+
+    /*
+     * recording
+     */
+    protected void connectionObtained(long waitNanos)
+    {
+        poolWait.record(waitNanos);
+        openConnections.incrementAndGet();
+    }
+
+    protected void connectionReleased()
+    {
+        openConnections.decrementAndGet();
+    }
+
+    protected void connectionFailed()
+    {
+        failures.increment();
+    }
+}
@@ -32,6 +32,7 @@ import org.apache.empire.db.DBColumn;
 import org.apache.empire.db.DBColumnExpr;
 import org.apache.empire.db.DBCommand;
 import org.apache.empire.db.DBContext;
+import org.apache.empire.db.DBPageToken;
 import org.apache.empire.db.DBReader;
 import org.apache.empire.db.DBRecordData;
 import org.apache.empire.db.DBRowSet;
@@ -73,6 +74,8 @@ public class BeanListPageElement<T> extends ListPageElement<T> implements ListIt
     protected DBOrderByExpr     secondarySortOrder   = null;
 
     protected int               maxItemCount         = 1000;
+
+    protected boolean           keysetPagination     = false;
     
     /**
      * Extended ListTableInfo
@@ -83,6 +86,10 @@ public class BeanListPageElement<T> extends ListPageElement<T> implements ListIt
 
         private DBCommand         queryCmd         = null;
 
+        private DBPageToken       pageToken        = null;
+
+        private int               pageTokenPosition = -1;
+
         public DBCommand getQueryCmd()
         {
             return queryCmd;
@@ -92,6 +99,36 @@ public class BeanListPageElement<T> extends ListPageElement<T> implements ListIt
         {
             this.queryCmd = queryCmd;
         }
+
+        /**
+         * Returns the page token of the last item loaded (keyset pagination only)
+         * @return the page token or null
+         */
+        public DBPageToken getPageToken()
+        {
+            return pageToken;
+        }
+
+        /**
+         * Returns the position of the item following the page token
+         * @return the position or -1 if there is no page token
+         */
+        public int getPageTokenPosition()
+        {
+            return (pageToken!=null ? pageTokenPosition : -1);
+        }
+
+        /**
+         * Sets the page token and the position of the item following it.
+         * This may be used to restore a page token obtained e.g. from a REST client. 
+         * @param pageToken the page token
+         * @param pageTokenPosition the position of the item following the page token
+         */
+        public void setPageToken(DBPageToken pageToken, int pageTokenPosition)
+        {
+            this.pageToken = pageToken;
+            this.pageTokenPosition = pageTokenPosition;
+        }
     }
 
     /**
@@ -212,6 +249,25 @@ public class BeanListPageElement<T> extends ListPageElement<T> implements ListIt
         this.secondarySortOrder = secondarySortOrder;
     }
 
+    public boolean isKeysetPagination()
+    {
+        return keysetPagination;
+    }
+
+    /**
+     * Enables keyset pagination.<br>
+     * If enabled, the page following the previously loaded page is queried by the sort key values of the last item  
+     * instead of skipping all previous rows. Other pages are still loaded by skipping rows.<br>
+     * The key columns of the rowset are added to the sort order and all sort columns must be available as bean properties.
+     * @param keysetPagination flag whether to use keyset pagination 
+     */
+    public void setKeysetPagination(boolean keysetPagination)
+    {
+        if (keysetPagination && ObjectUtils.isEmpty(rowset.getKeyColumns()))
+            throw new NotSupportedException(this, "setKeysetPagination");
+        this.keysetPagination = keysetPagination;
+    }
+
     /** session scoped properties **/
     @Override
     public ListTableInfo getTableInfo()
@@ -339,8 +395,10 @@ public class BeanListPageElement<T> extends ListPageElement<T> implements ListIt
             { // Set Sort order
                 setOrderBy(queryCmd);
                 lti.setSortOrderChanged(false);
+                lti.setPageToken(null, -1);
             }
             
+            DBCommand readCmd = queryCmd;
             int position = 0;
             int skipRows = 0;
             int maxItems = maxItemCount;
@@ -360,20 +418,30 @@ public class BeanListPageElement<T> extends ListPageElement<T> implements ListIt
                 skipRows = position;
                 // constraint
                 queryCmd.clearLimit();
+                if (keysetPagination)
+                {   // unique sort order
+                    queryCmd.orderByKeyColumns(rowset);
+                    if (position>0 && position==lti.getPageTokenPosition())
+                    {   // seek after the last item of the previous page
+                        readCmd = queryCmd.clone();
+                        readCmd.seekAfter(lti.getPageToken());
+                        skipRows = 0;
+                    }
+                }
                 DBMSHandler dbms = r.getContext().getDbms(); 
                 if (dbms.isSupported(DBMSFeature.QUERY_LIMIT_ROWS))
                 {   // let the database limit the rows
                     if (dbms.isSupported(DBMSFeature.QUERY_SKIP_ROWS))
                     {   // let the database skip the rows
-                        queryCmd.skipRows(skipRows);
+                        readCmd.skipRows(skipRows);
                         skipRows = 0;
                     }
-                    queryCmd.limitRows(skipRows+maxItems);
+                    readCmd.limitRows(skipRows+maxItems);
                 }
             }
 
             // DBReader.open must always be surrounded with a try {} finally {} block!
-            r.open(queryCmd);
+            r.open(readCmd);
 
             // get position from the session
             if (skipRows>0)
@@ -397,6 +465,14 @@ public class BeanListPageElement<T> extends ListPageElement<T> implements ListIt
                     lti.init(position + items.size(), lti.getPageSize());
                 }
                 lti.setPosition(position);
+                if (keysetPagination)
+                {   // remember the last item for the following page
+                    DBPageToken pageToken = (items.isEmpty() ? null : getPageToken(queryCmd, items.get(items.size()-1)));
+                    if (pageToken==null)
+                        lti.setPageToken(null, -1);
+                    else
+                        lti.setPageToken(pageToken, position + items.size());
+                }
                 lti.setModified(false);
                 lti.setValid(true);
             }
@@ -424,6 +500,27 @@ public class BeanListPageElement<T> extends ListPageElement<T> implements ListIt
         }
     }
 
+    /**
+     * Returns the page token for the last item of a page which is used to seek the following page.<br>
+     * If a sort column contains a null value, no token is available and the following page is read by skipping rows.
+     * 
+     * @param cmd the query command
+     * @param lastItem the last item of the page
+     * @return the page token or null if the item has a null sort value
+     */
+    protected DBPageToken getPageToken(DBCommand cmd, Object lastItem)
+    {
+        try
+        {   // get token
+            return cmd.getPageTokenFromBean(lastItem);
+        }
+        catch (InvalidArgumentException e)
+        {   // null values cannot be compared
+            log.debug("No page token available for {}. A sort value is null.", getPropertyName());
+            return null;
+        }
+    }
+
     /**
      * set order by for db queries
      * 
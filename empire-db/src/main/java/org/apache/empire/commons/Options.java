@@ -22,7 +22,9 @@ import java.io.Serializable;
 import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -39,6 +41,8 @@ import org.w3c.dom.Element;
  * Additionally the class provides a text string describing the value for display purposes.<BR>
  * The class is implemented as a set of OptionEntry objects 
  * where the entry value is used as the key for the set and thus must be unique.<BR>
+ * For larger lists a hash index on the entry values is built on the first lookup in order to avoid linear scans.
+ * The index is published only when complete, hence concurrent lookups remain safe as long as the options are not modified.<BR>
  */
 public class Options extends AbstractSet<OptionEntry> implements Cloneable, Serializable
 {
@@ -144,6 +148,33 @@ public class Options extends AbstractSet<OptionEntry> implements Cloneable, Seri
         }
     }
     
+    /**
+     * Iterator that invalidates the index on remove 
+     */
+    private class OptionIterator implements Iterator<OptionEntry>
+    {
+        private final Iterator<OptionEntry> iterator = list.iterator();
+
+        @Override
+        public boolean hasNext()
+        {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public OptionEntry next()
+        {
+            return iterator.next();
+        }
+
+        @Override
+        public void remove()
+        {
+            iterator.remove();
+            valueIndex = null;
+        }
+    }
+    
     /**
      * InsertPos enum
      */
@@ -152,7 +183,81 @@ public class Options extends AbstractSet<OptionEntry> implements Cloneable, Seri
         Top, Bottom, Sort
     }
 
+    // Minimum number of entries for building the value index
+    private static final int    INDEX_THRESHOLD = 16;
+    // Index key for empty values
+    private static final Object EMPTY_KEY       = new Object();
+    // Literal of an enum with the name NULL (see ObjectUtils.compareEqual)
+    private static final String NULL_ENUM       = "NULL";
+    // Marker for more than one matching entry
+    private static final OptionEntry NO_UNIQUE_MATCH = new OptionEntry(null, null);
+
+    /**
+     * ValueIndex
+     * The index of the entry values. It is built completely before it is published.
+     */
+    private static final class ValueIndex
+    {
+        // index key to OptionEntry or List of OptionEntry
+        private final Map<Object, Object> map;
+        // Entries which values cannot be indexed
+        private final List<OptionEntry>   unindexed;
+
+        private ValueIndex(List<OptionEntry> entries)
+        {
+            this.map = new HashMap<Object, Object>(entries.size()*2);
+            this.unindexed = new ArrayList<OptionEntry>();
+            for (OptionEntry oe : entries)
+                add(oe);
+        }
+
+        private void add(OptionEntry oe)
+        {
+            Object[] keys = getIndexKeys(oe.getValue());
+            if (keys==null)
+            {   // not indexable
+                unindexed.add(oe);
+                return;
+            }
+            for (int i=0; i<keys.length; i++)
+            {   // add to bucket
+                Object bucket = map.get(keys[i]);
+                if (bucket==null)
+                    map.put(keys[i], oe);
+                else if (bucket instanceof OptionEntry)
+                {   List<OptionEntry> entries = new ArrayList<OptionEntry>(2);
+                    entries.add((OptionEntry)bucket);
+                    entries.add(oe);
+                    map.put(keys[i], entries);
+                }
+                else
+                    toEntryList(bucket).add(oe);
+            }
+        }
+
+        private void remove(OptionEntry oe)
+        {
+            Object[] keys = getIndexKeys(oe.getValue());
+            if (keys==null)
+            {   // not indexable
+                unindexed.remove(oe);
+                return;
+            }
+            for (int i=0; i<keys.length; i++)
+            {   // remove from bucket
+                Object bucket = map.get(keys[i]);
+                if (bucket==oe)
+                    map.remove(keys[i]);
+                else if (bucket instanceof List<?>)
+                    toEntryList(bucket).remove(oe);
+            }
+        }
+    }
+
     private final ArrayList<OptionEntry> list;
+
+    // Value index (built on first lookup)
+    private transient volatile ValueIndex valueIndex;
     
     public Options()
     {   // Default constructor
@@ -234,6 +339,33 @@ public class Options extends AbstractSet<OptionEntry> implements Cloneable, Seri
             value = ((Entry<?,?>) value).getKey();
         if (value instanceof OptionEntry)
             value = ((OptionEntry) value).getValue();
+        // Use index
+        Object[] keys = (list.size()>=INDEX_THRESHOLD ? getIndexKeys(value) : null);
+        if (keys!=null)
+        {   // build index
+            ValueIndex index = valueIndex;
+            if (index==null)
+            {   // publish the complete index
+                index = new ValueIndex(list);
+                valueIndex = index;
+            }
+            OptionEntry found = null;
+            for (int i=0; i<keys.length; i++)
+            {   // find in bucket
+                Object bucket = index.map.get(keys[i]);
+                if (bucket instanceof OptionEntry)
+                    found = matchEntry(found, (OptionEntry)bucket, value);
+                else if (bucket!=null)
+                {   for (OptionEntry oe : toEntryList(bucket))
+                        found = matchEntry(found, oe, value);
+                }
+            }
+            for (OptionEntry oe : index.unindexed)
+                found = matchEntry(found, oe, value);
+            // unique?
+            if (found!=NO_UNIQUE_MATCH)
+                return found;
+        }
         // Find it now
         for (OptionEntry oe : list)
         {   // Search List for Index
@@ -243,6 +375,77 @@ public class Options extends AbstractSet<OptionEntry> implements Cloneable, Seri
         return null;
     }
 
+    private static OptionEntry matchEntry(OptionEntry found, OptionEntry oe, Object value)
+    {
+        if (found==oe || found==NO_UNIQUE_MATCH || !oe.valueEquals(value))
+            return found;
+        // first or second match
+        return (found==null ? oe : NO_UNIQUE_MATCH);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<OptionEntry> toEntryList(Object bucket)
+    {
+        return (List<OptionEntry>)bucket;
+    }
+
+    /**
+     * Returns the index keys for a value.<br>
+     * Values which are equal according to ObjectUtils.compareEqual() must share at least one key:
+     * Numbers and enum ordinals are indexed by their integer part, 
+     * strings, enum values and other simple values by their string representation.
+     * Strings that look like a number are additionally indexed by their integer part.
+     * @param value the value
+     * @return the index keys or null if the value cannot be indexed 
+     */
+    private static Object[] getIndexKeys(Object value)
+    {
+        if (ObjectUtils.isEmpty(value))
+            return new Object[] { EMPTY_KEY };
+        if (value instanceof Number)
+            return new Object[] { Long.valueOf((long)((Number)value).doubleValue()) };
+        if (value instanceof Enum<?>)
+        {   // ordinal and string value
+            Enum<?> enumValue = (Enum<?>)value;
+            String text = StringUtils.coalesce(ObjectUtils.getString(enumValue), NULL_ENUM);
+            return new Object[] { Long.valueOf(enumValue.ordinal()), text };
+        }
+        if ((value instanceof String) || (value instanceof Character) || (value instanceof Boolean))
+        {   // string and number
+            String text = value.toString();
+            Long number = getNumberKey(text);
+            return (number!=null ? new Object[] { text, number } : new Object[] { text });
+        }
+        // not indexable
+        return null;
+    }
+
+    private static Long getNumberKey(String text)
+    {   // may be the string representation of a number?
+        char c = text.charAt(0);
+        if (!((c>='0' && c<='9') || c=='-' || c=='N' || c=='I'))
+            return null;
+        try {
+            return Long.valueOf((long)Double.parseDouble(text));
+        } catch(NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private void addToIndex(OptionEntry oe)
+    {
+        ValueIndex index = valueIndex;
+        if (index!=null)
+            index.add(oe);
+    }
+
+    private void removeFromIndex(OptionEntry oe)
+    {
+        ValueIndex index = valueIndex;
+        if (index!=null)
+            index.remove(oe);
+    }
+
     public String get(Object value)
     {
         OptionEntry oe = getEntry(value);
@@ -359,7 +562,9 @@ public class Options extends AbstractSet<OptionEntry> implements Cloneable, Seri
             else // bottom is default
                 index = list.size();
             // add entry now
-            list.add(index, createOptionEntry(value, text, (active!=null ? active :true )));
+            oe = createOptionEntry(value, text, (active!=null ? active :true ));
+            list.add(index, oe);
+            addToIndex(oe);
         }
     }
 
@@ -395,7 +600,9 @@ public class Options extends AbstractSet<OptionEntry> implements Cloneable, Seri
         }
         else
         {   // add new Option
-            list.add(createOptionEntry(value, text, (active!=null ? active :true )));
+            oe = createOptionEntry(value, text, (active!=null ? active :true ));
+            list.add(oe);
+            addToIndex(oe);
         }
     }
     
@@ -443,9 +650,13 @@ public class Options extends AbstractSet<OptionEntry> implements Cloneable, Seri
         // find and add or replace
         OptionEntry oe = getEntry(option.getValue());
         if (oe!=null)
+        {   // replace
             list.set(getIndex(oe), option);
+            removeFromIndex(oe);
+        }
         else
             list.add(option);
+        addToIndex(option);
         return true;
     }
 
@@ -453,6 +664,7 @@ public class Options extends AbstractSet<OptionEntry> implements Cloneable, Seri
     public void clear()
     {
         list.clear();
+        valueIndex = null;
     }
 
     @Override
@@ -489,7 +701,7 @@ public class Options extends AbstractSet<OptionEntry> implements Cloneable, Seri
     @Override
     public Iterator<OptionEntry> iterator()
     {
-        return list.iterator();
+        return new OptionIterator();
     }
 
     @Override
@@ -501,6 +713,7 @@ public class Options extends AbstractSet<OptionEntry> implements Cloneable, Seri
             return false; // Element not found
         // remove
         list.remove(getIndex(oe));
+        removeFromIndex(oe);
         return true;
     }
 
@@ -0,0 +1,721 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.data.list;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.apache.empire.commons.ObjectUtils;
+import org.apache.empire.data.ColumnExpr;
+import org.apache.empire.data.DataType;
+import org.apache.empire.data.RecordData;
+import org.apache.empire.db.DBRecordData;
+import org.apache.empire.exceptions.InvalidArgumentException;
+import org.apache.empire.exceptions.ItemNotFoundException;
+import org.apache.empire.exceptions.NotImplementedException;
+
+/**
+ * ColumnarDataList<br>
+ * A read-only query result which stores its values column by column instead of row by row.<br>
+ * Integer and float columns are stored in primitive arrays, boolean columns in bitmaps
+ * and text columns are dictionary encoded as long as the number of distinct values does not exceed the dictionary limit.
+ * Null values of primitive columns are stored in a bitmap.<br>
+ * For large results this requires considerably less memory than a list of DataListEntry items.<br>
+ * Each row is accessible through a RecordData view (see {@link Row}).
+ * A Row is a lightweight object that is created on access and holds no values itself.<br>
+ * Values of integer and float columns are returned as the same type that the JDBC driver returned for the first non-null value.
+ * Decimal and all other columns are stored as objects.<br>
+ * Use DBUtils.queryColumnarList() to obtain a ColumnarDataList.
+ */
+public class ColumnarDataList extends AbstractList<ColumnarDataList.Row> implements RandomAccess, Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default maximum number of distinct values of a dictionary encoded text column
+     */
+    public static final int DEFAULT_DICTIONARY_LIMIT = 1024;
+
+    /**
+     * ColumnData
+     * Holds the values of a single column
+     */
+    protected static abstract class ColumnData implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Appends the value of a field of the current row
+         * @param row the row number
+         * @param recData the record data to read from
+         * @param index the field index
+         */
+        public abstract void append(int row, DBRecordData recData, int index);
+
+        public abstract Object getValue(int row);
+
+        /**
+         * Reduces the capacity of the column to the given size
+         * @param size the number of rows
+         */
+        public abstract void trimToSize(int size);
+
+        public boolean isNull(int row)
+        {
+            return ObjectUtils.isEmpty(getValue(row));
+        }
+
+        public long getLong(int row)
+        {
+            return ObjectUtils.getLong(getValue(row));
+        }
+
+        public double getDouble(int row)
+        {
+            return ObjectUtils.getDouble(getValue(row));
+        }
+
+        public boolean getBoolean(int row)
+        {
+            return ObjectUtils.getBoolean(getValue(row));
+        }
+
+        public String getString(int row)
+        {
+            return ObjectUtils.getString(getValue(row));
+        }
+
+        protected static int grow(int capacity, int row)
+        {
+            return Math.max(capacity * 2, Math.max(row + 1, 16));
+        }
+    }
+
+    /**
+     * LongColumnData
+     * Stores integer values in a long array
+     */
+    protected static class LongColumnData extends ColumnData
+    {
+        private static final long serialVersionUID = 1L;
+
+        private long[] values;
+        private final BitSet nulls = new BitSet();
+        private Class<?> valueType;
+
+        public LongColumnData(int capacity)
+        {
+            this.values = new long[capacity];
+        }
+
+        @Override
+        public void append(int row, DBRecordData recData, int index)
+        {
+            if (row>=values.length)
+                values = Arrays.copyOf(values, grow(values.length, row));
+            long value = recData.getLong(index);
+            if (value==0 && recData.isNull(index))
+            {   nulls.set(row);
+                return;
+            }
+            values[row] = value;
+            // detect the value type once
+            if (valueType==null)
+                valueType = recData.getValue(index).getClass();
+        }
+
+        @Override
+        public Object getValue(int row)
+        {
+            if (nulls.get(row))
+                return null;
+            long value = values[row];
+            if (valueType==Integer.class)
+                return Integer.valueOf((int)value);
+            if (valueType==Short.class)
+                return Short.valueOf((short)value);
+            if (valueType==BigDecimal.class)
+                return BigDecimal.valueOf(value);
+            return Long.valueOf(value);
+        }
+
+        @Override
+        public boolean isNull(int row)
+        {
+            return nulls.get(row);
+        }
+
+        @Override
+        public long getLong(int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        public double getDouble(int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        public void trimToSize(int size)
+        {
+            if (values.length>size)
+                values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * DoubleColumnData
+     * Stores floating point values in a double array
+     */
+    protected static class DoubleColumnData extends ColumnData
+    {
+        private static final long serialVersionUID = 1L;
+
+        private double[] values;
+        private final BitSet nulls = new BitSet();
+        private Class<?> valueType;
+
+        public DoubleColumnData(int capacity)
+        {
+            this.values = new double[capacity];
+        }
+
+        @Override
+        public void append(int row, DBRecordData recData, int index)
+        {
+            if (row>=values.length)
+                values = Arrays.copyOf(values, grow(values.length, row));
+            double value = recData.getDouble(index);
+            if (value==0.0d && recData.isNull(index))
+            {   nulls.set(row);
+                return;
+            }
+            values[row] = value;
+            // detect the value type once
+            if (valueType==null)
+                valueType = recData.getValue(index).getClass();
+        }
+
+        @Override
+        public Object getValue(int row)
+        {
+            if (nulls.get(row))
+                return null;
+            double value = values[row];
+            if (valueType==Float.class)
+                return Float.valueOf((float)value);
+            if (valueType==BigDecimal.class)
+                return BigDecimal.valueOf(value);
+            return Double.valueOf(value);
+        }
+
+        @Override
+        public boolean isNull(int row)
+        {
+            return nulls.get(row);
+        }
+
+        @Override
+        public long getLong(int row)
+        {
+            return (long)values[row];
+        }
+
+        @Override
+        public double getDouble(int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        public void trimToSize(int size)
+        {
+            if (values.length>size)
+                values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * BooleanColumnData
+     * Stores boolean values in a bitmap
+     */
+    protected static class BooleanColumnData extends ColumnData
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final BitSet values = new BitSet();
+        private final BitSet nulls = new BitSet();
+
+        @Override
+        public void append(int row, DBRecordData recData, int index)
+        {
+            if (recData.getBoolean(index))
+                values.set(row);
+            else if (recData.isNull(index))
+                nulls.set(row);
+        }
+
+        @Override
+        public Object getValue(int row)
+        {
+            if (nulls.get(row))
+                return null;
+            return Boolean.valueOf(values.get(row));
+        }
+
+        @Override
+        public boolean isNull(int row)
+        {
+            return nulls.get(row);
+        }
+
+        @Override
+        public boolean getBoolean(int row)
+        {
+            return values.get(row);
+        }
+
+        @Override
+        public void trimToSize(int size)
+        {
+            /* Nothing */
+        }
+    }
+
+    /**
+     * StringColumnData
+     * Stores text values dictionary encoded.
+     * If the number of distinct values exceeds the dictionary limit the values are stored in a plain array.
+     */
+    protected static class StringColumnData extends ColumnData
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int dictionaryLimit;
+        private Map<String, Integer> dictionary = new HashMap<String, Integer>();
+        private String[] dictValues = new String[16];
+        private int[] codes;
+        private String[] values;
+
+        public StringColumnData(int capacity, int dictionaryLimit)
+        {
+            this.dictionaryLimit = dictionaryLimit;
+            this.codes = new int[capacity];
+        }
+
+        @Override
+        public void append(int row, DBRecordData recData, int index)
+        {
+            Object value = recData.getValue(index);
+            String text = (value!=null ? value.toString() : null);
+            if (dictionary==null)
+            {   // plain
+                if (row>=values.length)
+                    values = Arrays.copyOf(values, grow(values.length, row));
+                values[row] = text;
+                return;
+            }
+            // dictionary encoded
+            if (row>=codes.length)
+                codes = Arrays.copyOf(codes, grow(codes.length, row));
+            if (text==null)
+            {   codes[row] = -1;
+                return;
+            }
+            Integer code = dictionary.get(text);
+            if (code==null)
+            {   // new dictionary value
+                int size = dictionary.size();
+                if (size>=dictionaryLimit)
+                {   // too many distinct values
+                    decode(row);
+                    values[row] = text;
+                    return;
+                }
+                if (size>=dictValues.length)
+                    dictValues = Arrays.copyOf(dictValues, size * 2);
+                dictValues[size] = text;
+                code = size;
+                dictionary.put(text, code);
+            }
+            codes[row] = code;
+        }
+
+        /**
+         * Returns whether the values are dictionary encoded
+         * @return true if the values are dictionary encoded or false otherwise
+         */
+        public boolean isDictionaryEncoded()
+        {
+            return (dictionary!=null);
+        }
+
+        @Override
+        public Object getValue(int row)
+        {
+            return getString(row);
+        }
+
+        @Override
+        public String getString(int row)
+        {
+            if (dictionary==null)
+                return values[row];
+            int code = codes[row];
+            return (code>=0 ? dictValues[code] : null);
+        }
+
+        @Override
+        public void trimToSize(int size)
+        {
+            if (dictionary!=null && codes.length>size)
+                codes = Arrays.copyOf(codes, size);
+            if (dictionary==null && values.length>size)
+                values = Arrays.copyOf(values, size);
+        }
+
+        private void decode(int rows)
+        {
+            values = new String[Math.max(codes.length, rows + 1)];
+            for (int i=0; i<rows; i++)
+                values[i] = getString(i);
+            dictionary = null;
+            dictValues = null;
+            codes = null;
+        }
+    }
+
+    /**
+     * ObjectColumnData
+     * Stores the values as objects
+     */
+    protected static class ObjectColumnData extends ColumnData
+    {
+        private static final long serialVersionUID = 1L;
+
+        private Object[] values;
+
+        public ObjectColumnData(int capacity)
+        {
+            this.values = new Object[capacity];
+        }
+
+        @Override
+        public void append(int row, DBRecordData recData, int index)
+        {
+            if (row>=values.length)
+                values = Arrays.copyOf(values, grow(values.length, row));
+            values[row] = recData.getValue(index);
+        }
+
+        @Override
+        public Object getValue(int row)
+        {
+            return values[row];
+        }
+
+        @Override
+        public void trimToSize(int size)
+        {
+            if (values.length>size)
+                values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Row
+     * A RecordData view on a single row of the list
+     */
+    public class Row implements RecordData
+    {
+        private final int rownum;
+
+        protected Row(int rownum)
+        {
+            this.rownum = rownum;
+        }
+
+        public int getRownum()
+        {
+            return rownum;
+        }
+
+        @Override
+        public int getFieldCount()
+        {
+            return data.length;
+        }
+
+        @Override
+        public int getFieldIndex(ColumnExpr column)
+        {
+            return head.getColumnIndex(column);
+        }
+
+        @Override
+        public int getFieldIndex(String column)
+        {
+            return head.getColumnIndex(column);
+        }
+
+        @Override
+        public ColumnExpr getColumn(int index)
+        {
+            if (index<0 || index>=data.length)
+                throw new InvalidArgumentException("index", index);
+            return head.columns[index];
+        }
+
+        @Override
+        public Object getValue(int index)
+        {
+            return columnData(index).getValue(rownum);
+        }
+
+        @Override
+        public Object get(ColumnExpr column)
+        {
+            return getValue(indexOf(column));
+        }
+
+        @Override
+        public boolean isNull(int index)
+        {
+            return columnData(index).isNull(rownum);
+        }
+
+        @Override
+        public boolean isNull(ColumnExpr column)
+        {
+            return isNull(indexOf(column));
+        }
+
+        public int getInt(int index)
+        {
+            return (int)columnData(index).getLong(rownum);
+        }
+
+        public int getInt(ColumnExpr column)
+        {
+            return getInt(indexOf(column));
+        }
+
+        public long getLong(int index)
+        {
+            return columnData(index).getLong(rownum);
+        }
+
+        public long getLong(ColumnExpr column)
+        {
+            return getLong(indexOf(column));
+        }
+
+        public double getDouble(int index)
+        {
+            return columnData(index).getDouble(rownum);
+        }
+
+        public double getDouble(ColumnExpr column)
+        {
+            return getDouble(indexOf(column));
+        }
+
+        public boolean getBoolean(int index)
+        {
+            return columnData(index).getBoolean(rownum);
+        }
+
+        public boolean getBoolean(ColumnExpr column)
+        {
+            return getBoolean(indexOf(column));
+        }
+
+        public String getString(int index)
+        {
+            return columnData(index).getString(rownum);
+        }
+
+        public String getString(ColumnExpr column)
+        {
+            return getString(indexOf(column));
+        }
+
+        public String getText(ColumnExpr column)
+        {
+            int index = indexOf(column);
+            return head.getText(index, getValue(index));
+        }
+
+        /**
+         * Creates a DataListEntry with a copy of the row values
+         * @return the DataListEntry
+         */
+        public DataListEntry toDataListEntry()
+        {
+            Object[] values = new Object[data.length];
+            for (int i=0; i<values.length; i++)
+                values[i] = getValue(i);
+            return new DataListEntry(head, values, rownum);
+        }
+
+        @Override
+        public int setBeanProperties(Object bean, Collection<? extends ColumnExpr> ignoreList)
+        {
+            throw new NotImplementedException(this, "setBeanProperties");
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder b = new StringBuilder();
+            for (int i=0; i<data.length; i++)
+            {
+                b.append(head.getText(i, getValue(i)));
+                b.append(head.columnSeparator);
+            }
+            return b.toString();
+        }
+
+        private ColumnData columnData(int index)
+        {
+            if (index<0 || index>=data.length)
+                throw new InvalidArgumentException("index", index);
+            return data[index];
+        }
+
+        private int indexOf(ColumnExpr column)
+        {
+            int index = head.getColumnIndex(column);
+            if (index<0)
+                throw new ItemNotFoundException(column.getName());
+            return index;
+        }
+    }
+
+    protected final DataListHead head;
+    protected final ColumnData[] data;
+    protected final int dictionaryLimit;
+    private int size = 0;
+
+    /**
+     * Constructs a ColumnarDataList
+     * @param head the list head
+     * @param capacity the initial capacity
+     * @param dictionaryLimit the maximum number of distinct values of dictionary encoded text columns
+     */
+    public ColumnarDataList(DataListHead head, int capacity, int dictionaryLimit)
+    {
+        if (head==null)
+            throw new InvalidArgumentException("head", head);
+        this.head = head;
+        this.dictionaryLimit = dictionaryLimit;
+        ColumnExpr[] columns = head.getColumns();
+        this.data = new ColumnData[columns.length];
+        for (int i=0; i<columns.length; i++)
+            data[i] = createColumnData(columns[i], capacity);
+    }
+
+    /**
+     * Constructs a ColumnarDataList
+     * @param head the list head
+     * @param capacity the initial capacity
+     */
+    public ColumnarDataList(DataListHead head, int capacity)
+    {
+        this(head, capacity, DEFAULT_DICTIONARY_LIMIT);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends DataListHead> T getHead()
+    {
+        return (T)this.head;
+    }
+
+    /**
+     * Appends the current row of a DBRecordData object (usually a DBReader).<br>
+     * The fields of the record must match the columns of the list head.
+     * @param recData the record data
+     */
+    public void appendRow(DBRecordData recData)
+    {
+        if (recData.getFieldCount()!=data.length)
+            throw new InvalidArgumentException("recData", recData);
+        for (int i=0; i<data.length; i++)
+            data[i].append(size, recData, i);
+        size++;
+    }
+
+    /**
+     * Reduces the memory used by the list to the current number of rows
+     */
+    public void trimToSize()
+    {
+        for (int i=0; i<data.length; i++)
+            data[i].trimToSize(size);
+    }
+
+    @Override
+    public Row get(int index)
+    {
+        if (index<0 || index>=size)
+            throw new InvalidArgumentException("index", index);
+        return new Row(index);
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Creates the storage for a column
+     * @param column the column
+     * @param capacity the initial capacity
+     * @return the column data
+     */
+    protected ColumnData createColumnData(ColumnExpr column, int capacity)
+    {
+        DataType dataType = column.getDataType();
+        switch(dataType)
+        {
+            case INTEGER:
+            case AUTOINC:
+                return new LongColumnData(capacity);
+            case FLOAT:
+                return new DoubleColumnData(capacity);
+            case BOOL:
+                return new BooleanColumnData();
+            case VARCHAR:
+            case CHAR:
+                return new StringColumnData(capacity, dictionaryLimit);
+            default:
+                return new ObjectColumnData(capacity);
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.empire.data.list;
 import java.io.Serializable;
 
 import org.apache.empire.commons.ObjectUtils;
+import org.apache.empire.commons.OptionEntry;
 import org.apache.empire.commons.Options;
 import org.apache.empire.commons.StringUtils;
 import org.apache.empire.data.Column;
@@ -106,9 +107,10 @@ public class DataListHead implements Serializable
         ColumnExpr column = columns[idx];
         // check options first
         Options options = column.getOptions();
-        if (options!=null && options.has(value))
-        {   // lookup option
-            text = options.get(value);
+        OptionEntry entry = (options!=null ? options.getEntry(value) : null);
+        if (entry!=null)
+        {   // option text
+            text = entry.getText();
         }
         else if (value instanceof String)
         {   // we already have a string
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DBCancelHandle<br>
+ * Allows to cancel a running statement from another thread.<br>
+ * The handle may be set on a command (see {@link DBCommandExpr#setCancelHandle(DBCancelHandle)}) 
+ * or obtained from a reader (see {@link DBReader#getCancelHandle()}).<br>
+ * While a statement is executed or its result is read, the statement is attached to the handle.
+ * Calling cancel() cancels the attached statement using Statement.cancel() and prevents further statements from being executed with this handle.
+ * The failing statement is reported with a QueryTimeoutException.<br>
+ * A handle controls one statement at a time.
+ */
+public class DBCancelHandle
+{
+    // Logger
+    private static final Logger log = LoggerFactory.getLogger(DBCancelHandle.class);
+
+    private volatile boolean cancelled = false;
+    
+    private Statement statement = null;
+
+    /**
+     * Returns whether cancel() has been called
+     * @return true if the handle has been cancelled
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Cancels the statement that is currently attached (if any) and all subsequent statements.
+     */
+    public synchronized void cancel()
+    {
+        cancelled = true;
+        if (statement==null)
+            return;
+        try
+        {   // cancel now
+            log.info("Cancelling statement {}", statement);
+            statement.cancel();
+        } catch (SQLException e) {
+            // Just log
+            log.warn("Failed to cancel statement: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Resets the handle in order to reuse it for another statement
+     */
+    public synchronized void reset()
+    {
+        cancelled = false;
+        statement = null;
+    }
+
+    /**
+     * Attaches a statement that is about to be executed
+     * @param stmt the statement
+     * @throws SQLException if the handle has already been cancelled
+     */
+    public synchronized void attach(Statement stmt)
+        throws SQLException
+    {
+        if (cancelled)
+            throw new SQLException("The statement has been cancelled.");
+        this.statement = stmt;
+    }
+
+    /**
+     * Detaches a statement that has been closed
+     * @param stmt the statement
+     */
+    public synchronized void detach(Statement stmt)
+    {
+        if (statement==stmt)
+            statement = null;
+    }
+
+    /**
+     * Detaches the attached statement (if any)
+     */
+    public synchronized void detach()
+    {
+        statement = null;
+    }
+}
@@ -34,6 +34,7 @@ public class DBCmdParam extends DBExpr
     protected DBCommand cmd;
     protected DataType  type;
     protected Object    value;
+    protected DBCmdParam origin;
 
     /**
      * Protected constructor used e.g. by DBCommand.addParam(...) 
@@ -48,6 +49,19 @@ public class DBCmdParam extends DBExpr
         this.value = getCmdParamValue(value);
     }
 
+    /**
+     * Protected constructor used to create a temporary copy of a parameter 
+     * e.g. if a parameter is used more than once or for subquery parameters 
+     * @param origin the parameter to copy
+     */
+    protected DBCmdParam(DBCmdParam origin)
+    {
+        this.cmd = null;
+        this.type = origin.type;
+        this.value = origin.value;
+        this.origin = origin.getOrigin();
+    }
+
     /**
      * Returns the internal parameter value for a given "real" value.  
      * Depending on the data type this might involve wrapping the real value with another class.
@@ -130,6 +144,16 @@ public class DBCmdParam extends DBExpr
         return cmd;
     }
 
+    /**
+     * Returns the parameter this parameter has been copied from.<br>
+     * For parameters that are not a temporary copy, this is the parameter itself.
+     * @return the original parameter
+     */
+    public DBCmdParam getOrigin()
+    {
+        return (origin!=null ? origin : this);
+    }
+
     /**
      * Returns the data type of the command parameter
      * @return the data type
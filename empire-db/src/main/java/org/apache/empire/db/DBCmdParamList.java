@@ -127,6 +127,18 @@ public class DBCmdParamList implements DBCmdParams
         return values;
     }
     
+    /**
+     * Returns the parameters used by the last statement generated in the order of their occurrence.<br>
+     * Must be called immediately after the statement has been generated.
+     * @return the parameters used or an empty array
+     */
+    public DBCmdParam[] getUsedParams()
+    {
+        if (cmdParams==null || paramUsageCount==0)
+            return new DBCmdParam[0];
+        return cmdParams.subList(0, paramUsageCount).toArray(new DBCmdParam[paramUsageCount]);
+    }
+    
     /**
      * internally used to reset the command param usage count.
      * Note: Only one thread my generate an SQL statement 
@@ -176,7 +188,7 @@ public class DBCmdParamList implements DBCmdParams
         if (cmdParams==null)
             cmdParams= new ArrayList<DBCmdParam>(subQueryParams.size());
         for (DBCmdParam p : subQueryParams)
-            cmdParams.add(paramUsageCount++, new DBCmdParam(null, DataType.UNKNOWN, p.getValue()));
+            cmdParams.add(paramUsageCount++, new DBCmdParam(p));
     }
     
     /**
@@ -193,7 +205,7 @@ public class DBCmdParamList implements DBCmdParams
         if (index < paramUsageCount)
         {   // Warn: parameter used twice in statement!
             log.debug("The DBCmdParam already been used. Adding a temporary copy");
-            cmdParams.add(paramUsageCount, new DBCmdParam(null, param.getDataType(), param.getValue()));
+            cmdParams.add(paramUsageCount, new DBCmdParam(param));
         }
         else if (index > paramUsageCount)
         {   // Correct parameter order
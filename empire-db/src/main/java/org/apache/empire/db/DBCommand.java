@@ -18,7 +18,9 @@
  */
 package org.apache.empire.db;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -26,9 +28,13 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.commons.beanutils.BeanUtilsBean;
+import org.apache.commons.beanutils.PropertyUtilsBean;
 import org.apache.empire.commons.ObjectUtils;
 import org.apache.empire.commons.StringUtils;
 import org.apache.empire.data.DataType;
+import org.apache.empire.data.RecordData;
+import org.apache.empire.db.exceptions.NoPrimaryKeyException;
 import org.apache.empire.db.expr.column.DBAliasExpr;
 import org.apache.empire.db.expr.compare.DBCompareAndOrExpr;
 import org.apache.empire.db.expr.compare.DBCompareColExpr;
@@ -42,8 +48,10 @@ import org.apache.empire.db.expr.order.DBOrderByExpr;
 import org.apache.empire.db.expr.set.DBSetExpr;
 import org.apache.empire.dbms.DBMSHandler;
 import org.apache.empire.dbms.DBSqlPhrase;
+import org.apache.empire.exceptions.BeanPropertyGetException;
 import org.apache.empire.exceptions.InvalidArgumentException;
 import org.apache.empire.exceptions.ItemNotFoundException;
+import org.apache.empire.exceptions.NotSupportedException;
 import org.apache.empire.exceptions.ObjectNotValidException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -1401,6 +1409,177 @@ public abstract class DBCommand extends DBCommandExpr
     {
         return (DBCommand)super.skipRows(skipRows);
     }
+
+    /**
+     * Overridden to change return type from DBCommandExpr to DBCommand
+     */
+    @Override
+    public DBCommand setQueryTimeout(int seconds)
+    {
+        return (DBCommand)super.setQueryTimeout(seconds);
+    }
+
+    /**
+     * Overridden to change return type from DBCommandExpr to DBCommand
+     */
+    @Override
+    public DBCommand setDeadline(long deadline)
+    {
+        return (DBCommand)super.setDeadline(deadline);
+    }
+
+    /**
+     * Overridden to change return type from DBCommandExpr to DBCommand
+     */
+    @Override
+    public DBCommand setCancelHandle(DBCancelHandle cancelHandle)
+    {
+        return (DBCommand)super.setCancelHandle(cancelHandle);
+    }
+
+    /**
+     * Adds the key columns of a rowset to the end of the order by list unless they are already contained.<br>
+     * This makes the sort order unique as required for keyset pagination (see seekAfter). 
+     * @param rowset the rowset which key columns to add
+     * @return itself (this)
+     */
+    public DBCommand orderByKeyColumns(DBRowSet rowset)
+    {
+        DBColumn[] keyColumns = rowset.getKeyColumns();
+        if (keyColumns==null || keyColumns.length==0)
+            throw new NoPrimaryKeyException(rowset);
+        if (orderBy == null)
+            orderBy = new ArrayList<DBOrderByExpr>();
+        for (DBColumn column : keyColumns)
+        {   // add if not already there
+            boolean found = false;
+            for (DBOrderByExpr ob : orderBy)
+            {
+                if (ob.getColumn().equals(column))
+                {   found = true;
+                    break;
+                }
+            }
+            if (!found)
+                orderBy.add(new DBOrderByExpr(column, false));
+        }
+        return this;
+    }
+
+    /**
+     * Restricts the query to the rows following the row described by a page token (keyset pagination).<br>
+     * The token values correspond to the order by list and the constraint is generated in the form:<br>
+     *      c1 &gt;= v1 AND (c1 &gt; v1 OR (c1 = v1 AND (c2 &gt; v2 OR (c2 = v2 AND ...))))<br>
+     * where descending columns are compared with &lt; and &lt;= instead.
+     * The leading bound is redundant but allows the database to use an index range scan on the first sort column.
+     * The order by list must be unique (see orderByKeyColumns) and the sort columns must not contain null values.
+     * @param token the page token of the last row of the previous page or null for the first page 
+     * @return itself (this)
+     */
+    public DBCommand seekAfter(DBPageToken token)
+    {
+        if (token==null)
+            return this; // first page
+        if (orderBy==null || orderBy.size()!=token.size())
+            throw new InvalidArgumentException("token", token);
+        DBCompareExpr seek = null;
+        for (int i=orderBy.size()-1; i>=0; i--)
+        {   // build from the last column
+            DBOrderByExpr ob = orderBy.get(i);
+            DBColumnExpr column = ob.getColumn();
+            Object value = token.getValue(i);
+            if (value==null)
+                throw new InvalidArgumentException("token", token);
+            DBCompareExpr after = (ob.isDescending() ? column.isSmallerThan(value) : column.isGreaterThan(value));
+            seek = (seek==null) ? after : after.or(column.is(value).and(seek)); 
+        }
+        if (orderBy.size()>1)
+        {   // leading bound for the first column
+            DBOrderByExpr ob = orderBy.get(0);
+            Object value = token.getValue(0);
+            DBColumnExpr column = ob.getColumn();
+            DBCompareExpr bound = (ob.isDescending() ? column.isLessOrEqual(value) : column.isMoreOrEqual(value));
+            seek = bound.and(seek);
+        }
+        // add (must not replace existing constraints on the same column)
+        if (isPreparedStatementsEnabled())
+            seek.prepareCommand(this);
+        addWhereConstraints(Collections.singletonList(seek));
+        return this;
+    }
+
+    /**
+     * Returns the page token for a row of the query result which is used to query the following page with seekAfter()
+     * @param row the last row of the current page (e.g. a DataListEntry, DBRecord or DBReader)
+     * @return the page token
+     */
+    public DBPageToken getPageToken(RecordData row)
+    {
+        if (orderBy==null || orderBy.isEmpty())
+            throw new ObjectNotValidException(this);
+        Object[] values = new Object[orderBy.size()];
+        for (int i=0; i<values.length; i++)
+        {   // get value of sort column
+            DBColumnExpr column = orderBy.get(i).getColumn();
+            int index = row.getFieldIndex(column);
+            if (index<0)
+                throw new ItemNotFoundException(column.getName());
+            values[i] = row.getValue(index);
+        }
+        return new DBPageToken(values);
+    }
+
+    /**
+     * Returns the page token for a row of a keyset query performed with DBUtils (e.g. queryDataList(cmd, rowset, after, pageSize)).<br>
+     * The key columns of the rowset are appended to the order by list just as the query does, the command itself is not modified.
+     * @param row the last row of the current page
+     * @param rowset the rowset which key columns are used as tiebreak
+     * @return the page token
+     */
+    public DBPageToken getPageToken(RecordData row, DBRowSet rowset)
+    {
+        return clone().orderByKeyColumns(rowset).getPageToken(row);
+    }
+
+    /**
+     * Returns the page token for a Java bean of the query result which is used to query the following page with seekAfter()
+     * The property names are detected by ColumnExpr.getBeanPropertyName()
+     * @param bean the last bean of the current page
+     * @return the page token
+     */
+    public DBPageToken getPageTokenFromBean(Object bean)
+    {
+        if (orderBy==null || orderBy.isEmpty())
+            throw new ObjectNotValidException(this);
+        PropertyUtilsBean pub = BeanUtilsBean.getInstance().getPropertyUtils();
+        Object[] values = new Object[orderBy.size()];
+        for (int i=0; i<values.length; i++)
+        {   // get property of sort column
+            String property = orderBy.get(i).getColumn().getBeanPropertyName();
+            try {
+                values[i] = pub.getSimpleProperty(bean, property);
+            } catch (IllegalAccessException e) {
+                throw new BeanPropertyGetException(bean, property, e);
+            } catch (InvocationTargetException e) {
+                throw new BeanPropertyGetException(bean, property, e);
+            } catch (NoSuchMethodException e) {
+                throw new BeanPropertyGetException(bean, property, e);
+            }
+        }
+        return new DBPageToken(values);
+    }
+
+    /**
+     * Returns the page token for a Java bean of a keyset query performed with DBUtils (e.g. queryBeanList(cmd, beanType, rowset, after, pageSize)).<br>
+     * The key columns of the rowset are appended to the order by list just as the query does, the command itself is not modified.
+     * @param bean the last bean of the current page
+     * @param rowset the rowset which key columns are used as tiebreak
+     * @return the page token
+     */
+    public DBPageToken getPageTokenFromBean(Object bean, DBRowSet rowset)
+    {
+        return clone().orderByKeyColumns(rowset).getPageTokenFromBean(bean);
+    }
     
     /**
      * Clears the entire command object.
@@ -1689,6 +1868,190 @@ public abstract class DBCommand extends DBCommandExpr
         completeParamUsage();
         return sql.toString();
     }
+
+    /**
+     * Creates a statement that inserts a row or updates the existing row with the same conflict column values (upsert).<br>
+     * The row values are taken from the set expressions which must include all conflict columns.<br>
+     * The statement is DBMS specific and not supported by all DBMS.
+     * Use DBMSHandler.isSupported(DBMSFeature.UPSERT) to check for support 
+     * or use DBContext.executeUpsert() which falls back to an update followed by an insert.
+     * @param table the table into which to insert the row
+     * @param conflictColumns the columns identifying an existing row. If omitted, the primary key columns are used.
+     * @return the upsert SQL-Statement
+     */
+    public String getUpsert(DBTable table, DBColumn... conflictColumns)
+    {
+        throw new NotSupportedException(this, "getUpsert");
+    }
+
+    /**
+     * Returns and checks the conflict columns of an upsert statement
+     * @param table the table into which to insert the row
+     * @param conflictColumns the columns provided or an empty array for the primary key columns
+     * @return the conflict columns
+     */
+    protected DBColumn[] getUpsertConflictColumns(DBTable table, DBColumn[] conflictColumns)
+    {
+        if (!hasSetExpr())
+            throw new ObjectNotValidException(this);
+        if (conflictColumns==null || conflictColumns.length==0)
+        {   // use primary key
+            conflictColumns = table.getKeyColumns();
+            if (conflictColumns==null || conflictColumns.length==0)
+                throw new NoPrimaryKeyException(table);
+        }
+        for (DBColumn column : conflictColumns)
+        {   // must be a column of the table with a value 
+            if (!table.equals(column.getRowSet()) || !hasSetExprOn(column))
+                throw new InvalidArgumentException("conflictColumns", conflictColumns);
+        }
+        return conflictColumns;
+    }
+
+    /**
+     * Returns the set expressions of an upsert statement which are not conflict columns
+     * @param conflictColumns the conflict columns
+     * @return the list of set expressions to update
+     */
+    protected List<DBSetExpr> getUpsertUpdateList(DBColumn[] conflictColumns)
+    {
+        List<DBSetExpr> updateList = new ArrayList<DBSetExpr>(set.size());
+        for (DBSetExpr setExpr : set)
+        {   // skip conflict columns
+            if (ObjectUtils.contains(conflictColumns, setExpr.getColumn()))
+                continue;
+            updateList.add(setExpr);
+        }
+        return updateList;
+    }
+
+    /**
+     * Creates an upsert statement in the form:
+     *      INSERT INTO table (cols) VALUES (vals) ON CONFLICT (conflictCols) DO UPDATE SET col=EXCLUDED.col, ...
+     * @param table the table into which to insert the row
+     * @param conflictColumns the columns identifying an existing row
+     * @return the upsert SQL-Statement
+     */
+    protected String getInsertOnConflictUpsert(DBTable table, DBColumn[] conflictColumns)
+    {
+        resetParamUsage();
+        conflictColumns = getUpsertConflictColumns(table, conflictColumns);
+        DBSQLBuilder sql = createSQLBuilder("INSERT INTO ");
+        table.addSQL(sql, CTX_FULLNAME);
+        sql.append(" (");
+        addListExpr(sql, set, CTX_NAME, ", ");
+        sql.append(")\r\nVALUES (");
+        addListExpr(sql, set, CTX_VALUE, ", ");
+        // on conflict
+        sql.append(")\r\nON CONFLICT (");
+        addListExpr(sql, Arrays.asList(conflictColumns), CTX_NAME, ", ");
+        List<DBSetExpr> updateList = getUpsertUpdateList(conflictColumns);
+        if (updateList.isEmpty())
+        {   // nothing to update
+            sql.append(") DO NOTHING");
+        }
+        else
+        {   // update
+            sql.append(") DO UPDATE SET ");
+            for (int i=0; i<updateList.size(); i++)
+            {
+                DBColumn column = updateList.get(i).getColumn();
+                if (i>0)
+                    sql.append(", ");
+                column.addSQL(sql, CTX_NAME);
+                sql.append("=EXCLUDED.");
+                column.addSQL(sql, CTX_NAME);
+            }
+        }
+        completeParamUsage();
+        return sql.toString();
+    }
+
+    /**
+     * Creates an upsert statement using MERGE in the form:
+     *      MERGE INTO table t USING (source) q0 ON (t.key=q0.key) 
+     *      WHEN MATCHED THEN UPDATE SET col=q0.col, ... 
+     *      WHEN NOT MATCHED THEN INSERT (cols) VALUES (q0.col, ...)
+     * The source is generated by addMergeSource()
+     * @param table the table into which to insert the row
+     * @param conflictColumns the columns identifying an existing row
+     * @return the upsert SQL-Statement
+     */
+    protected String getMergeUpsert(DBTable table, DBColumn[] conflictColumns)
+    {
+        resetParamUsage();
+        conflictColumns = getUpsertConflictColumns(table, conflictColumns);
+        DBSQLBuilder sql = createSQLBuilder("MERGE INTO ");
+        addMergeTarget(sql, table);
+        // Using
+        sql.append("\r\nUSING ");
+        addMergeSource(sql);
+        // On
+        sql.append("\r\nON (");
+        for (int i=0; i<conflictColumns.length; i++)
+        {
+            if (i>0)
+                sql.append(" AND ");
+            sql.append(table.getAlias());
+            sql.append(".");
+            conflictColumns[i].addSQL(sql, CTX_NAME);
+            sql.append("=q0.");
+            conflictColumns[i].addSQL(sql, CTX_NAME);
+        }
+        sql.append(")");
+        // When matched
+        List<DBSetExpr> updateList = getUpsertUpdateList(conflictColumns);
+        if (!updateList.isEmpty())
+        {   sql.append("\r\nWHEN MATCHED THEN UPDATE SET ");
+            for (int i=0; i<updateList.size(); i++)
+            {
+                DBColumn column = updateList.get(i).getColumn();
+                if (i>0)
+                    sql.append(", ");
+                column.addSQL(sql, CTX_NAME);
+                sql.append("=q0.");
+                column.addSQL(sql, CTX_NAME);
+            }
+        }
+        // When not matched
+        sql.append("\r\nWHEN NOT MATCHED THEN INSERT (");
+        addListExpr(sql, set, CTX_NAME, ", ");
+        sql.append(") VALUES (");
+        for (int i=0; i<set.size(); i++)
+        {
+            if (i>0)
+                sql.append(", ");
+            sql.append("q0.");
+            set.get(i).getColumn().addSQL(sql, CTX_NAME);
+        }
+        sql.append(")");
+        completeParamUsage();
+        return sql.toString();
+    }
+
+    /**
+     * Adds the target table of a MERGE statement
+     * @param sql the sql builder
+     * @param table the target table
+     */
+    protected void addMergeTarget(DBSQLBuilder sql, DBTable table)
+    {
+        table.addSQL(sql, CTX_FULLNAME|CTX_ALIAS);
+    }
+
+    /**
+     * Adds the source row of a MERGE statement in the form:
+     *      (VALUES (val1, val2, ...)) q0 (col1, col2, ...)
+     * @param sql the sql builder
+     */
+    protected void addMergeSource(DBSQLBuilder sql)
+    {
+        sql.append("(VALUES (");
+        addListExpr(sql, set, CTX_VALUE, ", ");
+        sql.append(")) q0 (");
+        addListExpr(sql, set, CTX_NAME, ", ");
+        sql.append(")");
+    }
     
     /**
      * Appends all nested DBCompareColExpr for a particular RowSet to a list
@@ -1793,6 +2156,56 @@ public abstract class DBCommand extends DBCommandExpr
         return sql.toString();
     }
 
+    /**
+     * Compiles the select statement of this command.<br>
+     * The compiled command holds the SQL statement and a binding plan for the command params.
+     * @see DBCompiledCommand
+     * @return the compiled select statement
+     */
+    public DBCompiledCommand compileSelect()
+    {
+        String sql = getSelect();
+        return new DBCompiledCommand(DBCompiledCommand.StatementType.SELECT, sql, cmdParams.getUsedParams(), getDatabase(), getSelectExprList());
+    }
+
+    /**
+     * Compiles the insert statement of this command.
+     * @see DBCompiledCommand
+     * @return the compiled insert statement
+     */
+    public DBCompiledCommand compileInsert()
+    {
+        String sql = getInsert();
+        if (sql==null)
+            throw new ObjectNotValidException(this);
+        return new DBCompiledCommand(DBCompiledCommand.StatementType.INSERT, sql, cmdParams.getUsedParams(), getDatabase(), null);
+    }
+
+    /**
+     * Compiles the update statement of this command.
+     * @see DBCompiledCommand
+     * @return the compiled update statement
+     */
+    public DBCompiledCommand compileUpdate()
+    {
+        String sql = getUpdate();
+        if (sql==null)
+            throw new ObjectNotValidException(this);
+        return new DBCompiledCommand(DBCompiledCommand.StatementType.UPDATE, sql, cmdParams.getUsedParams(), getDatabase(), null);
+    }
+
+    /**
+     * Compiles the delete statement of this command.
+     * @see DBCompiledCommand
+     * @param table the table from which to delete
+     * @return the compiled delete statement
+     */
+    public DBCompiledCommand compileDelete(DBTable table)
+    {
+        String sql = getDelete(table);
+        return new DBCompiledCommand(DBCompiledCommand.StatementType.DELETE, sql, cmdParams.getUsedParams(), table.getDatabase(), null);
+    }
+
     protected void addDeleteForTable(DBSQLBuilder sql, DBRowSet table)
     {   // Simple Statement
         sql.append("FROM ");
@@ -279,6 +279,10 @@ public abstract class DBCommandExpr extends DBExpr
     private final DBMSHandler     dbms;
     protected DBCmdQuery          cmdQuery = null;
     protected List<DBOrderByExpr> orderBy  = null;
+    // statement control
+    private int                   queryTimeout = 0;
+    private long                  deadline     = 0;
+    private DBCancelHandle        cancelHandle = null;
 
     /**
      * Constructs an empty DBCommandExpr object 
@@ -567,6 +571,73 @@ public abstract class DBCommandExpr extends DBExpr
         // Nothing to do!
     }
 
+    /**
+     * Returns the query timeout for this command
+     * @return the query timeout in seconds or 0 to use the default of the context
+     */
+    public int getQueryTimeout()
+    {
+        return queryTimeout;
+    }
+
+    /**
+     * Sets the query timeout for this command.<br>
+     * If the timeout is exceeded the statement is aborted with a QueryTimeoutException.
+     * @param seconds the query timeout in seconds or 0 to use the default of the context
+     * @return itself (this)
+     */
+    public DBCommandExpr setQueryTimeout(int seconds)
+    {
+        if (seconds<0)
+            throw new InvalidArgumentException("seconds", seconds);
+        this.queryTimeout = seconds;
+        return this;
+    }
+
+    /**
+     * Returns the deadline for this command
+     * @return the point in time (in milliseconds) at which the query must be completed or 0 for no deadline
+     */
+    public long getDeadline()
+    {
+        return deadline;
+    }
+
+    /**
+     * Sets a deadline for this command.<br>
+     * Other than the query timeout the deadline is absolute. 
+     * It applies to all statements executed with this command e.g. to the count query and the list query of a page. 
+     * @param deadline the point in time (in milliseconds) at which the query must be completed or 0 for no deadline
+     * @return itself (this)
+     */
+    public DBCommandExpr setDeadline(long deadline)
+    {
+        if (deadline<0)
+            throw new InvalidArgumentException("deadline", deadline);
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * Returns the cancel handle for this command
+     * @return the cancel handle or null
+     */
+    public DBCancelHandle getCancelHandle()
+    {
+        return cancelHandle;
+    }
+
+    /**
+     * Sets a cancel handle which allows to cancel queries executed with this command from another thread
+     * @param cancelHandle the cancel handle or null
+     * @return itself (this)
+     */
+    public DBCommandExpr setCancelHandle(DBCancelHandle cancelHandle)
+    {
+        this.cancelHandle = cancelHandle;
+        return this;
+    }
+
     /**
      * Create the insert into SQL-Command which copies
      * data from a select statement to a destination table.
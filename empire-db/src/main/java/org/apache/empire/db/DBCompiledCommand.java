@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import org.apache.empire.exceptions.InvalidArgumentException;
+
+/**
+ * DBCompiledCommand<br>
+ * An immutable SQL statement generated from a DBCommand together with a binding plan for its parameters.<br>
+ * The binding plan refers to the DBCmdParam objects of the command.
+ * Hence parameter values may be changed using DBCmdParam.setValue() without generating the SQL statement again.<br>
+ * Other changes to the command (e.g. adding a constraint) are not reflected by a compiled command.
+ * In this case the command must be compiled again.<br>
+ * Use DBCommand.compileSelect(), compileInsert(), compileUpdate() or compileDelete() to obtain a compiled command.
+ */
+public class DBCompiledCommand
+{
+    /**
+     * The type of statement
+     */
+    public enum StatementType
+    {
+        SELECT,
+        INSERT,
+        UPDATE,
+        DELETE;
+    }
+
+    private final StatementType type;
+    private final String sql;
+    private final DBCmdParam[] params;
+    private final DBDatabase db;
+    private final DBColumnExpr[] selectExprList;
+
+    /**
+     * Creates a compiled command
+     * @param type the statement type
+     * @param sql the sql statement
+     * @param params the params in order of their occurrence in the statement
+     * @param db the database
+     * @param selectExprList the select expressions (SELECT statements only)
+     */
+    protected DBCompiledCommand(StatementType type, String sql, DBCmdParam[] params, DBDatabase db, DBColumnExpr[] selectExprList)
+    {
+        if (sql==null)
+            throw new InvalidArgumentException("sql", sql);
+        this.type = type;
+        this.sql = sql;
+        this.db = db;
+        this.selectExprList = selectExprList;
+        // bind to the original params
+        this.params = new DBCmdParam[params.length];
+        for (int i=0; i<params.length; i++)
+            this.params[i] = params[i].getOrigin();
+    }
+
+    /**
+     * Returns the statement type
+     * @return the statement type
+     */
+    public StatementType getType()
+    {
+        return type;
+    }
+
+    /**
+     * Returns the SQL statement
+     * @return the SQL statement
+     */
+    public String getSql()
+    {
+        return sql;
+    }
+
+    /**
+     * Returns the database
+     * @return the database
+     */
+    public DBDatabase getDatabase()
+    {
+        return db;
+    }
+
+    /**
+     * Returns the select expressions for SELECT statements
+     * @return the select expressions or null for other statements
+     */
+    public DBColumnExpr[] getSelectExprList()
+    {
+        return (selectExprList!=null ? selectExprList.clone() : null);
+    }
+
+    /**
+     * Returns the number of parameters of the statement
+     * @return the number of parameters
+     */
+    public int getParamCount()
+    {
+        return params.length;
+    }
+
+    /**
+     * Returns the current parameter values in the order required by the statement
+     * @return the parameter values or null if the statement has no parameters
+     */
+    public Object[] getParamValues()
+    {
+        if (params.length==0)
+            return null;
+        Object[] values = new Object[params.length];
+        for (int i=0; i<params.length; i++)
+            values[i] = params[i].getValue();
+        return values;
+    }
+
+    @Override
+    public String toString()
+    {
+        return sql;
+    }
+}
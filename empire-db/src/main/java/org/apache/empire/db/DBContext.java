@@ -33,10 +33,43 @@ public interface DBContext
     DBMSHandler getDbms();
     
     Connection getConnection();
+
+    /**
+     * Returns the connection for read-only queries.<br>
+     * The default is to use the same connection as for all other operations.
+     * Override this function in order to route queries to a different connection (see DBContextRouting).
+     * @return the connection for queries
+     */
+    default Connection getReadConnection()
+    {
+        return getConnection();
+    }
+
+    /**
+     * Returns whether the result of the last query may be added to the shared caches (see DBRecordCache and DBQueryCache).<br>
+     * The default is true.
+     * Contexts which send queries to a replica must return false if the last query was not executed on the primary connection,
+     * since the result may be outdated and would remain cached after the change has been replicated.
+     * @return true if the result of the last query may be cached or false otherwise
+     */
+    default boolean isReadCacheable()
+    {
+        return true;
+    }
     
     DBUtils getUtils();
 
     DBCommand createCommand(); 
+
+    /**
+     * Returns the default query timeout for statements executed with this context.<br>
+     * The default implementation returns 0.
+     * @return the query timeout in seconds or 0 for no timeout
+     */
+    default int getQueryTimeout()
+    {
+        return 0;
+    }
     
     int executeSQL(String sqlCmd, Object[] sqlParams);
     
@@ -46,7 +79,60 @@ public interface DBContext
     
     int executeUpdate(DBCommand cmd);
 
+    /**
+     * Inserts a row or updates the existing row with the same conflict column values.<br>
+     * The default implementation executes the statement generated by DBUtils.executeUpsert() 
+     * and notifies the context that the table has been modified.
+     * @param table the table into which to insert the row
+     * @param cmd the command object containing the row values
+     * @param conflictColumns the columns identifying an existing row or none for the primary key
+     * @return the number of records that have been affected by the supplied statement
+     */
+    default int executeUpsert(DBTable table, DBCommand cmd, DBColumn... conflictColumns)
+    {
+        int affected = getUtils().executeUpsert(table, cmd, conflictColumns);
+        notifyModified(table);
+        return affected;
+    }
+
     int executeDelete(DBTable from, DBCommand cmd);
+
+    /**
+     * Notifies the context that rows of a rowset have been inserted, updated or deleted.<br>
+     * Removes all records from the record cache of the rowset (if any) 
+     * and all cached query results referencing the rowset from the query cache of its database (if any).
+     * @param rowset the modified rowset
+     */
+    default void notifyModified(DBRowSet rowset)
+    {
+        notifyModified(rowset, null);
+    }
+
+    /**
+     * Notifies the context that a record of a rowset has been inserted, updated or deleted.<br>
+     * Removes the record from the record cache of the rowset (if any) 
+     * and all cached query results referencing the rowset from the query cache of its database (if any).
+     * @param rowset the modified rowset
+     * @param key the key of the modified record or null if the modified records are unknown
+     */
+    default void notifyModified(DBRowSet rowset, Object[] key)
+    {
+        rowset.invalidateCachedRecord(key);
+        DBQueryCache queryCache = rowset.getDatabase().getQueryCache();
+        if (queryCache!=null)
+            queryCache.invalidate(rowset);
+    }
+
+    /**
+     * Returns whether a rowset has been modified by the current transaction of this context.<br>
+     * Cached results must neither be used nor stored for such a rowset until the transaction is committed or rolled back.
+     * @param rowset the rowset
+     * @return true if the rowset has uncommitted changes or false otherwise
+     */
+    default boolean hasUncommittedChanges(DBRowSet rowset)
+    {
+        return false;
+    }
     
     void commit();
 
@@ -160,6 +160,17 @@ public abstract class DBDatabase extends DBObject
      */
     private boolean autoPrepareStmt = true;
 
+    /**
+     * Property that indicates whether depending records of relations with DBCascadeAction.CASCADE_RECORDS
+     * are deleted with a single statement per table instead of one statement per record (Default is false).
+     */
+    private boolean bulkCascadeDelete = false;
+
+    /**
+     * Optional cache for option list and simple list queries (Default is null)
+     */
+    private DBQueryCache queryCache = null;
+
     /**
      * Flag indicating whether Bean getters / setters use java.util.Date or Java types (LocalDate, LocalDateTime)
      * True (default) when java.util.Date is used
@@ -333,6 +344,51 @@ public abstract class DBDatabase extends DBObject
         log.info("PreparedStatementsEnabled is " + autoPrepareStmt);
     }
 
+    /**
+     * Returns whether depending records of relations with DBCascadeAction.CASCADE_RECORDS are deleted in bulk.
+     * 
+     * @return true if depending records are deleted in bulk or false if they are deleted record by record
+     */
+    public boolean isBulkCascadeDeleteEnabled()
+    {
+        return bulkCascadeDelete;
+    }
+
+    /**
+     * Enables or Disables bulk deletes for relations with DBCascadeAction.CASCADE_RECORDS.<br>
+     * If enabled, the depending records are deleted with a single DELETE statement per table and level
+     * using a subquery for the parent records (e.g. DELETE FROM child WHERE fk IN (SELECT id FROM parent WHERE ...)).
+     * Hence DBRowSet.deleteRecord() is not called for the individual depending records.<br>
+     * If the relations form a cycle or a nested reference consists of more than one column, records are deleted record by record.
+     * 
+     * @param bulkCascadeDelete flag whether to delete depending records in bulk
+     */
+    public void setBulkCascadeDeleteEnabled(boolean bulkCascadeDelete)
+    {
+        this.bulkCascadeDelete = bulkCascadeDelete;
+    }
+
+    /**
+     * Returns the cache for option list and simple list queries.
+     * 
+     * @return the query cache or null if query results are not cached
+     */
+    public DBQueryCache getQueryCache()
+    {
+        return queryCache;
+    }
+
+    /**
+     * Sets a cache for the results of option list and simple list queries on this database.<br>
+     * Cached results are invalidated when a referenced rowset is modified (see DBQueryCache).
+     * 
+     * @param queryCache the query cache or null to disable caching
+     */
+    public void setQueryCache(DBQueryCache queryCache)
+    {
+        this.queryCache = queryCache;
+    }
+
     /**
      * Checks if the database exists
      * The implementation depends on the DBMSHandler
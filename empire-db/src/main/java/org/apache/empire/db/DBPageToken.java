@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+
+import org.apache.empire.commons.StringUtils;
+import org.apache.empire.exceptions.InvalidArgumentException;
+
+/**
+ * DBPageToken
+ * Holds the sort key values of the last row of a page for keyset (seek) pagination.<br>
+ * A token is obtained from DBCommand.getPageToken() and passed to DBCommand.seekAfter() in order to query the following page.<br>
+ * The token can be converted to a URL-safe string with encode() and restored with decode(), 
+ * e.g. for passing it to a client of a REST service.
+ * Supported value types are String, Boolean, Integer, Long, BigDecimal, Double, Date, Timestamp, LocalDate and LocalDateTime.
+ * Other values are encoded as String.
+ */
+public final class DBPageToken
+{
+    private static final char   TYPE_STRING         = 'S';
+    private static final char   TYPE_BOOLEAN        = 'B';
+    private static final char   TYPE_INTEGER        = 'I';
+    private static final char   TYPE_LONG           = 'L';
+    private static final char   TYPE_DECIMAL        = 'N';
+    private static final char   TYPE_DOUBLE         = 'F';
+    private static final char   TYPE_DATE           = 'D';
+    private static final char   TYPE_TIMESTAMP      = 'T';
+    private static final char   TYPE_LOCALDATE      = 'A';
+    private static final char   TYPE_LOCALDATETIME  = 'E';
+
+    private static final String SEPARATOR           = ".";
+
+    /**
+     * Restores a token from its string representation
+     * @param token the string created by encode()
+     * @return the page token or null if the string is empty
+     */
+    public static DBPageToken decode(String token)
+    {
+        if (StringUtils.isEmpty(token))
+            return null;
+        try {
+            String[] parts = token.split("\\"+SEPARATOR, -1);
+            Object[] values = new Object[parts.length];
+            for (int i=0; i<parts.length; i++)
+            {   // decode value
+                char type = parts[i].charAt(0);
+                String text = new String(Base64.getUrlDecoder().decode(parts[i].substring(1)), StandardCharsets.UTF_8);
+                values[i] = decodeValue(type, text);
+            }
+            return new DBPageToken(values);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // Invalid token
+            throw new InvalidArgumentException("token", token);
+        }
+    }
+
+    private static Object decodeValue(char type, String text)
+    {
+        switch(type)
+        {
+            case TYPE_STRING:       return text;
+            case TYPE_BOOLEAN:      return Boolean.valueOf(text);
+            case TYPE_INTEGER:      return Integer.valueOf(text);
+            case TYPE_LONG:         return Long.valueOf(text);
+            case TYPE_DECIMAL:      return new BigDecimal(text);
+            case TYPE_DOUBLE:       return Double.valueOf(text);
+            case TYPE_DATE:         return new Date(Long.parseLong(text));
+            case TYPE_TIMESTAMP:    return Timestamp.valueOf(text);
+            case TYPE_LOCALDATE:    return LocalDate.parse(text);
+            case TYPE_LOCALDATETIME:return LocalDateTime.parse(text);
+            default:
+                throw new IllegalArgumentException(String.valueOf(type));
+        }
+    }
+
+    private final Object[] values;
+
+    /**
+     * Creates a page token from the sort key values of a row
+     * @param values the values in the order of the order by list
+     */
+    public DBPageToken(Object... values)
+    {
+        if (values==null || values.length==0)
+            throw new InvalidArgumentException("values", values);
+        for (int i=0; i<values.length; i++)
+        {   // null values cannot be compared
+            if (values[i]==null)
+                throw new InvalidArgumentException("values", values);
+        }
+        this.values = values.clone();
+    }
+
+    /**
+     * Returns the number of sort key values
+     * @return the number of values
+     */
+    public int size()
+    {
+        return values.length;
+    }
+
+    /**
+     * Returns a sort key value
+     * @param index the index of the value in the order by list
+     * @return the value
+     */
+    public Object getValue(int index)
+    {
+        return values[index];
+    }
+
+    /**
+     * Returns the sort key values
+     * @return a copy of the values
+     */
+    public Object[] getValues()
+    {
+        return values.clone();
+    }
+
+    /**
+     * Returns a URL-safe string representation of this token
+     * @return the encoded token
+     */
+    public String encode()
+    {
+        StringBuilder b = new StringBuilder();
+        for (int i=0; i<values.length; i++)
+        {
+            Object value = values[i];
+            char type;
+            String text;
+            if (value instanceof Boolean)
+                type = TYPE_BOOLEAN;
+            else if (value instanceof Integer || value instanceof Short || value instanceof Byte)
+                type = TYPE_INTEGER;
+            else if (value instanceof Long)
+                type = TYPE_LONG;
+            else if (value instanceof BigDecimal)
+                type = TYPE_DECIMAL;
+            else if (value instanceof Double || value instanceof Float)
+                type = TYPE_DOUBLE;
+            else if (value instanceof Timestamp)
+                type = TYPE_TIMESTAMP;
+            else if (value instanceof Date)
+                type = TYPE_DATE;
+            else if (value instanceof LocalDate)
+                type = TYPE_LOCALDATE;
+            else if (value instanceof LocalDateTime)
+                type = TYPE_LOCALDATETIME;
+            else
+                type = TYPE_STRING;
+            // text
+            if (type==TYPE_DATE)
+                text = String.valueOf(((Date)value).getTime());
+            else
+                text = value.toString();
+            // append
+            if (i>0)
+                b.append(SEPARATOR);
+            b.append(type);
+            b.append(Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8)));
+        }
+        return b.toString();
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if (other==this)
+            return true;
+        if (!(other instanceof DBPageToken))
+            return false;
+        return Arrays.equals(values, ((DBPageToken)other).values);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString()
+    {
+        return encode();
+    }
+}
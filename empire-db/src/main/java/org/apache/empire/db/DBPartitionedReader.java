@@ -0,0 +1,419 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.apache.empire.commons.ObjectUtils;
+import org.apache.empire.data.DataType;
+import org.apache.empire.data.list.DataListEntry;
+import org.apache.empire.data.list.DataListHead;
+import org.apache.empire.db.context.DBContextFactory;
+import org.apache.empire.db.expr.compare.DBCompareExpr;
+import org.apache.empire.exceptions.InternalException;
+import org.apache.empire.exceptions.InvalidArgumentException;
+import org.apache.empire.exceptions.NotSupportedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DBPartitionedReader
+ * Reads the result of a command in parallel by splitting it into partitions over a numeric or date key column.<br>
+ * The partition boundaries are either calculated from the minimum and maximum key value or set explicitly.<br>
+ * Each partition is read by a DBReader on a separate context provided by a DBContextFactory.
+ * The rows are passed to a consumer on the calling thread through bounded queues.<br>
+ * If ordered is set, the rows are passed partition by partition in ascending key order, 
+ * otherwise in the order in which they are read.
+ * Rows with a NULL key are read in a separate partition that is passed last.
+ */
+public class DBPartitionedReader
+{
+    // Logger
+    private static final Logger log = LoggerFactory.getLogger(DBPartitionedReader.class);
+
+    // End of partition marker
+    private static final Object[] END_OF_PARTITION = new Object[0];
+    // Wait interval for queue operations in milliseconds
+    private static final long QUEUE_WAIT_MILLIS = 100;
+
+    /**
+     * Reads a single partition
+     */
+    private class PartitionTask implements Runnable
+    {
+        private final int index;
+        private final DBCommand cmd;
+        private final BlockingQueue<Object[]> queue;
+        private final AtomicBoolean cancelled;
+        private final AtomicReference<Throwable> failure;
+
+        public PartitionTask(int index, DBCommand cmd, BlockingQueue<Object[]> queue, AtomicBoolean cancelled, AtomicReference<Throwable> failure)
+        {
+            this.index = index;
+            this.cmd = cmd;
+            this.queue = queue;
+            this.cancelled = cancelled;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run()
+        {
+            long start = System.currentTimeMillis();
+            int rows = 0;
+            DBContext context = null;
+            DBReader reader = null;
+            try {
+                context = contextFactory.acquireContext();
+                reader = new DBReader(context);
+                reader.open(cmd);
+                int fieldCount = reader.getFieldCount();
+                while (reader.moveNext())
+                {   // copy values
+                    Object[] values = new Object[fieldCount];
+                    for (int i=0; i<fieldCount; i++)
+                        values[i] = reader.getValue(i);
+                    if (!put(values))
+                        return; // cancelled
+                    rows++;
+                }
+                put(END_OF_PARTITION);
+                // done
+                if (log.isDebugEnabled())
+                    log.debug("Partition {} read {} rows in {} ms.", index, rows, System.currentTimeMillis()-start);
+            } catch (Throwable e) {
+                log.error("Reading partition "+String.valueOf(index)+" failed.", e);
+                failure.compareAndSet(null, e);
+            } finally {
+                if (reader!=null)
+                    reader.close();
+                if (context!=null)
+                    contextFactory.releaseContext(context);
+            }
+        }
+
+        private boolean put(Object[] values) throws InterruptedException
+        {
+            while (!cancelled.get())
+            {
+                if (queue.offer(values, QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    protected final DBContextFactory contextFactory;
+    protected final DBCommand cmd;
+    protected final DBColumnExpr partitionColumn;
+    protected int partitionCount;
+    protected Object[] splitPoints = null;
+    protected boolean ordered = false;
+    protected int queueCapacity = 1000;
+    protected Executor executor = null;
+
+    /**
+     * Creates a partitioned reader
+     * @param contextFactory the factory providing a separate context for each partition 
+     * @param cmd the query command
+     * @param partitionColumn the numeric or date column used for partitioning
+     * @param partitionCount the number of partitions to read in parallel
+     */
+    public DBPartitionedReader(DBContextFactory contextFactory, DBCommand cmd, DBColumnExpr partitionColumn, int partitionCount)
+    {
+        DBObject.checkParamNull("contextFactory", contextFactory);
+        DBObject.checkParamNull("cmd", cmd);
+        DBObject.checkParamNull("partitionColumn", partitionColumn);
+        if (partitionCount<1)
+            throw new InvalidArgumentException("partitionCount", partitionCount);
+        // check type
+        DataType type = partitionColumn.getDataType();
+        if (!type.isNumeric() && !type.isDate())
+            throw new NotSupportedException(this, "partitioning by "+type.name());
+        // set
+        this.contextFactory = contextFactory;
+        this.cmd = cmd;
+        this.partitionColumn = partitionColumn;
+        this.partitionCount = partitionCount;
+    }
+
+    public DBColumnExpr getPartitionColumn()
+    {
+        return partitionColumn;
+    }
+
+    public int getPartitionCount()
+    {
+        return partitionCount;
+    }
+
+    /**
+     * Sets explicit split points instead of calculating them from the minimum and maximum key value.
+     * For n split points n+1 partitions are read: [..,p1), [p1,p2), ... [pn,..]
+     * @param splitPoints the split points in ascending order
+     * @return the reader (this)
+     */
+    public DBPartitionedReader setSplitPoints(Object... splitPoints)
+    {
+        for (int i=1; i<splitPoints.length; i++)
+        {   // must be in ascending order
+            if (ObjectUtils.compare(splitPoints[i-1], splitPoints[i])>=0)
+                throw new InvalidArgumentException("splitPoints", splitPoints);
+        }
+        this.splitPoints = splitPoints;
+        this.partitionCount = splitPoints.length+1;
+        return this;
+    }
+
+    public boolean isOrdered()
+    {
+        return ordered;
+    }
+
+    /**
+     * Sets whether rows are passed partition by partition in ascending key order (true) 
+     * or in the order in which they are read (false)
+     * @param ordered flag whether to keep the partition order
+     * @return the reader (this)
+     */
+    public DBPartitionedReader setOrdered(boolean ordered)
+    {
+        this.ordered = ordered;
+        return this;
+    }
+
+    public int getQueueCapacity()
+    {
+        return queueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of rows buffered per queue
+     * @param queueCapacity the queue capacity
+     * @return the reader (this)
+     */
+    public DBPartitionedReader setQueueCapacity(int queueCapacity)
+    {
+        if (queueCapacity<1)
+            throw new InvalidArgumentException("queueCapacity", queueCapacity);
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Sets the executor used for reading the partitions.
+     * Partitions that cannot be started immediately are read as soon as a thread becomes available.
+     * If not set, the default async executor of DBUtils is used.
+     * @param executor the executor
+     * @return the reader (this)
+     */
+    public DBPartitionedReader setExecutor(Executor executor)
+    {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Reads all partitions in parallel and passes the rows to the consumer.
+     * The consumer is called on the calling thread.
+     * @param consumer the consumer for the rows
+     * @return the number of rows read
+     */
+    public int read(Consumer<DataListEntry> consumer)
+    {
+        DBObject.checkParamNull("consumer", consumer);
+        long start = System.currentTimeMillis();
+        DBCommand readCmd = cmd.clone();
+        // create partitions
+        Object[] splits = (splitPoints!=null ? splitPoints : calculateSplitPoints(readCmd));
+        List<DBCommand> partitions = createPartitionCommands(readCmd, splits);
+        DataListHead head = new DataListHead(readCmd.getSelectExprList());
+        // create queues
+        int count = partitions.size();
+        List<BlockingQueue<Object[]>> queues = new ArrayList<BlockingQueue<Object[]>>(count);
+        if (ordered)
+        {   // one queue per partition
+            for (int i=0; i<count; i++)
+                queues.add(new ArrayBlockingQueue<Object[]>(queueCapacity));
+        }
+        else
+        {   // one queue for all
+            BlockingQueue<Object[]> queue = new ArrayBlockingQueue<Object[]>(queueCapacity);
+            queues.addAll(Collections.nCopies(count, queue));
+        }
+        // start partition tasks
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Executor exec = getExecutor(); 
+        for (int i=0; i<count; i++)
+            exec.execute(new PartitionTask(i, partitions.get(i), queues.get(i), cancelled, failure));
+        // consume
+        int rownum = 0;
+        try {
+            int partition = 0;
+            while (partition<count)
+            {
+                Object[] values = take(queues.get(partition), failure);
+                if (values==END_OF_PARTITION)
+                {   // next partition
+                    partition++;
+                    continue;
+                }
+                consumer.accept(new DataListEntry(head, values, rownum++));
+            }
+        } finally {
+            // stop all tasks (if still running)
+            cancelled.set(true);
+        }
+        // done
+        if (log.isDebugEnabled())
+            log.debug("{} rows read from {} partitions in {} ms.", rownum, count, System.currentTimeMillis()-start);
+        return rownum;
+    }
+
+    /**
+     * Returns the executor used for reading the partitions
+     * @return the executor
+     */
+    protected Executor getExecutor()
+    {
+        return (executor!=null ? executor : DBUtils.getDefaultAsyncExecutor());
+    }
+
+    /**
+     * Calculates the split points from the minimum and maximum key value
+     * @param readCmd the query command
+     * @return the split points in ascending order
+     */
+    protected Object[] calculateSplitPoints(DBCommand readCmd)
+    {
+        if (partitionCount<2)
+            return new Object[0];
+        // query min and max
+        DBCommand minMaxCmd = readCmd.clone();
+        minMaxCmd.clearSelect();
+        minMaxCmd.clearGroupBy();
+        minMaxCmd.clearHaving();
+        minMaxCmd.clearOrderBy();
+        minMaxCmd.clearLimit();
+        minMaxCmd.select(partitionColumn.min(), partitionColumn.max());
+        Object[] minMax;
+        DBContext context = contextFactory.acquireContext();
+        try {
+            minMax = context.getUtils().querySingleRow(minMaxCmd);
+        } finally {
+            contextFactory.releaseContext(context);
+        }
+        if (ObjectUtils.isEmpty(minMax[0]) || ObjectUtils.isEmpty(minMax[1]))
+            return new Object[0]; // no keys
+        // calculate
+        List<Object> splits = new ArrayList<Object>(partitionCount-1);
+        DataType type = partitionColumn.getDataType();
+        for (int i=1; i<partitionCount; i++)
+        {
+            Object split;
+            if (type.isDate())
+            {   // date
+                long min = ObjectUtils.getDate(minMax[0]).getTime();
+                long max = ObjectUtils.getDate(minMax[1]).getTime();
+                split = new Timestamp(min + (long)((double)(max-min) * i / partitionCount));
+            }
+            else if (type==DataType.DECIMAL || type==DataType.FLOAT)
+            {   // decimal
+                BigDecimal min = ObjectUtils.getDecimal(minMax[0]);
+                BigDecimal max = ObjectUtils.getDecimal(minMax[1]);
+                split = min.add(max.subtract(min).multiply(BigDecimal.valueOf(i)).divide(BigDecimal.valueOf(partitionCount), MathContext.DECIMAL64));
+            }
+            else
+            {   // integer
+                long min = ObjectUtils.getLong(minMax[0]);
+                long max = ObjectUtils.getLong(minMax[1]);
+                split = Long.valueOf(min + (long)((double)(max-min) * i / partitionCount));
+            }
+            // skip duplicates
+            if (splits.isEmpty() || ObjectUtils.compare(splits.get(splits.size()-1), split)<0)
+                splits.add(split);
+        }
+        return splits.toArray();
+    }
+
+    /**
+     * Creates the commands for all partitions
+     * The partition constraints are added to existing constraints on the partition column rather than replacing them.
+     * @param readCmd the query command
+     * @param splits the split points
+     * @return the list of partition commands
+     */
+    protected List<DBCommand> createPartitionCommands(DBCommand readCmd, Object[] splits)
+    {
+        List<DBCommand> partitions = new ArrayList<DBCommand>(splits.length+2);
+        for (int i=0; i<=splits.length; i++)
+        {
+            List<DBCompareExpr> constraints = new ArrayList<DBCompareExpr>(2);
+            if (i>0)
+                constraints.add(partitionColumn.isMoreOrEqual(splits[i-1]));
+            if (i<splits.length)
+                constraints.add(partitionColumn.isSmallerThan(splits[i]));
+            if (constraints.isEmpty())
+                constraints.add(partitionColumn.isNot(null));
+            partitions.add(createPartitionCommand(readCmd, constraints));
+        }
+        // NULL keys
+        partitions.add(createPartitionCommand(readCmd, Collections.<DBCompareExpr>singletonList(partitionColumn.is(null))));
+        return partitions;
+    }
+
+    private DBCommand createPartitionCommand(DBCommand readCmd, List<DBCompareExpr> constraints)
+    {
+        DBCommand partitionCmd = readCmd.clone();
+        partitionCmd.addWhereConstraints(constraints);
+        return partitionCmd;
+    }
+
+    private Object[] take(BlockingQueue<Object[]> queue, AtomicReference<Throwable> failure)
+    {
+        try {
+            while (true)
+            {   // check failure
+                Throwable e = failure.get();
+                if (e!=null)
+                    throw (e instanceof RuntimeException) ? (RuntimeException)e : new InternalException(e);
+                // next
+                Object[] values = queue.poll(QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (values!=null)
+                    return values;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalException(e);
+        }
+    }
+}
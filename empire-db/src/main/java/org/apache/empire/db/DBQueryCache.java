@@ -0,0 +1,418 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.empire.commons.Options;
+import org.apache.empire.exceptions.InvalidArgumentException;
+
+/**
+ * DBQueryCache<br>
+ * A cache for the results of option list and simple list queries (see DBUtils.queryOptionList() and DBUtils.querySimpleList()) 
+ * keyed by the SQL statement and its parameter values.<br>
+ * The cache is enabled for all queries of a database using DBDatabase.setQueryCache().<br>
+ * A cached result is invalidated when any rowset referenced by its query is modified 
+ * through DBRowSet.updateRecord() or deleteRecord(), DBTable.insertBulk() or through DBContext.executeInsert(), executeUpdate(), executeDelete() etc.
+ * (see DBContext.notifyModified()).<br>
+ * Views and subqueries used as rowsets are resolved to the rowsets they are defined on.
+ * However rowsets referenced only by subqueries in constraints (e.g. IN (SELECT ...)) are not detected.<br>
+ * Changes made by other applications or by statements executed directly (e.g. DBContext.executeSQL()) are not detected.
+ * For these a time to live may be set, after which entries are removed.<br>
+ * While a transaction of a context has uncommitted changes for a rowset, the cache is bypassed for queries referencing it
+ * and on commit or rollback the results are invalidated again (see DBContext.hasUncommittedChanges()).<br>
+ * The number of entries is limited. If the limit is exceeded, the least recently used entry is removed.<br>
+ * All methods are thread-safe.
+ */
+public class DBQueryCache
+{
+    /**
+     * CacheKey
+     * the result type, the statement and the parameter values of a query
+     */
+    protected static final class CacheKey
+    {
+        private final String type;
+        private final String sql;
+        private final Object[] params;
+        private final int hashCode;
+
+        public CacheKey(String type, String sql, Object[] params)
+        {
+            this.type = type;
+            this.sql = sql;
+            this.params = (params!=null && params.length>0 ? params.clone() : null);
+            this.hashCode = (type.hashCode() * 31 + sql.hashCode()) * 31 + Arrays.hashCode(this.params);
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (other==this)
+                return true;
+            if (!(other instanceof CacheKey))
+                return false;
+            CacheKey key = (CacheKey)other;
+            return type.equals(key.type) && sql.equals(key.sql) && Arrays.equals(params, key.params);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+
+    /**
+     * CacheEntry
+     * the result of a query and the rowsets it depends on
+     */
+    protected static class CacheEntry
+    {
+        private final Object result;
+        private final Set<DBRowSet> rowsets;
+        private final long created;
+
+        public CacheEntry(Object result, Set<DBRowSet> rowsets)
+        {
+            this.result = result;
+            this.rowsets = rowsets;
+            this.created = System.currentTimeMillis();
+        }
+
+        public Object getResult()
+        {
+            return result;
+        }
+
+        public Set<DBRowSet> getRowSets()
+        {
+            return rowsets;
+        }
+
+        public long getCreated()
+        {
+            return created;
+        }
+    }
+
+    /**
+     * Returns all rowsets referenced by a query including the rowsets on which views and subqueries are defined.
+     * @param cmd the query command
+     * @return the set of rowsets
+     */
+    public static Set<DBRowSet> getReferencedRowSets(DBCommandExpr cmd)
+    {
+        Set<DBRowSet> rowsets = new HashSet<DBRowSet>();
+        addReferencedRowSets(cmd, rowsets);
+        return rowsets;
+    }
+
+    private static void addReferencedRowSets(DBCommandExpr cmd, Set<DBRowSet> rowsets)
+    {
+        if (cmd instanceof DBCombinedCmd)
+        {   // union, intersect, etc.
+            addReferencedRowSets(((DBCombinedCmd)cmd).left, rowsets);
+            addReferencedRowSets(((DBCombinedCmd)cmd).right, rowsets);
+        }
+        else if (cmd instanceof DBCommand)
+        {   // tables, views and queries
+            for (DBRowSet rowset : ((DBCommand)cmd).getRowSetList())
+            {
+                if (!rowsets.add(rowset))
+                    continue;
+                // resolve
+                DBCommandExpr definition = null;
+                if (rowset instanceof DBQuery)
+                    definition = ((DBQuery)rowset).getCommandExpr();
+                else if (rowset instanceof DBView)
+                    definition = ((DBView)rowset).createCommand();
+                if (definition!=null)
+                    addReferencedRowSets(definition, rowsets);
+            }
+        }
+    }
+
+    private static final String TYPE_OPTIONS = Options.class.getName();
+
+    private final Map<CacheKey, CacheEntry> entries;
+    private final int maxSize;
+    private long timeToLive = 0;
+    private long generation = 0;
+
+    // statistics
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Creates a query cache
+     * @param maxSize the maximum number of query results cached
+     */
+    public DBQueryCache(int maxSize)
+    {
+        if (maxSize<1)
+            throw new InvalidArgumentException("maxSize", maxSize);
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest)
+            {
+                if (size()<=DBQueryCache.this.maxSize)
+                    return false;
+                evictionCount.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the maximum number of query results cached
+     * @return the maximum number of query results
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Returns the time in milliseconds after which a cached result expires
+     * @return the time to live in milliseconds or 0 if results do not expire
+     */
+    public long getTimeToLive()
+    {
+        return timeToLive;
+    }
+
+    /**
+     * Sets the time in milliseconds after which a cached result expires
+     * @param timeToLive the time to live in milliseconds or 0 if results do not expire
+     */
+    public void setTimeToLive(long timeToLive)
+    {
+        if (timeToLive<0)
+            throw new InvalidArgumentException("timeToLive", timeToLive);
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns the current generation of the cache which changes with every invalidation.<br>
+     * The generation must be obtained before a query is executed and passed to put() 
+     * in order to avoid caching a result that has been invalidated while the query was executed.
+     * @return the generation
+     */
+    public long getGeneration()
+    {
+        synchronized(entries)
+        {
+            return generation;
+        }
+    }
+
+    /**
+     * Returns a cached option list
+     * @param sql the SQL statement
+     * @param params the statement parameters
+     * @return the options or null if not cached. The options are shared and must not be modified.
+     */
+    public Options getOptions(String sql, Object[] params)
+    {
+        return (Options)get(new CacheKey(TYPE_OPTIONS, sql, params));
+    }
+
+    /**
+     * Adds an option list to the cache
+     * @param sql the SQL statement
+     * @param params the statement parameters
+     * @param options the options (must not be modified afterwards)
+     * @param rowsets the rowsets referenced by the query
+     * @param generation the generation obtained before the query was executed 
+     */
+    public void putOptions(String sql, Object[] params, Options options, Set<DBRowSet> rowsets, long generation)
+    {
+        put(new CacheKey(TYPE_OPTIONS, sql, params), options, rowsets, generation);
+    }
+
+    /**
+     * Returns a cached simple list
+     * @param itemType the item type of the list
+     * @param sql the SQL statement
+     * @param params the statement parameters
+     * @return the list or null if not cached. The list is shared and must not be modified.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getSimpleList(Class<T> itemType, String sql, Object[] params)
+    {
+        return (List<T>)get(new CacheKey(itemType.getName(), sql, params));
+    }
+
+    /**
+     * Adds a simple list to the cache
+     * @param itemType the item type of the list
+     * @param sql the SQL statement
+     * @param params the statement parameters
+     * @param list the list (must not be modified afterwards)
+     * @param rowsets the rowsets referenced by the query
+     * @param generation the generation obtained before the query was executed 
+     */
+    public <T> void putSimpleList(Class<T> itemType, String sql, Object[] params, List<T> list, Set<DBRowSet> rowsets, long generation)
+    {
+        put(new CacheKey(itemType.getName(), sql, params), list, rowsets, generation);
+    }
+
+    /**
+     * Returns the cached result for a key
+     * @param key the cache key
+     * @return the result or null if not cached or expired
+     */
+    protected Object get(CacheKey key)
+    {
+        CacheEntry entry;
+        synchronized(entries)
+        {
+            entry = entries.get(key);
+            if (entry!=null && timeToLive>0 && (System.currentTimeMillis()-entry.getCreated())>timeToLive)
+            {   // expired
+                entries.remove(key);
+                evictionCount.incrementAndGet();
+                entry = null;
+            }
+        }
+        if (entry==null)
+        {   missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.getResult();
+    }
+
+    /**
+     * Adds a result to the cache unless the cache has been invalidated since the generation provided
+     * @param key the cache key
+     * @param result the query result
+     * @param rowsets the rowsets referenced by the query
+     * @param generation the generation obtained before the query was executed
+     */
+    protected void put(CacheKey key, Object result, Set<DBRowSet> rowsets, long generation)
+    {
+        CacheEntry entry = new CacheEntry(result, Collections.unmodifiableSet(rowsets));
+        synchronized(entries)
+        {
+            if (generation!=this.generation)
+                return; // invalidated meanwhile
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Removes all results of queries referencing a rowset
+     * @param rowset the rowset that has been modified
+     */
+    public void invalidate(DBRowSet rowset)
+    {
+        synchronized(entries)
+        {
+            generation++;
+            Iterator<CacheEntry> iterator = entries.values().iterator();
+            while (iterator.hasNext())
+            {
+                if (iterator.next().getRowSets().contains(rowset))
+                {   iterator.remove();
+                    invalidationCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear()
+    {
+        synchronized(entries)
+        {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    /**
+     * Returns the number of query results cached
+     * @return the number of query results
+     */
+    public int size()
+    {
+        synchronized(entries)
+        {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of results removed because a referenced rowset was modified
+     * @return the number of invalidated results
+     */
+    public long getInvalidationCount()
+    {
+        return invalidationCount.get();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    /**
+     * Resets the statistics
+     */
+    public void resetStatistics()
+    {
+        hitCount.set(0);
+        missCount.set(0);
+        invalidationCount.set(0);
+        evictionCount.set(0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("size=%d hits=%d misses=%d invalidations=%d evictions=%d",
+                             size(), getHitCount(), getMissCount(), getInvalidationCount(), getEvictionCount());
+    }
+}
@@ -38,7 +38,11 @@ import org.apache.empire.data.EntityType;
 import org.apache.empire.db.exceptions.EmpireSQLException;
 import org.apache.empire.db.exceptions.NoPrimaryKeyException;
 import org.apache.empire.db.exceptions.QueryNoResultException;
+import org.apache.empire.db.exceptions.QueryTimeoutException;
 import org.apache.empire.db.list.DataBean;
+import org.apache.empire.db.monitor.DBReaderLeakDetector;
+import org.apache.empire.db.monitor.DBStatementEvent.StatementType;
+import org.apache.empire.db.monitor.DBStatementTimer;
 import org.apache.empire.dbms.DBMSHandler;
 import org.apache.empire.exceptions.BeanInstantiationException;
 import org.apache.empire.exceptions.InvalidArgumentException;
@@ -245,9 +249,41 @@ public class DBReader extends DBRecordData implements Closeable
      */
     private static ThreadLocal<Map<DBReader, Exception>> threadLocalOpenResultSets = new ThreadLocal<Map<DBReader, Exception>>();
 
+    /**
+     * Sampling leak detector for readers which are not closed (optional)
+     */
+    private static volatile DBReaderLeakDetector leakDetector = null;
+
+    /**
+     * Returns the leak detector for readers which are not closed
+     * @return the leak detector or null
+     */
+    public static DBReaderLeakDetector getLeakDetector()
+    {
+        return leakDetector;
+    }
+
+    /**
+     * Sets a leak detector for readers which are not closed.<br>
+     * Unlike enableOpenResultSetTracking() the detector has little overhead and may be used in production. 
+     * @param detector the leak detector or null to disable leak detection
+     */
+    public static void setLeakDetector(DBReaderLeakDetector detector)
+    {
+        leakDetector = detector;
+    }
+
     // the context
     protected final DBContext context;
     
+    // the fetch size
+    private int fetchSize = 0;
+
+    // Cancel handle
+    private DBCancelHandle cancelHandle = null;
+    // the query for error reporting
+    private String querySql = null;
+
     // Object references
     private DBDatabase     db      = null;
     private DBColumnExpr[] columns = null;
@@ -255,6 +291,16 @@ public class DBReader extends DBRecordData implements Closeable
     private DBMSHandler    dbms    = null;
     // the field index map
     private Map<ColumnExpr, Integer> fieldIndexMap = null;
+    // the statement info for the statement listener (if any)
+    private String         stmtSql          = null;
+    private Object[]       stmtParams       = null;
+    private long           stmtPrepareNanos = 0;
+    private long           stmtExecuteNanos = 0;
+    private long           stmtExecuted     = 0;
+    private int            stmtRowCount     = 0;
+    private Exception      stmtException    = null;
+    // leak detection
+    private DBReaderLeakDetector.Tracker leakTracker = null;
 
     /**
      * Constructs an empty DBRecordSet object.
@@ -299,6 +345,51 @@ public class DBReader extends DBRecordData implements Closeable
         return db;
     }
     
+    /**
+     * Returns the number of rows fetched from the database at once
+     * @return the fetch size or 0 if the driver default is used
+     */
+    public int getFetchSize()
+    {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the number of rows fetched from the database at once.<BR>
+     * For forward-only readers a positive fetch size enables the streaming mode of the dbms (if any),
+     * so that memory consumption does not depend on the number of rows returned by the query.<BR>
+     * The fetch size must be set before the reader is opened.
+     * @param fetchSize the fetch size or 0 to use the driver default
+     */
+    public void setFetchSize(int fetchSize)
+    {
+        if (fetchSize<0)
+            throw new InvalidArgumentException("fetchSize", fetchSize);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Returns the handle which allows to cancel the query of this reader from another thread.<BR>
+     * If the command has a cancel handle, this handle is used by the reader.
+     * @return the cancel handle
+     */
+    public synchronized DBCancelHandle getCancelHandle()
+    {
+        if (cancelHandle==null)
+            cancelHandle = new DBCancelHandle();
+        return cancelHandle;
+    }
+
+    /**
+     * Cancels the query of this reader.<BR>
+     * This may be called from another thread while the query is executed or while rows are fetched.
+     * The query fails with a QueryTimeoutException.
+     */
+    public void cancel()
+    {
+        getCancelHandle().cancel();
+    }
+    
     public boolean getScrollable()
     {
         try
@@ -379,8 +470,7 @@ public class DBReader extends DBRecordData implements Closeable
         }
         try
         { // Check Value on Resultset
-            rset.getObject(index + 1);
-            return rset.wasNull();
+            return dbms.isResultNull(rset, index + 1, columns[index].getDataType());
         } catch (Exception e)
         {
             log.error("isNullValue exception", e);
@@ -410,6 +500,85 @@ public class DBReader extends DBRecordData implements Closeable
             throw new EmpireSQLException(context.getDbms(), e);
         }
     }
+
+    /**
+     * Returns a data value identified by the column index as integer.
+     * Unlike the base class implementation, the value is read directly from the resultset without creating a value object.
+     *
+     * @param index index of the column
+     * @return the value or 0 if the value is null
+     */
+    @Override
+    public int getInt(int index)
+    {
+        return (int)getLong(index);
+    }
+
+    /**
+     * Returns a data value identified by the column index as long.
+     * Unlike the base class implementation, the value is read directly from the resultset without creating a value object.
+     *
+     * @param index index of the column
+     * @return the value or 0 if the value is null
+     */
+    @Override
+    public long getLong(int index)
+    {
+        // Check params
+        if (index < 0 || index >= columns.length)
+            throw new InvalidArgumentException("index", index);
+        try
+        {   // Get Value from Resultset
+            return dbms.getResultLong(rset, index + 1, columns[index].getDataType());
+        } catch (SQLException e) {
+            // Operation failed
+            throw new EmpireSQLException(context.getDbms(), e);
+        }
+    }
+
+    /**
+     * Returns a data value identified by the column index as double.
+     * Unlike the base class implementation, the value is read directly from the resultset without creating a value object.
+     *
+     * @param index index of the column
+     * @return the value or 0.0 if the value is null
+     */
+    @Override
+    public double getDouble(int index)
+    {
+        // Check params
+        if (index < 0 || index >= columns.length)
+            throw new InvalidArgumentException("index", index);
+        try
+        {   // Get Value from Resultset
+            return dbms.getResultDouble(rset, index + 1, columns[index].getDataType());
+        } catch (SQLException e) {
+            // Operation failed
+            throw new EmpireSQLException(context.getDbms(), e);
+        }
+    }
+
+    /**
+     * Returns a data value identified by the column index as boolean.
+     * Unlike the base class implementation, the value is read directly from the resultset without creating a value object.
+     *
+     * @param index index of the column
+     * @return the value or false if the value is null
+     */
+    @Override
+    public boolean getBoolean(int index)
+    {
+        // Check params
+        if (index < 0 || index >= columns.length)
+            throw new InvalidArgumentException("index", index);
+        try
+        {   // Get Value from Resultset
+            return dbms.getResultBoolean(rset, index + 1, columns[index].getDataType());
+        } catch (SQLException e) {
+            // Operation failed
+            throw new EmpireSQLException(context.getDbms(), e);
+        }
+    }
     
     /**
      * Returns the record key for a type of entity
@@ -453,6 +622,47 @@ public class DBReader extends DBRecordData implements Closeable
         return (rset != null);
     }
     
+    /**
+     * Executes the query for this reader.<BR>
+     * If a statement listener has been set for the dbms, the statement is remembered in order to notify the listener when the reader is closed.
+     * The query timeout, deadline and cancel handle of the command (if any) are applied.
+     * @param cmd the command or null
+     * @param sqlCmd the sql command
+     * @param paramValues the command params
+     * @param scrollable true if the reader should be scrollable or false if not
+     * @return the JDBC ResultSet
+     */
+    private ResultSet executeQuery(DBCommandExpr cmd, String sqlCmd, Object[] paramValues, boolean scrollable)
+    {
+        boolean notify = (context.getDbms().getStatementListener()!=null);
+        // use the cancel handle of the command
+        synchronized(this)
+        {   if (cmd!=null && cmd.getCancelHandle()!=null)
+                cancelHandle = cmd.getCancelHandle();
+        }
+        DBUtils utils = context.getUtils();
+        DBStatementControl prevControl = utils.beginStatementControl(cmd, getCancelHandle());
+        querySql = sqlCmd;
+        long start = System.nanoTime();
+        ResultSet queryRset;
+        try {
+            queryRset = utils.executeQuery(sqlCmd, paramValues, scrollable, fetchSize);
+        } finally {
+            utils.endStatementControl(prevControl);
+        }
+        if (notify && queryRset!=null)
+        {   // remember statement
+            stmtExecuted = System.nanoTime();
+            stmtPrepareNanos = Math.min(DBStatementTimer.takePrepareNanos(), stmtExecuted-start);
+            stmtExecuteNanos = stmtExecuted-start-stmtPrepareNanos;
+            stmtSql = sqlCmd;
+            stmtParams = paramValues;
+            stmtRowCount = 0;
+            stmtException = null;
+        }
+        return queryRset;
+    }
+
     /**
      * Opens the reader by executing the given SQL command.<BR>
      * After the reader is open, the reader's position is before the first record.<BR>
@@ -462,6 +672,8 @@ public class DBReader extends DBRecordData implements Closeable
      * ATTENTION: After using the reader it must be closed using the close() method!<BR>
      * Use <PRE>try { ... } finally { reader.close(); } </PRE> to make sure the reader is closed.<BR>
      * <P>
+     * If a fetch size has been set, rows are fetched from the database in chunks (see {@link DBReader#setFetchSize(int)}).
+     * <P>
      * @param cmd the SQL-Command with cmd.getSelect()
      * @param scrollable true if the reader should be scrollable or false if not
      */
@@ -489,8 +701,7 @@ public class DBReader extends DBRecordData implements Closeable
         }
         */
         // Execute the query
-        DBUtils utils = context.getUtils();
-        ResultSet queryRset = utils.executeQuery(sqlCmd, paramValues, scrollable);
+        ResultSet queryRset = executeQuery(cmd, sqlCmd, paramValues, scrollable);
         if (queryRset==null)
             throw new QueryNoResultException(sqlCmd);
         // init
@@ -509,6 +720,40 @@ public class DBReader extends DBRecordData implements Closeable
         open(cmd, false);
     }
 
+    /**
+     * Opens the reader by executing a compiled select command.<BR>
+     * The current values of the command params are used for the query.
+     * <P>
+     * @param cmd the compiled select command
+     * @param scrollable true if the reader should be scrollable or false if not
+     */
+    public void open(DBCompiledCommand cmd, boolean scrollable)
+    {
+        if (cmd.getType()!=DBCompiledCommand.StatementType.SELECT)
+            throw new InvalidArgumentException("cmd", cmd.getType());
+        if (isOpen())
+            close();
+        // Execute the query
+        String sqlCmd = cmd.getSql();
+        ResultSet queryRset = executeQuery(null, sqlCmd, cmd.getParamValues(), scrollable);
+        if (queryRset==null)
+            throw new QueryNoResultException(sqlCmd);
+        // init
+        init(cmd.getDatabase(), cmd.getSelectExprList(), queryRset);
+    }
+
+    /**
+     * Opens the reader by executing a compiled select command.<BR>
+     * <P>
+     * see {@link DBReader#open(DBCompiledCommand, boolean)}
+     * </P>
+     * @param cmd the compiled select command
+     */
+    public final void open(DBCompiledCommand cmd)
+    {
+        open(cmd, false);
+    }
+
     /**
      * <P>
      * Opens the reader by executing the given SQL command and moves to the first row.<BR>
@@ -546,10 +791,25 @@ public class DBReader extends DBRecordData implements Closeable
             }
             // Close JDBC-Resultset
             if (rset != null)
-            {   // call dbms
+            {   // detach from cancel handle
+                if (cancelHandle!=null)
+                    cancelHandle.detach();
+                // call dbms
                 context.getDbms().closeResultSet(rset);
                 // remove from tracking-list
                 endTrackingThisResultSet();
+                if (leakTracker!=null)
+                {   leakTracker.close();
+                    leakTracker = null;
+                }
+            }
+            // Notify statement listener
+            if (stmtSql != null)
+            {   long fetchNanos = System.nanoTime()-stmtExecuted;
+                context.getUtils().fireStatementExecuted(StatementType.QUERY, stmtSql, stmtParams, stmtRowCount, stmtPrepareNanos, stmtExecuteNanos, fetchNanos, stmtException);
+                stmtSql = null;
+                stmtParams = null;
+                stmtException = null;
             }
             // Detach columns
             columns = null;
@@ -628,16 +888,25 @@ public class DBReader extends DBRecordData implements Closeable
         {   // Check Recordset
             if (rset == null)
                 throw new ObjectNotValidException(this);
+            // Not all drivers abort reading the result when the statement is cancelled 
+            if (cancelHandle!=null && cancelHandle.isCancelled())
+                throw new SQLException("The statement has been cancelled.");
             // Move Next
             if (rset.next() == false)
             { // Close recordset automatically after last record
                 close();
                 return false;
             }
+            stmtRowCount++;
             return true;
 
         } catch (SQLException e) {
             // an error occurred
+            stmtException = e;
+            // cancelled or timed out while fetching?
+            QueryTimeoutException timeoutException = context.getUtils().getTimeoutException(querySql, e, cancelHandle);
+            if (timeoutException!=null)
+                throw timeoutException;
             throw new EmpireSQLException(context.getDbms(), e);
         }
     }
@@ -907,6 +1176,10 @@ public class DBReader extends DBRecordData implements Closeable
             fieldIndexMap.clear();
         // add to tracking list (if enabled)
         trackThisResultSet();
+        // leak detection
+        DBReaderLeakDetector detector = leakDetector;
+        if (detector!=null)
+            leakTracker = detector.track(this);
     }
 
     /**
@@ -272,9 +272,21 @@ public class DBRecord extends DBRecordBase
      */
     public DBRecord read(Object[] key)
     {   // read
-        DBRowSet rs = getRowSet(); 
-        DBCompareExpr keyConstraints = rs.getKeyConstraints(key);
-        rs.readRecord(this, keyConstraints);
+        getRowSet().readRecord(this, key, true);
+        return this;
+    }
+
+    /**
+     * Reads a record from the database
+     * @param key an array of the primary key values
+     * @param useCache flag whether to use the record cache of the rowset (if any)
+     *
+     * @throws NoPrimaryKeyException if the associated RowSet has no primary key
+     * @throws InvalidKeyException if the key does not match the key columns of the associated RowSet
+     */
+    public DBRecord read(Object[] key, boolean useCache)
+    {   // read
+        getRowSet().readRecord(this, key, useCache);
         return this;
     }
 
@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.empire.commons.StringUtils;
+import org.apache.empire.db.DBRowSet.DBRecordStatement;
+import org.apache.empire.db.context.DBContextAware;
+import org.apache.empire.db.exceptions.EmpireSQLException;
+import org.apache.empire.dbms.DBMSHandler;
+import org.apache.empire.dbms.DBMSHandler.DBSetGenKeys;
+import org.apache.empire.exceptions.InvalidArgumentException;
+import org.apache.empire.exceptions.NotSupportedException;
+import org.apache.empire.exceptions.ObjectNotValidException;
+import org.apache.empire.exceptions.UnexpectedReturnValueException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DBRecordBatch<br>
+ * Collects the inserts and updates of many records and saves them using JDBC batches.<br>
+ * The insert or update statement of a record is generated when the record is added to the batch.
+ * Hence a record must not be modified after it has been added.<br>
+ * On execution, statements with identical sql are grouped and executed as a single JDBC batch.
+ * Groups are executed in the order in which their first record was added.
+ * Records which depend on each other (e.g. by a foreign key) should therefore be added in dependency order
+ * or saved using separate batches.<br>
+ * In order to benefit from grouping, prepared statements should be enabled for the context.<br>
+ * Timestamp constraints are checked for every record from the update counts returned by the driver.<br>
+ * If any record fails, all failures are logged and the batch is rolled back to a savepoint set before execution.
+ * Hence no record is completed and the batch is kept, so that it may be executed again.
+ * If no savepoint can be set (e.g. in auto-commit mode) the records which have been saved are completed and removed from the batch
+ * and only the failed records are kept. If the failed records cannot be determined the batch is cleared.<br>
+ * As with DBRecord.update(), the caller is responsible for committing or rolling back the transaction.
+ */
+public class DBRecordBatch implements DBContextAware
+{
+    // Logger
+    private static final Logger log = LoggerFactory.getLogger(DBRecordBatch.class);
+
+    /**
+     * BatchEntry
+     * a record and its statement
+     */
+    protected static class BatchEntry
+    {
+        private final DBRecord record;
+        private final DBRecordStatement stmt;
+
+        public BatchEntry(DBRecord record, DBRecordStatement stmt)
+        {
+            this.record = record;
+            this.stmt = stmt;
+        }
+
+        public DBRecord getRecord()
+        {
+            return record;
+        }
+
+        public DBRecordStatement getStmt()
+        {
+            return stmt;
+        }
+    }
+
+    // the context
+    protected final DBContext context;
+
+    protected final List<BatchEntry> entries = new ArrayList<BatchEntry>();
+
+    // the update timestamp
+    private Timestamp timestamp = null;
+
+    public DBRecordBatch(DBContext context)
+    {
+        if (context==null)
+            throw new InvalidArgumentException("context", context);
+        this.context = context;
+    }
+
+    /**
+     * Returns the current Context
+     * @return
+     */
+    @Override
+    public DBContext getContext()
+    {
+        return context;
+    }
+
+    /**
+     * Returns the number of records in the batch
+     * @return the number of records
+     */
+    public int getCount()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Removes all records from the batch
+     */
+    public void clear()
+    {
+        entries.clear();
+        timestamp = null;
+    }
+
+    /**
+     * Adds a new or modified record to the batch.<br>
+     * Records which have not been modified are ignored.<br>
+     * Only records of tables are supported.
+     * @param record the record to insert or update
+     * @return true if the record has been added or false if there is nothing to save
+     */
+    public boolean add(DBRecord record)
+    {
+        if (record==null)
+            throw new InvalidArgumentException("record", record);
+        if (!record.isValid())
+            throw new ObjectNotValidException(record);
+        if (record.getContext()!=context)
+            throw new InvalidArgumentException("record", record);
+        if (!record.isModified())
+            return false; /* Not modified. Nothing to do! */
+        // check rowset
+        DBRowSet rowset = record.getRowSet();
+        if (!(rowset instanceof DBTable))
+            throw new NotSupportedException(this, "add");
+        // check updatable
+        record.checkUpdateable();
+        // allow rollback
+        if (record.isRollbackHandlingEnabled())
+            context.appendRollbackHandler(record.createRollbackHandler());
+        // set parent record identity
+        record.assignParentIdentities();
+        // create the statement
+        if (timestamp==null && rowset.getTimestampColumn()!=null)
+            timestamp = context.getDbms().getUpdateTimestamp(context.getConnection());
+        DBRecordStatement stmt = rowset.createRecordStatement(record, timestamp);
+        if (stmt==null)
+            return false; /* Nothing to update or insert */
+        entries.add(new BatchEntry(record, stmt));
+        return true;
+    }
+
+    /**
+     * Adds a list of records to the batch
+     * @param records the records to insert or update
+     * @return the number of records added
+     */
+    public int addAll(List<? extends DBRecord> records)
+    {
+        int count = 0;
+        for (DBRecord record : records)
+            if (add(record))
+                count++;
+        return count;
+    }
+
+    /**
+     * Executes the inserts and updates of all records as JDBC batches.<br>
+     * After successful execution the batch is cleared.<br>
+     * If the update count of any record is not 1, the batch is rolled back to a savepoint
+     * and the exception for the first failed record is thrown (see class description).
+     * @return the number of records saved
+     */
+    public int executeBatch()
+    {
+        if (entries.isEmpty())
+            return 0;
+        // group by statement
+        Map<String, List<BatchEntry>> groups = new LinkedHashMap<String, List<BatchEntry>>();
+        for (BatchEntry entry : entries)
+        {
+            List<BatchEntry> group = groups.get(entry.getStmt().getSql());
+            if (group==null)
+            {   group = new ArrayList<BatchEntry>();
+                groups.put(entry.getStmt().getSql(), group);
+            }
+            group.add(entry);
+        }
+        // build arrays
+        int count = entries.size();
+        BatchEntry[] batchEntries = new BatchEntry[count];
+        String[] cmdList = new String[count];
+        Object[][] paramList = new Object[count][];
+        DBSetGenKeys[] genKeyList = null;
+        int i = 0;
+        for (List<BatchEntry> group : groups.values())
+        {
+            for (BatchEntry entry : group)
+            {
+                DBRecordStatement stmt = entry.getStmt();
+                batchEntries[i] = entry;
+                cmdList[i] = stmt.getSql();
+                paramList[i] = stmt.getParams();
+                if (stmt.getSetGenKey()!=null)
+                {   if (genKeyList==null)
+                        genKeyList = new DBSetGenKeys[count];
+                    genKeyList[i] = stmt.getSetGenKey();
+                }
+                i++;
+            }
+        }
+        // execute
+        DBMSHandler dbms = context.getDbms();
+        Connection conn = context.getConnection();
+        Savepoint savepoint = setSavepoint(conn);
+        int[] res;
+        try
+        {   // Execute batch
+            long start = System.currentTimeMillis();
+            res = dbms.executeBatch(cmdList, paramList, genKeyList, conn);
+            if (log.isInfoEnabled())
+                log.info("executeBatch: {} records saved using {} statements in {} ms", count, groups.size(), System.currentTimeMillis() - start);
+        }
+        catch (SQLException e)
+        {   // SQLException
+            log.error("executeBatch failed with SQLException "+e.toString(), e);
+            if (!rollbackToSavepoint(conn, savepoint))
+            {   // unknown which statements have been executed
+                log.warn("executeBatch: the batch could not be rolled back. Some records may have been saved. The batch is cleared.");
+                clear();
+            }
+            throw new EmpireSQLException(dbms, e);
+        }
+        // check all update counts before completing any record
+        int[] affected = new int[count];
+        int failed = -1;
+        int failCount = 0;
+        for (i=0; i<count; i++)
+        {
+            BatchEntry entry = batchEntries[i];
+            affected[i] = (i<res.length ? res[i] : Statement.EXECUTE_FAILED);
+            if (affected[i]==Statement.SUCCESS_NO_INFO)
+            {   // The driver does not provide the row count
+                if (log.isDebugEnabled())
+                    log.debug("executeBatch: no update count available for record {}. Assuming success.", entry.getRecord().getKey());
+                affected[i] = 1;
+            }
+            if (affected[i]!=1)
+            {   // record failed
+                log.error("executeBatch: record {} of {} returned an update count of {}.", StringUtils.arrayToString(entry.getRecord().getKey(), "|"), entry.getRecord().getRowSet().getName(), affected[i]);
+                if (failed<0)
+                    failed = i;
+                failCount++;
+            }
+        }
+        if (failed>=0)
+        {   // report the first failure
+            if (rollbackToSavepoint(conn, savepoint))
+                log.error("executeBatch: {} of {} records failed. The batch has been rolled back.", failCount, count);
+            else
+            {   // complete the records which have been saved and keep the failed ones
+                log.error("executeBatch: {} of {} records failed. Only the failed records are kept.", failCount, count);
+                entries.clear();
+                for (i=0; i<count; i++)
+                {
+                    BatchEntry entry = batchEntries[i];
+                    if (affected[i]==1)
+                        entry.getRecord().getRowSet().completeRecordUpdate(entry.getRecord(), entry.getStmt(), affected[i]);
+                    else
+                        entries.add(entry);
+                }
+            }
+            BatchEntry entry = batchEntries[failed];
+            entry.getRecord().getRowSet().completeRecordUpdate(entry.getRecord(), entry.getStmt(), affected[failed]);
+            // completeRecordUpdate must throw
+            throw new UnexpectedReturnValueException(affected[failed], "executeBatch");
+        }
+        releaseSavepoint(conn, savepoint);
+        // complete
+        for (i=0; i<count; i++)
+        {
+            BatchEntry entry = batchEntries[i];
+            entry.getRecord().getRowSet().completeRecordUpdate(entry.getRecord(), entry.getStmt(), affected[i]);
+        }
+        // done
+        clear();
+        return count;
+    }
+
+    /**
+     * Sets a savepoint before executing the batch
+     * @param conn the connection
+     * @return the savepoint or null if no savepoint can be set
+     */
+    protected Savepoint setSavepoint(Connection conn)
+    {
+        try {
+            if (conn.getAutoCommit())
+                return null;
+            return conn.setSavepoint();
+        } catch (SQLException e) {
+            log.debug("executeBatch: unable to set a savepoint: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Rolls back all statements of a failed batch
+     * @param conn the connection
+     * @param savepoint the savepoint set before executing the batch
+     * @return true if the batch has been rolled back or false otherwise
+     */
+    protected boolean rollbackToSavepoint(Connection conn, Savepoint savepoint)
+    {
+        if (savepoint==null)
+            return false;
+        try {
+            conn.rollback(savepoint);
+            return true;
+        } catch (SQLException e) {
+            log.error("executeBatch: rollback to savepoint failed: "+e.toString(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Releases the savepoint after successful execution
+     * @param conn the connection
+     * @param savepoint the savepoint set before executing the batch
+     */
+    protected void releaseSavepoint(Connection conn, Savepoint savepoint)
+    {
+        if (savepoint==null)
+            return;
+        try {
+            conn.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            // not supported by all drivers
+            log.debug("executeBatch: unable to release savepoint: {}", e.getMessage());
+        }
+    }
+}
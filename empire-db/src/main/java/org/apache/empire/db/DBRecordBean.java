@@ -195,8 +195,7 @@ public class DBRecordBean extends DBRecordBase
     {   // read
         try {
             this.tempContext = context;
-            DBCompareExpr keyConstraints = rowset.getKeyConstraints(key);
-            rowset.readRecord(this, keyConstraints);
+            rowset.readRecord(this, key, true);
             return this;
         } finally {
             this.tempContext = null;
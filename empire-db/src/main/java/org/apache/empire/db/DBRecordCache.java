@@ -0,0 +1,333 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.empire.exceptions.InvalidArgumentException;
+
+/**
+ * DBRecordCache<br>
+ * A cache for the records of a single rowset keyed by their primary key.<br>
+ * The cache is enabled for a rowset using DBRowSet.setRecordCache().
+ * It is populated by reading records by their primary key (e.g. DBRecord.read(key))
+ * and invalidated when a record is updated or deleted through the rowset.
+ * Statements on the rowset (e.g. DBContext.executeUpdate()) remove all records (see DBContext.notifyModified()).<br>
+ * Changes made by other applications or by statements executed directly (e.g. DBContext.executeSQL())
+ * are not detected unless timestamp validation is enabled.
+ * With timestamp validation, the cached record is only used if its update timestamp matches the timestamp in the database.
+ * This requires a single column query instead of reading the entire record.<br>
+ * While a transaction of a context has uncommitted changes for the rowset, the cache is bypassed by this context
+ * and on commit or rollback the modified records are removed again (see DBContext.hasUncommittedChanges()).<br>
+ * The number of entries is limited. If the limit is exceeded, the least recently used entry is removed.
+ * Optionally a time to live may be set, after which entries are removed.<br>
+ * All methods are thread-safe.
+ */
+public class DBRecordCache
+{
+    /**
+     * CacheEntry
+     * the field values of a cached record
+     */
+    protected static class CacheEntry
+    {
+        private final Object[] fields;
+        private final Object timestamp;
+        private final long created;
+
+        public CacheEntry(Object[] fields, Object timestamp)
+        {
+            this.fields = fields;
+            this.timestamp = timestamp;
+            this.created = System.currentTimeMillis();
+        }
+
+        public Object[] getFields()
+        {
+            return fields;
+        }
+
+        public Object getTimestamp()
+        {
+            return timestamp;
+        }
+
+        public long getCreated()
+        {
+            return created;
+        }
+    }
+
+    private final Map<Object, CacheEntry> entries;
+    private final int maxSize;
+    private long timeToLive = 0;
+    private boolean timestampValidation = false;
+    private long generation = 0;
+
+    // statistics
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong staleCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Creates a record cache
+     * @param maxSize the maximum number of records cached
+     */
+    public DBRecordCache(int maxSize)
+    {
+        if (maxSize<1)
+            throw new InvalidArgumentException("maxSize", maxSize);
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Object, CacheEntry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CacheEntry> eldest)
+            {
+                if (size()<=DBRecordCache.this.maxSize)
+                    return false;
+                evictionCount.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the maximum number of records cached
+     * @return the maximum number of records
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Returns the time in milliseconds after which a cached record expires
+     * @return the time to live in milliseconds or 0 if records do not expire
+     */
+    public long getTimeToLive()
+    {
+        return timeToLive;
+    }
+
+    /**
+     * Sets the time in milliseconds after which a cached record expires
+     * @param timeToLive the time to live in milliseconds or 0 if records do not expire
+     */
+    public void setTimeToLive(long timeToLive)
+    {
+        if (timeToLive<0)
+            throw new InvalidArgumentException("timeToLive", timeToLive);
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns whether the update timestamp of a cached record is checked against the database before it is used.
+     * @return true if timestamps are validated or false otherwise
+     */
+    public boolean isTimestampValidation()
+    {
+        return timestampValidation;
+    }
+
+    /**
+     * Sets whether the update timestamp of a cached record is checked against the database before it is used.
+     * This only applies to rowsets with a timestamp column.
+     * @param timestampValidation true if timestamps should be validated or false otherwise
+     */
+    public void setTimestampValidation(boolean timestampValidation)
+    {
+        this.timestampValidation = timestampValidation;
+    }
+
+    /**
+     * Returns the current generation of the cache which changes with every invalidation.<br>
+     * The generation must be obtained before a record is read and passed to put() 
+     * in order to avoid caching a record that has been invalidated while it was read.
+     * @return the generation
+     */
+    public long getGeneration()
+    {
+        synchronized(entries)
+        {
+            return generation;
+        }
+    }
+
+    /**
+     * Returns the cache entry for a key
+     * @param key the lookup key
+     * @return the entry or null if the record is not cached or has expired
+     */
+    public CacheEntry get(Object key)
+    {
+        CacheEntry entry;
+        synchronized(entries)
+        {
+            entry = entries.get(key);
+            if (entry!=null && timeToLive>0 && (System.currentTimeMillis()-entry.getCreated())>timeToLive)
+            {   // expired
+                entries.remove(key);
+                evictionCount.incrementAndGet();
+                entry = null;
+            }
+        }
+        if (entry!=null)
+            hitCount.incrementAndGet();
+        else
+            missCount.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Adds or replaces a cache entry
+     * @param key the lookup key
+     * @param fields the field values (must not be modified afterwards)
+     * @param timestamp the update timestamp (optional)
+     */
+    public void put(Object key, Object[] fields, Object timestamp)
+    {
+        CacheEntry entry = new CacheEntry(fields, timestamp);
+        synchronized(entries)
+        {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Adds or replaces a cache entry unless the cache has been invalidated since the generation provided
+     * @param key the lookup key
+     * @param fields the field values (must not be modified afterwards)
+     * @param timestamp the update timestamp (optional)
+     * @param generation the generation obtained before the record was read
+     */
+    public void put(Object key, Object[] fields, Object timestamp, long generation)
+    {
+        CacheEntry entry = new CacheEntry(fields, timestamp);
+        synchronized(entries)
+        {
+            if (generation!=this.generation)
+                return; // invalidated meanwhile
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Removes a cache entry
+     * @param key the lookup key
+     */
+    public void remove(Object key)
+    {
+        synchronized(entries)
+        {
+            generation++;
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Removes a cache entry that turned out to be outdated
+     * @param key the lookup key
+     */
+    public void removeStale(Object key)
+    {
+        staleCount.incrementAndGet();
+        remove(key);
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear()
+    {
+        synchronized(entries)
+        {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    /**
+     * Returns the number of records cached
+     * @return the number of records
+     */
+    public int size()
+    {
+        synchronized(entries)
+        {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of cached records which failed the timestamp validation
+     * @return the number of stale records
+     */
+    public long getStaleCount()
+    {
+        return staleCount.get();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    /**
+     * Returns the ratio of reads served from the cache.<br>
+     * Records which failed the timestamp validation are not counted as hits.
+     * @return the hit ratio between 0 and 1
+     */
+    public double getHitRatio()
+    {
+        long hits = hitCount.get() - staleCount.get();
+        long total = hitCount.get() + missCount.get();
+        return (total>0 ? (double)hits / total : 0d);
+    }
+
+    /**
+     * Resets the statistics
+     */
+    public void resetStatistics()
+    {
+        hitCount.set(0);
+        missCount.set(0);
+        staleCount.set(0);
+        evictionCount.set(0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("size=%d hits=%d misses=%d stale=%d evictions=%d hitRatio=%.2f",
+                             size(), getHitCount(), getMissCount(), getStaleCount(), getEvictionCount(), getHitRatio());
+    }
+}
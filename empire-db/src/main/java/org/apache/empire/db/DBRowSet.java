@@ -18,13 +18,17 @@
  */
 package org.apache.empire.db;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -54,6 +58,8 @@ import org.apache.empire.db.expr.join.DBCrossJoinExpr;
 import org.apache.empire.db.list.DBBeanFactoryCache;
 import org.apache.empire.db.list.DBBeanListFactory;
 import org.apache.empire.db.list.DBBeanListFactoryImpl;
+import org.apache.empire.db.list.DBRecordListFactory;
+import org.apache.empire.db.list.DBRecordListFactoryImpl;
 import org.apache.empire.dbms.DBMSFeature;
 import org.apache.empire.dbms.DBMSHandler;
 import org.apache.empire.dbms.DBSqlPhrase;
@@ -112,6 +118,46 @@ public abstract class DBRowSet extends DBExpr implements EntityType
         }
     }
 
+    /**
+     * DBRecordStatement
+     * Holds the sql statement required to insert or update a single record.
+     */
+    protected static class DBRecordStatement
+    {
+        private final String sql;
+        private final Object[] params;
+        private final DBMSHandler.DBSetGenKeys setGenKey;
+        private final Timestamp timestamp;
+
+        public DBRecordStatement(String sql, Object[] params, DBMSHandler.DBSetGenKeys setGenKey, Timestamp timestamp)
+        {
+            this.sql = sql;
+            this.params = params;
+            this.setGenKey = setGenKey;
+            this.timestamp = timestamp;
+        }
+
+        public String getSql()
+        {
+            return sql;
+        }
+
+        public Object[] getParams()
+        {
+            return params;
+        }
+
+        public DBMSHandler.DBSetGenKeys getSetGenKey()
+        {
+            return setGenKey;
+        }
+
+        public Timestamp getTimestamp()
+        {
+            return timestamp;
+        }
+    }
+
     // Logger
     protected static final Logger                log         = LoggerFactory.getLogger(DBRowSet.class);
 
@@ -154,6 +200,9 @@ public abstract class DBRowSet extends DBExpr implements EntityType
     // associated Entity Bean Class (optional)
     protected Class<?>                 beanType         = null;
 
+    // record cache (optional)
+    protected DBRecordCache            recordCache      = null;
+
     /**
      * Internally used for parameter checking
      * @param record the record to check
@@ -733,7 +782,42 @@ public abstract class DBRowSet extends DBExpr implements EntityType
             fields[i] = ObjectUtils.NO_VALUE;
         }
     }
+
+    /**
+     * Returns the cache for records read by their primary key.
+     * @return the record cache or null if records are not cached
+     */
+    public DBRecordCache getRecordCache()
+    {
+        return recordCache;
+    }
+
+    /**
+     * Sets a cache for records read by their primary key.<br>
+     * Records updated or deleted through this rowset are removed from the cache.
+     * @param recordCache the record cache or null to disable caching
+     */
+    public void setRecordCache(DBRecordCache recordCache)
+    {
+        if (recordCache!=null && getKeyColumns()==null)
+            throw new NoPrimaryKeyException(this);
+        this.recordCache = recordCache;
+    }
     
+    /**
+     * Removes a record or all records from the record cache (if any)
+     * @param key the record key or null to remove all records
+     */
+    public void invalidateCachedRecord(Object[] key)
+    {
+        if (recordCache==null)
+            return;
+        if (key!=null)
+            recordCache.remove(getKeyLookupValue(key));
+        else
+            recordCache.clear();
+    }
+
     /**
      * Initialize this DBRowSet object and sets it's initial state.
      * 
@@ -872,6 +956,64 @@ public abstract class DBRowSet extends DBExpr implements EntityType
         readRecord(record, cmd);
     }
     
+    /**
+     * Reads the record with the given primary key.<br>
+     * If a record cache has been set and useCache is true, the record is taken from the cache if available.
+     * If timestamp validation is enabled for the cache, the cached record is only used if its timestamp is still current.
+     * Otherwise the record is read from the database and added to the cache.
+     * @param record the DBRecord object which will hold the record data
+     * @param key the primary key values
+     * @param useCache flag whether to use the record cache (if any)
+     */
+    public void readRecord(DBRecordBase record, Object[] key, boolean useCache)
+    {
+        // Check Arguments
+        checkParamNull("key", key);
+        checkParamRecord(record, false);
+        DBRecordCache cache = (useCache ? this.recordCache : null);
+        if (cache!=null && record.getContext().hasUncommittedChanges(this))
+        {   // the record may have been modified by the current transaction
+            cache = null;
+        }
+        if (cache==null)
+        {   // read without cache
+            readRecord(record, getKeyConstraints(key));
+            return;
+        }
+        // check cache
+        List<Object> lookupKey = getKeyLookupValue(key);
+        DBRecordCache.CacheEntry entry = cache.get(lookupKey);
+        if (entry!=null && cache.isTimestampValidation() && timestampColumn!=null)
+        {   // check timestamp
+            DBCommand cmd = createRecordCommand(record.getContext());
+            cmd.select(timestampColumn);
+            cmd.where(getKeyConstraints(key));
+            Object timestamp = record.getContext().getUtils().querySingleValue(cmd, false);
+            if (!ObjectUtils.compareEqual(timestamp, entry.getTimestamp()))
+            {   // record has changed
+                log.debug("Cached record [{}] of {} is outdated.", StringUtils.toString(key), getName());
+                cache.removeStale(lookupKey);
+                entry = null;
+            }
+        }
+        if (entry!=null)
+        {   // init from cache
+            prepareInitRecord(record, false);
+            Object[] fields = record.getFields();
+            System.arraycopy(entry.getFields(), 0, fields, 0, fields.length);
+            completeInitRecord(record);
+            return;
+        }
+        // read and add to cache
+        long generation = cache.getGeneration();
+        readRecord(record, getKeyConstraints(key));
+        Object[] fields = record.getFields();
+        if (!record.getContext().isReadCacheable())
+            return; // may be outdated
+        Object timestamp = (timestampColumn!=null ? fields[getColumnIndex(timestampColumn)] : null);
+        cache.put(lookupKey, fields.clone(), timestamp, generation);
+    }
+    
     /**
      * Reads the partial record for a given primary key from the database
      * @param record the DBRecord object which will hold the record data
@@ -912,6 +1054,199 @@ public abstract class DBRowSet extends DBExpr implements EntityType
         readRecord(record, cmd);
     }
 
+    /**
+     * Reads multiple records for a collection of primary keys.<br>
+     * Instead of one query per record, the keys are split into chunks and each chunk is read with a single query.
+     * For single column keys an IN constraint is used, for multi column keys a combination of OR and AND constraints.
+     * The chunk size is determined by DBMSHandler.getMaxStatementParams().<br>
+     * Records which cannot be found do not cause an exception but are added to the missingKeys collection (if provided).<br>
+     * The records are returned in the order of the keys supplied. Duplicate keys are ignored.<br>
+     * The records found are matched to the keys supplied by the key values returned by the database.
+     * If a key has no exact match, a match with trailing spaces removed and case ignored is used (see {@link #getKeyMatchValue(Object[])}),
+     * since the database may return a different representation of a string key, e.g. for padded CHAR columns or case-insensitive collations.
+     * @param context the database context
+     * @param keys the primary keys of the records to read
+     * @param factory the factory for creating the record objects
+     * @param missingKeys a collection to which the keys of records not found are added (optional)
+     * @return the list of records found
+     */
+    public <R extends DBRecordBase> List<R> readRecords(DBContext context, Collection<Object[]> keys, DBRecordListFactory<R> factory, Collection<Object[]> missingKeys)
+    {
+        // Check Arguments
+        checkParamNull("keys", keys);
+        checkParamNull("factory", factory);
+        DBColumn[] keyColumns = getKeyColumns();
+        if (keyColumns==null || keyColumns.length==0)
+            throw new NoPrimaryKeyException(this);
+        // Read chunks
+        int chunkSize = Math.max(1, context.getDbms().getMaxStatementParams() / keyColumns.length);
+        Map<List<Object>, R> recordMap = new HashMap<List<Object>, R>(keys.size());
+        List<Object[]> chunk = new ArrayList<Object[]>(Math.min(chunkSize, keys.size()));
+        for (Object[] key : keys)
+        {   // check key
+            if (key==null || key.length!=keyColumns.length)
+                throw new InvalidKeyException(this, key);
+            chunk.add(key);
+            if (chunk.size()<chunkSize)
+                continue;
+            // read now
+            readRecordChunk(context, chunk, factory, recordMap);
+            chunk.clear();
+        }
+        if (!chunk.isEmpty())
+            readRecordChunk(context, chunk, factory, recordMap);
+        // Collect records in key order
+        List<R> list = factory.newList(recordMap.size());
+        Set<R> added = Collections.newSetFromMap(new IdentityHashMap<R, Boolean>(recordMap.size()));
+        Map<List<Object>, R> matchMap = null;
+        for (Object[] key : keys)
+        {
+            R record = recordMap.get(getKeyLookupValue(key));
+            if (record==null && !recordMap.isEmpty())
+            {   // the database may have returned a different representation of the key
+                if (matchMap==null)
+                    matchMap = getKeyMatchMap(recordMap);
+                record = matchMap.get(getKeyMatchValue(key));
+            }
+            if (record==null)
+            {   // not found
+                if (missingKeys!=null)
+                    missingKeys.add(key);
+                continue;
+            }
+            if (added.add(record))
+                list.add(record);
+        }
+        if (log.isDebugEnabled())
+            log.debug("readRecords: {} of {} records found in {}", list.size(), keys.size(), getName());
+        factory.completeQuery(list);
+        return list;
+    }
+
+    /**
+     * Reads multiple records for a collection of primary keys.<br>
+     * See {@link #readRecords(DBContext, Collection, DBRecordListFactory, Collection)}
+     * @param context the database context
+     * @param keys the primary keys of the records to read
+     * @param missingKeys a collection to which the keys of records not found are added (optional)
+     * @return the list of records found
+     */
+    public final List<DBRecord> readRecords(DBContext context, Collection<Object[]> keys, Collection<Object[]> missingKeys)
+    {
+        DBRecordListFactory<DBRecord> factory = new DBRecordListFactoryImpl<DBRecord>(DBRecord.class, context.getClass(), this);
+        return readRecords(context, keys, factory, missingKeys);
+    }
+
+    /**
+     * Reads a single chunk of records for readRecords()
+     * @param context the database context
+     * @param keys the primary keys of the chunk
+     * @param factory the factory for creating the record objects
+     * @param recordMap the map to which to add the records
+     */
+    protected <R extends DBRecordBase> void readRecordChunk(DBContext context, List<Object[]> keys, DBRecordListFactory<R> factory, Map<List<Object>, R> recordMap)
+    {
+        DBColumn[] keyColumns = getKeyColumns();
+        // create command
+        DBCommand cmd = createRecordCommand(context);
+        factory.prepareQuery(cmd, context);
+        if (keyColumns.length==1)
+        {   // IN constraint
+            Object[] values = new Object[keys.size()];
+            for (int i=0; i<values.length; i++)
+                values[i] = keys.get(i)[0];
+            cmd.where(keyColumns[0].in(values));
+        }
+        else
+        {   // OR of AND constraints
+            DBCompareExpr constraints = null;
+            for (Object[] key : keys)
+            {
+                DBCompareExpr keyExpr = getKeyConstraints(key);
+                constraints = (constraints==null ? keyExpr : constraints.or(keyExpr));
+            }
+            cmd.where(constraints);
+        }
+        // read now
+        DBReader reader = new DBReader(context, false);
+        try
+        {   reader.open(cmd);
+            int rownum = 0;
+            while (reader.moveNext())
+            {
+                R record = factory.newRecord(rownum++, reader);
+                if (record==null || !record.isValid())
+                    continue;
+                recordMap.put(getKeyLookupValue(record.getKey()), record);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Returns a map of the records found by readRecords() by their key match value 
+     * @param recordMap the records found by their lookup value
+     * @return the map of records by match value
+     */
+    protected <R extends DBRecordBase> Map<List<Object>, R> getKeyMatchMap(Map<List<Object>, R> recordMap)
+    {
+        Map<List<Object>, R> matchMap = new HashMap<List<Object>, R>(recordMap.size());
+        for (R record : recordMap.values())
+        {   // first record wins if ambiguous
+            List<Object> matchKey = getKeyMatchValue(record.getKey());
+            if (!matchMap.containsKey(matchKey))
+                matchMap.put(matchKey, record);
+        }
+        return matchMap;
+    }
+
+    /**
+     * Returns a value for matching a key supplied to readRecords() with a key returned by the database.<br>
+     * In addition to getKeyLookupValue() trailing spaces are removed from strings and the case is ignored.
+     * @param key the record key
+     * @return the match value
+     */
+    protected List<Object> getKeyMatchValue(Object[] key)
+    {
+        List<Object> match = getKeyLookupValue(key);
+        for (int i=0; i<match.size(); i++)
+        {
+            Object value = match.get(i);
+            if (value instanceof String)
+            {   // normalize strings
+                String s = (String)value;
+                int len = s.length();
+                while (len>0 && s.charAt(len-1)==' ')
+                    len--;
+                match.set(i, s.substring(0, len).toLowerCase(Locale.ROOT));
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Returns a value for looking up records by key.<br>
+     * Numeric key values are normalized, since the type of the values supplied may differ from the type returned by the driver.
+     * @param key the record key
+     * @return the lookup value
+     */
+    protected List<Object> getKeyLookupValue(Object[] key)
+    {
+        List<Object> lookup = new ArrayList<Object>(key.length);
+        for (int i=0; i<key.length; i++)
+        {
+            Object value = key[i];
+            if (value instanceof Number)
+            {   // normalize numbers
+                BigDecimal decimal = (value instanceof BigDecimal) ? (BigDecimal)value : new BigDecimal(value.toString());
+                value = decimal.stripTrailingZeros();
+            }
+            lookup.add(value);
+        }
+        return lookup;
+    }
+
     /**
      * Returns true if the record exists in the database or false otherwise.
      * <P>
@@ -968,8 +1303,33 @@ public abstract class DBRowSet extends DBExpr implements EntityType
         DBContext context = record.getContext();
         Connection conn = context.getConnection();
         // Get the new Timestamp
-        String name = getName();
         Timestamp timestamp = (timestampColumn!=null) ? context.getDbms().getUpdateTimestamp(conn) : null;
+        // Build SQL-Statement
+        DBRecordStatement stmt = createRecordStatement(record, timestamp);
+        if (stmt==null)
+            return; // Nothing to do
+        // Perform action
+        DBUtils utils = context.getUtils();
+        int affected = utils.executeSQL(stmt.getSql(), stmt.getParams(), stmt.getSetGenKey());
+        // Complete
+        completeRecordUpdate(record, stmt, affected);
+    }
+
+    /**
+     * Creates the insert or update statement for a record.<BR>
+     * Whether an insert or update statement is created depends on the record state.<BR>
+     * Only modified fields will be inserted or updated in the database.<BR>
+     * <P>
+     * @param record the DBRecord object. contains all fields and the field properties
+     * @param timestamp the new update timestamp (if a timestamp column is set for this RowSet)
+     * @return the record statement or null if there is nothing to insert or update
+     */
+    protected <R extends DBRecordBase> DBRecordStatement createRecordStatement(R record, Timestamp timestamp)
+    {
+        // the connection
+        DBContext context = record.getContext();
+        Connection conn = context.getConnection();
+        String name = getName();
         DBMSHandler.DBSetGenKeys setGenKey = null;
         // Get the fields and the flags
         Object[] fields = record.getFields();
@@ -1082,16 +1442,27 @@ public abstract class DBRowSet extends DBExpr implements EntityType
         else
         {	// Not modified
             log.info("updateRecord: " + name + " record has not been modified! ");
-            return;
+            return null;
         }
         if (setCount == 0)
         {   // Nothing to update
             log.info("updateRecord: " + name + " nothing to update or insert!");
-            return;
+            return null;
         }
-        // Perform action
-        DBUtils utils = context.getUtils();
-        int affected = utils.executeSQL(sql, cmd.getParamValues(), setGenKey);
+        // the statement
+        return new DBRecordStatement(sql, cmd.getParamValues(), setGenKey, timestamp);
+    }
+
+    /**
+     * Completes the insert or update of a record after the record statement has been executed.<BR>
+     * Checks the number of affected rows, sets the new update timestamp and changes the record state.
+     * <P>
+     * @param record the DBRecord object
+     * @param stmt the record statement that has been executed
+     * @param affected the number of rows affected by the statement
+     */
+    protected <R extends DBRecordBase> void completeRecordUpdate(R record, DBRecordStatement stmt, int affected)
+    {
         if (affected < 0)
         {   // Update Failed
             throw new UnexpectedReturnValueException(affected, "db.executeSQL()");
@@ -1105,14 +1476,17 @@ public abstract class DBRowSet extends DBExpr implements EntityType
             throw new RecordUpdateAmbiguousException(this, record.getKey());
         }
         // Correct Timestamp
+        Timestamp timestamp = stmt.getTimestamp();
         if (timestampColumn!=null && timestamp!=null)
         {   // Set the correct Timestamp
             int i = record.getFieldIndex(timestampColumn);
             if (i >= 0)
-                fields[i] = timestamp;
+                record.getFields()[i] = timestamp;
         }
         // Change State
         record.updateComplete();        
+        // Remove from cache (the key is only required for the record cache)
+        record.getContext().notifyModified(this, (recordCache!=null ? record.getKey() : null));
     }
     
     /**
@@ -1139,6 +1513,9 @@ public abstract class DBRowSet extends DBExpr implements EntityType
         DBColumn[] keyColumns = getKeyColumns();
         if (keyColumns==null)
             return; // No primary key - no references!
+        // Bulk delete
+        if (db.isBulkCascadeDeleteEnabled() && deleteAllReferencesBulk(key, context)>=0)
+            return;
         // Find all relations
         for (DBRelation rel : relations)
         {   // Check cascade
@@ -1157,6 +1534,133 @@ public abstract class DBRowSet extends DBExpr implements EntityType
         }
     }
     
+    /**
+     * Deletes all records which reference this table with a single DELETE statement per table and level.<br>
+     * The relation graph is determined once and the tables are processed in dependency order, i.e. the deepest level first.
+     * Below the first level, the records are selected by a subquery on the parent table.<br>
+     * If the relations form a cycle or a nested reference consists of more than one column,
+     * nothing is deleted and -1 is returned. In this case the records must be deleted record by record.
+     * <P>
+     * @param key the key the record to be deleted
+     * @param context the DBContext
+     * @return the total number of records deleted or -1 if a bulk delete is not possible
+     */
+    protected int deleteAllReferencesBulk(Object[] key, DBContext context)
+    {
+        // Build the cascade plan
+        List<DBCascadeStep> steps = new ArrayList<DBCascadeStep>();
+        Set<DBRowSet> path = new HashSet<DBRowSet>();
+        path.add(this);
+        if (!addCascadeSteps(null, key, path, steps))
+        {   log.info("Bulk delete is not possible for references of {}. Deleting record by record.", getName());
+            return -1;
+        }
+        // Delete in reverse order
+        int total = 0;
+        for (int i=steps.size()-1; i>=0; i--)
+        {
+            DBCascadeStep step = steps.get(i);
+            DBTable table = step.getTable();
+            DBCommand cmd = table.createRecordCommand(context);
+            cmd.where(step.createConstraints(context));
+            int affected = context.executeDelete(table, cmd);
+            if (affected<0)
+                throw new UnexpectedReturnValueException(affected, "db.executeSQL()");
+            if (log.isInfoEnabled())
+                log.info("Deleted {} records from table {} referencing {} {}", affected, table.getName(), getName(), StringUtils.valueOf(key));
+            total += affected;
+        }
+        return total;
+    }
+
+    /**
+     * Adds the cascade steps for all tables depending on this rowset.
+     * @param parent the step for this rowset or null if this is the rowset of the record to delete
+     * @param key the key of the record to delete
+     * @param path the rowsets of the current path in the relation graph
+     * @param steps the list of steps
+     * @return false if a bulk delete is not possible
+     */
+    private boolean addCascadeSteps(DBCascadeStep parent, Object[] key, Set<DBRowSet> path, List<DBCascadeStep> steps)
+    {
+        DBColumn[] keyColumns = getKeyColumns();
+        if (keyColumns==null || keyColumns.length==0)
+            return true; // No primary key - no references!
+        for (DBRelation rel : db.getRelations())
+        {   // Check cascade
+            if (rel.getOnDeleteAction()!=DBCascadeAction.CASCADE_RECORDS)
+                continue;
+            DBReference[] refs = rel.getReferences();
+            if (!refs[0].getTargetColumn().equals(keyColumns[0]))
+                continue;
+            // Check references
+            DBRowSet rs = refs[0].getSourceColumn().getRowSet();
+            if (!(rs instanceof DBTable) || path.contains(rs))
+                return false; // cycle
+            if (parent==null ? (refs.length!=key.length) : (refs.length!=1))
+                return false; // not supported
+            for (int i=1; i<refs.length; i++)
+                if (!refs[i].getTargetColumn().equals(keyColumns[i]))
+                    return false; // not supported
+            // Add step and children
+            DBCascadeStep step = new DBCascadeStep((DBTable)rs, refs, parent, key);
+            steps.add(step);
+            path.add(rs);
+            if (!rs.addCascadeSteps(step, key, path, steps))
+                return false;
+            path.remove(rs);
+        }
+        return true;
+    }
+
+    /**
+     * DBCascadeStep
+     * The records of a table to delete with a bulk cascade delete
+     */
+    private static class DBCascadeStep
+    {
+        private final DBTable table;
+        private final DBReference[] refs;
+        private final DBCascadeStep parent;
+        private final Object[] key;
+
+        public DBCascadeStep(DBTable table, DBReference[] refs, DBCascadeStep parent, Object[] key)
+        {
+            this.table = table;
+            this.refs = refs;
+            this.parent = parent;
+            this.key = key;
+        }
+
+        public DBTable getTable()
+        {
+            return table;
+        }
+
+        /**
+         * Creates the constraints for selecting the records of this step.
+         * A new expression is created for each call, since expressions are bound to a command when prepared.
+         * @param context the DBContext
+         * @return the constraints
+         */
+        public DBCompareExpr createConstraints(DBContext context)
+        {
+            if (parent==null)
+            {   // references the record to delete
+                DBCompareExpr expr = refs[0].getSourceColumn().is(key[0]);
+                for (int i=1; i<refs.length; i++)
+                    expr = expr.and(refs[i].getSourceColumn().is(key[i]));
+                return expr;
+            }
+            // references the records of the parent step
+            DBTable parentTable = parent.getTable();
+            DBCommand subCmd = parentTable.createRecordCommand(context);
+            subCmd.select(refs[0].getTargetColumn());
+            subCmd.where(parent.createConstraints(context));
+            return refs[0].getSourceColumn().in(subCmd);
+        }
+    }
+
     /**
      * Deletes all records which are referenced by a particular relation.
      * <P>
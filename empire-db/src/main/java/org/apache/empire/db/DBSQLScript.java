@@ -186,6 +186,19 @@ public class DBSQLScript implements DBContextAware, Iterable<String>
         addStmt(cmd.getInsert(), cmd.getParamValues());
     }
 
+    /**
+     * Adds an upsert statement (requires DBMSFeature.UPSERT)
+     * @param cmd the command containing the row values
+     * @param table the table into which to insert the row
+     * @param conflictColumns the columns identifying an existing row or none for the primary key
+     */
+    public void addUpsert(DBCommand cmd, DBTable table, DBColumn... conflictColumns)
+    {
+        if (cmd == null)
+            throw new InvalidArgumentException("cmd", cmd);
+        addStmt(cmd.getUpsert(table, conflictColumns), cmd.getParamValues());
+    }
+
     /**
      * Adds an update statement 
      * @param cmd the insert command
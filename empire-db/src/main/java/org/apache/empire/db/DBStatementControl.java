@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+/**
+ * DBStatementControl<br>
+ * Passes the query timeout, the deadline and the cancel handle of a statement from DBUtils or DBReader to the DBMSHandler on the same thread.<br>
+ * The DBMSHandler applies the current control to every statement it executes.
+ */
+public final class DBStatementControl
+{
+    private static final ThreadLocal<DBStatementControl> current = new ThreadLocal<DBStatementControl>();
+
+    /**
+     * Returns the control of the current thread
+     * @return the statement control or null
+     */
+    public static DBStatementControl getCurrent()
+    {
+        return current.get();
+    }
+
+    /**
+     * Sets the control of the current thread
+     * @param control the statement control or null to remove
+     */
+    public static void setCurrent(DBStatementControl control)
+    {
+        if (control!=null)
+            current.set(control);
+        else
+            current.remove();
+    }
+
+    private final int queryTimeout;
+    private final long deadline;
+    private final DBCancelHandle cancelHandle;
+
+    /**
+     * Creates a statement control
+     * @param queryTimeout the query timeout in seconds or 0 for no timeout
+     * @param deadline the point in time (in milliseconds) at which the statement must be completed or 0 for no deadline
+     * @param cancelHandle the cancel handle or null
+     */
+    public DBStatementControl(int queryTimeout, long deadline, DBCancelHandle cancelHandle)
+    {
+        this.queryTimeout = queryTimeout;
+        this.deadline = deadline;
+        this.cancelHandle = cancelHandle;
+    }
+
+    public int getQueryTimeout()
+    {
+        return queryTimeout;
+    }
+
+    public long getDeadline()
+    {
+        return deadline;
+    }
+
+    public DBCancelHandle getCancelHandle()
+    {
+        return cancelHandle;
+    }
+
+    /**
+     * Returns whether the deadline has passed
+     * @return true if the deadline has passed
+     */
+    public boolean isDeadlineExceeded()
+    {
+        return (deadline>0 && System.currentTimeMillis()>=deadline);
+    }
+
+    /**
+     * Returns whether the statement has been cancelled
+     * @return true if cancelled
+     */
+    public boolean isCancelled()
+    {
+        return (cancelHandle!=null && cancelHandle.isCancelled());
+    }
+
+    /**
+     * Returns the timeout for a statement executed now.<br>
+     * This is the query timeout or the time left until the deadline whichever is shorter.
+     * @return the timeout in seconds or 0 for no timeout
+     */
+    public int getEffectiveTimeout()
+    {
+        if (deadline<=0)
+            return queryTimeout;
+        // round up to full seconds
+        long remaining = deadline - System.currentTimeMillis();
+        int seconds = (int)Math.min(Integer.MAX_VALUE, Math.max(1, (remaining + 999) / 1000));
+        return (queryTimeout>0 ? Math.min(queryTimeout, seconds) : seconds);
+    }
+}
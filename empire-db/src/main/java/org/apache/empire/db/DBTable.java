@@ -20,13 +20,17 @@ package org.apache.empire.db;
 
 // java
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.sql.Connection;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.beanutils.BeanUtilsBean;
+import org.apache.commons.beanutils.PropertyUtilsBean;
 import org.apache.empire.commons.ObjectUtils;
 import org.apache.empire.commons.Options;
 import org.apache.empire.commons.StringUtils;
@@ -36,6 +40,8 @@ import org.apache.empire.db.DBRelation.DBCascadeAction;
 import org.apache.empire.db.exceptions.NoPrimaryKeyException;
 import org.apache.empire.db.exceptions.RecordDeleteFailedException;
 import org.apache.empire.db.exceptions.RecordUpdateFailedException;
+import org.apache.empire.dbms.DBMSHandler;
+import org.apache.empire.exceptions.BeanPropertyGetException;
 import org.apache.empire.exceptions.InvalidArgumentException;
 import org.apache.empire.exceptions.ItemExistsException;
 import org.apache.empire.exceptions.NotSupportedException;
@@ -777,6 +783,178 @@ public class DBTable extends DBRowSet implements Cloneable
         { // Multiple Records affected
             throw new RecordUpdateFailedException(this, key);
         }
+        // Remove from cache
+        context.notifyModified(this, key);
+    }
+
+    /**
+     * Inserts rows with multi-row insert statements.<br>
+     * The rows are inserted in chunks of DBMSHandler.getMaxBulkInsertRows() rows per statement with a parameter for each value.<br>
+     * Unlike DBRecord.update() no default values, identities or timestamps are generated, 
+     * hence the values for all required columns must be provided.
+     * @param context the database context
+     * @param columns the columns for which values are provided
+     * @param rows the rows containing one value per column
+     * @return the number of rows inserted by each chunk
+     */
+    public int[] insertBulk(DBContext context, DBColumn[] columns, Iterator<Object[]> rows)
+    {
+        DBObject.checkParamNull("context", context);
+        DBObject.checkParamNull("rows", rows);
+        if (columns==null || columns.length==0)
+            throw new InvalidArgumentException("columns", columns);
+        for (int i=0; i<columns.length; i++)
+        {   // must be a column of this table
+            if (columns[i].getRowSet()!=this)
+                throw new InvalidArgumentException("columns", columns);
+        }
+        // insert in chunks
+        DBMSHandler dbms = context.getDbms();
+        int maxRows = dbms.getMaxBulkInsertRows(columns.length);
+        List<Integer> chunkCounts = new ArrayList<Integer>();
+        List<Object> params = new ArrayList<Object>(maxRows * columns.length);
+        String chunkSQL = null;
+        int rowCount = 0;
+        while (rows.hasNext())
+        {
+            Object[] row = rows.next();
+            if (row==null || row.length!=columns.length)
+                throw new InvalidArgumentException("row", row);
+            Collections.addAll(params, row);
+            if (++rowCount<maxRows)
+                continue;
+            // execute full chunk
+            if (chunkSQL==null)
+                chunkSQL = getBulkInsertSQL(dbms, columns, maxRows);
+            chunkCounts.add(executeBulkInsert(context, chunkSQL, params));
+            params.clear();
+            rowCount = 0;
+        }
+        // execute remaining rows
+        if (rowCount>0)
+            chunkCounts.add(executeBulkInsert(context, getBulkInsertSQL(dbms, columns, rowCount), params));
+        // done
+        int[] result = new int[chunkCounts.size()];
+        for (int i=0; i<result.length; i++)
+            result[i] = chunkCounts.get(i);
+        return result;
+    }
+
+    /**
+     * Inserts rows with multi-row insert statements.
+     * @see DBTable#insertBulk(DBContext, DBColumn[], Iterator)
+     * @param context the database context
+     * @param columns the columns for which values are provided
+     * @param rows the rows containing one value per column
+     * @return the number of rows inserted by each chunk
+     */
+    public final int[] insertBulk(DBContext context, DBColumn[] columns, Iterable<Object[]> rows)
+    {
+        DBObject.checkParamNull("rows", rows);
+        return insertBulk(context, columns, rows.iterator());
+    }
+
+    /**
+     * Inserts the values of records with multi-row insert statements.<br>
+     * The records are only used as a source for the values, their state is not changed.
+     * @see DBTable#insertBulk(DBContext, DBColumn[], Iterator)
+     * @param context the database context
+     * @param columns the columns to insert
+     * @param records the records providing the values
+     * @return the number of rows inserted by each chunk
+     */
+    public int[] insertRecordsBulk(DBContext context, final DBColumn[] columns, Iterable<? extends DBRecordData> records)
+    {
+        DBObject.checkParamNull("records", records);
+        final Iterator<? extends DBRecordData> iterator = records.iterator();
+        return insertBulk(context, columns, new Iterator<Object[]>() {
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+            @Override
+            public Object[] next()
+            {
+                DBRecordData record = iterator.next();
+                Object[] row = new Object[columns.length];
+                for (int i=0; i<columns.length; i++)
+                    row[i] = record.get(columns[i]);
+                return row;
+            }
+        });
+    }
+
+    /**
+     * Inserts the property values of Java beans with multi-row insert statements.<br>
+     * The property names are detected by ColumnExpr.getBeanPropertyName()
+     * @see DBTable#insertBulk(DBContext, DBColumn[], Iterator)
+     * @param context the database context
+     * @param columns the columns to insert
+     * @param beans the beans providing the values
+     * @return the number of rows inserted by each chunk
+     */
+    public int[] insertBeansBulk(DBContext context, final DBColumn[] columns, Iterable<?> beans)
+    {
+        DBObject.checkParamNull("beans", beans);
+        final Iterator<?> iterator = beans.iterator();
+        final PropertyUtilsBean pub = BeanUtilsBean.getInstance().getPropertyUtils();
+        return insertBulk(context, columns, new Iterator<Object[]>() {
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+            @Override
+            public Object[] next()
+            {
+                Object bean = iterator.next();
+                Object[] row = new Object[columns.length];
+                for (int i=0; i<columns.length; i++)
+                {   String property = columns[i].getBeanPropertyName();
+                    try {
+                        row[i] = pub.getSimpleProperty(bean, property);
+                    } catch (IllegalAccessException e) {
+                        throw new BeanPropertyGetException(bean, property, e);
+                    } catch (InvocationTargetException e) {
+                        throw new BeanPropertyGetException(bean, property, e);
+                    } catch (NoSuchMethodException e) {
+                        throw new BeanPropertyGetException(bean, property, e);
+                    }
+                }
+                return row;
+            }
+        });
+    }
+
+    /**
+     * Returns the statement for a bulk insert of a number of rows
+     * @param dbms the dbms handler
+     * @param columns the columns
+     * @param rowCount the number of rows
+     * @return the sql statement
+     */
+    protected String getBulkInsertSQL(DBMSHandler dbms, DBColumn[] columns, int rowCount)
+    {
+        DBSQLBuilder sql = dbms.createSQLBuilder();
+        dbms.appendBulkInsert(sql, this, columns, rowCount);
+        return sql.toString();
+    }
+
+    /**
+     * Executes a bulk insert statement
+     * @param context the database context
+     * @param sqlCmd the sql statement
+     * @param params the parameter values
+     * @return the number of rows inserted
+     */
+    protected int executeBulkInsert(DBContext context, String sqlCmd, List<Object> params)
+    {
+        int affected = context.executeSQL(sqlCmd, params.toArray());
+        if (affected < 0)
+            throw new UnexpectedReturnValueException(affected, "db.executeSQL()");
+        context.notifyModified(this);
+        return affected;
     }
     
     /**
@@ -24,30 +24,46 @@ import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import org.apache.empire.commons.ObjectUtils;
 import org.apache.empire.commons.Options;
 import org.apache.empire.commons.StringUtils;
 import org.apache.empire.data.Column;
 import org.apache.empire.data.DataType;
+import org.apache.empire.data.list.ColumnarDataList;
 import org.apache.empire.data.list.DataListEntry;
 import org.apache.empire.data.list.DataListFactory;
 import org.apache.empire.data.list.DataListFactoryImpl;
 import org.apache.empire.data.list.DataListHead;
 import org.apache.empire.db.context.DBContextAware;
+import org.apache.empire.db.context.DBContextFactory;
 import org.apache.empire.db.exceptions.CommandWithoutSelectException;
 import org.apache.empire.db.exceptions.ConstraintViolationException;
+import org.apache.empire.db.exceptions.NoPrimaryKeyException;
 import org.apache.empire.db.exceptions.QueryFailedException;
 import org.apache.empire.db.exceptions.QueryNoResultException;
+import org.apache.empire.db.exceptions.QueryTimeoutException;
 import org.apache.empire.db.exceptions.StatementFailedException;
 import org.apache.empire.db.exceptions.UnknownBeanTypeException;
 import org.apache.empire.db.expr.compare.DBCompareExpr;
+import org.apache.empire.db.expr.set.DBSetExpr;
 import org.apache.empire.db.list.DBBeanFactoryCache;
 import org.apache.empire.db.list.DBBeanListFactory;
 import org.apache.empire.db.list.DBBeanListFactoryImpl;
 import org.apache.empire.db.list.DBRecordListFactory;
 import org.apache.empire.db.list.DBRecordListFactoryImpl;
 import org.apache.empire.db.list.DataBean;
+import org.apache.empire.db.monitor.DBStatementEvent;
+import org.apache.empire.db.monitor.DBStatementEvent.StatementType;
+import org.apache.empire.db.monitor.DBStatementListener;
+import org.apache.empire.db.monitor.DBStatementTimer;
 import org.apache.empire.dbms.DBMSFeature;
 import org.apache.empire.dbms.DBMSHandler;
 import org.apache.empire.exceptions.InternalException;
@@ -82,6 +98,8 @@ public class DBUtils implements DBContextAware
     protected final DBContext context;
     // the dbms
     protected final DBMSHandler dbms;
+    // Executor for asynchronous queries (null = default)
+    protected Executor asyncExecutor = null;
     
     /**
      * DBUtils constructor
@@ -196,6 +214,135 @@ public class DBUtils implements DBContextAware
         }
     }
 
+    /**
+     * Starts timing a statement
+     * @return the start time in nanoseconds
+     */
+    protected long startStatementTimer()
+    {
+        if (dbms.getStatementListener()!=null)
+            DBStatementTimer.clear();
+        return System.nanoTime();
+    }
+
+    /**
+     * Notifies the statement listener of the dbms (if any) about an executed statement.
+     * @param type the statement type
+     * @param sqlCmd the sql command
+     * @param sqlParams the command params
+     * @param rowCount the number of rows returned or affected or -1 if unknown
+     * @param prepareNanos the time spent on preparing the statement
+     * @param executeNanos the time spent on executing the statement
+     * @param fetchNanos the time spent on reading the result
+     * @param exception the exception if the statement failed
+     */
+    protected void fireStatementExecuted(StatementType type, String sqlCmd, Object[] sqlParams, int rowCount, long prepareNanos, long executeNanos, long fetchNanos, Exception exception)
+    {
+        DBStatementListener listener = dbms.getStatementListener();
+        if (listener==null)
+            return;
+        try
+        {   // notify
+            int paramCount = (sqlParams!=null ? sqlParams.length : 0);
+            listener.statementExecuted(new DBStatementEvent(type, sqlCmd, paramCount, rowCount, prepareNanos, executeNanos, fetchNanos, exception));
+        } catch (RuntimeException e) {
+            log.error("Statement listener failed for statement "+sqlCmd, e);
+        }
+    }
+
+    /**
+     * Notifies the statement listener of the dbms (if any) about a statement started with startStatementTimer().
+     * @param type the statement type
+     * @param sqlCmd the sql command
+     * @param sqlParams the command params
+     * @param rowCount the number of rows returned or affected or -1 if unknown
+     * @param start the start time in nanoseconds
+     * @param executed the time in nanoseconds at which the statement was executed
+     * @param fetched the time in nanoseconds at which the result was read
+     * @param exception the exception if the statement failed
+     */
+    private void statementCompleted(StatementType type, String sqlCmd, Object[] sqlParams, int rowCount, long start, long executed, long fetched, Exception exception)
+    {
+        if (dbms.getStatementListener()==null)
+            return;
+        long prepareNanos = Math.min(DBStatementTimer.takePrepareNanos(), executed-start);
+        fireStatementExecuted(type, sqlCmd, sqlParams, rowCount, prepareNanos, executed-start-prepareNanos, fetched-executed, exception);
+    }
+
+    /**
+     * Sets the query timeout, the deadline and the cancel handle for the statements executed on the current thread (see DBStatementControl).<br>
+     * If no command and no cancel handle is given and a control has already been set by the caller, the control of the caller is kept.
+     * Otherwise the default query timeout of the context is used unless the command specifies its own timeout.<br>
+     * Must be followed by a call to endStatementControl() in a finally block.
+     * @param cmd the command (optional)
+     * @param cancelHandle the cancel handle (optional). If null the cancel handle of the command is used.
+     * @return the previous control which must be passed to endStatementControl()
+     */
+    public DBStatementControl beginStatementControl(DBCommandExpr cmd, DBCancelHandle cancelHandle)
+    {
+        DBStatementControl prev = DBStatementControl.getCurrent();
+        if (cmd==null && cancelHandle==null && prev!=null)
+            return prev; // keep the control of the caller
+        // get settings
+        int queryTimeout = context.getQueryTimeout();
+        long deadline = 0;
+        if (cmd!=null)
+        {   if (cmd.getQueryTimeout()>0)
+                queryTimeout = cmd.getQueryTimeout();
+            deadline = cmd.getDeadline();
+            if (cancelHandle==null)
+                cancelHandle = cmd.getCancelHandle();
+        }
+        // set control
+        boolean controlled = (queryTimeout>0 || deadline>0 || cancelHandle!=null); 
+        DBStatementControl.setCurrent(controlled ? new DBStatementControl(queryTimeout, deadline, cancelHandle) : null);
+        return prev;
+    }
+
+    /**
+     * Restores the statement control replaced by beginStatementControl()
+     * @param prev the previous control as returned by beginStatementControl() 
+     */
+    public void endStatementControl(DBStatementControl prev)
+    {
+        DBStatementControl.setCurrent(prev);
+    }
+
+    /**
+     * Returns a QueryTimeoutException if a statement has failed because it has exceeded its timeout or deadline or because it has been cancelled.
+     * @param sqlCmd the sql command
+     * @param sqle the SQLException
+     * @return the QueryTimeoutException or null if the statement has failed for another reason
+     */
+    protected QueryTimeoutException getTimeoutException(String sqlCmd, SQLException sqle)
+    {
+        DBStatementControl control = DBStatementControl.getCurrent();
+        if (control!=null && control.isCancelled())
+            return new QueryTimeoutException(dbms, sqlCmd, sqle, true);
+        if (dbms.isQueryTimeout(sqle) || (control!=null && control.isDeadlineExceeded()))
+            return new QueryTimeoutException(dbms, sqlCmd, sqle, false);
+        // not a timeout
+        return null;
+    }
+
+    /**
+     * Returns a QueryTimeoutException if a statement has failed after it has been executed, e.g. while fetching rows,
+     * because it has been cancelled using a cancel handle or because it has timed out.
+     * @param sqlCmd the sql command
+     * @param sqle the SQLException
+     * @param cancelHandle the cancel handle of the statement (may be null)
+     * @return the QueryTimeoutException or null if the statement has failed for another reason
+     */
+    protected QueryTimeoutException getTimeoutException(String sqlCmd, SQLException sqle, DBCancelHandle cancelHandle)
+    {
+        if (cancelHandle!=null && cancelHandle.isCancelled())
+            return new QueryTimeoutException(dbms, sqlCmd, sqle, true);
+        if (dbms.isQueryTimeout(sqle))
+            return new QueryTimeoutException(dbms, sqlCmd, sqle, false);
+        // not a timeout
+        return null;
+    }
+
     /**
      * Executes an update, insert or delete SQL-Statement.<BR>
      * We recommend to use a DBCommand object in order to build the sqlCmd.<BR>
@@ -207,17 +354,20 @@ public class DBUtils implements DBContextAware
      */
     public int executeSQL(String sqlCmd, Object[] sqlParams, DBMSHandler.DBSetGenKeys setGenKeys)
     {
+        // Debug
+        logUpdateStatement(sqlCmd, sqlParams);
+        DBStatementControl prevControl = beginStatementControl(null, null);
+        long start = startStatementTimer();
         try 
-        {   // Debug
-            logUpdateStatement(sqlCmd, sqlParams);
-            // execute SQL
-            long start = System.currentTimeMillis();
+        {   // execute SQL
             int affected = dbms.executeSQL(sqlCmd, sqlParams, context.getConnection(), setGenKeys);
             // number of affected records
             if (affected < 0)
                 log.warn("Unexpected return value {} from dbms.executeSQL(\"{}\")", affected, sqlCmd);
+            long end = System.nanoTime();
+            statementCompleted(StatementType.UPDATE, sqlCmd, sqlParams, affected, start, end, end, null);
             // Log
-            long execTime = (System.currentTimeMillis() - start);
+            long execTime = (end - start) / 1000000;
             if (log.isInfoEnabled())
                 log.info("executeSQL affected {} Records in {} ms ", affected, execTime);
             else if (execTime>=longRunndingStmtThreshold)
@@ -227,11 +377,117 @@ public class DBUtils implements DBContextAware
             
         } catch (SQLIntegrityConstraintViolationException sqle) {
             // ConstraintViolation
+            long end = System.nanoTime();
+            statementCompleted(StatementType.UPDATE, sqlCmd, sqlParams, -1, start, end, end, sqle);
             throw new ConstraintViolationException(dbms, sqlCmd, sqle);
         } catch (SQLException sqle) {
             // Other error
+            long end = System.nanoTime();
+            statementCompleted(StatementType.UPDATE, sqlCmd, sqlParams, -1, start, end, end, sqle);
+            QueryTimeoutException timeout = getTimeoutException(sqlCmd, sqle);
+            if (timeout!=null)
+                throw timeout;
             throw new StatementFailedException(dbms, sqlCmd, sqle);
-        }    
+        } finally {
+            endStatementControl(prevControl);
+        }
+    }
+
+    /**
+     * Executes an update, insert or delete SQL-Statement created from a command.<BR>
+     * The query timeout, deadline and cancel handle of the command are applied.
+     * <P>
+     * @param cmd the command
+     * @param sqlCmd the SQL-Command created from the command e.g. cmd.getUpdate()
+     * @return the row count for insert, update or delete or 0 for SQL statements that return nothing
+     */
+    public final int executeSQL(DBCommandExpr cmd, String sqlCmd)
+    {
+        DBStatementControl prevControl = beginStatementControl(cmd, null);
+        try
+        {   // execute with command params
+            return executeSQL(sqlCmd, cmd.getParamValues(), null);
+        } finally {
+            endStatementControl(prevControl);
+        }
+    }
+
+    /**
+     * Inserts a row or updates the existing row with the same conflict column values (upsert).<br>
+     * If supported by the dbms a single native statement is executed (see DBCommand.getUpsert()).<br>
+     * Otherwise an update is executed first and if no row was affected the row is inserted.
+     * If the insert fails with a constraint violation because the row has been inserted concurrently, the update is repeated once.
+     * @param table the table into which to insert the row
+     * @param cmd the command containing the set expressions for all columns including the conflict columns
+     * @param conflictColumns the columns identifying an existing row. If omitted, the primary key columns are used.
+     * @return the number of rows affected as reported by the dbms
+     */
+    public int executeUpsert(DBTable table, DBCommand cmd, DBColumn... conflictColumns)
+    {
+        if (dbms.isSupported(DBMSFeature.UPSERT))
+        {   // native upsert
+            return executeSQL(cmd, cmd.getUpsert(table, conflictColumns));
+        }
+        // emulate by update and insert
+        if (conflictColumns==null || conflictColumns.length==0)
+            conflictColumns = table.getKeyColumns();
+        if (conflictColumns==null || conflictColumns.length==0)
+            throw new NoPrimaryKeyException(table);
+        DBCommand upd = context.createCommand();
+        boolean hasUpdate = false;
+        for (DBSetExpr setExpr : cmd.getSetExpressions())
+        {   // unwrap parameters
+            Object value = setExpr.getValue();
+            if (value instanceof DBCmdParam)
+                value = ((DBCmdParam)value).getValue();
+            if (ObjectUtils.contains(conflictColumns, setExpr.getColumn()))
+            {   // constraint
+                upd.where(setExpr.getColumn().is(value));
+            }
+            else
+            {   // set
+                upd.set(setExpr.getColumn().to(value));
+                hasUpdate = true;
+            }
+        }
+        if (upd.getWhereConstraints()==null || upd.getWhereConstraints().size()!=conflictColumns.length)
+            throw new InvalidArgumentException("conflictColumns", conflictColumns);
+        // all statements are controlled by cmd
+        DBStatementControl prevControl = beginStatementControl(cmd, null);
+        try {
+            // update existing row
+            int affected = upsertUpdate(table, upd, hasUpdate);
+            if (affected>0)
+                return affected;
+            // insert new row
+            try {
+                return executeSQL(cmd.getInsert(), cmd.getParamValues(), null);
+            } catch (ConstraintViolationException e) {
+                // inserted concurrently
+                log.debug("Upsert on {} failed to insert. Retrying update.", table.getName());
+                affected = upsertUpdate(table, upd, hasUpdate);
+                if (affected==0)
+                    throw e;
+                return affected;
+            }
+        } finally {
+            endStatementControl(prevControl);
+        }
+    }
+
+    /**
+     * Executes the update of an emulated upsert.
+     * If there is nothing to update, only the number of existing rows is returned.
+     */
+    private int upsertUpdate(DBTable table, DBCommand upd, boolean hasUpdate)
+    {
+        if (hasUpdate)
+            return executeSQL(upd.getUpdate(), upd.getParamValues(), null);
+        // count only
+        DBCommand cnt = context.createCommand();
+        cnt.select(table.count());
+        cnt.addWhereConstraints(upd.getWhereConstraints());
+        return querySingleInt(cnt.getSelect(), cnt.getParamValues(), 0);
     }
     
     /**
@@ -242,20 +498,27 @@ public class DBUtils implements DBContextAware
      * @param sqlCmd the SQL-Command
      * @param sqlParams a list of parameters for parameter queries (may depend on dbms)
      * @param scrollable true if the reader should be scrollable or false if not
+     * @param fetchSize the number of rows to fetch from the database at once or 0 for the driver default.<br>
+     *        For forward-only queries a positive value enables the streaming mode of the dbms (if any).
      * @return the JDBC ResutSet
+     * <P>
+     * If the query fails, the statement listener (if any) is notified.
+     * Otherwise the caller is responsible for notifying the listener once the result has been read (see DBReader).
+     * The time spent on preparing the statement can be obtained from DBStatementTimer.takePrepareNanos().
      */
-    public ResultSet executeQuery(String sqlCmd, Object[] sqlParams, boolean scrollable)
+    public ResultSet executeQuery(String sqlCmd, Object[] sqlParams, boolean scrollable, int fetchSize)
     {
+        // Debug
+        logQueryStatement(sqlCmd, sqlParams);
+        DBStatementControl prevControl = beginStatementControl(null, null);
+        long start = startStatementTimer();
         try
-        {   // Debug
-            logQueryStatement(sqlCmd, sqlParams);
-            // Execute the Statement
-            long start = System.currentTimeMillis();
-            ResultSet rs = dbms.executeQuery(sqlCmd, sqlParams, scrollable, context.getConnection());
+        {   // Execute the Statement
+            ResultSet rs = dbms.executeQuery(sqlCmd, sqlParams, scrollable, fetchSize, context.getReadConnection());
             if (rs == null)
                 throw new UnexpectedReturnValueException(rs, "dbms.executeQuery()");
             // Debug
-            long queryTime = (System.currentTimeMillis() - start);
+            long queryTime = (System.nanoTime() - start) / 1000000;
             if (log.isDebugEnabled())
                 log.debug("executeQuery successful in {} ms", queryTime);
             else if (queryTime>=longRunndingStmtThreshold)
@@ -265,8 +528,29 @@ public class DBUtils implements DBContextAware
     
         } catch (SQLException sqle) 
         {   // Error
+            long end = System.nanoTime();
+            statementCompleted(StatementType.QUERY, sqlCmd, sqlParams, -1, start, end, end, sqle);
+            QueryTimeoutException timeout = getTimeoutException(sqlCmd, sqle);
+            if (timeout!=null)
+                throw timeout;
             throw new QueryFailedException(dbms, sqlCmd, sqle);
-        } 
+        } finally {
+            endStatementControl(prevControl);
+        }
+    }
+
+    /**
+     * Executes a select SQL-Statement and returns a ResultSet containing the query results.<BR>
+     * see {@link DBUtils#executeQuery(String, Object[], boolean, int)}
+     * <P>
+     * @param sqlCmd the SQL-Command
+     * @param sqlParams a list of parameters for parameter queries (may depend on dbms)
+     * @param scrollable true if the reader should be scrollable or false if not
+     * @return the JDBC ResutSet
+     */
+    public ResultSet executeQuery(String sqlCmd, Object[] sqlParams, boolean scrollable)
+    {
+        return executeQuery(sqlCmd, sqlParams, scrollable, 0);
     }
     
     /**
@@ -285,8 +569,27 @@ public class DBUtils implements DBContextAware
         // Debug
         logQueryStatement(sqlCmd, sqlParams);
         // Read value
-        long start = System.currentTimeMillis();
-        Object result = dbms.querySingleValue(sqlCmd, sqlParams, dataType, context.getConnection());
+        DBStatementControl prevControl = beginStatementControl(null, null);
+        long start = startStatementTimer();
+        Object result;
+        try
+        {   // query now
+            result = dbms.querySingleValue(sqlCmd, sqlParams, dataType, context.getReadConnection());
+        } catch (RuntimeException e) {
+            long end = System.nanoTime();
+            statementCompleted(StatementType.QUERY, sqlCmd, sqlParams, -1, start, end, end, e);
+            if ((e instanceof QueryFailedException) && (e.getCause() instanceof SQLException))
+            {   // check timeout
+                QueryTimeoutException timeout = getTimeoutException(sqlCmd, (SQLException)e.getCause());
+                if (timeout!=null)
+                    throw timeout;
+            }
+            throw e;
+        } finally {
+            endStatementControl(prevControl);
+        }
+        long end = System.nanoTime();
+        statementCompleted(StatementType.QUERY, sqlCmd, sqlParams, (result==ObjectUtils.NO_VALUE ? 0 : 1), start, end, end, null);
         if (result==ObjectUtils.NO_VALUE)
         {   // Query returned no result
             if (failOnNoResult)
@@ -295,7 +598,7 @@ public class DBUtils implements DBContextAware
                 result = null;
         }
         // Debug
-        long queryTime = (System.currentTimeMillis() - start);
+        long queryTime = (end - start) / 1000000;
         if (log.isDebugEnabled())
             log.debug("querySingleValue successful in {} ms. Result value={}.", queryTime, result);
         else if (queryTime>=longRunndingStmtThreshold)
@@ -316,7 +619,7 @@ public class DBUtils implements DBContextAware
      */
     public final <T> T querySingleValue(DBCommandExpr cmd, Class<T> resultType, boolean failOnNoResult)
     {
-        Object value = querySingleValue(cmd.getSelect(), cmd.getParamValues(), cmd.getDataType(), failOnNoResult); 
+        Object value = querySingleValue(cmd, cmd.getDataType(), failOnNoResult); 
         return ObjectUtils.convert(resultType, value);
     }
     
@@ -331,7 +634,26 @@ public class DBUtils implements DBContextAware
      */
     public final Object querySingleValue(DBCommandExpr cmd, boolean failOnNoResult)
     {
-        return querySingleValue(cmd.getSelect(), cmd.getParamValues(), cmd.getDataType(), failOnNoResult);  
+        return querySingleValue(cmd, cmd.getDataType(), failOnNoResult);  
+    }
+
+    /**
+     * Returns the value of the first row/column of a command query.<br>
+     * The query timeout, deadline and cancel handle of the command are applied.
+     * @param cmd the Command object that contains the select statement
+     * @param dataType the expected data type
+     * @param failOnNoResult flag whether to fail on empty resultset
+     * @return the value of the first column in the first row of the query 
+     */
+    private Object querySingleValue(DBCommandExpr cmd, DataType dataType, boolean failOnNoResult)
+    {
+        DBStatementControl prevControl = beginStatementControl(cmd, null);
+        try
+        {   // query now
+            return querySingleValue(cmd.getSelect(), cmd.getParamValues(), dataType, failOnNoResult);
+        } finally {
+            endStatementControl(prevControl);
+        }
     }
     
     /**
@@ -374,7 +696,7 @@ public class DBUtils implements DBContextAware
      */
     public final int querySingleInt(DBCommandExpr cmd, int defaultValue)
     { 
-        Object value = querySingleValue(cmd.getSelect(), cmd.getParamValues(), DataType.INTEGER, false);
+        Object value = querySingleValue(cmd, DataType.INTEGER, false);
         return ObjectUtils.getInteger(value, defaultValue);
     }
 
@@ -388,7 +710,7 @@ public class DBUtils implements DBContextAware
      */
     public final int querySingleInt(DBCommandExpr cmd)
     { 
-        Object value = querySingleValue(cmd.getSelect(), cmd.getParamValues(), DataType.INTEGER, true);
+        Object value = querySingleValue(cmd, DataType.INTEGER, true);
         return ObjectUtils.getInteger(value);
     }
 
@@ -419,7 +741,7 @@ public class DBUtils implements DBContextAware
      */
     public final long querySingleLong(DBCommandExpr cmd, long defaultValue)
     { 
-        Object value = querySingleValue(cmd.getSelect(), cmd.getParamValues(), DataType.INTEGER, false);
+        Object value = querySingleValue(cmd, DataType.INTEGER, false);
         return ObjectUtils.getLong(value, defaultValue);
     }
 
@@ -433,7 +755,7 @@ public class DBUtils implements DBContextAware
      */
     public final long querySingleLong(DBCommandExpr cmd)
     { 
-        Object value = querySingleValue(cmd.getSelect(), cmd.getParamValues(), DataType.INTEGER, true);
+        Object value = querySingleValue(cmd, DataType.INTEGER, true);
         return ObjectUtils.getLong(value);
     }
     
@@ -448,7 +770,7 @@ public class DBUtils implements DBContextAware
      */
     public final String querySingleString(DBCommandExpr cmd, String defaultValue)
     { 
-        Object value = querySingleValue(cmd.getSelect(), cmd.getParamValues(), DataType.VARCHAR, false);
+        Object value = querySingleValue(cmd, DataType.VARCHAR, false);
         return StringUtils.toString(value, defaultValue);
     }
     
@@ -463,7 +785,7 @@ public class DBUtils implements DBContextAware
      */
     public final String querySingleString(DBCommandExpr cmd)
     { 
-        Object value = querySingleValue(cmd.getSelect(), cmd.getParamValues(), DataType.VARCHAR, true);
+        Object value = querySingleValue(cmd, DataType.VARCHAR, true);
         return StringUtils.toString(value);
     }
 
@@ -492,7 +814,12 @@ public class DBUtils implements DBContextAware
             DBCommand subCmd = cmd.clone();
             subCmd.clearOrderBy();
             String sql = "SELECT COUNT(*) FROM ("+subCmd.getSelect() + ") q";
-            return querySingleInt(sql, subCmd.getParamValues(), 0);
+            DBStatementControl prevControl = beginStatementControl(cmd, null);
+            try {
+                return querySingleInt(sql, subCmd.getParamValues(), 0);
+            } finally {
+                endStatementControl(prevControl);
+            }
         }
         // find any rowset
         DBRowSet rs = exprList[0].getRowSet();
@@ -505,6 +832,27 @@ public class DBUtils implements DBContextAware
         return querySingleInt(countCmd);
     }
 
+    /**
+     * Returns the cache for option list and simple list queries of the database of a command (if any).<br>
+     * No cache is used if the query references a rowset with uncommitted changes of the context. 
+     * Otherwise uncommitted rows would be visible to other contexts and remain cached after a rollback.
+     * @param cmd the query command
+     * @return the query cache or null
+     */
+    protected DBQueryCache getQueryCache(DBCommandExpr cmd)
+    {
+        DBDatabase db = cmd.getDatabase();
+        DBQueryCache cache = (db!=null ? db.getQueryCache() : null);
+        if (cache==null)
+            return null;
+        for (DBRowSet rowset : DBQueryCache.getReferencedRowSets(cmd))
+        {   // modified by the current transaction?
+            if (context.hasUncommittedChanges(rowset))
+                return null;
+        }
+        return cache;
+    }
+
     /**
      * Adds the first column of a query result to a collection.
      * If the query has no result, an empty list is returned.
@@ -522,15 +870,16 @@ public class DBUtils implements DBContextAware
     public <T> int querySimpleList(Class<T> c, String sqlCmd, Object[] sqlParams, DataType dataType, Collection<T> result, int maxRows)
     {   // Start query
         ResultSet rs = null;
+        logQueryStatement(sqlCmd, sqlParams);
+        // Log performance
+        DBStatementControl prevControl = beginStatementControl(null, null);
+        long start = startStatementTimer();
         try
-        {
-            logQueryStatement(sqlCmd, sqlParams);
-            // Log performance
-            long start = System.currentTimeMillis();
-            // Get the next Value
-            rs = dbms.executeQuery(sqlCmd, sqlParams, false, context.getConnection());
+        {   // Get the next Value
+            rs = dbms.executeQuery(sqlCmd, sqlParams, false, context.getReadConnection());
             if (rs == null)
                 throw new UnexpectedReturnValueException(rs, "dbms.executeQuery()");
+            long executed = System.nanoTime();
             // Check Result
             int count=0;
             while (rs.next() && (maxRows<0 || count<maxRows))
@@ -539,8 +888,10 @@ public class DBUtils implements DBContextAware
                 result.add(item);
                 count++;
             }
+            long end = System.nanoTime();
+            statementCompleted(StatementType.QUERY, sqlCmd, sqlParams, count, start, executed, end, null);
             // Debug
-            long queryTime = (System.currentTimeMillis() - start);
+            long queryTime = (end - start) / 1000000;
             if (log.isDebugEnabled())
                 log.debug("querySimpleList retured {} items in {} ms.", count, queryTime);
             else if (queryTime>=longRunndingStmtThreshold)
@@ -552,10 +903,16 @@ public class DBUtils implements DBContextAware
             throw new InternalException(e);
         } catch (SQLException sqle) 
         {   // Error
+            long end = System.nanoTime();
+            statementCompleted(StatementType.QUERY, sqlCmd, sqlParams, -1, start, end, end, sqle);
+            QueryTimeoutException timeout = getTimeoutException(sqlCmd, sqle);
+            if (timeout!=null)
+                throw timeout;
             throw new QueryFailedException(dbms, sqlCmd, sqle);
         } finally
         { // Cleanup
             dbms.closeResultSet(rs);
+            endStatementControl(prevControl);
         }
     }
     
@@ -571,7 +928,29 @@ public class DBUtils implements DBContextAware
      */
     public final <T> int querySimpleList(Class<T> c, DBCommandExpr cmd, Collection<T> result)
     {
-        return querySimpleList(c, cmd.getSelect(), cmd.getParamValues(), cmd.getDataType(), result, MAX_QUERY_ROWS); 
+        String sqlCmd = cmd.getSelect();
+        Object[] sqlParams = cmd.getParamValues();
+        DBQueryCache cache = getQueryCache(cmd);
+        DBStatementControl prevControl = beginStatementControl(cmd, null);
+        try
+        {   // query
+            if (cache==null)
+                return querySimpleList(c, sqlCmd, sqlParams, cmd.getDataType(), result, MAX_QUERY_ROWS);
+            // use cache
+            List<T> list = cache.getSimpleList(c, sqlCmd, sqlParams);
+            if (list==null)
+            {   // query and cache
+                long generation = cache.getGeneration();
+                list = new ArrayList<T>();
+                querySimpleList(c, sqlCmd, sqlParams, cmd.getDataType(), list, MAX_QUERY_ROWS);
+                if (context.isReadCacheable())
+                    cache.putSimpleList(c, sqlCmd, sqlParams, list, DBQueryCache.getReferencedRowSets(cmd), generation);
+            }
+            result.addAll(list);
+            return list.size();
+        } finally {
+            endStatementControl(prevControl);
+        }
     }
 
     /**
@@ -616,15 +995,16 @@ public class DBUtils implements DBContextAware
     public int queryOptionList(String sqlCmd, Object[] sqlParams, Options options)
     {   // Execute the  Statement
         ResultSet rs = null;
+        logQueryStatement(sqlCmd, sqlParams);
+        // Debug
+        DBStatementControl prevControl = beginStatementControl(null, null);
+        long start = startStatementTimer();
         try
-        {
-            logQueryStatement(sqlCmd, sqlParams);
-            // Debug
-            long start = System.currentTimeMillis();
-            // Get the next Value
-            rs = dbms.executeQuery(sqlCmd, sqlParams, false, context.getConnection());
+        {   // Get the next Value
+            rs = dbms.executeQuery(sqlCmd, sqlParams, false, context.getReadConnection());
             if (rs == null)
                 throw new UnexpectedReturnValueException(rs, "dbms.executeQuery()");
+            long executed = System.nanoTime();
             if (rs.getMetaData().getColumnCount()<2)
                 throw new InvalidArgumentException("sqlCmd", sqlCmd);
             // Check Result
@@ -636,8 +1016,10 @@ public class DBUtils implements DBContextAware
                 options.add(value, text, true);
                 count++;
             }
+            long end = System.nanoTime();
+            statementCompleted(StatementType.QUERY, sqlCmd, sqlParams, count, start, executed, end, null);
             // Debug
-            long queryTime = (System.currentTimeMillis() - start);
+            long queryTime = (end - start) / 1000000;
             if (log.isDebugEnabled())
                 log.debug("queryOptionList retured {} items in {} ms.", count, queryTime);
             else if (queryTime>=longRunndingStmtThreshold)
@@ -646,10 +1028,16 @@ public class DBUtils implements DBContextAware
             return count;
         } catch (SQLException sqle) 
         {   // Error
+            long end = System.nanoTime();
+            statementCompleted(StatementType.QUERY, sqlCmd, sqlParams, -1, start, end, end, sqle);
+            QueryTimeoutException timeout = getTimeoutException(sqlCmd, sqle);
+            if (timeout!=null)
+                throw timeout;
             throw new QueryFailedException(dbms, sqlCmd, sqle);
         } finally
         { // Cleanup
             dbms.closeResultSet(rs);
+            endStatementControl(prevControl);
         }
     }
     
@@ -663,7 +1051,29 @@ public class DBUtils implements DBContextAware
      */
     public final int queryOptionList(DBCommandExpr cmd, Options options)
     {   // Execute the  Statement
-        return queryOptionList(cmd.getSelect(), cmd.getParamValues(), options); 
+        String sqlCmd = cmd.getSelect();
+        Object[] sqlParams = cmd.getParamValues();
+        DBQueryCache cache = getQueryCache(cmd);
+        DBStatementControl prevControl = beginStatementControl(cmd, null);
+        try
+        {   // query
+            if (cache==null)
+                return queryOptionList(sqlCmd, sqlParams, options);
+            // use cache
+            Options result = cache.getOptions(sqlCmd, sqlParams);
+            if (result==null)
+            {   // query and cache
+                long generation = cache.getGeneration();
+                result = new Options();
+                queryOptionList(sqlCmd, sqlParams, result);
+                if (context.isReadCacheable())
+                    cache.putOptions(sqlCmd, sqlParams, result, DBQueryCache.getReferencedRowSets(cmd), generation);
+            }
+            options.addAll(result);
+            return result.size();
+        } finally {
+            endStatementControl(prevControl);
+        }
     }
 
     /**
@@ -676,7 +1086,7 @@ public class DBUtils implements DBContextAware
     public final Options queryOptionList(DBCommandExpr cmd)
     {   // Execute the  Statement
         Options options = new Options();
-        queryOptionList(cmd.getSelect(), cmd.getParamValues(), options);
+        queryOptionList(cmd, options);
         return options; 
     }
     
@@ -695,15 +1105,16 @@ public class DBUtils implements DBContextAware
     public int queryObjectList(String sqlCmd, Object[] sqlParams, Collection<Object[]> result, int maxRows)
     {   // Perform query
         ResultSet rs = null;
+        logQueryStatement(sqlCmd, sqlParams);
+        // Log performance
+        DBStatementControl prevControl = beginStatementControl(null, null);
+        long start = startStatementTimer();
         try
-        {
-            logQueryStatement(sqlCmd, sqlParams);
-            // Log performance
-            long start = System.currentTimeMillis();
-            // Get the next Value
-            rs = dbms.executeQuery(sqlCmd, sqlParams, false, context.getConnection());
+        {   // Get the next Value
+            rs = dbms.executeQuery(sqlCmd, sqlParams, false, context.getReadConnection());
             if (rs == null)
                 throw new UnexpectedReturnValueException(rs, "dbms.executeQuery()");
+            long executed = System.nanoTime();
             // Read List
             int colCount = rs.getMetaData().getColumnCount();
             int count = 0;
@@ -717,8 +1128,10 @@ public class DBUtils implements DBContextAware
                 result.add(item);
                 count++;
             }
+            long end = System.nanoTime();
+            statementCompleted(StatementType.QUERY, sqlCmd, sqlParams, count, start, executed, end, null);
             // Debug
-            long queryTime = (System.currentTimeMillis() - start);
+            long queryTime = (end - start) / 1000000;
             if (log.isDebugEnabled())
                 log.debug("queryObjectList retured {} items in {} ms.", count, queryTime);
             else if (queryTime>=longRunndingStmtThreshold)
@@ -727,10 +1140,16 @@ public class DBUtils implements DBContextAware
             return count;
         } catch (SQLException sqle) 
         {   // Error
+            long end = System.nanoTime();
+            statementCompleted(StatementType.QUERY, sqlCmd, sqlParams, -1, start, end, end, sqle);
+            QueryTimeoutException timeout = getTimeoutException(sqlCmd, sqle);
+            if (timeout!=null)
+                throw timeout;
             throw new QueryFailedException(dbms, sqlCmd, sqle);
         } finally
         { // Cleanup
             dbms.closeResultSet(rs);
+            endStatementControl(prevControl);
         }
     } 
 
@@ -744,7 +1163,12 @@ public class DBUtils implements DBContextAware
     public final List<Object[]> queryObjectList(DBCommandExpr cmd)
     {   // Execute the  Statement
         List<Object[]> result = new ArrayList<Object[]>();
-        queryObjectList(cmd.getSelect(), cmd.getParamValues(), result, MAX_QUERY_ROWS);
+        DBStatementControl prevControl = beginStatementControl(cmd, null);
+        try {
+            queryObjectList(cmd.getSelect(), cmd.getParamValues(), result, MAX_QUERY_ROWS);
+        } finally {
+            endStatementControl(prevControl);
+        }
         return result;
     }
 
@@ -776,7 +1200,12 @@ public class DBUtils implements DBContextAware
      */
     public final Object[] querySingleRow(DBCommandExpr cmd)
     {
-        return querySingleRow(cmd.getSelect(), cmd.getParamValues()); 
+        DBStatementControl prevControl = beginStatementControl(cmd, null);
+        try {
+            return querySingleRow(cmd.getSelect(), cmd.getParamValues());
+        } finally {
+            endStatementControl(prevControl);
+        }
     }
 
 
@@ -922,6 +1351,37 @@ public class DBUtils implements DBContextAware
         return queryDataList(cmd, DataListEntry.class, first, maxItems);
     }
 
+    /**
+     * Prepares a command for keyset pagination.<br>
+     * The key columns of the rowset are added to the order by list of a copy of the command in order to make the sort order unique.
+     * @param cmd the query command
+     * @param rowset the rowset which key columns are used as tiebreak 
+     * @param after the page token of the last row of the previous page or null for the first page
+     * @return a copy of the command restricted to the rows following the page token
+     */
+    protected DBCommand prepareKeysetQuery(DBCommand cmd, DBRowSet rowset, DBPageToken after)
+    {
+        // work on a copy: the command of the caller must not be modified 
+        DBCommand seekCmd = cmd.clone();
+        seekCmd.orderByKeyColumns(rowset);
+        seekCmd.seekAfter(after);
+        return seekCmd;
+    }
+
+    /**
+     * Queries a page of DataListEntry items using keyset pagination.<br>
+     * The page token for the following page is obtained from cmd.getPageToken(lastEntry, rowset).
+     * @param cmd the query command. The key columns of the rowset are added to the order by list of a copy of the command.
+     * @param rowset the rowset which key columns are used as tiebreak
+     * @param after the page token of the last row of the previous page or null for the first page
+     * @param pageSize the maximum number of items
+     * @return the list
+     */
+    public final List<DataListEntry> queryDataList(DBCommand cmd, DBRowSet rowset, DBPageToken after, int pageSize)
+    {
+        return queryDataList(prepareKeysetQuery(cmd, rowset, after), DataListEntry.class, 0, pageSize);
+    }
+
     /**
      * Queries a single DataListEntry item
      * @param failOnNoResult flag whether to fail on empty resultset
@@ -954,6 +1414,93 @@ public class DBUtils implements DBContextAware
         return queryDataEntry(cmd, DataListEntry.class);
     }
 
+    /**
+     * Crates a ColumnarDataList for a DataListHead
+     * @param head the list head
+     * @param capacity the initial capacity
+     * @return the ColumnarDataList instance
+     */
+    protected ColumnarDataList createColumnarDataList(DataListHead head, int capacity)
+    {
+        return new ColumnarDataList(head, capacity);
+    }
+
+    /**
+     * Executes a query and returns the result as a ColumnarDataList.<br>
+     * A ColumnarDataList stores the values column by column and requires less memory than a list of DataListEntry items.
+     * @param cmd the command
+     * @param head the list head
+     * @param first the number of records to skip from the beginning of the result
+     * @param pageSize the maximum number of rows to add to the list or -1 (default) for all
+     * @return the list
+     */
+    public ColumnarDataList queryColumnarList(DBCommandExpr cmd, DataListHead head, int first, int pageSize)
+    {
+        DBReader r = new DBReader(context);
+        try
+        {   // check pageSize
+            if (pageSize==0)
+            {   log.warn("PageSize must not be 0. Setting to -1 for all records!");
+                pageSize = -1;
+            }
+            // set range
+            DBMSHandler dbms = context.getDbms();
+            if (pageSize>0 && dbms.isSupported(DBMSFeature.QUERY_LIMIT_ROWS))
+            {   // let the database limit the rows
+                if (first>0 && dbms.isSupported(DBMSFeature.QUERY_SKIP_ROWS))
+                {   // let the database skip the rows
+                    cmd.skipRows(first);
+                    // no need to skip rows ourself
+                    first = 0;
+                }
+                cmd.limitRows(first+pageSize);
+            }
+            // Runquery
+            r.open(cmd);
+            if (first>0)
+            {   // skip rows
+                r.skipRows(first);
+            }
+            // Create the list
+            int maxCount = (pageSize>=0) ? pageSize : MAX_QUERY_ROWS;
+            ColumnarDataList list = createColumnarDataList(head, (pageSize>=0) ? pageSize : DEFAULT_LIST_CAPACITY);
+            // add data
+            while (r.moveNext() && maxCount != 0)
+            {   // add row
+                list.appendRow(r);
+                // Decrease count
+                if (maxCount > 0)
+                    maxCount--;
+            }
+            // check
+            if (list.size()==MAX_QUERY_ROWS)
+                queryRowLimitExeeded();
+            // done
+            list.trimToSize();
+            return list;
+        }
+        finally
+        {   // close reader
+            r.close();
+        }
+    }
+
+    /**
+     * Executes a query and returns the result as a ColumnarDataList
+     */
+    public final ColumnarDataList queryColumnarList(DBCommandExpr cmd, int first, int pageSize)
+    {
+        return queryColumnarList(cmd, createDefaultDataListHead(cmd, DataListEntry.class), first, pageSize);
+    }
+
+    /**
+     * Executes a query and returns the result as a ColumnarDataList
+     */
+    public final ColumnarDataList queryColumnarList(DBCommandExpr cmd)
+    {
+        return queryColumnarList(cmd, 0, -1);
+    }
+
     /**
      * Crates a default DBRecordListFactory for a DBRecord class
      * The DBRecord class must provide the following constructor
@@ -1065,6 +1612,37 @@ public class DBUtils implements DBContextAware
         return queryRecordList(cmd, rowset, DBRecord.class);
     }
 
+    /**
+     * Queries a page of DBRecord items using keyset pagination.<br>
+     * The page token for the following page is obtained from cmd.getPageToken(lastRecord, rowset).
+     * @param cmd the command holding the constraints and order of the query. The key columns are added to the order by list of a copy of the command.
+     * @param rowset the rowset for which to query the records
+     * @param recordType the record type
+     * @param after the page token of the last record of the previous page or null for the first page
+     * @param pageSize the maximum number of records
+     * @return the list of records
+     */
+    public final <R extends DBRecordBase> List<R> queryRecordList(DBCommand cmd, DBRowSet rowset, Class<R> recordType, DBPageToken after, int pageSize)
+    {
+        @SuppressWarnings("cast")
+        DBRecordListFactory<R> factory = (DBRecordListFactory<R>)createDefaultRecordListFactory(recordType, rowset);
+        return queryRecordList(prepareKeysetQuery(cmd, rowset, after), factory, 0, pageSize);
+    }
+
+    /**
+     * Queries a page of DBRecord items using keyset pagination.<br>
+     * The page token for the following page is obtained from cmd.getPageToken(lastRecord, rowset).
+     * @param cmd the command holding the constraints and order of the query. The key columns are added to the order by list of a copy of the command.
+     * @param rowset the rowset for which to query the records
+     * @param after the page token of the last record of the previous page or null for the first page
+     * @param pageSize the maximum number of records
+     * @return the list of records
+     */
+    public final List<DBRecord> queryRecordList(DBCommand cmd, DBRowSet rowset, DBPageToken after, int pageSize)
+    {
+        return queryRecordList(cmd, rowset, DBRecord.class, after, pageSize);
+    }
+
     /**
      * Crates a default DBBeanListFactory for Java bean class
      * The DBRecord class must provide   
@@ -1086,16 +1664,16 @@ public class DBUtils implements DBContextAware
      * @param rowset the rowset for which to return the factory 
      * @return the bean factory
      */
-    public synchronized <T> DBBeanListFactory<T> getRowsetBeanListFactory(Class<T> beanType, DBRowSet rowset) 
+    public <T> DBBeanListFactory<T> getRowsetBeanListFactory(Class<T> beanType, final DBRowSet rowset) 
     {
-        DBBeanListFactory<T> factory = DBBeanFactoryCache.getFactoryForType(beanType);
-        if (factory==null)
-        {   // Create default factory
-            log.debug("No factory found for bean type '{}' and rowset {}. Creating default", beanType.getName(), rowset.getName());
-            factory= createDefaultBeanListFactory(beanType, rowset.getKeyColumns(), rowset.getColumns());
-            DBBeanFactoryCache.setFactoryForType(beanType, factory);
-        }
-        return factory;
+        return DBBeanFactoryCache.getFactoryForType(beanType, new DBBeanFactoryCache.FactoryCreator<T>() {
+            @Override
+            public DBBeanListFactory<T> createFactory(Class<T> beanType)
+            {   // Create default factory
+                log.debug("No factory found for bean type '{}' and rowset {}. Creating default", beanType.getName(), rowset.getName());
+                return createDefaultBeanListFactory(beanType, rowset.getKeyColumns(), rowset.getColumns());
+            }
+        });
     }
 
     /**
@@ -1104,19 +1682,19 @@ public class DBUtils implements DBContextAware
      * @param cmd the command 
      * @return the bean factory
      */
-    public synchronized <T> DBBeanListFactory<T> getCommandBeanListFactory(Class<T> beanType, DBCommandExpr cmd) 
+    public <T> DBBeanListFactory<T> getCommandBeanListFactory(Class<T> beanType, final DBCommandExpr cmd) 
     {
-        DBBeanListFactory<T> factory = DBBeanFactoryCache.getFactoryForType(beanType);
-        if (factory==null) 
-        {   // Check command: Must have select!
-            if (!cmd.hasSelectExpr())
-                throw new CommandWithoutSelectException(cmd);
-            // Create default factory
-            log.debug("No factory found for bean type '{}'. Creating default", beanType.getName());
-            factory= createDefaultBeanListFactory(beanType, null, cmd.getSelectExpressions());
-            DBBeanFactoryCache.setFactoryForType(beanType, factory);
-        }
-        return factory;
+        return DBBeanFactoryCache.getFactoryForType(beanType, new DBBeanFactoryCache.FactoryCreator<T>() {
+            @Override
+            public DBBeanListFactory<T> createFactory(Class<T> beanType)
+            {   // Check command: Must have select!
+                if (!cmd.hasSelectExpr())
+                    throw new CommandWithoutSelectException(cmd);
+                // Create default factory
+                log.debug("No factory found for bean type '{}'. Creating default", beanType.getName());
+                return createDefaultBeanListFactory(beanType, null, cmd.getSelectExpressions());
+            }
+        });
     }
     
     /**
@@ -1161,11 +1739,13 @@ public class DBUtils implements DBContextAware
             // Create a list of data entries
             int maxCount = (pageSize>=0) ? pageSize : MAX_QUERY_ROWS;
             list = factory.newList((pageSize>=0) ? pageSize : DEFAULT_LIST_CAPACITY);
+            // prepare the result once
+            DBBeanListFactory<T> itemFactory = factory.prepareResult(r);
             // add data
             int rownum = 0;
             while (r.moveNext() && maxCount != 0)
             {   // Create bean an init
-                T item = factory.newItem(rownum, r);
+                T item = itemFactory.newItem(rownum, r);
                 if (item==null)
                     continue;
                 // add entry
@@ -1219,6 +1799,21 @@ public class DBUtils implements DBContextAware
         return queryBeanList(cmd, getRowsetBeanListFactory(beanType, rowset), parent, 0, -1);
     }
 
+    /**
+     * Queries a page of Java beans using keyset pagination.<br>
+     * The page token for the following page is obtained from cmd.getPageTokenFromBean(lastBean, rowset).
+     * @param cmd the query command. The key columns of the rowset are added to the order by list of a copy of the command.
+     * @param beanType the beanType
+     * @param rowset the rowset which key columns are used as tiebreak
+     * @param after the page token of the last bean of the previous page or null for the first page
+     * @param pageSize the maximum number of beans
+     * @return the list of java beans
+     */
+    public <T> List<T> queryBeanList(DBCommand cmd, Class<T> beanType, DBRowSet rowset, DBPageToken after, int pageSize)
+    {
+        return queryBeanList(prepareKeysetQuery(cmd, rowset, after), getRowsetBeanListFactory(beanType, rowset), null, 0, pageSize);
+    }
+
     /**
      * Queries a list of Java beans for a given command
      * @param cmd the query command
@@ -1246,7 +1841,7 @@ public class DBUtils implements DBContextAware
             // Runquery
             r.getRecordData(cmd);
             // add data
-            T item = factory.newItem(-1, r);
+            T item = factory.prepareResult(r).newItem(-1, r);
             // post processing
             if (item instanceof DataBean<?>)
                 ((DataBean<?>)item).initialize(((DBObject)r).getDatabase(), context, -1, null);
@@ -1327,4 +1922,199 @@ public class DBUtils implements DBContextAware
         // use factory of rowset
         return queryBean(cmd, getRowsetBeanListFactory(beanType, rowset));
     }
+    
+    /*
+     * Asynchronous queries
+     */
+    
+    /**
+     * Task of an asynchronous query
+     * @param <T> the result type
+     */
+    protected interface AsyncQuery<T>
+    {
+        T query(DBUtils utils);
+    }
+    
+    /**
+     * Holder for the default executor of asynchronous queries (created on first use)
+     */
+    private static final class DefaultAsyncExecutor
+    {
+        private static final ExecutorService INSTANCE = createExecutor();
+        
+        private static ExecutorService createExecutor()
+        {
+            // Use virtual threads if available (JDK 21+)
+            try {
+                ExecutorService executor = (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                log.info("Asynchronous queries are executed on virtual threads.");
+                return executor;
+            } catch (NoSuchMethodException e) {
+                log.debug("Virtual threads not available. Using a cached thread pool for asynchronous queries.");
+            } catch (Exception e) {
+                log.warn("Failed to create virtual thread executor: {}. Using a cached thread pool for asynchronous queries.", e.toString());
+            }
+            // Use a cached thread pool with daemon threads
+            return Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger(1);
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "empire-db-async-"+threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the shared default executor for asynchronous queries
+     * The default executor runs on virtual threads on JDK 21 and above.
+     * @return the default executor
+     */
+    public static Executor getDefaultAsyncExecutor()
+    {
+        return DefaultAsyncExecutor.INSTANCE;
+    }
+
+    /**
+     * Returns the executor used for asynchronous queries
+     * If no executor has been set, the shared default executor is used.
+     * @return the executor
+     */
+    public Executor getAsyncExecutor()
+    {
+        return (asyncExecutor!=null ? asyncExecutor : getDefaultAsyncExecutor());
+    }
+
+    /**
+     * Sets the executor used for asynchronous queries
+     * @param asyncExecutor the executor or null to use the default executor
+     */
+    public void setAsyncExecutor(Executor asyncExecutor)
+    {
+        this.asyncExecutor = asyncExecutor;
+    }
+    
+    /**
+     * Executes a query asynchronously
+     * The query is executed on the async executor with a context acquired from the contextFactory.
+     * The context is released when the query has finished.
+     * @param contextFactory the factory providing the context for the query
+     * @param query the query to execute
+     * @return the future result
+     */
+    protected <T> CompletableFuture<T> queryAsync(final DBContextFactory contextFactory, final AsyncQuery<T> query)
+    {
+        DBObject.checkParamNull("contextFactory", contextFactory);
+        return CompletableFuture.supplyAsync(new Supplier<T>() {
+            @Override
+            public T get()
+            {
+                DBContext asyncContext = contextFactory.acquireContext();
+                try {
+                    return query.query(asyncContext.getUtils());
+                } finally {
+                    contextFactory.releaseContext(asyncContext);
+                }
+            }
+        }, getAsyncExecutor());
+    }
+
+    /**
+     * Queries a single value asynchronously
+     * The command is cloned, hence it may be modified as soon as this method returns.
+     * @param contextFactory the factory providing a separate context for the query
+     * @param cmd the query command
+     * @param resultType the result type
+     * @param failOnNoResult flag whether to fail if the query has no result
+     * @return the future value
+     */
+    public <T> CompletableFuture<T> querySingleValueAsync(DBContextFactory contextFactory, DBCommandExpr cmd, final Class<T> resultType, final boolean failOnNoResult)
+    {
+        final DBCommandExpr asyncCmd = cmd.clone();
+        return queryAsync(contextFactory, new AsyncQuery<T>() {
+            @Override
+            public T query(DBUtils utils)
+            {
+                return utils.querySingleValue(asyncCmd, resultType, failOnNoResult);
+            }
+        });
+    }
+
+    /**
+     * Queries the number of rows returned by a command asynchronously
+     * The command is cloned, hence it may be modified as soon as this method returns.
+     * @param contextFactory the factory providing a separate context for the query
+     * @param cmd the select command
+     * @return the future number of rows
+     */
+    public CompletableFuture<Integer> queryRowCountAsync(DBContextFactory contextFactory, DBCommand cmd)
+    {
+        final DBCommand asyncCmd = cmd.clone();
+        return queryAsync(contextFactory, new AsyncQuery<Integer>() {
+            @Override
+            public Integer query(DBUtils utils)
+            {
+                return utils.queryRowCount(asyncCmd);
+            }
+        });
+    }
+
+    /**
+     * Queries a list of DataListEntry items asynchronously
+     * The command is cloned, hence it may be modified as soon as this method returns.
+     * @param contextFactory the factory providing a separate context for the query
+     * @param cmd the query command
+     * @param entryClass the entry class
+     * @param first the number of records to skip from the beginning of the result
+     * @param maxItems the maximum number of items to add to the list or -1 (default) for all
+     * @return the future list 
+     */
+    public <T extends DataListEntry> CompletableFuture<List<T>> queryDataListAsync(DBContextFactory contextFactory, DBCommandExpr cmd, final Class<T> entryClass, final int first, final int maxItems)
+    {
+        final DBCommandExpr asyncCmd = cmd.clone();
+        return queryAsync(contextFactory, new AsyncQuery<List<T>>() {
+            @Override
+            public List<T> query(DBUtils utils)
+            {
+                return utils.queryDataList(asyncCmd, entryClass, first, maxItems);
+            }
+        });
+    }
+
+    /**
+     * Queries a list of DataListEntry items asynchronously
+     * The command is cloned, hence it may be modified as soon as this method returns.
+     * @param contextFactory the factory providing a separate context for the query
+     * @param cmd the query command
+     * @return the future list 
+     */
+    public final CompletableFuture<List<DataListEntry>> queryDataListAsync(DBContextFactory contextFactory, DBCommandExpr cmd)
+    {
+        return queryDataListAsync(contextFactory, cmd, DataListEntry.class, 0, -1);
+    }
+
+    /**
+     * Queries a list of Java beans asynchronously
+     * The command is cloned, hence it may be modified as soon as this method returns.
+     * @param contextFactory the factory providing a separate context for the query
+     * @param cmd the query command
+     * @param beanType the beanType
+     * @param parent (optional) the parent bean if any 
+     * @return the future list of java beans
+     */
+    public <T> CompletableFuture<List<T>> queryBeanListAsync(DBContextFactory contextFactory, DBCommandExpr cmd, final Class<T> beanType, final Object parent)
+    {
+        final DBCommandExpr asyncCmd = cmd.clone();
+        return queryAsync(contextFactory, new AsyncQuery<List<T>>() {
+            @Override
+            public List<T> query(DBUtils utils)
+            {
+                return utils.queryBeanList(asyncCmd, beanType, parent);
+            }
+        });
+    }
 }
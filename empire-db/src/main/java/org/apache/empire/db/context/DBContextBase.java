@@ -20,14 +20,24 @@ package org.apache.empire.db.context;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.apache.empire.db.DBColumn;
 import org.apache.empire.db.DBCommand;
 import org.apache.empire.db.DBContext;
+import org.apache.empire.db.DBDatabase;
 import org.apache.empire.db.DBObject;
+import org.apache.empire.db.DBQueryCache;
+import org.apache.empire.db.DBRecordCache;
+import org.apache.empire.db.DBRowSet;
 import org.apache.empire.db.DBTable;
 import org.apache.empire.db.DBUtils;
 import org.apache.empire.db.context.DBRollbackManager.ReleaseAction;
 import org.apache.empire.db.exceptions.EmpireSQLException;
+import org.apache.empire.db.expr.set.DBSetExpr;
 import org.apache.empire.exceptions.InvalidArgumentException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +55,11 @@ public abstract class DBContextBase implements DBContext
     private DBUtils utils = null;
     
     private boolean noRollbackManagerWarnOnce = true;
+
+    private int queryTimeout = 0;
+
+    // rowsets modified by the current transaction with the keys of the modified records (null for unknown)
+    private final Map<DBRowSet, List<Object[]>> uncommittedRowSets = new HashMap<DBRowSet, List<Object[]>>();
     
     /**
      * Factory function for Utils creation 
@@ -80,13 +95,35 @@ public abstract class DBContextBase implements DBContext
     {
         return getConnection(true);
     }
-    
+
     /**
      * returns whether DBCommmand should automatically create a prepared statement with command params (?) 
      * Event if this is false, is still possible to manually add command params using cmd.addCmdParam();   
      * @return true if automatic prepared Statements are enabled or false if not
      */
     public abstract boolean isPreparedStatementsEnabled();
+
+    /**
+     * Returns the default query timeout for statements executed with this context
+     * @return the query timeout in seconds or 0 for no timeout
+     */
+    @Override
+    public int getQueryTimeout()
+    {
+        return queryTimeout;
+    }
+
+    /**
+     * Sets the default query timeout for statements executed with this context.<br>
+     * The timeout may be overridden for a particular command using DBCommandExpr.setQueryTimeout()
+     * @param seconds the query timeout in seconds or 0 for no timeout
+     */
+    public void setQueryTimeout(int seconds)
+    {
+        if (seconds<0)
+            throw new InvalidArgumentException("seconds", seconds);
+        this.queryTimeout = seconds;
+    }
     
     /**
      * Creates a new Command object for the given database
@@ -120,7 +157,9 @@ public abstract class DBContextBase implements DBContext
     public final int executeInsert(DBCommand cmd)
     {
         if (utils==null) setUtils(getUtils()); 
-        return utils.executeSQL(cmd.getInsert(), cmd.getParamValues(), null); 
+        int affected = utils.executeSQL(cmd, cmd.getInsert());
+        notifyModified(getModifiedRowSet(cmd));
+        return affected;
     }
 
     /**
@@ -133,7 +172,9 @@ public abstract class DBContextBase implements DBContext
     public final int executeInsertInto(DBTable table, DBCommand cmd)
     {
         if (utils==null) setUtils(getUtils()); 
-        return utils.executeSQL(cmd.getInsertInto(table), cmd.getParamValues(), null); 
+        int affected = utils.executeSQL(cmd, cmd.getInsertInto(table));
+        notifyModified(table);
+        return affected;
     }
 
     /**
@@ -145,7 +186,25 @@ public abstract class DBContextBase implements DBContext
     public final int executeUpdate(DBCommand cmd)
     {
         if (utils==null) setUtils(getUtils()); 
-        return utils.executeSQL(cmd.getUpdate(), cmd.getParamValues(), null); 
+        int affected = utils.executeSQL(cmd, cmd.getUpdate());
+        notifyModified(getModifiedRowSet(cmd));
+        return affected;
+    }
+
+    /**
+     * Inserts a row or updates the existing row with the same conflict column values
+     * @param table the table into which to insert the row
+     * @param cmd the command object containing the row values
+     * @param conflictColumns the columns identifying an existing row or none for the primary key
+     * @return the number of records that have been affected by the supplied statement
+     */
+    @Override
+    public final int executeUpsert(DBTable table, DBCommand cmd, DBColumn... conflictColumns)
+    {
+        if (utils==null) setUtils(getUtils()); 
+        int affected = utils.executeUpsert(table, cmd, conflictColumns);
+        notifyModified(table);
+        return affected;
     }
 
     /**
@@ -158,7 +217,121 @@ public abstract class DBContextBase implements DBContext
     public final int executeDelete(DBTable from, DBCommand cmd)
     {
         if (utils==null) setUtils(getUtils()); 
-        return utils.executeSQL(cmd.getDelete(from), cmd.getParamValues(), null); 
+        int affected = utils.executeSQL(cmd, cmd.getDelete(from));
+        notifyModified(from);
+        return affected;
+    }
+
+    /**
+     * Notifies the context that a record or rows of a rowset have been inserted, updated or deleted.<br>
+     * Removes the record (or all records if the key is null) from the record cache 
+     * and all cached query results referencing the rowset from the query cache.
+     * If autocommit is off, the rowset is remembered as having uncommitted changes 
+     * and its cached records and results are invalidated again on commit or rollback.
+     * @param rowset the modified rowset
+     * @param key the key of the modified record or null if the modified records are unknown
+     */
+    @Override
+    public void notifyModified(DBRowSet rowset, Object[] key)
+    {
+        if (rowset==null)
+            return;
+        rowset.invalidateCachedRecord(key);
+        invalidateQueryCache(rowset);
+        // remember until commit or rollback
+        try
+        {   Connection conn = getConnection(false);
+            if (conn!=null && conn.getAutoCommit()==false)
+                addUncommittedChange(rowset, key);
+        } catch (SQLException sqle) { 
+            throw new EmpireSQLException(getDbms(), sqle);
+        }
+    }
+
+    /**
+     * Remembers a modified record of a rowset until commit or rollback
+     * @param rowset the modified rowset
+     * @param key the key of the modified record or null if the modified records are unknown
+     */
+    private void addUncommittedChange(DBRowSet rowset, Object[] key)
+    {
+        List<Object[]> keys = uncommittedRowSets.get(rowset);
+        if (keys==null && uncommittedRowSets.containsKey(rowset))
+            return; // all records
+        // keys are only required for the record cache
+        DBRecordCache recordCache = rowset.getRecordCache();
+        if (key==null || recordCache==null || (keys!=null && keys.size()>=recordCache.getMaxSize()))
+        {   // invalidate all records
+            uncommittedRowSets.put(rowset, null);
+            return;
+        }
+        if (keys==null)
+        {   keys = new ArrayList<Object[]>();
+            uncommittedRowSets.put(rowset, keys);
+        }
+        keys.add(key);
+    }
+
+    /**
+     * Returns whether a rowset has been modified by the current transaction of this context.
+     * @param rowset the rowset
+     * @return true if the rowset has uncommitted changes or false otherwise
+     */
+    @Override
+    public boolean hasUncommittedChanges(DBRowSet rowset)
+    {
+        return !uncommittedRowSets.isEmpty() && uncommittedRowSets.containsKey(rowset);
+    }
+
+    /**
+     * Invalidates the cached records and results of all rowsets modified by the transaction which has just been committed or rolled back.<br>
+     * Other contexts may have cached the previous state of these rowsets while the transaction was open.
+     */
+    protected void releaseUncommittedRowSets()
+    {
+        if (uncommittedRowSets.isEmpty())
+            return;
+        for (Map.Entry<DBRowSet, List<Object[]>> entry : uncommittedRowSets.entrySet())
+        {
+            DBRowSet rowset = entry.getKey();
+            List<Object[]> keys = entry.getValue();
+            if (keys==null)
+            {   // all records
+                rowset.invalidateCachedRecord(null);
+            }
+            else
+            {   // modified records only
+                for (Object[] key : keys)
+                    rowset.invalidateCachedRecord(key);
+            }
+            invalidateQueryCache(rowset);
+        }
+        uncommittedRowSets.clear();
+    }
+
+    /**
+     * Removes all cached query results referencing a modified rowset from the query cache of its database (if any)
+     * @param rowset the modified rowset
+     */
+    protected void invalidateQueryCache(DBRowSet rowset)
+    {
+        if (rowset==null)
+            return;
+        DBDatabase db = rowset.getDatabase();
+        DBQueryCache queryCache = db.getQueryCache();
+        if (queryCache!=null)
+            queryCache.invalidate(rowset);
+    }
+
+    /**
+     * Returns the rowset modified by an insert or update command
+     * @param cmd the command
+     * @return the rowset of the set expressions or null
+     */
+    protected DBRowSet getModifiedRowSet(DBCommand cmd)
+    {
+        List<DBSetExpr> setExprList = cmd.getSetExpressions();
+        return (setExprList!=null && !setExprList.isEmpty() ? setExprList.get(0).getColumn().getRowSet() : null);
     }
     
     @Override
@@ -178,6 +351,7 @@ public abstract class DBContextBase implements DBContext
             // Commit
             if (conn.getAutoCommit()==false)
                 conn.commit();
+            releaseUncommittedRowSets();
             // Done
             return;
         } catch (SQLException sqle) { 
@@ -208,6 +382,7 @@ public abstract class DBContextBase implements DBContext
             DBRollbackManager dbrm = (isRollbackHandlingEnabled() ? getRollbackManager(false) : null);
             if (dbrm!=null)
                 dbrm.releaseConnection(conn, ReleaseAction.Rollback);
+            releaseUncommittedRowSets();
             // Done
             return;
         } catch (SQLException sqle) { 
@@ -260,6 +435,10 @@ public abstract class DBContextBase implements DBContext
     public void discard()
     {
         /* don't close connection! */
+        // but release cached statements
+        Connection conn = getConnection(false);
+        if (conn!=null)
+            getDbms().clearStatementCache(conn);
     }
     
     /**
@@ -270,7 +449,10 @@ public abstract class DBContextBase implements DBContext
         {   // close connection
             Connection conn = getConnection(false);
             if (conn!=null)
+            {   // release cached statements first
+                getDbms().clearStatementCache(conn);
                 conn.close();
+            }
         } catch (SQLException sqle) { 
             // Commit failed!
             throw new EmpireSQLException(getDbms(), sqle);
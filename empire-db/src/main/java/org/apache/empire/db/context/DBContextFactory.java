@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db.context;
+
+import org.apache.empire.db.DBContext;
+
+/**
+ * DBContextFactory
+ * Provides database contexts with their own connection for tasks that are executed in a separate thread,
+ * such as the asynchronous queries of DBUtils.<br>
+ * All contexts provided must use the same DBMSHandler as the context that created the commands.
+ */
+public interface DBContextFactory
+{
+    /**
+     * Acquires a context with a connection that is not used by any other thread
+     * @return the context
+     */
+    DBContext acquireContext();
+
+    /**
+     * Releases a context previously obtained by acquireContext()
+     * Typically the context is discarded and its connection is closed or returned to the pool.
+     * @param context the context to release
+     */
+    void releaseContext(DBContext context);
+}
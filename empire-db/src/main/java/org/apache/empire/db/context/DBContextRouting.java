@@ -0,0 +1,396 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db.context;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.empire.db.exceptions.EmpireSQLException;
+import org.apache.empire.dbms.DBMSHandler;
+import org.apache.empire.exceptions.InvalidArgumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DBContextRouting<br>
+ * A context that sends read-only queries to replica connections and all other operations to the primary connection.<br>
+ * Queries executed by DBReader and DBUtils (including reading records with DBRowSet.readRecord()) use getReadConnection().
+ * Everything else uses getConnection() which always returns the primary connection.<br>
+ * Every call to getConnection() is considered a write. Queries are sent to the primary connection
+ * <ul>
+ *   <li>while a write transaction is open, i.e. after a write on a primary connection with auto-commit disabled until commit() or rollback()</li>
+ *   <li>within the read-your-writes window after the last write or commit (see {@link #setReadYourWritesWindow(long)})</li>
+ *   <li>if no replica is enabled</li>
+ * </ul>
+ * Otherwise a replica is selected by weighted round robin (see {@link #addReplica(Connection, int)}).<br>
+ * If auto-commit is disabled on a replica, commit() and rollback() also end the transaction of every replica 
+ * that has been used since, in order to release its locks and snapshot.<br>
+ * Results read from a replica are not added to the record cache or the query cache (see {@link #isReadCacheable()}).<br>
+ * Please note: Records read from a replica may be stale. Updating such a record fails if the rowset has a timestamp column.
+ */
+public class DBContextRouting extends DBContextStatic
+{
+    // Logger
+    private static final Logger log = LoggerFactory.getLogger(DBContextRouting.class);
+
+    public static final long DEFAULT_READ_YOUR_WRITES_WINDOW = 1000;
+
+    /**
+     * Replica
+     * A replica connection and its load balancing state
+     */
+    protected static final class Replica
+    {
+        private final Connection conn;
+        private final int weight;
+        private boolean enabled = true;
+        private boolean used = false;
+        private int currentWeight = 0;
+        private long readCount = 0;
+
+        private Replica(Connection conn, int weight)
+        {
+            this.conn = conn;
+            this.weight = weight;
+        }
+
+        public Connection getConnection()
+        {
+            return conn;
+        }
+
+        public int getWeight()
+        {
+            return weight;
+        }
+
+        public boolean isEnabled()
+        {
+            return enabled;
+        }
+
+        public long getReadCount()
+        {
+            return readCount;
+        }
+    }
+
+    private final List<Replica> replicas = new ArrayList<Replica>();
+    private final boolean closeOnDiscard;
+
+    private long readYourWritesWindow = DEFAULT_READ_YOUR_WRITES_WINDOW;
+    private volatile long lastWriteTime = 0;
+    private volatile boolean writeTransaction = false;
+    private volatile boolean replicaRead = false;
+    private long primaryReadCount = 0;
+
+    /**
+     * Creates a routing DBContext with default options
+     * @param dbmsHandler the database handler
+     * @param primary the connection to the primary database
+     * @param replicas the connections to the replica databases
+     */
+    public DBContextRouting(DBMSHandler dbmsHandler, Connection primary, Connection... replicas)
+    {
+        this(dbmsHandler, false, primary, replicas);
+    }
+
+    /**
+     * Creates a routing DBContext with custom options
+     * @param dbmsHandler the database handler
+     * @param closeOnDiscard flag whether to close all connections when calling discard()
+     * @param primary the connection to the primary database
+     * @param replicas the connections to the replica databases
+     */
+    public DBContextRouting(DBMSHandler dbmsHandler, boolean closeOnDiscard, Connection primary, Connection... replicas)
+    {
+        super(dbmsHandler, primary, closeOnDiscard);
+        this.closeOnDiscard = closeOnDiscard;
+        if (replicas!=null)
+        {   // add with equal weight
+            for (int i=0; i<replicas.length; i++)
+                addReplica(replicas[i], 1);
+        }
+    }
+
+    /**
+     * Adds a replica connection
+     * @param conn the connection to the replica database
+     * @param weight the share of queries sent to this replica relative to the other replicas
+     * @return the context (this)
+     */
+    public synchronized DBContextRouting addReplica(Connection conn, int weight)
+    {
+        if (conn==null)
+            throw new InvalidArgumentException("conn", conn);
+        if (weight<1)
+            throw new InvalidArgumentException("weight", weight);
+        replicas.add(new Replica(conn, weight));
+        return this;
+    }
+
+    /**
+     * Returns the number of replicas
+     * @return the number of replicas
+     */
+    public synchronized int getReplicaCount()
+    {
+        return replicas.size();
+    }
+
+    /**
+     * Returns a replica
+     * @param index the index of the replica in the order in which they have been added
+     * @return the replica
+     */
+    public synchronized Replica getReplica(int index)
+    {
+        return replicas.get(index);
+    }
+
+    /**
+     * Enables or disables a replica e.g. if it is unavailable or lags too far behind
+     * @param index the index of the replica in the order in which they have been added
+     * @param enabled flag whether to send queries to this replica
+     * @return the context (this)
+     */
+    public synchronized DBContextRouting setReplicaEnabled(int index, boolean enabled)
+    {
+        Replica replica = replicas.get(index);
+        replica.enabled = enabled;
+        replica.currentWeight = 0;
+        log.info("Replica {} has been {}", index, (enabled ? "enabled" : "disabled"));
+        return this;
+    }
+
+    /**
+     * Returns the number of queries sent to the primary connection
+     * @return the number of queries
+     */
+    public synchronized long getPrimaryReadCount()
+    {
+        return primaryReadCount;
+    }
+
+    /**
+     * Returns the time after a write or commit in which queries are still sent to the primary connection
+     * @return the read-your-writes window in milliseconds
+     */
+    public long getReadYourWritesWindow()
+    {
+        return readYourWritesWindow;
+    }
+
+    /**
+     * Sets the time after a write or commit in which queries are still sent to the primary connection.<br>
+     * This should be at least the replication lag of the replicas.
+     * @param millis the read-your-writes window in milliseconds or 0 to send queries to the replicas immediately after a commit
+     * @return the context (this)
+     */
+    public DBContextRouting setReadYourWritesWindow(long millis)
+    {
+        if (millis<0)
+            throw new InvalidArgumentException("millis", millis);
+        this.readYourWritesWindow = millis;
+        return this;
+    }
+
+    /**
+     * Returns the primary connection and registers a write
+     * @return the primary connection
+     */
+    @Override
+    public Connection getConnection()
+    {
+        Connection conn = super.getConnection();
+        try
+        {   // a transaction is open unless auto-commit is enabled
+            if (conn.getAutoCommit()==false)
+                writeTransaction = true;
+            lastWriteTime = System.currentTimeMillis();
+            return conn;
+        } catch (SQLException sqle) { 
+            throw new EmpireSQLException(getDbms(), sqle);
+        }
+    }
+
+    /**
+     * Returns the connection for read-only queries.<br>
+     * This is either the primary connection or a replica connection.
+     * @return the connection for queries
+     */
+    @Override
+    public Connection getReadConnection()
+    {
+        if (isPrimaryRequired())
+        {   // use primary without registering a write
+            synchronized(this)
+            {   primaryReadCount++;
+            }
+            replicaRead = false;
+            return getConnection(true);
+        }
+        return selectReplica();
+    }
+
+    /**
+     * Returns whether the result of the last query may be added to the shared caches.<br>
+     * This is false if the last query has been sent to a replica, since the result may be outdated.
+     * @return true if the last query has been executed on the primary connection
+     */
+    @Override
+    public boolean isReadCacheable()
+    {
+        return !replicaRead;
+    }
+
+    /**
+     * Returns whether queries must be sent to the primary connection 
+     * @return true if a write transaction is open or the read-your-writes window has not elapsed
+     */
+    public boolean isPrimaryRequired()
+    {
+        if (writeTransaction)
+            return true;
+        if (lastWriteTime>0 && System.currentTimeMillis()-lastWriteTime<readYourWritesWindow)
+            return true;
+        return !hasEnabledReplica();
+    }
+
+    @Override
+    public void commit()
+    {
+        super.commit();
+        endReplicaTransactions(true);
+        endWriteTransaction();
+    }
+
+    @Override
+    public void rollback()
+    {
+        super.rollback();
+        endReplicaTransactions(false);
+        endWriteTransaction();
+    }
+
+    @Override
+    public void discard()
+    {
+        super.discard();
+        // release replicas
+        for (Replica replica : replicas)
+        {   // clear statements
+            getDbms().clearStatementCache(replica.conn);
+            if (closeOnDiscard)
+                closeReplica(replica);
+        }
+    }
+
+    /**
+     * Selects a replica for a query by smooth weighted round robin
+     * @return the replica connection
+     */
+    protected synchronized Connection selectReplica()
+    {
+        Replica best = null;
+        int totalWeight = 0;
+        for (Replica replica : replicas)
+        {
+            if (!replica.enabled)
+                continue;
+            replica.currentWeight += replica.weight;
+            totalWeight += replica.weight;
+            if (best==null || replica.currentWeight>best.currentWeight)
+                best = replica;
+        }
+        if (best==null)
+        {   // all replicas have been disabled meanwhile
+            primaryReadCount++;
+            replicaRead = false;
+            return getConnection(true);
+        }
+        replicaRead = true;
+        best.currentWeight -= totalWeight;
+        best.readCount++;
+        best.used = true;
+        return best.conn;
+    }
+
+    /**
+     * Commits or rolls back the transactions of all replicas used since the last commit or rollback (unless auto-commit is enabled).<br>
+     * As the primary transaction has already ended, errors are only logged.
+     * @param commit true to commit or false to rollback
+     */
+    protected synchronized void endReplicaTransactions(boolean commit)
+    {
+        for (Replica replica : replicas)
+        {
+            if (!replica.used)
+                continue;
+            replica.used = false;
+            try
+            {   // end transaction
+                if (replica.conn.getAutoCommit())
+                    continue;
+                if (commit)
+                    replica.conn.commit();
+                else
+                    replica.conn.rollback();
+            } catch (SQLException sqle) { 
+                // Just log
+                log.warn("Failed to end the transaction of a replica connection: {}", sqle.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ends a write transaction after commit or rollback
+     */
+    protected void endWriteTransaction()
+    {
+        if (writeTransaction)
+        {   // start read-your-writes window now
+            writeTransaction = false;
+            lastWriteTime = System.currentTimeMillis();
+        }
+    }
+
+    private synchronized boolean hasEnabledReplica()
+    {
+        for (Replica replica : replicas)
+        {
+            if (replica.enabled)
+                return true;
+        }
+        return false;
+    }
+
+    private void closeReplica(Replica replica)
+    {
+        try
+        {   // close connection
+            replica.conn.close();
+        } catch (SQLException sqle) { 
+            // Just log
+            log.warn("Failed to close replica connection: {}", sqle.getMessage());
+        }
+    }
+}
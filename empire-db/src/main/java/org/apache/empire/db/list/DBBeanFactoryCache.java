@@ -18,29 +18,43 @@
  */
 package org.apache.empire.db.list;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * DBBeanFactoryCache
+ * Holds the DBBeanListFactory for each Java bean type.<br>
+ * Reads are lock-free. A factory which is created on demand by getFactoryForType(beanType, creator) is created only once.
  * @author rainer
  */
 public final class DBBeanFactoryCache
 {
     protected static final Logger log = LoggerFactory.getLogger(DBBeanFactoryCache.class);
     
-    private static Map<Class<?>, DBBeanListFactory<?>> beanFactoryMap; 
+    /**
+     * FactoryCreator
+     * Creates a bean list factory for a bean type that has no factory assigned yet
+     */
+    public interface FactoryCreator<T>
+    {
+        DBBeanListFactory<T> createFactory(Class<T> beanType);
+    }
+    
+    private static volatile Map<Class<?>, DBBeanListFactory<?>> beanFactoryMap; 
     
     static {
         // set default
-        beanFactoryMap = new HashMap<Class<?>, DBBeanListFactory<?>>(); /* Concurrent ? */
+        beanFactoryMap = new ConcurrentHashMap<Class<?>, DBBeanListFactory<?>>();
     }
 
     /**
-     * Allows to provide a different implementation of the bean factory map 
+     * Allows to provide a different implementation of the bean factory map<br>
+     * The map must be thread-safe. If it is not a ConcurrentMap, the creation of new factories will be synchronized on the map.   
      * @param map the map to use
      */
     public static void setMapImplementation(Map<Class<?>, DBBeanListFactory<?>> map)
@@ -53,26 +67,63 @@ public final class DBBeanFactoryCache
      * @param beanType the Java bean type
      * @return return the DBRowSet assigned to this type 
      */
-    public static synchronized <T> DBBeanListFactory<T> getFactoryForType(Class<T> beanType)
+    public static <T> DBBeanListFactory<T> getFactoryForType(Class<T> beanType)
     {
         @SuppressWarnings("unchecked")
         DBBeanListFactory<T> factory = (DBBeanListFactory<T>)beanFactoryMap.get(beanType); 
         return factory;
     }
 
+    /**
+     * Returns the factory assigned to a particular Java bean type.<br>
+     * If no factory is assigned yet, the factory is created using the creator and assigned to the bean type.<br>
+     * Concurrent callers for the same bean type will receive the same factory instance.
+     * @param beanType the Java bean type
+     * @param creator the creator for the factory if not yet assigned
+     * @return the factory assigned to this type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> DBBeanListFactory<T> getFactoryForType(final Class<T> beanType, final FactoryCreator<T> creator)
+    {
+        Map<Class<?>, DBBeanListFactory<?>> map = beanFactoryMap;
+        DBBeanListFactory<?> factory = map.get(beanType);
+        if (factory!=null)
+            return (DBBeanListFactory<T>)factory;
+        // create now
+        if (map instanceof ConcurrentMap<?,?>)
+        {   // atomic
+            factory = map.computeIfAbsent(beanType, new Function<Class<?>, DBBeanListFactory<?>>() {
+                @Override
+                public DBBeanListFactory<?> apply(Class<?> type)
+                {
+                    return creator.createFactory(beanType);
+                }
+            });
+        }
+        else synchronized(map)
+        {   // check again
+            factory = map.get(beanType);
+            if (factory==null)
+            {   factory = creator.createFactory(beanType);
+                if (factory!=null)
+                    map.put(beanType, factory);
+            }
+        }
+        return (DBBeanListFactory<T>)factory;
+    }
+
     /**
      * sets the DBRowSet instance assigned to a particular Java bean type
      * @param beanType the Java bean type
      */
-    public static synchronized <T> void setFactoryForType(Class<?> beanType, DBBeanListFactory<T> factory)
+    public static <T> void setFactoryForType(Class<?> beanType, DBBeanListFactory<T> factory)
     {
         if (factory!=null)
-        {   // Check previous
-            DBBeanListFactory<?> prev = beanFactoryMap.get(beanType);
+        {   // Assign now
+            DBBeanListFactory<?> prev = beanFactoryMap.put(beanType, factory);
+            // Check previous
             if (prev!=null && prev!=factory)
                 log.warn("The Java bean type '{}' has already been assigned to a different BeanListFactory!", beanType.getName());
-            // Assign now
-            beanFactoryMap.put(beanType, factory);
         }
         else
             beanFactoryMap.remove(beanType);
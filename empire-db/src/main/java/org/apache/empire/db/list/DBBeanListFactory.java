@@ -30,6 +30,19 @@ public interface DBBeanListFactory<T extends Object>
     
     List<T> newList(int capacity);
 
+    /**
+     * Prepares the creation of items for a particular query result.<br>
+     * Called once per query after the query has been executed and before the first item is created.
+     * The items of the result are then created by the returned factory.<br>
+     * The default implementation returns this factory.
+     * @param recData the record data of the query result
+     * @return the factory for creating the items of the query result
+     */
+    default DBBeanListFactory<T> prepareResult(DBRecordData recData)
+    {
+        return this;
+    }
+
     T newItem(int rownum, DBRecordData recData);
     
     void completeQuery(List<T> list);
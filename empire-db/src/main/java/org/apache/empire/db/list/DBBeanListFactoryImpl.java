@@ -19,15 +19,17 @@
 package org.apache.empire.db.list;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.beanutils.MethodUtils;
 import org.apache.empire.commons.ClassUtils;
 import org.apache.empire.commons.ObjectUtils;
-import org.apache.empire.commons.StringUtils;
 import org.apache.empire.data.Column;
+import org.apache.empire.data.ColumnExpr;
 import org.apache.empire.db.DBColumn;
 import org.apache.empire.db.DBColumnExpr;
 import org.apache.empire.db.DBCommand;
@@ -35,7 +37,6 @@ import org.apache.empire.db.DBCommandExpr;
 import org.apache.empire.db.DBContext;
 import org.apache.empire.db.DBRecordData;
 import org.apache.empire.db.exceptions.CommandWithoutSelectException;
-import org.apache.empire.exceptions.InternalException;
 import org.apache.empire.exceptions.InvalidArgumentException;
 import org.apache.empire.exceptions.UnsupportedTypeException;
 import org.slf4j.Logger;
@@ -50,6 +51,109 @@ public class DBBeanListFactoryImpl<T> implements DBBeanListFactory<T>
 {
     // Logger
     private static final Logger log = LoggerFactory.getLogger(DBBeanListFactoryImpl.class);
+
+    // Maximum number of bean mappers kept per factory
+    private static final int MAPPER_CACHE_SIZE = 16;
+
+    /**
+     * MapperKey
+     * Identifies a bean mapper by bean type and the properties, enum types and constructor params of the select list.<br>
+     * Column objects are not part of the key, since computed expressions are created anew for every query.
+     */
+    protected static final class MapperKey
+    {
+        private final Class<?>  beanType;
+        private final String[]  properties;
+        private final Class<?>[] enumTypes;
+        private final boolean[] params;
+        private final int[]     paramIndexes;
+        private final int       hashCode;
+
+        public MapperKey(Class<?> beanType, DBRecordData recData, List<? extends ColumnExpr> constructorParams)
+        {
+            int fieldCount = recData.getFieldCount();
+            this.beanType = beanType;
+            this.properties = new String[fieldCount];
+            this.enumTypes = new Class<?>[fieldCount];
+            this.params = new boolean[fieldCount];
+            for (int i=0; i<fieldCount; i++)
+            {   // the column properties used by the mapper
+                ColumnExpr column = recData.getColumn(i);
+                properties[i] = column.getBeanPropertyName();
+                enumTypes[i] = column.getEnumType();
+                params[i] = (constructorParams!=null && constructorParams.contains(column));
+            }
+            // the constructor param fields
+            this.paramIndexes = new int[(constructorParams!=null ? constructorParams.size() : 0)];
+            for (int i=0; i<paramIndexes.length; i++)
+                paramIndexes[i] = recData.getFieldIndex(constructorParams.get(i));
+            // hashCode
+            int hash = beanType.hashCode();
+            hash = 31 * hash + Arrays.hashCode(properties);
+            hash = 31 * hash + Arrays.hashCode(enumTypes);
+            hash = 31 * hash + Arrays.hashCode(params);
+            this.hashCode = 31 * hash + Arrays.hashCode(paramIndexes);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (other==this)
+                return true;
+            if (!(other instanceof MapperKey))
+                return false;
+            MapperKey key = (MapperKey)other;
+            return (key.beanType==beanType
+                 && Arrays.equals(key.properties, properties)
+                 && Arrays.equals(key.enumTypes, enumTypes)
+                 && Arrays.equals(key.params, params)
+                 && Arrays.equals(key.paramIndexes, paramIndexes));
+        }
+    }
+
+    /**
+     * ResultFactory
+     * Creates the items of a particular query result using the mapper resolved for its select list
+     */
+    protected class ResultFactory implements DBBeanListFactory<T>
+    {
+        private final DBBeanMapper<T> mapper;
+
+        public ResultFactory(DBBeanMapper<T> mapper)
+        {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void prepareQuery(DBCommandExpr cmd, DBContext context)
+        {
+            DBBeanListFactoryImpl.this.prepareQuery(cmd, context);
+        }
+
+        @Override
+        public List<T> newList(int capacity)
+        {
+            return DBBeanListFactoryImpl.this.newList(capacity);
+        }
+
+        @Override
+        public T newItem(int rownum, DBRecordData recData)
+        {
+            return DBBeanListFactoryImpl.this.newItem(rownum, recData, mapper);
+        }
+
+        @Override
+        public void completeQuery(List<T> list)
+        {
+            DBBeanListFactoryImpl.this.completeQuery(list);
+        }
+    }
     
     /**
      * Finds a suitable constructor for the beanClass
@@ -94,6 +198,17 @@ public class DBBeanListFactoryImpl<T> implements DBBeanListFactory<T>
     protected final Class<?>[] parameterTypes;
     protected final List<? extends DBColumnExpr> constructorParams;
     protected final List<? extends DBColumnExpr> setterColumns;
+    // the most recently used mappers
+    private final Map<MapperKey, DBBeanMapper<T>> beanMappers = new LinkedHashMap<MapperKey, DBBeanMapper<T>>(MAPPER_CACHE_SIZE, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<MapperKey, DBBeanMapper<T>> eldest)
+        {
+            return size() > MAPPER_CACHE_SIZE;
+        }
+    };
     
     /**
      * Constructs a DBRecordListFactoryImpl based on an DBRecord constructor
@@ -231,58 +346,74 @@ public class DBBeanListFactoryImpl<T> implements DBBeanListFactory<T>
         return new ArrayList<T>(capacity);        
     }
     
+    /**
+     * Resolves the bean mapper for the select list of the query result.
+     * @param recData the record data
+     * @return a factory which creates the items using the resolved mapper
+     */
+    @Override
+    public DBBeanListFactory<T> prepareResult(DBRecordData recData)
+    {
+        return new ResultFactory(getBeanMapper(recData));
+    }
+    
+    /**
+     * Creates a new item for the current row.<br>
+     * Resolves the bean mapper for every call. Use the factory returned by prepareResult() for multiple rows.
+     * @param rownum the row number
+     * @param recData the record data
+     * @return the new item
+     */
     @Override
     public T newItem(int rownum, DBRecordData recData)
-    {   try
-        {   T bean;
-            if (constructorParams!=null && constructor.getParameterCount()>0)
-            {   // Param constructor
-                Object[] params = new Object[constructor.getParameterCount()];
-                int i=0;
-                for (DBColumnExpr expr : constructorParams)
-                {
-                    Class<Enum<?>> enumType = expr.getEnumType();
-                    if (enumType!=null)
-                        params[i] = recData.getEnum(expr, enumType);
-                    else
-                        params[i] = recData.get(expr);
-                    // check type
-                    if (params[i]!=null)
-                    {   // compare types
-                        Class<?> valueType = params[i].getClass();
-                        if (!parameterTypes[i].isAssignableFrom(valueType))
-                        {   // Param type does not match
-                            if (log.isDebugEnabled())
-                                log.debug("{} type of param {} doesn't match: expected \"{}\" got \"{}\"", constructor.getDeclaringClass().getName(), i, parameterTypes[i].getName(), valueType.getName());
-                            // convert
-                            params[i] = ObjectUtils.convert(parameterTypes[i], params[i]);
-                        }
-                    }
-                    // log
-                    if (log.isTraceEnabled())
-                        log.trace("{}: constructor param '{}' is {}", constructor.getDeclaringClass().getName(), StringUtils.coalesce(expr.getName(), String.valueOf(i)), params[i]);
-                    // next
-                    i++;
-                }
-                // create item
-                bean = constructor.newInstance(params);
-                // set remaining properties
-                if (params.length < recData.getFieldCount())
-                    recData.setBeanProperties(bean, constructorParams);
-            }
-            else
-            {   // Standard constructor
-                bean = constructor.newInstance();
-                // set the properties
-                recData.setBeanProperties(bean);
+    {
+        return newItem(rownum, recData, getBeanMapper(recData));
+    }
+
+    /**
+     * Creates a new item for the current row using the given mapper
+     * @param rownum the row number
+     * @param recData the record data
+     * @param mapper the bean mapper for the select list
+     * @return the new item
+     */
+    protected T newItem(int rownum, DBRecordData recData, DBBeanMapper<T> mapper)
+    {
+        return mapper.newBean(recData);
+    }
+
+    /**
+     * Returns the bean mapper for the select list of the given record data.<br>
+     * The most recently used mappers are kept for subsequent queries.
+     * @param recData the record data
+     * @return the bean mapper
+     */
+    protected DBBeanMapper<T> getBeanMapper(DBRecordData recData)
+    {
+        boolean useParams = (constructorParams!=null && constructor.getParameterCount()>0);
+        MapperKey key = new MapperKey(constructor.getDeclaringClass(), recData, (useParams ? constructorParams : null));
+        synchronized(beanMappers)
+        {   // find or create
+            DBBeanMapper<T> mapper = beanMappers.get(key);
+            if (mapper==null)
+            {   // create a new mapper
+                mapper = createBeanMapper(recData);
+                beanMappers.put(key, mapper);
             }
-            return bean;
-        }
-        catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e)
-        {
-            throw new InternalException(e);
+            return mapper;
         }
     }
+
+    /**
+     * Creates the bean mapper for the select list of the given record data.
+     * @param recData the record data
+     * @return the bean mapper
+     */
+    protected DBBeanMapper<T> createBeanMapper(DBRecordData recData)
+    {
+        boolean useParams = (constructorParams!=null && constructor.getParameterCount()>0);
+        return new DBBeanMapper<T>(constructor, (useParams ? constructorParams : null), recData, true);
+    }
     
     @Override
     public void completeQuery(List<T> list)
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db.list;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.beanutils.MethodUtils;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.empire.commons.ObjectUtils;
+import org.apache.empire.commons.StringUtils;
+import org.apache.empire.data.ColumnExpr;
+import org.apache.empire.db.DBRecordData;
+import org.apache.empire.exceptions.BeanPropertySetException;
+import org.apache.empire.exceptions.InternalException;
+import org.apache.empire.exceptions.InvalidArgumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DBBeanMapper
+ * Maps the rows of a query result to Java beans.<br>
+ * Constructors and property setters are resolved only once for a given bean type and select list
+ * and invoked through method handles. Type conversions are only performed if the value type does not match.<br>
+ * A mapper is immutable and may be shared between threads.
+ */
+public class DBBeanMapper<T>
+{
+    // Logger
+    private static final Logger log = LoggerFactory.getLogger(DBBeanMapper.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    /**
+     * ValueReader
+     * Reads and converts the value of a single field
+     */
+    protected static class ValueReader
+    {
+        protected final int index;
+        protected final ColumnExpr column;
+        protected final Class<?> targetType;
+        protected final Class<Enum<?>> enumType;
+        protected final boolean primitive;
+
+        public ValueReader(int index, ColumnExpr column, Class<?> paramType)
+        {
+            this.index = index;
+            this.column = column;
+            this.primitive = paramType.isPrimitive();
+            this.targetType = (primitive ? MethodUtils.getPrimitiveWrapper(paramType) : paramType);
+            this.enumType = column.getEnumType();
+        }
+
+        public Object read(DBRecordData recData)
+        {
+            Object value = recData.getValue(index);
+            if (value==null)
+                return null;
+            // convert to enum
+            if (enumType!=null && !(value instanceof Enum<?>))
+                value = ObjectUtils.getEnum(enumType, value);
+            // convert type
+            if (!targetType.isInstance(value))
+                value = ObjectUtils.convert(targetType, value);
+            return value;
+        }
+    }
+
+    /**
+     * PropertySetter
+     * Sets the value of a single bean property
+     */
+    protected static class PropertySetter extends ValueReader
+    {
+        protected final String property;
+        protected final MethodHandle setter;
+
+        public PropertySetter(int index, ColumnExpr column, String property, MethodHandle setter, Class<?> paramType)
+        {
+            super(index, column, paramType);
+            this.property = property;
+            this.setter = setter;
+        }
+
+        public void set(Object bean, DBRecordData recData)
+        {
+            Object value = read(recData);
+            if (value==null && primitive)
+                return; // cannot set null on a primitive
+            try {
+                setter.invokeExact(bean, value);
+            } catch (RuntimeException e) {
+                log.error(bean.getClass().getName() + ": unable to set property '" + property + "'");
+                throw new BeanPropertySetException(bean, property, e);
+            } catch (Throwable e) {
+                log.error(bean.getClass().getName() + ": unable to set property '" + property + "'");
+                throw new BeanPropertySetException(bean, property, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the setter methods of all writable properties of a bean type
+     * @param beanType the bean type
+     * @return a map of property names and setter methods
+     */
+    protected static Map<String, Method> getPropertySetters(Class<?> beanType)
+    {
+        PropertyDescriptor[] descriptors = PropertyUtils.getPropertyDescriptors(beanType);
+        Map<String, Method> setters = new HashMap<String, Method>(descriptors.length);
+        for (PropertyDescriptor pd : descriptors)
+        {   // Get the accessible write method
+            Method method = MethodUtils.getAccessibleMethod(beanType, pd.getWriteMethod());
+            if (method!=null)
+                setters.put(pd.getName(), method);
+        }
+        return setters;
+    }
+
+    private static void setAccessible(AccessibleObject member)
+    {
+        try {
+            member.setAccessible(true);
+        } catch (RuntimeException e) {
+            // SecurityException or InaccessibleObjectException: use the lookup access rights
+            log.debug("Unable to make {} accessible: {}", member, e.getMessage());
+        }
+    }
+
+    private static MethodHandle unreflect(Method method)
+        throws IllegalAccessException
+    {
+        setAccessible(method);
+        return MethodHandles.lookup().unreflect(method).asType(SETTER_TYPE);
+    }
+
+    private static MethodHandle unreflectConstructor(Constructor<?> constructor)
+        throws IllegalAccessException
+    {
+        setAccessible(constructor);
+        MethodHandle mh = MethodHandles.lookup().unreflectConstructor(constructor);
+        return mh.asSpreader(Object[].class, constructor.getParameterCount()).asType(CONSTRUCTOR_TYPE);
+    }
+
+    /*
+     * Members
+     */
+    protected final Class<T> beanType;
+    protected final ColumnExpr[] columns;
+    protected final MethodHandle constructor;
+    protected final ValueReader[] constructorParams;
+    protected final PropertySetter[] propertySetters;
+
+    /**
+     * Creates a bean mapper for a particular select list
+     * @param constructor the bean constructor
+     * @param constructorParams (optional) the columns for the constructor params. Must match the constructor!
+     * @param recData the record data providing the select list
+     * @param setProperties flag whether to set the bean properties for all columns which are not constructor params
+     */
+    public DBBeanMapper(Constructor<T> constructor, List<? extends ColumnExpr> constructorParams, DBRecordData recData, boolean setProperties)
+    {
+        this.beanType = constructor.getDeclaringClass();
+        // the select list
+        int fieldCount = recData.getFieldCount();
+        this.columns = new ColumnExpr[fieldCount];
+        for (int i=0; i<fieldCount; i++)
+            columns[i] = recData.getColumn(i);
+        // the constructor
+        Class<?>[] paramTypes = constructor.getParameterTypes();
+        int paramCount = (constructorParams!=null ? paramTypes.length : 0);
+        if (paramCount>0 && constructorParams.size()<paramCount)
+            throw new InvalidArgumentException("constructorParams", constructorParams);
+        this.constructorParams = new ValueReader[paramCount];
+        for (int i=0; i<paramCount; i++)
+        {   // find field
+            ColumnExpr column = constructorParams.get(i);
+            int index = recData.getFieldIndex(column);
+            if (index<0)
+                throw new InvalidArgumentException("constructorParams", column.getName());
+            this.constructorParams[i] = new ValueReader(index, column, paramTypes[i]);
+        }
+        try {
+            this.constructor = unreflectConstructor(constructor);
+        } catch (IllegalAccessException e) {
+            throw new InternalException(e);
+        }
+        // the property setters
+        this.propertySetters = (setProperties ? createPropertySetters((paramCount>0 ? constructorParams : null)) : new PropertySetter[0]);
+        // log
+        if (log.isDebugEnabled())
+            log.debug("{}: created bean mapper for {} fields using {} constructor params and {} setters", beanType.getName(), fieldCount, paramCount, propertySetters.length);
+    }
+
+    /**
+     * Creates the property setters for all columns of the select list
+     * @param ignoreList (optional) list of columns to ignore
+     * @return the property setters
+     */
+    protected PropertySetter[] createPropertySetters(Collection<? extends ColumnExpr> ignoreList)
+    {
+        Map<String, Method> setterMap = getPropertySetters(beanType);
+        List<PropertySetter> setters = new ArrayList<PropertySetter>(columns.length);
+        for (int i=0; i<columns.length; i++)
+        {   // Check Property
+            ColumnExpr column = columns[i];
+            if (ignoreList != null && ignoreList.contains(column))
+                continue; // ignore this property
+            // Get Property Name
+            String property = column.getBeanPropertyName();
+            Method method = (StringUtils.isNotEmpty(property) ? setterMap.get(property) : null);
+            if (method==null)
+            {   // No such property or read only
+                if (log.isTraceEnabled())
+                    log.trace("{}: no writable property found for column {}", beanType.getName(), column.getName());
+                continue;
+            }
+            try {
+                setters.add(new PropertySetter(i, column, property, unreflect(method), method.getParameterTypes()[0]));
+            } catch (IllegalAccessException e) {
+                throw new BeanPropertySetException(beanType, property, e);
+            }
+        }
+        return setters.toArray(new PropertySetter[setters.size()]);
+    }
+
+    /**
+     * Returns the bean type
+     * @return the bean type
+     */
+    public Class<T> getBeanType()
+    {
+        return beanType;
+    }
+
+    /**
+     * Checks whether this mapper can be used for the given record data
+     * @param recData the record data
+     * @return true if the select list matches or false otherwise
+     */
+    public boolean matches(DBRecordData recData)
+    {
+        if (recData.getFieldCount()!=columns.length)
+            return false;
+        for (int i=0; i<columns.length; i++)
+            if (recData.getColumn(i)!=columns[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Creates a new bean from the current row of the given record data
+     * @param recData the record data
+     * @return the new bean
+     */
+    @SuppressWarnings("unchecked")
+    public T newBean(DBRecordData recData)
+    {
+        // read constructor params
+        Object[] params = new Object[constructorParams.length];
+        for (int i=0; i<params.length; i++)
+            params[i] = constructorParams[i].read(recData);
+        // create bean
+        T bean;
+        try {
+            bean = (T)constructor.invokeExact(params);
+        } catch (RuntimeException e) {
+            throw new InternalException(e);
+        } catch (Throwable e) {
+            throw new InternalException(e);
+        }
+        // set properties
+        for (int i=0; i<propertySetters.length; i++)
+            propertySetters[i].set(bean, recData);
+        return bean;
+    }
+}
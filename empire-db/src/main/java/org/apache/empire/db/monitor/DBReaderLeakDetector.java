@@ -0,0 +1,380 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.empire.db.DBReader;
+import org.apache.empire.exceptions.InternalException;
+import org.apache.empire.exceptions.InvalidArgumentException;
+import org.apache.empire.exceptions.ObjectNotValidException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DBReaderLeakDetector<br>
+ * Detects DBReader objects which are garbage collected without having been closed.<br>
+ * Each open reader is tracked by a phantom reference. The stack of the opening code is recorded only for one in N readers (the sample rate).
+ * Leaked readers are reported when the next reader is opened or when checkLeaks() is called.
+ * For sampled readers the report contains the stack of the opening code.<br>
+ * The number of open readers is available per thread and - for sampled readers - per call site.
+ * The call site is the first stack frame outside of the Empire-db packages.<br>
+ * The statistics can be published to the platform MBeanServer using {@link #register(String)}.
+ * Usage:
+ * <pre>
+ *   DBReaderLeakDetector detector = new DBReaderLeakDetector(100);
+ *   detector.register("myApp");
+ *   DBReader.setLeakDetector(detector);
+ * </pre>
+ */
+public class DBReaderLeakDetector implements DBReaderLeakDetectorMXBean
+{
+    // Logger
+    private static final Logger log = LoggerFactory.getLogger(DBReaderLeakDetector.class);
+
+    public static final String UNKNOWN_CALL_SITE = "(unknown)";
+
+    /**
+     * Tracker
+     * Tracks an open reader. Must be closed when the reader is closed.
+     */
+    public static final class Tracker extends PhantomReference<DBReader>
+    {
+        private final DBReaderLeakDetector detector;
+        private final String threadName;
+        private final String callSite;
+        private final Throwable stack;
+        private volatile boolean closed = false;
+
+        private Tracker(DBReaderLeakDetector detector, DBReader reader, String threadName, String callSite, Throwable stack)
+        {
+            super(reader, detector.queue);
+            this.detector = detector;
+            this.threadName = threadName;
+            this.callSite = callSite;
+            this.stack = stack;
+        }
+
+        public String getThreadName()
+        {
+            return threadName;
+        }
+
+        /**
+         * Returns the call site of the opening code
+         * @return the call site or null if the reader was not sampled
+         */
+        public String getCallSite()
+        {
+            return callSite;
+        }
+
+        /**
+         * Returns the stack of the opening code
+         * @return the stack or null if the reader was not sampled
+         */
+        public Throwable getStack()
+        {
+            return stack;
+        }
+
+        /**
+         * Stops tracking of a reader that has been closed
+         */
+        public void close()
+        {
+            if (closed)
+                return;
+            closed = true;
+            detector.release(this);
+            clear();
+        }
+    }
+
+    /**
+     * Exception used to record the stack of the opening code
+     */
+    private static class ReaderOpenedStack extends Throwable
+    {
+        private static final long serialVersionUID = 1L;
+
+        public ReaderOpenedStack(String threadName)
+        {
+            super("DBReader opened by thread "+threadName);
+        }
+    }
+
+    private final int sampleRate;
+    private final ReferenceQueue<DBReader> queue = new ReferenceQueue<DBReader>();
+    private final Set<Tracker> trackers = Collections.newSetFromMap(new ConcurrentHashMap<Tracker, Boolean>());
+    private final ConcurrentMap<String, Integer> threadCounts = new ConcurrentHashMap<String, Integer>();
+    private final ConcurrentMap<String, Integer> callSiteCounts = new ConcurrentHashMap<String, Integer>();
+    private final AtomicLong openedCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+
+    private ObjectName objectName = null;
+
+    /**
+     * Creates a leak detector
+     * @param sampleRate the stack of the opening code is recorded for one in sampleRate readers. Use 1 to record all.
+     */
+    public DBReaderLeakDetector(int sampleRate)
+    {
+        if (sampleRate<1)
+            throw new InvalidArgumentException("sampleRate", sampleRate);
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public int getSampleRate()
+    {
+        return sampleRate;
+    }
+
+    /**
+     * Starts tracking of a reader that has been opened.<br>
+     * Called by DBReader if a leak detector is set.
+     * @param reader the reader
+     * @return the tracker that must be closed when the reader is closed
+     */
+    public Tracker track(DBReader reader)
+    {
+        // report leaks detected meanwhile
+        checkLeaks();
+        // sample
+        String threadName = getThreadKey(Thread.currentThread());
+        String callSite = null;
+        Throwable stack = null;
+        if ((openedCount.incrementAndGet() % sampleRate)==0)
+        {   // record stack
+            stack = new ReaderOpenedStack(threadName);
+            callSite = getCallSite(stack.getStackTrace());
+        }
+        // track
+        Tracker tracker = new Tracker(this, reader, threadName, callSite, stack);
+        trackers.add(tracker);
+        increment(threadCounts, threadName);
+        if (callSite!=null)
+            increment(callSiteCounts, callSite);
+        return tracker;
+    }
+
+    /**
+     * Reports all readers which have been garbage collected without being closed
+     */
+    @Override
+    public void checkLeaks()
+    {
+        Reference<? extends DBReader> ref;
+        while ((ref = queue.poll())!=null)
+        {
+            Tracker tracker = (Tracker)ref;
+            if (tracker.closed)
+                continue;
+            tracker.closed = true;
+            release(tracker);
+            leakCount.incrementAndGet();
+            reportLeak(tracker);
+        }
+    }
+
+    /**
+     * Reports a reader that has been garbage collected without being closed
+     * @param tracker the tracker of the reader
+     */
+    protected void reportLeak(Tracker tracker)
+    {
+        if (tracker.getStack()!=null)
+            log.error("A DBReader was not closed. Stack of opening code is ", tracker.getStack());
+        else
+            log.warn("A DBReader opened by thread {} was not closed. Stack of opening code not sampled.", tracker.getThreadName());
+    }
+
+    /**
+     * Returns the key under which open readers are counted for a thread.<br>
+     * By default this is the thread name or - for unnamed threads - the thread id.
+     * @param thread the thread
+     * @return the thread key
+     */
+    protected String getThreadKey(Thread thread)
+    {
+        String name = thread.getName();
+        if (name==null || name.length()==0)
+            return "Thread#"+thread.getId();
+        return name;
+    }
+
+    /**
+     * Returns the call site for the stack of the opening code
+     * @param stack the stack of the opening code 
+     * @return the call site
+     */
+    protected String getCallSite(StackTraceElement[] stack)
+    {
+        for (int i=0; i<stack.length; i++)
+        {
+            if (isCallSite(stack[i]))
+                return stack[i].toString();
+        }
+        return UNKNOWN_CALL_SITE;
+    }
+
+    /**
+     * Returns whether or not a stack frame is the call site of the opening code.<br>
+     * By default this is the first frame outside of the Empire-db packages.
+     * @param frame the stack frame
+     * @return true if the frame is the call site
+     */
+    protected boolean isCallSite(StackTraceElement frame)
+    {
+        return !frame.getClassName().startsWith("org.apache.empire.");
+    }
+
+    @Override
+    public long getOpenedCount()
+    {
+        return openedCount.get();
+    }
+
+    @Override
+    public int getOpenCount()
+    {
+        return trackers.size();
+    }
+
+    @Override
+    public long getLeakCount()
+    {
+        return leakCount.get();
+    }
+
+    @Override
+    public Map<String, Integer> getOpenCountByThread()
+    {
+        return snapshot(threadCounts);
+    }
+
+    @Override
+    public Map<String, Integer> getOpenCountByCallSite()
+    {
+        return snapshot(callSiteCounts);
+    }
+
+    /**
+     * Registers this object with the platform MBeanServer
+     * @param name the name of the application
+     * @return the object name
+     */
+    public synchronized ObjectName register(String name)
+    {
+        if (objectName!=null)
+            unregister();
+        try
+        {   // register now
+            ObjectName on = new ObjectName("org.apache.empire.db:type=DBReaderLeakDetector,name="+ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+            log.info("DBReaderLeakDetector registered as {}", on);
+            this.objectName = on;
+            return on;
+        } catch (JMException e) {
+            throw new InternalException(e);
+        }
+    }
+
+    /**
+     * Removes this object from the platform MBeanServer
+     */
+    public synchronized void unregister()
+    {
+        if (objectName==null)
+            throw new ObjectNotValidException(this);
+        try
+        {   // unregister now
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+            objectName = null;
+        } catch (JMException e) {
+            throw new InternalException(e);
+        }
+    }
+
+    private void release(Tracker tracker)
+    {
+        trackers.remove(tracker);
+        decrement(threadCounts, tracker.getThreadName());
+        if (tracker.getCallSite()!=null)
+            decrement(callSiteCounts, tracker.getCallSite());
+    }
+
+    private static void increment(ConcurrentMap<String, Integer> counts, String key)
+    {
+        while (true)
+        {   Integer count = counts.putIfAbsent(key, 1);
+            if (count==null || counts.replace(key, count, count+1))
+                return;
+        }
+    }
+
+    private static void decrement(ConcurrentMap<String, Integer> counts, String key)
+    {
+        while (true)
+        {   Integer count = counts.get(key);
+            if (count==null)
+                return;
+            // remove entry when the count drops to zero
+            if (count<=1 ? counts.remove(key, count) : counts.replace(key, count, count-1))
+                return;
+        }
+    }
+
+    private static Map<String, Integer> snapshot(ConcurrentMap<String, Integer> counts)
+    {
+        return new TreeMap<String, Integer>(counts);
+    }
+
+    /**
+     * Returns the number of entries of the thread and call site statistics
+     * @return the number of entries
+     */
+    int getStatisticsSize()
+    {
+        return threadCounts.size() + callSiteCounts.size();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("open=%d opened=%d leaks=%d", getOpenCount(), getOpenedCount(), getLeakCount());
+    }
+}
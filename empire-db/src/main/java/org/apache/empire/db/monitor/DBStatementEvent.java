@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db.monitor;
+
+/**
+ * DBStatementEvent<br>
+ * Holds information about an executed statement.<br>
+ * All timings are in nanoseconds.
+ * The prepare time is the time spent on creating the statement and setting its parameters.
+ * The execute time is the time spent on executing the statement.
+ * The fetch time is the time spent on reading the query result (queries only).
+ */
+public class DBStatementEvent
+{
+    public enum StatementType
+    {
+        QUERY,
+        UPDATE;
+    }
+
+    private final StatementType type;
+    private final String sql;
+    private final int paramCount;
+    private final int rowCount;
+    private final long prepareNanos;
+    private final long executeNanos;
+    private final long fetchNanos;
+    private final Exception exception;
+
+    public DBStatementEvent(StatementType type, String sql, int paramCount, int rowCount, 
+                            long prepareNanos, long executeNanos, long fetchNanos, Exception exception)
+    {
+        this.type = type;
+        this.sql = sql;
+        this.paramCount = paramCount;
+        this.rowCount = rowCount;
+        this.prepareNanos = prepareNanos;
+        this.executeNanos = executeNanos;
+        this.fetchNanos = fetchNanos;
+        this.exception = exception;
+    }
+
+    public StatementType getType()
+    {
+        return type;
+    }
+
+    public String getSql()
+    {
+        return sql;
+    }
+
+    public int getParamCount()
+    {
+        return paramCount;
+    }
+
+    /**
+     * Returns the number of rows returned by a query or affected by an update
+     * @return the row count or -1 if unknown
+     */
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    public long getPrepareNanos()
+    {
+        return prepareNanos;
+    }
+
+    public long getExecuteNanos()
+    {
+        return executeNanos;
+    }
+
+    public long getFetchNanos()
+    {
+        return fetchNanos;
+    }
+
+    public long getTotalNanos()
+    {
+        return prepareNanos + executeNanos + fetchNanos;
+    }
+
+    /**
+     * Returns the exception if the statement failed
+     * @return the exception or null if the statement was successful
+     */
+    public Exception getException()
+    {
+        return exception;
+    }
+
+    public boolean isFailed()
+    {
+        return (exception!=null);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s rows=%d prepare=%dns execute=%dns fetch=%dns%s: %s", type, rowCount, prepareNanos, executeNanos, fetchNanos, (exception!=null ? " failed" : ""), sql);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db.monitor;
+
+/**
+ * DBStatementListener<br>
+ * A listener that is notified about every statement executed through DBUtils or a DBReader.<br>
+ * The listener is set on the DBMSHandler using DBMSHandlerBase.setStatementListener().
+ * Implementations must be thread-safe and should return quickly, since they are called synchronously after each statement.<br>
+ * Exceptions thrown by the listener are logged and ignored.
+ * @see DBStatementMetrics
+ */
+public interface DBStatementListener
+{
+    /**
+     * Called after a statement has been executed or has failed.
+     * For queries this is called after all rows have been fetched or the reader has been closed.
+     * @param event the statement event
+     */
+    void statementExecuted(DBStatementEvent event);
+}
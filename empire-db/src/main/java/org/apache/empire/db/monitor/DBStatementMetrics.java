@@ -0,0 +1,481 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db.monitor;
+
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.empire.exceptions.InternalException;
+import org.apache.empire.exceptions.InvalidArgumentException;
+import org.apache.empire.exceptions.ObjectNotValidException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DBStatementMetrics<br>
+ * A statement listener that collects latency statistics for each statement shape.<br>
+ * The shape of a statement is its SQL text with all literal values replaced by a '?' and IN lists collapsed to a single value.
+ * Hence statements which only differ in their values are counted together.<br>
+ * For each shape the number of executions, errors and rows as well as the time spent on prepare, execute and fetch is recorded.
+ * The total times are also recorded in a histogram from which percentiles are estimated.<br>
+ * The number of shapes is limited. Statements of additional shapes are counted under {@link #OTHER_SHAPE}.<br>
+ * The statistics can be published to the platform MBeanServer using {@link #register(String)}.
+ * Usage:
+ * <pre>
+ *   DBStatementMetrics metrics = new DBStatementMetrics();
+ *   metrics.register("myApp");
+ *   dbms.setStatementListener(metrics);
+ * </pre>
+ */
+public class DBStatementMetrics implements DBStatementListener, DBStatementMetricsMXBean
+{
+    // Logger
+    private static final Logger log = LoggerFactory.getLogger(DBStatementMetrics.class);
+
+    public static final String OTHER_SHAPE = "(other)";
+
+    public static final int DEFAULT_MAX_SHAPES = 500;
+
+    // bucket bounds in microseconds (the last bucket is unbounded)
+    private static final long[] BUCKET_BOUNDS = { 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000, 1000000, 2500000, 5000000, 10000000 };
+
+    /**
+     * Statistics
+     * A snapshot of the statistics of a single statement shape
+     */
+    public static class Statistics
+    {
+        private final String shape;
+        private final long count;
+        private final long errorCount;
+        private final long rowCount;
+        private final long prepareMicros;
+        private final long executeMicros;
+        private final long fetchMicros;
+        private final long maxMicros;
+        private final long[] histogram;
+
+        @ConstructorProperties({"shape", "count", "errorCount", "rowCount", "prepareMicros", "executeMicros", "fetchMicros", "maxMicros", "histogram"})
+        public Statistics(String shape, long count, long errorCount, long rowCount, long prepareMicros, long executeMicros, long fetchMicros, long maxMicros, long[] histogram)
+        {
+            this.shape = shape;
+            this.count = count;
+            this.errorCount = errorCount;
+            this.rowCount = rowCount;
+            this.prepareMicros = prepareMicros;
+            this.executeMicros = executeMicros;
+            this.fetchMicros = fetchMicros;
+            this.maxMicros = maxMicros;
+            this.histogram = histogram;
+        }
+
+        public String getShape()
+        {
+            return shape;
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+
+        public long getErrorCount()
+        {
+            return errorCount;
+        }
+
+        public long getRowCount()
+        {
+            return rowCount;
+        }
+
+        public long getPrepareMicros()
+        {
+            return prepareMicros;
+        }
+
+        public long getExecuteMicros()
+        {
+            return executeMicros;
+        }
+
+        public long getFetchMicros()
+        {
+            return fetchMicros;
+        }
+
+        public long getTotalMicros()
+        {
+            return prepareMicros + executeMicros + fetchMicros;
+        }
+
+        public long getMaxMicros()
+        {
+            return maxMicros;
+        }
+
+        public long getMeanMicros()
+        {
+            return (count>0 ? getTotalMicros() / count : 0);
+        }
+
+        /**
+         * Returns the number of executions per histogram bucket
+         * @return the bucket counts
+         */
+        public long[] getHistogram()
+        {
+            return histogram;
+        }
+
+        public long getMedianMicros()
+        {
+            return getPercentileMicros(0.5d);
+        }
+
+        public long getP95Micros()
+        {
+            return getPercentileMicros(0.95d);
+        }
+
+        public long getP99Micros()
+        {
+            return getPercentileMicros(0.99d);
+        }
+
+        /**
+         * Estimates a percentile from the histogram.
+         * The upper bound of the bucket containing the percentile is returned (or the maximum if smaller).
+         * @param percentile the percentile between 0 and 1
+         * @return the estimated time in microseconds
+         */
+        public long getPercentileMicros(double percentile)
+        {
+            long total = 0;
+            for (int i=0; i<histogram.length; i++)
+                total += histogram[i];
+            if (total==0)
+                return 0;
+            long rank = (long)Math.ceil(percentile * total);
+            long sum = 0;
+            for (int i=0; i<BUCKET_BOUNDS.length; i++)
+            {
+                sum += histogram[i];
+                if (sum>=rank)
+                    return Math.min(BUCKET_BOUNDS[i], maxMicros);
+            }
+            return maxMicros;
+        }
+    }
+
+    /**
+     * ShapeStatistics
+     * The statistics collected for a single statement shape
+     */
+    protected static class ShapeStatistics
+    {
+        private final String shape;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong errorCount = new AtomicLong();
+        private final AtomicLong rowCount = new AtomicLong();
+        private final AtomicLong prepareNanos = new AtomicLong();
+        private final AtomicLong executeNanos = new AtomicLong();
+        private final AtomicLong fetchNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_BOUNDS.length+1);
+
+        public ShapeStatistics(String shape)
+        {
+            this.shape = shape;
+        }
+
+        public void add(DBStatementEvent event)
+        {
+            count.incrementAndGet();
+            if (event.isFailed())
+                errorCount.incrementAndGet();
+            if (event.getRowCount()>0)
+                rowCount.addAndGet(event.getRowCount());
+            prepareNanos.addAndGet(event.getPrepareNanos());
+            executeNanos.addAndGet(event.getExecuteNanos());
+            fetchNanos.addAndGet(event.getFetchNanos());
+            long nanos = event.getTotalNanos();
+            for (long max = maxNanos.get(); nanos>max; max = maxNanos.get())
+            {   // update max
+                if (maxNanos.compareAndSet(max, nanos))
+                    break;
+            }
+            histogram.incrementAndGet(getBucket(nanos / 1000));
+        }
+
+        public Statistics getSnapshot()
+        {
+            long[] buckets = new long[histogram.length()];
+            for (int i=0; i<buckets.length; i++)
+                buckets[i] = histogram.get(i);
+            return new Statistics(shape, count.get(), errorCount.get(), rowCount.get(), 
+                                  prepareNanos.get() / 1000, executeNanos.get() / 1000, fetchNanos.get() / 1000, maxNanos.get() / 1000, buckets);
+        }
+    }
+
+    private final ConcurrentMap<String, ShapeStatistics> shapeMap = new ConcurrentHashMap<String, ShapeStatistics>();
+    private final AtomicLong statementCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final int maxShapes;
+    private ObjectName objectName = null;
+
+    /**
+     * Creates statement metrics
+     * @param maxShapes the maximum number of statement shapes recorded separately
+     */
+    public DBStatementMetrics(int maxShapes)
+    {
+        if (maxShapes<1)
+            throw new InvalidArgumentException("maxShapes", maxShapes);
+        this.maxShapes = maxShapes;
+    }
+
+    /**
+     * Creates statement metrics with the default maximum number of statement shapes
+     */
+    public DBStatementMetrics()
+    {
+        this(DEFAULT_MAX_SHAPES);
+    }
+
+    @Override
+    public void statementExecuted(DBStatementEvent event)
+    {
+        statementCount.incrementAndGet();
+        if (event.isFailed())
+            errorCount.incrementAndGet();
+        // find shape
+        String shape = getStatementShape(event.getSql());
+        ShapeStatistics stats = shapeMap.get(shape);
+        if (stats==null)
+        {   // add shape
+            if (shapeMap.size()>=maxShapes)
+                shape = OTHER_SHAPE;
+            stats = new ShapeStatistics(shape);
+            ShapeStatistics prev = shapeMap.putIfAbsent(shape, stats);
+            if (prev!=null)
+                stats = prev;
+        }
+        stats.add(event);
+    }
+
+    @Override
+    public long getStatementCount()
+    {
+        return statementCount.get();
+    }
+
+    @Override
+    public long getErrorCount()
+    {
+        return errorCount.get();
+    }
+
+    @Override
+    public int getShapeCount()
+    {
+        return shapeMap.size();
+    }
+
+    @Override
+    public long[] getHistogramBounds()
+    {
+        return BUCKET_BOUNDS.clone();
+    }
+
+    /**
+     * Returns the statistics for a single statement
+     * @param sql the sql statement
+     * @return the statistics or null if no statement of the same shape has been recorded
+     */
+    public Statistics getStatistics(String sql)
+    {
+        ShapeStatistics stats = shapeMap.get(getStatementShape(sql));
+        return (stats!=null ? stats.getSnapshot() : null);
+    }
+
+    @Override
+    public List<Statistics> getStatistics()
+    {
+        List<Statistics> list = new ArrayList<Statistics>(shapeMap.size());
+        for (ShapeStatistics stats : shapeMap.values())
+            list.add(stats.getSnapshot());
+        Collections.sort(list, new Comparator<Statistics>() {
+            @Override
+            public int compare(Statistics s1, Statistics s2)
+            {
+                long t1 = s1.getTotalMicros();
+                long t2 = s2.getTotalMicros();
+                return (t1<t2 ? 1 : (t1>t2 ? -1 : 0));
+            }
+        });
+        return list;
+    }
+
+    @Override
+    public void reset()
+    {
+        shapeMap.clear();
+        statementCount.set(0);
+        errorCount.set(0);
+    }
+
+    /**
+     * Registers this object with the platform MBeanServer
+     * @param name the name used for the object name
+     * @return the object name
+     */
+    public synchronized ObjectName register(String name)
+    {
+        if (objectName!=null)
+            unregister();
+        try
+        {   // register now
+            ObjectName on = new ObjectName("org.apache.empire.db:type=DBStatementMetrics,name="+ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+            log.info("DBStatementMetrics registered as {}", on);
+            this.objectName = on;
+            return on;
+        } catch (JMException e) {
+            throw new InternalException(e);
+        }
+    }
+
+    /**
+     * Removes this object from the platform MBeanServer
+     */
+    public synchronized void unregister()
+    {
+        if (objectName==null)
+            throw new ObjectNotValidException(this);
+        try
+        {   // unregister now
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+            objectName = null;
+        } catch (JMException e) {
+            throw new InternalException(e);
+        }
+    }
+
+    /**
+     * Returns the bucket index for a time
+     * @param micros the time in microseconds
+     * @return the bucket index
+     */
+    protected static int getBucket(long micros)
+    {
+        for (int i=0; i<BUCKET_BOUNDS.length; i++)
+            if (micros<=BUCKET_BOUNDS[i])
+                return i;
+        return BUCKET_BOUNDS.length;
+    }
+
+    /**
+     * Returns the shape of an sql statement.<br>
+     * String and numeric literals are replaced by '?', lists of values are collapsed to a single '?' and whitespace is normalized.
+     * Override this to provide a different grouping of statements.
+     * @param sql the sql statement
+     * @return the statement shape
+     */
+    protected String getStatementShape(String sql)
+    {
+        if (sql==null)
+            return OTHER_SHAPE;
+        StringBuilder b = new StringBuilder(sql.length());
+        int len = sql.length();
+        for (int i=0; i<len; i++)
+        {
+            char c = sql.charAt(i);
+            if (c=='\'')
+            {   // string literal
+                int end = i+1;
+                while (end<len)
+                {   // find end (quotes are escaped by doubling)
+                    if (sql.charAt(end)=='\'')
+                    {   if (end+1<len && sql.charAt(end+1)=='\'')
+                        {   end+=2;
+                            continue;
+                        }
+                        break;
+                    }
+                    end++;
+                }
+                i = end;
+                appendValue(b);
+            }
+            else if (Character.isDigit(c) && (b.length()==0 || !isIdentifierPart(b.charAt(b.length()-1))))
+            {   // numeric literal
+                while (i+1<len && (Character.isDigit(sql.charAt(i+1)) || sql.charAt(i+1)=='.'))
+                    i++;
+                appendValue(b);
+            }
+            else if (c=='?')
+            {   // param
+                appendValue(b);
+            }
+            else if (Character.isWhitespace(c))
+            {   // normalize whitespace
+                if (b.length()>0 && b.charAt(b.length()-1)!=' ')
+                    b.append(' ');
+            }
+            else
+                b.append(c);
+        }
+        return b.toString().trim();
+    }
+
+    private static boolean isIdentifierPart(char c)
+    {
+        return Character.isLetterOrDigit(c) || c=='_' || c=='.' || c=='"';
+    }
+
+    private static void appendValue(StringBuilder b)
+    {
+        // collapse lists of values
+        int len = b.length();
+        if (len>=3 && b.charAt(len-1)==' ' && b.charAt(len-2)==',' && b.charAt(len-3)=='?')
+        {   b.setLength(len-2);
+            return;
+        }
+        if (len>=2 && b.charAt(len-1)==',' && b.charAt(len-2)=='?')
+        {   b.setLength(len-1);
+            return;
+        }
+        b.append('?');
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db.monitor;
+
+/**
+ * DBStatementTimer<br>
+ * Passes the time spent on preparing a statement from the DBMSHandler to the caller on the same thread.<br>
+ * The DBMSHandler only records the time if a statement listener has been set.
+ */
+public final class DBStatementTimer
+{
+    private static final ThreadLocal<long[]> prepareNanos = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue()
+        {
+            return new long[1];
+        }
+    };
+
+    private DBStatementTimer()
+    {
+        /* No instances */
+    }
+
+    /**
+     * Resets the prepare time of the current thread
+     */
+    public static void clear()
+    {
+        prepareNanos.get()[0] = 0;
+    }
+
+    /**
+     * Adds to the prepare time of the current thread
+     * @param nanos the time spent in nanoseconds
+     */
+    public static void addPrepareNanos(long nanos)
+    {
+        prepareNanos.get()[0] += nanos;
+    }
+
+    /**
+     * Returns and resets the prepare time of the current thread
+     * @return the time spent in nanoseconds
+     */
+    public static long takePrepareNanos()
+    {
+        long[] value = prepareNanos.get();
+        long nanos = value[0];
+        value[0] = 0;
+        return nanos;
+    }
+}
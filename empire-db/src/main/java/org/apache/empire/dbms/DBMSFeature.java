@@ -27,5 +27,6 @@ public enum DBMSFeature {
     SEQUENCES,
     SEQUENCE_NEXTVAL,
     QUERY_LIMIT_ROWS,
-    QUERY_SKIP_ROWS
+    QUERY_SKIP_ROWS,
+    UPSERT
 }
@@ -21,20 +21,27 @@ package org.apache.empire.dbms;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Timestamp;
 
+import org.apache.empire.commons.ObjectUtils;
 import org.apache.empire.data.DataType;
+import org.apache.empire.db.DBColumn;
 import org.apache.empire.db.DBCommand;
 import org.apache.empire.db.DBCommandExpr;
 import org.apache.empire.db.DBDDLGenerator.DDLActionType;
 import org.apache.empire.db.DBDatabase;
+import org.apache.empire.db.DBExpr;
 import org.apache.empire.db.DBObject;
 import org.apache.empire.db.DBRelation;
+import org.apache.empire.db.DBRowSet;
 import org.apache.empire.db.DBSQLBuilder;
 import org.apache.empire.db.DBSQLScript;
 import org.apache.empire.db.DBTableColumn;
+import org.apache.empire.db.monitor.DBStatementListener;
 import org.apache.empire.db.validation.DBModelChecker;
 import org.apache.empire.db.validation.DBModelParser;
+import org.apache.empire.exceptions.NotSupportedException;
 
 /**
  * The DBMSHandler interface implements all RDBMS specific logic
@@ -86,6 +93,69 @@ public interface DBMSHandler
      */
     boolean isSupported(DBMSFeature type);
 
+    /**
+     * Returns the maximum number of parameters or IN-list values that should be used in a single statement.
+     * This is used to split statements with a large number of values into chunks.<br>
+     * The default of 1000 is accepted by all supported databases.
+     * @return the maximum number of parameters or values per statement
+     */
+    default int getMaxStatementParams()
+    {
+        return 1000;
+    }
+
+    /**
+     * Returns the maximum number of rows that should be inserted with a single bulk insert statement.<br>
+     * The default is limited by getMaxStatementParams()
+     * @param columnCount the number of columns per row
+     * @return the maximum number of rows per statement
+     */
+    default int getMaxBulkInsertRows(int columnCount)
+    {
+        return Math.max(1, getMaxStatementParams() / Math.max(1, columnCount));
+    }
+
+    /**
+     * Appends a statement that inserts multiple rows into a table with a single statement.
+     * A statement parameter must be used for each value, i.e. the number of parameters is columns.length * rowCount.<br>
+     * The default implementation appends a statement in the form:
+     *      INSERT INTO table (col1, col2) VALUES (?, ?), (?, ?), ...
+     * @param sql the sql builder
+     * @param rowset the table into which to insert the rows
+     * @param columns the columns for which values are provided
+     * @param rowCount the number of rows
+     */
+    default void appendBulkInsert(DBSQLBuilder sql, DBRowSet rowset, DBColumn[] columns, int rowCount)
+    {
+        sql.append("INSERT INTO ");
+        rowset.addSQL(sql, DBExpr.CTX_FULLNAME);
+        sql.append(" (");
+        for (int i=0; i<columns.length; i++)
+        {
+            if (i>0)
+                sql.append(", ");
+            columns[i].addSQL(sql, DBExpr.CTX_NAME);
+        }
+        sql.append(") VALUES ");
+        for (int i=0; i<rowCount; i++)
+        {
+            sql.append((i>0) ? ", (" : "(");
+            for (int j=0; j<columns.length; j++)
+                sql.append((j>0) ? ", ?" : "?");
+            sql.append(")");
+        }
+    }
+
+    /**
+     * Returns the listener which is notified about executed statements.<br>
+     * The default implementation returns null.
+     * @return the statement listener or null if none has been set
+     */
+    default DBStatementListener getStatementListener()
+    {
+        return null;
+    }
+
     /**
      * Appends a table, view or column name to an SQL phrase. 
      * 
@@ -177,6 +247,29 @@ public interface DBMSHandler
      */
     public int[] executeBatch(String[] sqlCmd, Object[][] sqlCmdParams, Connection conn)
         throws SQLException;
+
+    /**
+     * Executes a list of sql statements as batch.<br>
+     * Consecutive statements with identical sql are executed as a single JDBC batch.<br>
+     * The default implementation does not support auto generated keys.
+     * @param sqlCmd the sql statements
+     * @param sqlCmdParams the statement params (optional)
+     * @param sqlCmdGenKeys allows to set the auto generated keys for each statement (optional, INSERT statements only)
+     * @param conn a valid connection to the database.
+     * @return the row counts for each statement
+     * @throws SQLException
+     */
+    public default int[] executeBatch(String[] sqlCmd, Object[][] sqlCmdParams, DBSetGenKeys[] sqlCmdGenKeys, Connection conn)
+        throws SQLException
+    {
+        if (sqlCmdGenKeys!=null)
+        {   // check generated keys
+            for (int i=0; i<sqlCmdGenKeys.length; i++)
+                if (sqlCmdGenKeys[i]!=null)
+                    throw new NotSupportedException(this, "executeBatch");
+        }
+        return executeBatch(sqlCmd, sqlCmdParams, conn);
+    }
     
     /**
      * Executes an select SQL-command and returns the query results
@@ -191,6 +284,25 @@ public interface DBMSHandler
     public ResultSet executeQuery(String sqlCmd, Object[] sqlParams, boolean scrollable, Connection conn)
         throws SQLException;
 
+    /**
+     * Executes an select SQL-command and returns the query results
+     * 
+     * @param sqlCmd the SQL-Command
+     * @param sqlParams array of sql command parameters used for prepared statements (Optional).
+     * @param scrollable true if scrollable or false otherwise
+     * @param fetchSize the number of rows to fetch from the database at once or 0 for the driver default.<br>
+     *        For forward-only queries a positive value enables the streaming mode of the dbms (if any). 
+     *        The default implementation ignores the fetch size.
+     * @param conn a valid connection to the database.
+     * @return the JDBC resultset
+     * @throws SQLException
+     */
+    public default ResultSet executeQuery(String sqlCmd, Object[] sqlParams, boolean scrollable, int fetchSize, Connection conn)
+        throws SQLException
+    {
+        return executeQuery(sqlCmd, sqlParams, scrollable, conn);
+    }
+
     /**
      * Reads a single column value from the given JDBC ResultSet and returns a value object of desired data type. 
      * 
@@ -208,6 +320,81 @@ public interface DBMSHandler
     Object getResultValue(ResultSet rset, int columnIndex, DataType dataType)
         throws SQLException;
 
+    /**
+     * Reads a single column value from the given JDBC ResultSet as a long without creating a value object.
+     * If the value is null, 0 is returned.<br>
+     * The default implementation converts the value returned by getResultValue().
+     *
+     * @param rset the sql Resultset with the current data row
+     * @param columnIndex one based column Index of the desired column
+     * @param dataType the data type of the column
+     *
+     * @return the value of the Column or 0 if the value is null
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    default long getResultLong(ResultSet rset, int columnIndex, DataType dataType)
+        throws SQLException
+    {
+        return ObjectUtils.getLong(getResultValue(rset, columnIndex, dataType));
+    }
+
+    /**
+     * Reads a single column value from the given JDBC ResultSet as a double without creating a value object.
+     * If the value is null, 0.0 is returned.<br>
+     * The default implementation converts the value returned by getResultValue().
+     *
+     * @param rset the sql Resultset with the current data row
+     * @param columnIndex one based column Index of the desired column
+     * @param dataType the data type of the column
+     *
+     * @return the value of the Column or 0.0 if the value is null
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    default double getResultDouble(ResultSet rset, int columnIndex, DataType dataType)
+        throws SQLException
+    {
+        return ObjectUtils.getDouble(getResultValue(rset, columnIndex, dataType));
+    }
+
+    /**
+     * Reads a single column value from the given JDBC ResultSet as a boolean without creating a value object.
+     * If the value is null, false is returned.<br>
+     * The default implementation converts the value returned by getResultValue().
+     *
+     * @param rset the sql Resultset with the current data row
+     * @param columnIndex one based column Index of the desired column
+     * @param dataType the data type of the column
+     *
+     * @return the value of the Column or false if the value is null
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    default boolean getResultBoolean(ResultSet rset, int columnIndex, DataType dataType)
+        throws SQLException
+    {
+        return ObjectUtils.getBoolean(getResultValue(rset, columnIndex, dataType));
+    }
+
+    /**
+     * Checks whether a single column value of the given JDBC ResultSet is null.<br>
+     * The default implementation checks the value returned by getResultValue().
+     *
+     * @param rset the sql Resultset with the current data row
+     * @param columnIndex one based column Index of the desired column
+     * @param dataType the data type of the column
+     *
+     * @return true if the value is null or false otherwise
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    default boolean isResultNull(ResultSet rset, int columnIndex, DataType dataType)
+        throws SQLException
+    {
+        return (getResultValue(rset, columnIndex, dataType)==null);
+    }
+
     /**
      * Closes the provided JDBC Resultset
      * Use it instead of rset.close() and stmt.close() 
@@ -215,7 +402,19 @@ public interface DBMSHandler
      * @param rset a ResultSet object
      */
     void closeResultSet(ResultSet rset);
-    
+
+    /**
+     * Closes and removes all statements cached for the given connection (if any).
+     * Must be called before a connection is closed or returned to the pool.<br>
+     * The default implementation does nothing.
+     * <P>
+     * @param conn the connection for which to clear the cache
+     */
+    default void clearStatementCache(Connection conn)
+    {
+        /* no statement cache */
+    }
+
     /**
      * Appends the required DLL commands to create, drop or alter an object to the supplied DBDQLScript.
      * @param type operation to perform (CREATE, DROP, ALTER)
@@ -253,5 +452,18 @@ public interface DBMSHandler
      * @return the error message of the database 
      */
     String extractErrorMessage(SQLException e);
+
+    /**
+     * Returns whether a statement has failed because it has exceeded its query timeout or because it has been cancelled.<br>
+     * The default implementation only detects a SQLTimeoutException. 
+     * Override this for drivers which report timeouts by an SQLState or a vendor code.
+     * 
+     * @param e the SQLException
+     * @return true if the statement has timed out or has been cancelled
+     */
+    default boolean isQueryTimeout(SQLException e)
+    {
+        return (e instanceof SQLTimeoutException);
+    }
  
 }
\ No newline at end of file
@@ -22,13 +22,21 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
 
 import org.apache.empire.commons.DateUtils;
 import org.apache.empire.commons.ObjectUtils;
@@ -44,14 +52,18 @@ import org.apache.empire.db.DBCommand;
 import org.apache.empire.db.DBCommandExpr;
 import org.apache.empire.db.DBDDLGenerator.DDLActionType;
 import org.apache.empire.db.DBDatabase;
+import org.apache.empire.db.DBExpr;
 import org.apache.empire.db.DBRelation;
 import org.apache.empire.db.DBRowSet;
 import org.apache.empire.db.DBSQLBuilder;
 import org.apache.empire.db.DBSQLScript;
+import org.apache.empire.db.DBStatementControl;
 import org.apache.empire.db.DBTable;
 import org.apache.empire.db.DBTableColumn;
 import org.apache.empire.db.exceptions.EmpireSQLException;
 import org.apache.empire.db.exceptions.QueryFailedException;
+import org.apache.empire.db.monitor.DBStatementListener;
+import org.apache.empire.db.monitor.DBStatementTimer;
 import org.apache.empire.db.validation.DBModelChecker;
 import org.apache.empire.db.validation.DBModelParser;
 import org.apache.empire.exceptions.InvalidArgumentException;
@@ -81,7 +93,20 @@ public abstract class DBMSHandlerBase implements DBMSHandler
 
     // Postfix for auto-generated Sequence names
     protected String SEQUENCE_NAME_SUFFIX = "_SEQ";
-    
+
+    // Max number of params or IN-list values per statement
+    private int maxStatementParams = 1000;
+
+    // Statement cache (disabled by default)
+    private int statementCacheSize = 0;
+    private final Map<Connection, DBStatementCache> statementCacheMap = new ConcurrentHashMap<Connection, DBStatementCache>();
+    private final AtomicLong clearedCacheHits = new AtomicLong();
+    private final AtomicLong clearedCacheMisses = new AtomicLong();
+    private final AtomicLong clearedCacheEvictions = new AtomicLong();
+
+    // Statement listener (optional)
+    private DBStatementListener statementListener = null;
+
     /**
      * DBMSBuilder
      * A Default DBSQLBuilder implementation with no additional features
@@ -108,15 +133,51 @@ public abstract class DBMSHandlerBase implements DBMSHandler
 
     /**
      * This class is used to emulate sequences by using a sequence table.
-     * It is used with the executeSQL function and only required for insert statements
+     * It is used with the executeSQL function and only required for insert statements.<br>
+     * <P>
+     * If the block size is greater than 1, a block of values is reserved with a single round-trip
+     * and handed out from memory (hi/lo allocation). Each sequence has its own allocator,
+     * hence threads only compete for values of the same sequence.<br>
+     * Values reserved but not handed out are lost when the application terminates.<br>
+     * While a block is reserved, no lock is held. Other threads requiring a value of the same sequence
+     * wait for the reservation to complete instead of reserving another block.<br>
+     * If a data source is set (see {@link #setDataSource(DataSource)}), blocks are reserved on a separate connection in auto-commit mode.
+     * Otherwise the block is reserved within the transaction of the connection supplied.
+     * If this transaction is rolled back, another application instance may reserve the same block.
+     * Hence without a data source block allocation should only be used if all inserting applications use block allocation
+     * and transactions are rolled back rarely, or if the connection supplied runs in auto-commit mode. 
      */
     public static class DBSeqTable extends DBTable
     {
         // *Deprecated* private static final long serialVersionUID = 1L;
       
+        /**
+         * SeqBlock
+         * The in-memory allocator of a single sequence
+         */
+        protected static class SeqBlock
+        {
+            private final ReentrantLock lock = new ReentrantLock();
+            private final Condition reserved = lock.newCondition();
+            private boolean reserving = false;
+            private long nextValue = 0;
+            private long maxValue  = -1;
+        }
+
         public DBColumn C_SEQNAME;
         public DBColumn C_SEQVALUE;
         public DBColumn C_TIMESTAMP;
+        
+        private int blockSize = 1;
+        private DataSource dataSource = null;
+        
+        private final ConcurrentHashMap<String, SeqBlock> seqBlocks = new ConcurrentHashMap<String, SeqBlock>();
+        
+        // statistics
+        private final AtomicLong allocationCount = new AtomicLong();
+        private final AtomicLong conflictCount   = new AtomicLong();
+        private final AtomicLong lockWaitCount   = new AtomicLong();
+        private final AtomicLong valueCount      = new AtomicLong();
 
         /**
          * Constructor
@@ -135,8 +196,173 @@ public abstract class DBMSHandlerBase implements DBMSHandler
             setPrimaryKey(new DBColumn[] { C_SEQNAME });
         }
 
+        /**
+         * Returns the number of values reserved with a single database round-trip
+         * @return the block size
+         */
+        public int getBlockSize()
+        {
+            return blockSize;
+        }
+
+        /**
+         * Sets the number of values reserved with a single database round-trip.<br>
+         * Default is 1 which means that every value is obtained from the database.
+         * @param blockSize the block size
+         */
+        public void setBlockSize(int blockSize)
+        {
+            if (blockSize<1)
+                throw new InvalidArgumentException("blockSize", blockSize);
+            this.blockSize = blockSize;
+        }
+
+        /**
+         * Returns the data source used for reserving blocks on a separate connection
+         * @return the data source or null if blocks are reserved on the connection supplied
+         */
+        public DataSource getDataSource()
+        {
+            return dataSource;
+        }
+
+        /**
+         * Sets a data source for reserving blocks on a separate connection in auto-commit mode.<br>
+         * This ensures that a reservation is committed immediately and not undone if the transaction of the caller is rolled back.
+         * Only applicable if the block size is greater than 1.
+         * @param dataSource the data source or null to reserve blocks on the connection supplied
+         */
+        public void setDataSource(DataSource dataSource)
+        {
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * Returns the number of database round-trips performed to reserve values
+         * @return the number of allocations
+         */
+        public long getAllocationCount()
+        {
+            return allocationCount.get();
+        }
+
+        /**
+         * Returns the number of reservations that failed due to a concurrent update and had to be repeated
+         * @return the number of conflicts
+         */
+        public long getConflictCount()
+        {
+            return conflictCount.get();
+        }
+
+        /**
+         * Returns the number of times a thread had to wait for another thread to obtain a value of the same sequence
+         * @return the number of lock waits
+         */
+        public long getLockWaitCount()
+        {
+            return lockWaitCount.get();
+        }
+
+        /**
+         * Returns the total number of values handed out 
+         * @return the number of values
+         */
+        public long getValueCount()
+        {
+            return valueCount.get();
+        }
+
         // Overrideable
         public Object getNextValue(String SeqName, long minValue, Connection conn)
+        {
+            if (blockSize<=1)
+            {   // allocate a single value
+                long seqValue = allocateValues(SeqName, minValue, 1, conn);
+                valueCount.incrementAndGet();
+                return Long.valueOf(seqValue);
+            }
+            // get the allocator
+            SeqBlock block = seqBlocks.get(SeqName);
+            if (block==null)
+            {   block = new SeqBlock();
+                SeqBlock prev = seqBlocks.putIfAbsent(SeqName, block);
+                if (prev!=null)
+                    block = prev;
+            }
+            // obtain the lock
+            if (!block.lock.tryLock())
+            {   lockWaitCount.incrementAndGet();
+                block.lock.lock();
+            }
+            try {
+                while (block.nextValue > block.maxValue || block.nextValue < minValue)
+                {   // block exhausted
+                    if (block.reserving)
+                    {   // wait for the reservation of another thread
+                        lockWaitCount.incrementAndGet();
+                        block.reserved.awaitUninterruptibly();
+                        continue;
+                    }
+                    // reserve a new block without holding the lock (never below values already handed out)
+                    long fromValue = Math.max(minValue, block.maxValue+1);
+                    long start;
+                    block.reserving = true;
+                    block.lock.unlock();
+                    try {
+                        start = reserveBlock(SeqName, fromValue, conn);
+                    } finally {
+                        block.lock.lock();
+                        block.reserving = false;
+                        block.reserved.signalAll();
+                    }
+                    block.nextValue = start;
+                    block.maxValue  = start + blockSize - 1;
+                }
+                valueCount.incrementAndGet();
+                return Long.valueOf(block.nextValue++);
+            } finally {
+                block.lock.unlock();
+            }
+        }
+
+        /**
+         * Reserves a block of values for a sequence.<br>
+         * If a data source is set, the block is reserved on a separate connection in auto-commit mode.
+         * @param SeqName the sequence name
+         * @param minValue the minimum value
+         * @param conn the connection supplied by the caller
+         * @return the first value of the block reserved
+         */
+        protected long reserveBlock(String SeqName, long minValue, Connection conn)
+        {
+            if (dataSource==null)
+                return allocateValues(SeqName, minValue, blockSize, conn);
+            // use a separate connection
+            Connection blockConn = null;
+            try
+            {   blockConn = dataSource.getConnection();
+                if (!blockConn.getAutoCommit())
+                    blockConn.setAutoCommit(true);
+                return allocateValues(SeqName, minValue, blockSize, blockConn);
+            } catch (SQLException e) {
+                // throw exception
+                throw new EmpireSQLException(this, e);
+            } finally
+            { // Cleanup
+                closeConnection(blockConn);
+            }
+        }
+
+        /**
+         * Reserves a range of values for a sequence
+         * @param SeqName the sequence name
+         * @param minValue the minimum value
+         * @param count the number of values to reserve
+         * @param conn the connection
+         * @return the first value of the range reserved
+         */
+        protected long allocateValues(String SeqName, long minValue, int count, Connection conn)
         {
             DBMSHandler dbms = db.getDbms();
             // Create a Command
@@ -158,6 +384,7 @@ public abstract class DBMSHandlerBase implements DBMSHandler
                     stmt.setString(1, SeqName);
                     // Query existing value
                     ResultSet rs = stmt.executeQuery();
+                    allocationCount.incrementAndGet();
                     if (rs.next())
                     { // Read the Sequence Value
                         seqValue = Math.max(rs.getLong(1) + 1, minValue);
@@ -167,7 +394,7 @@ public abstract class DBMSHandlerBase implements DBMSHandler
                         cmd.clear();
                         DBCmdParam name = cmd.addParam(SeqName);
                         DBCmdParam time = cmd.addParam(current);
-                        cmd.set(C_SEQVALUE.to(seqValue));
+                        cmd.set(C_SEQVALUE.to(seqValue + count - 1));
                         cmd.set(C_TIMESTAMP.to(DBDatabase.SYSDATE));
                         cmd.where(C_SEQNAME.is(name));
                         cmd.where(C_TIMESTAMP.is(time));
@@ -183,22 +410,28 @@ public abstract class DBMSHandlerBase implements DBMSHandler
                         // create a new sequence entry
                         cmd.clear();
                         cmd.set(C_SEQNAME.to(SeqName));
-                        cmd.set(C_SEQVALUE.to(seqValue));
+                        cmd.set(C_SEQVALUE.to(seqValue + count - 1));
                         cmd.set(C_TIMESTAMP.to(DBDatabase.SYSDATE));
                         if (dbms.executeSQL(cmd.getInsert(), cmd.getParamValues(), conn, null) < 1)
                             seqValue = 0; // Try again
                     }
                     // check for concurrency problem
                     if (seqValue == 0)
+                    {   conflictCount.incrementAndGet();
                         log.warn("Failed to increment sequence {}. Trying again!", SeqName);
+                    }
                     // close
                     closeStatement(stmt);
                     cmd.clear();
                     rs = null;
                 }
                 if (log.isInfoEnabled())
-                    log.info("Sequence {} incremented to {}.", SeqName, seqValue);
-                return new Long(seqValue);
+                {   if (count>1)
+                        log.info("Sequence {} reserved values {} to {}.", SeqName, seqValue, seqValue + count - 1);
+                    else
+                        log.info("Sequence {} incremented to {}.", SeqName, seqValue);
+                }
+                return seqValue;
             } catch (SQLException e) {
                 // throw exception
                 throw new EmpireSQLException(this, e);
@@ -208,6 +441,21 @@ public abstract class DBMSHandlerBase implements DBMSHandler
             }
         }
 
+        /*
+         * cleanup
+         */
+        private void closeConnection(Connection conn)
+        {
+            try
+            { // Connection close
+                if (conn != null)
+                    conn.close();
+            } catch (SQLException sqle) { 
+                // Just log
+                log.warn("Failed to close the sequence connection: {}", sqle.getMessage());
+            }
+        }
+
         /*
          * cleanup
          */
@@ -238,6 +486,226 @@ public abstract class DBMSHandlerBase implements DBMSHandler
         }
     }
 
+    /**
+     * Returns the maximum number of parameters or IN-list values that should be used in a single statement.
+     * The default of 1000 is accepted by all supported databases.
+     * @return the maximum number of parameters or values per statement
+     */
+    @Override
+    public int getMaxStatementParams()
+    {
+        return maxStatementParams;
+    }
+
+    /**
+     * Sets the maximum number of parameters or IN-list values that should be used in a single statement.
+     * @param maxStatementParams the maximum number of parameters or values per statement
+     */
+    public void setMaxStatementParams(int maxStatementParams)
+    {
+        if (maxStatementParams<1)
+            throw new InvalidArgumentException("maxStatementParams", maxStatementParams);
+        this.maxStatementParams = maxStatementParams;
+    }
+
+    /**
+     * Returns the maximum number of rows that should be inserted with a single bulk insert statement.
+     * The default is limited by getMaxStatementParams()
+     * @param columnCount the number of columns per row
+     * @return the maximum number of rows per statement
+     */
+    @Override
+    public int getMaxBulkInsertRows(int columnCount)
+    {
+        return Math.max(1, getMaxStatementParams() / Math.max(1, columnCount));
+    }
+
+    /**
+     * Appends a multi-row insert statement in the form:
+     *      INSERT INTO table (col1, col2) VALUES (?, ?), (?, ?), ...
+     * @param sql the sql builder
+     * @param rowset the table into which to insert the rows
+     * @param columns the columns for which values are provided
+     * @param rowCount the number of rows
+     */
+    @Override
+    public void appendBulkInsert(DBSQLBuilder sql, DBRowSet rowset, DBColumn[] columns, int rowCount)
+    {
+        sql.append("INSERT INTO ");
+        appendBulkInsertInto(sql, rowset, columns);
+        sql.append(" VALUES ");
+        for (int i=0; i<rowCount; i++)
+        {
+            if (i>0)
+                sql.append(", ");
+            appendBulkInsertValues(sql, columns.length);
+        }
+    }
+
+    /**
+     * Appends the table name and the column list of a bulk insert statement
+     * @param sql the sql builder
+     * @param rowset the table
+     * @param columns the columns
+     */
+    protected void appendBulkInsertInto(DBSQLBuilder sql, DBRowSet rowset, DBColumn[] columns)
+    {
+        rowset.addSQL(sql, DBExpr.CTX_FULLNAME);
+        sql.append(" (");
+        for (int i=0; i<columns.length; i++)
+        {
+            if (i>0)
+                sql.append(", ");
+            columns[i].addSQL(sql, DBExpr.CTX_NAME);
+        }
+        sql.append(")");
+    }
+
+    /**
+     * Appends the parameter list for a single row of a bulk insert statement
+     * @param sql the sql builder
+     * @param columnCount the number of columns
+     */
+    protected void appendBulkInsertValues(DBSQLBuilder sql, int columnCount)
+    {
+        sql.append("(");
+        for (int i=0; i<columnCount; i++)
+            sql.append((i>0) ? ", ?" : "?");
+        sql.append(")");
+    }
+
+    /**
+     * Returns the listener which is notified about executed statements
+     * @return the statement listener or null if none has been set
+     */
+    @Override
+    public DBStatementListener getStatementListener()
+    {
+        return statementListener;
+    }
+
+    /**
+     * Sets a listener which is notified about all statements executed through DBUtils or a DBReader.<br>
+     * If a listener is set, the time spent on preparing statements is measured separately.
+     * @param statementListener the statement listener or null to remove the listener
+     */
+    public void setStatementListener(DBStatementListener statementListener)
+    {
+        this.statementListener = statementListener;
+    }
+
+    /**
+     * Returns the maximum number of prepared statements cached per connection
+     * @return the statement cache size or 0 if statement caching is disabled
+     */
+    public int getStatementCacheSize()
+    {
+        return statementCacheSize;
+    }
+
+    /**
+     * Enables or disables caching of prepared statements.<br>
+     * If enabled, prepared statements are reused for identical sql commands on the same connection.<br>
+     * The context should call clearStatementCache() before a connection is closed or returned to the pool.
+     * Caches of connections which have been closed otherwise are removed when a cache for a new connection is created.
+     * @param statementCacheSize the maximum number of statements cached per connection or 0 to disable caching
+     */
+    public void setStatementCacheSize(int statementCacheSize)
+    {
+        if (statementCacheSize<0)
+            throw new InvalidArgumentException("statementCacheSize", statementCacheSize);
+        this.statementCacheSize = statementCacheSize;
+        log.info("StatementCacheSize has been set to {}", statementCacheSize);
+    }
+
+    /**
+     * Returns the statement cache for a connection
+     * @param conn the connection
+     * @return the statement cache or null if no statements are cached for this connection
+     */
+    public DBStatementCache getStatementCache(Connection conn)
+    {
+        return statementCacheMap.get(conn);
+    }
+
+    /**
+     * Closes and removes all statements cached for the given connection (if any).
+     * @param conn the connection for which to clear the cache
+     */
+    @Override
+    public void clearStatementCache(Connection conn)
+    {
+        if (conn==null)
+            return;
+        DBStatementCache cache = statementCacheMap.remove(conn);
+        if (cache!=null)
+        {   // keep statistics
+            clearedCacheHits.addAndGet(cache.getHitCount());
+            clearedCacheMisses.addAndGet(cache.getMissCount());
+            clearedCacheEvictions.addAndGet(cache.getEvictionCount());
+            cache.clear();
+        }
+    }
+
+    /**
+     * Closes and removes the statement caches of all connections which have been closed 
+     * without calling clearStatementCache() (e.g. pooled connections or other DBContext implementations).<br>
+     * Weak keys are not an option here, since the cached statements hold a reference to their connection.
+     */
+    protected void purgeStatementCaches()
+    {
+        for (Connection conn : statementCacheMap.keySet())
+        {
+            boolean closed;
+            try {
+                closed = conn.isClosed();
+            } catch (SQLException e) {
+                closed = true;
+            }
+            if (closed)
+            {   // remove cache
+                log.debug("Removing statement cache of closed connection {}", conn.hashCode());
+                clearStatementCache(conn);
+            }
+        }
+    }
+
+    /**
+     * Returns the total number of statement cache hits for all connections
+     * @return the hit count
+     */
+    public long getStatementCacheHitCount()
+    {
+        long count = clearedCacheHits.get();
+        for (DBStatementCache cache : statementCacheMap.values())
+            count += cache.getHitCount();
+        return count;
+    }
+
+    /**
+     * Returns the total number of statement cache misses for all connections
+     * @return the miss count
+     */
+    public long getStatementCacheMissCount()
+    {
+        long count = clearedCacheMisses.get();
+        for (DBStatementCache cache : statementCacheMap.values())
+            count += cache.getMissCount();
+        return count;
+    }
+
+    /**
+     * Returns the total number of statements evicted from the statement cache for all connections
+     * @return the eviction count
+     */
+    public long getStatementCacheEvictionCount()
+    {
+        long count = clearedCacheEvictions.get();
+        for (DBStatementCache cache : statementCacheMap.values())
+            count += cache.getEvictionCount();
+        return count;
+    }
+
     /**
      * checks if the database exists
      * The default implementation performs a simple count query on the first table or view
@@ -521,7 +989,113 @@ public abstract class DBMSHandlerBase implements DBMSHandler
             return rset.getObject(columnIndex);
         }
     }
-    
+
+    /**
+     * Reads a single column value from the given JDBC ResultSet as a long.<br>
+     * Numeric columns are read directly using ResultSet.getLong().
+     * All other columns are read using getResultValue() and converted.
+     *
+     * @param rset the sql Resultset with the current data row
+     * @param columnIndex one based column Index of the desired column
+     * @param dataType the data type of the column
+     *
+     * @return the value of the Column or 0 if the value is null
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    @Override
+    public long getResultLong(ResultSet rset, int columnIndex, DataType dataType)
+        throws SQLException
+    {
+        if (dataType == DataType.INTEGER || dataType == DataType.AUTOINC)
+        {   // Read primitive (returns 0 for null)
+            return rset.getLong(columnIndex);
+        }
+        return ObjectUtils.getLong(getResultValue(rset, columnIndex, dataType));
+    }
+
+    /**
+     * Reads a single column value from the given JDBC ResultSet as a double.<br>
+     * Numeric columns are read directly using ResultSet.getDouble().
+     * All other columns are read using getResultValue() and converted.
+     *
+     * @param rset the sql Resultset with the current data row
+     * @param columnIndex one based column Index of the desired column
+     * @param dataType the data type of the column
+     *
+     * @return the value of the Column or 0.0 if the value is null
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    @Override
+    public double getResultDouble(ResultSet rset, int columnIndex, DataType dataType)
+        throws SQLException
+    {
+        if (dataType.isNumeric())
+        {   // Read primitive (returns 0.0 for null)
+            return rset.getDouble(columnIndex);
+        }
+        return ObjectUtils.getDouble(getResultValue(rset, columnIndex, dataType));
+    }
+
+    /**
+     * Reads a single column value from the given JDBC ResultSet as a boolean.<br>
+     * Boolean columns are read directly using ResultSet.getBoolean().
+     * All other columns are read using getResultValue() and converted.
+     *
+     * @param rset the sql Resultset with the current data row
+     * @param columnIndex one based column Index of the desired column
+     * @param dataType the data type of the column
+     *
+     * @return the value of the Column or false if the value is null
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    @Override
+    public boolean getResultBoolean(ResultSet rset, int columnIndex, DataType dataType)
+        throws SQLException
+    {
+        if (dataType == DataType.BOOL)
+        {   // Read primitive (returns false for null)
+            return rset.getBoolean(columnIndex);
+        }
+        return ObjectUtils.getBoolean(getResultValue(rset, columnIndex, dataType));
+    }
+
+    /**
+     * Checks whether a single column value of the given JDBC ResultSet is null.<br>
+     * Numeric and boolean columns are checked without creating a value object.
+     *
+     * @param rset the sql Resultset with the current data row
+     * @param columnIndex one based column Index of the desired column
+     * @param dataType the data type of the column
+     *
+     * @return true if the value is null or false otherwise
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    @Override
+    public boolean isResultNull(ResultSet rset, int columnIndex, DataType dataType)
+        throws SQLException
+    {
+        switch(dataType)
+        {
+            case INTEGER:
+            case AUTOINC:
+                rset.getLong(columnIndex);
+                break;
+            case FLOAT:
+                rset.getDouble(columnIndex);
+                break;
+            case BOOL:
+                rset.getBoolean(columnIndex);
+                break;
+            default:
+                rset.getObject(columnIndex);
+        }
+        return rset.wasNull();
+    }
+
     /**
      * Executes the select, update or delete SQL-Command with a Statement object.
      * 
@@ -544,16 +1118,19 @@ public abstract class DBMSHandlerBase implements DBMSHandler
             int count = 0;
             if (sqlParams!=null)
             {   // Use a prepared statement
-                PreparedStatement pstmt = (genKeys!=null) 
-                    ? conn.prepareStatement(sqlCmd, Statement.RETURN_GENERATED_KEYS)
-                    : conn.prepareStatement(sqlCmd);
+                long start = (statementListener!=null ? System.nanoTime() : 0);
+                PreparedStatement pstmt = createPreparedStatement(conn, sqlCmd, ResultSet.TYPE_FORWARD_ONLY, (genKeys!=null));
                 stmt = pstmt;
                 prepareStatement(pstmt, sqlParams); 
+                applyStatementControl(pstmt);
+                if (statementListener!=null)
+                    DBStatementTimer.addPrepareNanos(System.nanoTime()-start);
                 count = pstmt.executeUpdate(); 
             }
             else
             {   // Execute a simple statement
                 stmt = conn.createStatement();
+                applyStatementControl(stmt);
                 count = (genKeys!=null)
                     ? stmt.executeUpdate(sqlCmd, Statement.RETURN_GENERATED_KEYS)
                     : stmt.executeUpdate(sqlCmd);
@@ -574,6 +1151,11 @@ public abstract class DBMSHandlerBase implements DBMSHandler
             }
             // done
             return count;
+        } catch(SQLException e) {
+            // don't reuse
+            discardStatement(stmt);
+            stmt = null;
+            throw e;
         } finally {
             closeStatement(stmt);
         }
@@ -590,19 +1172,37 @@ public abstract class DBMSHandlerBase implements DBMSHandler
     @Override
     public int[] executeBatch(String[] sqlCmd, Object[][] sqlCmdParams, Connection conn)
         throws SQLException
+    {
+        return executeBatch(sqlCmd, sqlCmdParams, null, conn);
+    }
+
+    /**
+     * Executes a list of sql statements as batch
+     * @param sqlCmd the sql statements
+     * @param sqlCmdParams the statement params (optional)
+     * @param sqlCmdGenKeys allows to set the auto generated keys for each statement (optional)
+     * @param conn the connection
+     * @return the row counts for each statement
+     * @throws SQLException
+     */
+    @Override
+    public int[] executeBatch(String[] sqlCmd, Object[][] sqlCmdParams, DBSetGenKeys[] sqlCmdGenKeys, Connection conn)
+        throws SQLException
     {   // Execute the Statement
-        if (sqlCmdParams!=null)
+        if (sqlCmdParams!=null || sqlCmdGenKeys!=null)
         {   // Use a prepared statement
             PreparedStatement pstmt = null;
             try
             {
                 int pos=0;
                 String lastCmd = null;
+                boolean genKeys = false;
                 int[] result = new int[sqlCmd.length];
                 for (int i=0; i<=sqlCmd.length; i++)
                 {   // get cmd
                     String cmd = (i<sqlCmd.length ? sqlCmd[i] : null);
-                    if (StringUtils.compareEqual(cmd, lastCmd, true)==false)
+                    boolean hasGenKeys = (cmd!=null && sqlCmdGenKeys!=null && sqlCmdGenKeys[i]!=null);
+                    if (StringUtils.compareEqual(cmd, lastCmd, true)==false || hasGenKeys!=genKeys)
                     {   // close last statement
                         if (pstmt!=null)
                         {   // execute and close
@@ -610,6 +1210,9 @@ public abstract class DBMSHandlerBase implements DBMSHandler
                             int[] res = pstmt.executeBatch();
                             for (int j=0; j<res.length; j++)
                                 result[pos+j]=res[j];
+                            // Retrieve any auto-generated keys
+                            if (genKeys)
+                                setBatchGeneratedKeys(pstmt, sqlCmdGenKeys, pos, res.length);
                             pos+=res.length;
                             closeStatement(pstmt);
                             pstmt = null;
@@ -620,19 +1223,26 @@ public abstract class DBMSHandlerBase implements DBMSHandler
                         // new statement
                         if (log.isTraceEnabled())
                             log.trace("Creating prepared statement for batch: {}", cmd);
-                        pstmt = conn.prepareStatement(cmd);
+                        pstmt = createPreparedStatement(conn, cmd, ResultSet.TYPE_FORWARD_ONLY, hasGenKeys);
+                        applyStatementControl(pstmt);
                         lastCmd = cmd;
+                        genKeys = hasGenKeys;
                     }
                     // add batch
-                    if (sqlCmdParams[i]!=null)
+                    if (sqlCmdParams!=null && sqlCmdParams[i]!=null)
                     {   
                         prepareStatement(pstmt, sqlCmdParams[i]); 
                     }   
                     if (log.isTraceEnabled())
-                        log.trace("Adding batch with {} params.", (sqlCmdParams[i]!=null ? sqlCmdParams[i].length : 0));
+                        log.trace("Adding batch with {} params.", (sqlCmdParams!=null && sqlCmdParams[i]!=null ? sqlCmdParams[i].length : 0));
                     pstmt.addBatch();
                 }
                 return result; 
+            } catch(SQLException e) {
+                // don't reuse
+                discardStatement(pstmt);
+                pstmt = null;
+                throw e;
             } finally {
                 closeStatement(pstmt);
             }
@@ -641,6 +1251,7 @@ public abstract class DBMSHandlerBase implements DBMSHandler
         {   // Execute a simple statement
             Statement stmt = conn.createStatement();
             try {
+                applyStatementControl(stmt);
                 for (int i=0; i<sqlCmd.length; i++)
                 {
                     String cmd = sqlCmd[i];
@@ -656,6 +1267,35 @@ public abstract class DBMSHandlerBase implements DBMSHandler
             }
         }
     }
+
+    /**
+     * Reads the auto-generated keys after executing a batch and passes them to the corresponding statements.<br>
+     * The driver is expected to return one key for each row inserted, otherwise an SQLException is thrown.
+     * @param pstmt the statement that has been executed
+     * @param sqlCmdGenKeys the generated key handlers for each statement
+     * @param pos the index of the first statement of the batch
+     * @param count the number of statements of the batch
+     * @throws SQLException
+     */
+    protected void setBatchGeneratedKeys(Statement pstmt, DBSetGenKeys[] sqlCmdGenKeys, int pos, int count)
+        throws SQLException
+    {
+        ResultSet rs = pstmt.getGeneratedKeys();
+        try {
+            int rownum = 0;
+            while(rownum<count && rs.next())
+            {
+                sqlCmdGenKeys[pos+rownum].set(0, rs.getObject(1));
+                rownum++;
+            }
+            if (rownum<count)
+            {   // the identity of the remaining records is unknown
+                throw new SQLException("Batch returned only "+String.valueOf(rownum)+" generated keys for "+String.valueOf(count)+" statements. The driver may not support generated keys for batches.");
+            }
+        } finally {
+            rs.close();
+        }
+    }
     
     /**
      * Executes an select SQL-command and returns the query results
@@ -671,6 +1311,26 @@ public abstract class DBMSHandlerBase implements DBMSHandler
     public ResultSet executeQuery(String sqlCmd, Object[] sqlParams, boolean scrollable, Connection conn)
         throws SQLException
     {
+        return executeQuery(sqlCmd, sqlParams, scrollable, 0, conn);
+    }
+
+    /**
+     * Executes an select SQL-command and returns the query results
+     * 
+     * @param sqlCmd the SQL-Command
+     * @param sqlParams array of sql command parameters used for prepared statements (Optional).
+     * @param scrollable true if scrollable or false otherwise
+     * @param fetchSize the number of rows to fetch from the database at once or 0 for the driver default.
+     * @param conn a valid connection to the database.
+     * @return the JDBC resultset
+     * @throws SQLException
+     */
+    @Override
+    public ResultSet executeQuery(String sqlCmd, Object[] sqlParams, boolean scrollable, int fetchSize, Connection conn)
+        throws SQLException
+    {
+        if (fetchSize<0)
+            throw new InvalidArgumentException("fetchSize", fetchSize);
         Statement stmt = null;
         try
         {   // Set scroll type
@@ -679,24 +1339,98 @@ public abstract class DBMSHandlerBase implements DBMSHandler
             // Create an execute a query statement
             if (sqlParams!=null)
             {   // Use prepared statement
-                PreparedStatement pstmt = conn.prepareStatement(sqlCmd, type, ResultSet.CONCUR_READ_ONLY);
+                long start = (statementListener!=null ? System.nanoTime() : 0);
+                PreparedStatement pstmt = createPreparedStatement(conn, sqlCmd, type, false);
                 stmt = pstmt;
                 prepareStatement(pstmt, sqlParams); 
+                setFetchSize(pstmt, fetchSize, conn);
+                applyStatementControl(pstmt);
+                if (statementListener!=null)
+                    DBStatementTimer.addPrepareNanos(System.nanoTime()-start);
                 return pstmt.executeQuery();
             } else
             {   // Use simple statement
                 stmt = conn.createStatement(type, ResultSet.CONCUR_READ_ONLY);
+                setFetchSize(stmt, fetchSize, conn);
+                applyStatementControl(stmt);
                 return stmt.executeQuery(sqlCmd);
             }
         } catch(SQLException e) {
             // close statement (if not null)
             if (log.isDebugEnabled())
                 log.debug("Error executeQuery '"+sqlCmd+"' --> "+e.getMessage(), e);
-            closeStatement(stmt);
+            discardStatement(stmt);
             throw e;
         }
     }
 
+    /**
+     * Sets the fetch size for a query statement.<br>
+     * Overwrite this function in order to enable a DBMS specific streaming mode.
+     * 
+     * @param stmt the query statement
+     * @param fetchSize the number of rows to fetch from the database at once or 0 for the driver default
+     * @param conn the connection
+     * @throws SQLException
+     */
+    protected void setFetchSize(Statement stmt, int fetchSize, Connection conn)
+        throws SQLException
+    {
+        // Cached statements may have a different fetch size from a previous use
+        if (fetchSize>0 || stmt.getFetchSize()!=0)
+            stmt.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Applies the statement control of the current thread (if any) to a statement that is about to be executed.<br>
+     * This sets the query timeout and attaches the statement to the cancel handle (see DBStatementControl).
+     * 
+     * @param stmt the statement
+     * @throws SQLException if the deadline has passed or the statement has been cancelled
+     */
+    protected void applyStatementControl(Statement stmt)
+        throws SQLException
+    {
+        DBStatementControl control = DBStatementControl.getCurrent();
+        if (control==null)
+        {   // reset cached statements
+            setQueryTimeout(stmt, 0);
+            return;
+        }
+        if (control.isDeadlineExceeded())
+            throw new SQLTimeoutException("The deadline for executing the statement has passed.");
+        setQueryTimeout(stmt, control.getEffectiveTimeout());
+        if (control.getCancelHandle()!=null)
+            control.getCancelHandle().attach(stmt);
+    }
+
+    /**
+     * Sets the query timeout for a statement.<br>
+     * Overwrite this function if the dbms requires a different way of setting a timeout.
+     * 
+     * @param stmt the statement
+     * @param seconds the timeout in seconds or 0 for no timeout
+     * @throws SQLException
+     */
+    protected void setQueryTimeout(Statement stmt, int seconds)
+        throws SQLException
+    {
+        // Cached statements may have a different timeout from a previous use
+        if (seconds>0 || stmt.getQueryTimeout()!=0)
+            stmt.setQueryTimeout(seconds);
+    }
+
+    /**
+     * Detaches a statement that is closed from the cancel handle of the current thread (if any)
+     * @param stmt the statement
+     */
+    protected void detachStatementControl(Statement stmt)
+    {
+        DBStatementControl control = DBStatementControl.getCurrent();
+        if (control!=null && control.getCancelHandle()!=null)
+            control.getCancelHandle().detach(stmt);
+    }
+
     /**
      * Query a single value 
      * @return the value of the first column in the first row of the query 
@@ -795,11 +1529,8 @@ public abstract class DBMSHandlerBase implements DBMSHandler
             // close Resultset
             Statement stmt = rset.getStatement();
             rset.close();
-            // check Statement
-            if (stmt == null)
-                return;
-            // close Statement
-            stmt.close();
+            // close or release Statement
+            closeStatement(stmt);
             // done
             return;
         } catch (SQLException sqle) { 
@@ -811,6 +1542,7 @@ public abstract class DBMSHandlerBase implements DBMSHandler
      /**
      * Convenience function for closing a JDBC Resultset<BR>
      * Use it instead of stmt.close()<BR> 
+     * If the statement is owned by the statement cache, it is returned to the cache instead of being closed.
      * <P>
      * @param stmt a Statement object
      */
@@ -818,8 +1550,15 @@ public abstract class DBMSHandlerBase implements DBMSHandler
     {
         try
         { // Statement close
-            if (stmt != null)
-                stmt.close();
+            if (stmt == null)
+                return;
+            detachStatementControl(stmt);
+            // release cached statement
+            DBStatementCache cache = (statementCacheMap.isEmpty() ? null : statementCacheMap.get(stmt.getConnection()));
+            if (cache!=null && cache.release(stmt))
+                return;
+            // close
+            stmt.close();
             // done
             return;
         } catch (SQLException sqle) { 
@@ -828,6 +1567,81 @@ public abstract class DBMSHandlerBase implements DBMSHandler
         }
     }
 
+    /**
+     * Closes a statement without returning it to the statement cache.<BR>
+     * This is used after a statement has failed.
+     * Other than closeStatement() this function does not throw any exception
+     * <P>
+     * @param stmt a Statement object
+     */
+    protected void discardStatement(Statement stmt)
+    {
+        try
+        {   // Statement close
+            if (stmt == null)
+                return;
+            detachStatementControl(stmt);
+            // remove from cache
+            DBStatementCache cache = (statementCacheMap.isEmpty() ? null : statementCacheMap.get(stmt.getConnection()));
+            if (cache!=null)
+                cache.remove(stmt);
+            // close
+            stmt.close();
+        } catch (SQLException sqle) { 
+            // Just log
+            log.warn("Failed to close statement: {}", sqle.getMessage());
+        }
+    }
+
+    /**
+     * Creates a prepared statement for a given sql command.<BR>
+     * If statement caching is enabled a cached statement is returned if available.<BR>
+     * After execution the statement must be closed using closeStatement() or closeResultSet().
+     * <P>
+     * @param conn the connection
+     * @param sqlCmd the sql command
+     * @param resultSetType the result set type
+     * @param returnGeneratedKeys flag whether to return generated keys
+     * @return the prepared statement
+     * @throws SQLException
+     */
+    protected PreparedStatement createPreparedStatement(Connection conn, String sqlCmd, int resultSetType, boolean returnGeneratedKeys)
+        throws SQLException
+    {
+        DBStatementCache cache = null;
+        DBStatementCache.StatementKey key = null;
+        if (statementCacheSize>0)
+        {   // get or create the cache for this connection
+            cache = statementCacheMap.get(conn);
+            if (cache==null)
+            {   // remove caches of closed connections
+                purgeStatementCaches();
+                // create new
+                cache = new DBStatementCache(statementCacheSize);
+                DBStatementCache prev = statementCacheMap.putIfAbsent(conn, cache);
+                if (prev!=null)
+                    cache = prev;
+            }
+            // find statement
+            key = new DBStatementCache.StatementKey(sqlCmd, resultSetType, returnGeneratedKeys);
+            PreparedStatement pstmt = cache.get(key);
+            if (pstmt!=null)
+            {   // reuse
+                if (log.isTraceEnabled())
+                    log.trace("Reusing cached statement for: {}", sqlCmd);
+                pstmt.clearParameters();
+                return pstmt;
+            }
+        }
+        // Prepare a new statement
+        PreparedStatement pstmt = (returnGeneratedKeys) 
+            ? conn.prepareStatement(sqlCmd, Statement.RETURN_GENERATED_KEYS)
+            : conn.prepareStatement(sqlCmd, resultSetType, ResultSet.CONCUR_READ_ONLY);
+        if (cache!=null)
+            cache.put(key, pstmt);
+        return pstmt;
+    }
+
     /**
      * Prepares an sql statement by setting the supplied objects as parameters.
      * 
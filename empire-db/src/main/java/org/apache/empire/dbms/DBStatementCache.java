@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.dbms;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.empire.exceptions.InvalidArgumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DBStatementCache
+ * A least-recently-used cache of PreparedStatements for a single JDBC connection.<br>
+ * Statements are leased to the caller by get() or put() and must be returned by release() after use.<br>
+ * While a statement is leased it is not available to other callers, hence a second request for the same sql
+ * while the first is still open (e.g. nested readers) will simply prepare a new statement.<br>
+ * Statements that are evicted from the cache are closed immediately.
+ */
+public class DBStatementCache
+{
+    private static final Logger log = LoggerFactory.getLogger(DBStatementCache.class);
+
+    /**
+     * StatementKey
+     * Identifies a prepared statement by its sql text, the result set type and the generated keys mode
+     */
+    public static final class StatementKey
+    {
+        private final String  sqlCmd;
+        private final int     resultSetType;
+        private final boolean returnGeneratedKeys;
+        private final int     hashCode;
+
+        public StatementKey(String sqlCmd, int resultSetType, boolean returnGeneratedKeys)
+        {
+            if (sqlCmd==null)
+                throw new InvalidArgumentException("sqlCmd", sqlCmd);
+            this.sqlCmd = sqlCmd;
+            this.resultSetType = resultSetType;
+            this.returnGeneratedKeys = returnGeneratedKeys;
+            this.hashCode = (sqlCmd.hashCode() * 31 + resultSetType) * 31 + (returnGeneratedKeys ? 1 : 0);
+        }
+
+        public String getSqlCmd()
+        {
+            return sqlCmd;
+        }
+
+        public int getResultSetType()
+        {
+            return resultSetType;
+        }
+
+        public boolean isReturnGeneratedKeys()
+        {
+            return returnGeneratedKeys;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (other==this)
+                return true;
+            if (!(other instanceof StatementKey))
+                return false;
+            StatementKey key = (StatementKey)other;
+            return (key.resultSetType==resultSetType
+                 && key.returnGeneratedKeys==returnGeneratedKeys
+                 && key.sqlCmd.equals(sqlCmd));
+        }
+    }
+
+    private final int maxSize;
+    // idle statements in access order
+    private final LinkedHashMap<StatementKey, PreparedStatement> idleStatements;
+    // statements currently in use
+    private final Map<Statement, StatementKey> leasedStatements;
+    // statistics
+    private long hitCount      = 0;
+    private long missCount     = 0;
+    private long evictionCount = 0;
+
+    /**
+     * Creates a statement cache
+     * @param maxSize the maximum number of idle statements held by this cache
+     */
+    public DBStatementCache(int maxSize)
+    {
+        if (maxSize<1)
+            throw new InvalidArgumentException("maxSize", maxSize);
+        this.maxSize = maxSize;
+        this.idleStatements = new LinkedHashMap<StatementKey, PreparedStatement>(16, 0.75f, true);
+        this.leasedStatements = new IdentityHashMap<Statement, StatementKey>();
+    }
+
+    /**
+     * Returns the maximum number of idle statements held by this cache
+     * @return the maximum number of statements
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of idle statements currently held by this cache
+     * @return the number of idle statements
+     */
+    public synchronized int size()
+    {
+        return idleStatements.size();
+    }
+
+    /**
+     * Returns the number of requests that were satisfied by a cached statement
+     * @return the hit count
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of requests for which no cached statement was available
+     * @return the miss count
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of statements that have been closed in order to make room for others
+     * @return the eviction count
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    /**
+     * Returns a cached statement for the given key and leases it to the caller.<br>
+     * If no idle statement is available null is returned and the caller must prepare a new statement and put() it.
+     * @param key the statement key
+     * @return the leased statement or null
+     */
+    public synchronized PreparedStatement get(StatementKey key)
+    {
+        PreparedStatement pstmt = idleStatements.remove(key);
+        if (pstmt!=null && isClosed(pstmt)==false)
+        {   // found
+            leasedStatements.put(pstmt, key);
+            hitCount++;
+            return pstmt;
+        }
+        // not available
+        missCount++;
+        return null;
+    }
+
+    /**
+     * Adds a newly prepared statement to the cache and leases it to the caller
+     * @param key the statement key
+     * @param pstmt the prepared statement
+     */
+    public synchronized void put(StatementKey key, PreparedStatement pstmt)
+    {
+        if (pstmt==null)
+            throw new InvalidArgumentException("pstmt", pstmt);
+        leasedStatements.put(pstmt, key);
+    }
+
+    /**
+     * Returns a leased statement to the cache.<br>
+     * If the cache is full the least recently used statement will be closed.
+     * @param stmt the statement
+     * @return true if the statement is owned by the cache or false if the caller must close it
+     */
+    public synchronized boolean release(Statement stmt)
+    {
+        StatementKey key = leasedStatements.remove(stmt);
+        if (key==null)
+            return false; // not cached
+        // put back
+        PreparedStatement prev = idleStatements.put(key, (PreparedStatement)stmt);
+        if (prev!=null && prev!=stmt)
+            closeStatement(prev);
+        // evict least recently used
+        Iterator<PreparedStatement> it = idleStatements.values().iterator();
+        while (idleStatements.size()>maxSize && it.hasNext())
+        {   // close and remove
+            PreparedStatement eldest = it.next();
+            it.remove();
+            closeStatement(eldest);
+            evictionCount++;
+        }
+        return true;
+    }
+
+    /**
+     * Removes a leased statement from the cache, e.g. after it has failed.<br>
+     * The caller is responsible for closing the statement.
+     * @param stmt the statement
+     * @return true if the statement has been removed or false if it was not owned by the cache
+     */
+    public synchronized boolean remove(Statement stmt)
+    {
+        return (leasedStatements.remove(stmt)!=null);
+    }
+
+    /**
+     * Closes all idle statements.<br>
+     * Statements that are currently leased are no longer owned by the cache and will be closed on release.
+     */
+    public synchronized void clear()
+    {
+        if (log.isDebugEnabled())
+            log.debug("Clearing statement cache with {} statements. Hits={} Misses={} Evictions={}", idleStatements.size(), hitCount, missCount, evictionCount);
+        for (PreparedStatement pstmt : idleStatements.values())
+            closeStatement(pstmt);
+        idleStatements.clear();
+        leasedStatements.clear();
+    }
+
+    /*
+     * helpers
+     */
+    private boolean isClosed(Statement stmt)
+    {
+        try {
+            return stmt.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private void closeStatement(Statement stmt)
+    {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            log.warn("Failed to close cached statement: {}", e.getMessage());
+        }
+    }
+}
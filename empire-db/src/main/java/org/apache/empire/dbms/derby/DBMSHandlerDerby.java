@@ -55,6 +55,7 @@ public class DBMSHandlerDerby extends DBMSHandlerBase
     // When set to 'false' (default) Derby's autoincrement feature is used.
     private boolean useSequenceTable = false;
     private String sequenceTableName = "Sequences";
+    private int sequenceBlockSize = 1;
 
     private DBDDLGenerator<?> ddlGenerator = null; // lazy creation
     
@@ -127,6 +128,37 @@ public class DBMSHandlerDerby extends DBMSHandlerBase
         this.sequenceTableName = sequenceTableName;
     }
 
+    /**
+     * returns the number of sequence values reserved with a single round-trip if a sequence table is used
+     * @return the sequence block size
+     */
+    public int getSequenceBlockSize()
+    {
+        return sequenceBlockSize;
+    }
+
+    /**
+     * Sets the number of sequence values reserved with a single round-trip.<br>
+     * Only applicable if useSequenceTable is set to true. Must be set before the database is attached.
+     * @see DBSeqTable#setBlockSize(int)
+     * @param sequenceBlockSize the sequence block size
+     */
+    public void setSequenceBlockSize(int sequenceBlockSize)
+    {
+        this.sequenceBlockSize = sequenceBlockSize;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void attachDatabase(DBDatabase db, Connection conn)
+    {
+        // Sequence Table
+        if (useSequenceTable && db.getTable(sequenceTableName)==null)
+            new DBSeqTable(sequenceTableName, db).setBlockSize(sequenceBlockSize);
+        // call Base implementation
+        super.attachDatabase(db, conn);
+    }
+
     /**
      * Returns whether or not a particular feature is supported by this dbms
      * @param type type of requrested feature. @see DBMSFeature
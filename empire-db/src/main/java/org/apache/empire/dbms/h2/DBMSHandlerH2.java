@@ -19,9 +19,11 @@
 package org.apache.empire.dbms.h2;
 
 import java.sql.Connection;
+import java.util.Arrays;
 import java.util.GregorianCalendar;
 
 import org.apache.empire.data.DataType;
+import org.apache.empire.db.DBColumn;
 import org.apache.empire.db.DBColumnExpr;
 import org.apache.empire.db.DBCommand;
 import org.apache.empire.db.DBDDLGenerator;
@@ -66,6 +68,28 @@ public class DBMSHandlerH2 extends DBMSHandlerBase
         {
             super(dbms, autoPrepareStmt);
         }
+
+        /**
+         * Creates a statement in the form:
+         *      MERGE INTO table (cols) KEY (conflictCols) VALUES (vals)
+         */
+        @Override
+        public String getUpsert(DBTable table, DBColumn... conflictColumns)
+        {
+            resetParamUsage();
+            conflictColumns = getUpsertConflictColumns(table, conflictColumns);
+            DBSQLBuilder sql = createSQLBuilder("MERGE INTO ");
+            table.addSQL(sql, CTX_FULLNAME);
+            sql.append(" (");
+            addListExpr(sql, set, CTX_NAME, ", ");
+            sql.append(") KEY (");
+            addListExpr(sql, Arrays.asList(conflictColumns), CTX_NAME, ", ");
+            sql.append(")\r\nVALUES (");
+            addListExpr(sql, set, CTX_VALUE, ", ");
+            sql.append(")");
+            completeParamUsage();
+            return sql.toString();
+        }
     
 	    @Override
 	    public DBCommand limitRows(int limitRows)
@@ -213,6 +237,7 @@ public class DBMSHandlerH2 extends DBMSHandlerBase
             case SEQUENCES:     	return useSequenceTable;    
             case QUERY_LIMIT_ROWS:  return true;
             case QUERY_SKIP_ROWS:   return true;
+            case UPSERT:            return true;
             default:
                 // All other features are not supported by default
                 return false;
@@ -239,8 +264,8 @@ public class DBMSHandlerH2 extends DBMSHandlerBase
             case SQL_QUOTES_CLOSE:            return "\"";
             case SQL_CONCAT_EXPR:             return "concat(?, {0})";
             // data types
-            case SQL_BOOLEAN_TRUE:            return "1";
-            case SQL_BOOLEAN_FALSE:           return "0";
+            case SQL_BOOLEAN_TRUE:            return "TRUE";
+            case SQL_BOOLEAN_FALSE:           return "FALSE";
             case SQL_CURRENT_DATE:            return "CURRENT_DATE";
             case SQL_DATE_PATTERN:            return "yyyy-MM-dd";
             case SQL_DATE_TEMPLATE:           return "'{0}'";
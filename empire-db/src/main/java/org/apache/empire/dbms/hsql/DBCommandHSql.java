@@ -27,6 +27,7 @@ import org.apache.empire.db.DBColumnExpr;
 import org.apache.empire.db.DBCommand;
 import org.apache.empire.db.DBRowSet;
 import org.apache.empire.db.DBSQLBuilder;
+import org.apache.empire.db.DBTable;
 import org.apache.empire.db.exceptions.NoPrimaryKeyException;
 import org.apache.empire.db.expr.column.DBAliasExpr;
 import org.apache.empire.db.expr.column.DBValueExpr;
@@ -50,6 +51,15 @@ public class DBCommandHSql extends DBCommand
         super(dbms, autoPrepareStmt);
     }
 
+    /**
+     * Creates a MERGE statement
+     */
+    @Override
+    public String getUpsert(DBTable table, DBColumn... conflictColumns)
+    {
+        return getMergeUpsert(table, conflictColumns);
+    }
+
     @Override
     public DBCommandHSql limitRows(int limitRows)
     {
@@ -79,6 +79,7 @@ public class DBMSHandlerHSql extends DBMSHandlerBase
             case SEQUENCES:         return true;
             case QUERY_LIMIT_ROWS:  return true;
             case QUERY_SKIP_ROWS:   return true;
+            case UPSERT:            return true;
             default:
                 // All other features are not supported by default
                 return false;
@@ -19,11 +19,15 @@
 package org.apache.empire.dbms.mysql;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.GregorianCalendar;
+import java.util.List;
 
 import org.apache.empire.commons.StringUtils;
 import org.apache.empire.data.DataType;
+import org.apache.empire.db.DBColumn;
 import org.apache.empire.db.DBColumnExpr;
 import org.apache.empire.db.DBCombinedCmd;
 import org.apache.empire.db.DBCommand;
@@ -38,6 +42,7 @@ import org.apache.empire.db.DBSQLScript;
 import org.apache.empire.db.DBTable;
 import org.apache.empire.db.DBTableColumn;
 import org.apache.empire.db.exceptions.EmpireSQLException;
+import org.apache.empire.db.expr.set.DBSetExpr;
 import org.apache.empire.dbms.DBMSFeature;
 import org.apache.empire.dbms.DBMSHandler;
 import org.apache.empire.dbms.DBMSHandlerBase;
@@ -71,6 +76,43 @@ public class DBMSHandlerMySQL extends DBMSHandlerBase
         {
             super(dbms, autoPrepareStmt);
         }
+
+        /**
+         * Creates an INSERT ... ON DUPLICATE KEY UPDATE statement.
+         * Note: MySQL detects the conflict on any primary key or unique index, the conflict columns are only checked.
+         */
+        @Override
+        public String getUpsert(DBTable table, DBColumn... conflictColumns)
+        {
+            resetParamUsage();
+            conflictColumns = getUpsertConflictColumns(table, conflictColumns);
+            DBSQLBuilder sql = createSQLBuilder("INSERT INTO ");
+            table.addSQL(sql, CTX_FULLNAME);
+            sql.append(" (");
+            addListExpr(sql, set, CTX_NAME, ", ");
+            sql.append(")\r\nVALUES (");
+            addListExpr(sql, set, CTX_VALUE, ", ");
+            sql.append(")\r\nON DUPLICATE KEY UPDATE ");
+            List<DBSetExpr> updateList = getUpsertUpdateList(conflictColumns);
+            if (updateList.isEmpty())
+            {   // no update: assign first conflict column to itself 
+                conflictColumns[0].addSQL(sql, CTX_NAME);
+                sql.append("=");
+                conflictColumns[0].addSQL(sql, CTX_NAME);
+            }
+            for (int i=0; i<updateList.size(); i++)
+            {
+                DBColumn column = updateList.get(i).getColumn();
+                if (i>0)
+                    sql.append(", ");
+                column.addSQL(sql, CTX_NAME);
+                sql.append("=VALUES(");
+                column.addSQL(sql, CTX_NAME);
+                sql.append(")");
+            }
+            completeParamUsage();
+            return sql.toString();
+        }
         
         @Override
         public DBCommand limitRows(int numRows)
@@ -165,6 +207,10 @@ public class DBMSHandlerMySQL extends DBMSHandlerBase
     // When set to 'false' (default) MySQL's autoincrement feature is used.
     private boolean useSequenceTable = false;
     private String sequenceTableName = "Sequences";
+    private int sequenceBlockSize = 1;
+    // Fetch treatment
+    // When set to 'false' (default) row streaming is used for queries with a fetch size
+    private boolean useCursorFetch = false;
     private String engine; // The database engine to use when creating new tables
 
     private DBDDLGenerator<?> ddlGenerator = null; // lazy creation
@@ -899,6 +945,46 @@ public class DBMSHandlerMySQL extends DBMSHandlerBase
         this.sequenceTableName = sequenceTableName;
     }
 
+    /**
+     * returns the number of sequence values reserved with a single round-trip if a sequence table is used
+     * @return the sequence block size
+     */
+    public int getSequenceBlockSize()
+    {
+        return sequenceBlockSize;
+    }
+
+    /**
+     * Sets the number of sequence values reserved with a single round-trip.<br>
+     * Only applicable if useSequenceTable is set to true. Must be set before the database is attached.
+     * @see DBSeqTable#setBlockSize(int)
+     * @param sequenceBlockSize the sequence block size
+     */
+    public void setSequenceBlockSize(int sequenceBlockSize)
+    {
+        this.sequenceBlockSize = sequenceBlockSize;
+    }
+
+    /**
+     * returns whether the driver uses server side cursors for fetching rows (useCursorFetch=true)
+     * @return true if the fetch size is passed to the driver or false if row streaming is used
+     */
+    public boolean isUseCursorFetch()
+    {
+        return useCursorFetch;
+    }
+
+    /**
+     * Set this to true if the connection has been opened with useCursorFetch=true.<br>
+     * In this case the fetch size is passed to the driver as it is.<br>
+     * Otherwise the MySQL row streaming mode (fetchSize=Integer.MIN_VALUE) is used for forward-only queries with a fetch size.
+     * @param useCursorFetch true if the driver uses server side cursors
+     */
+    public void setUseCursorFetch(boolean useCursorFetch)
+    {
+        this.useCursorFetch = useCursorFetch;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -915,7 +1001,7 @@ public class DBMSHandlerMySQL extends DBMSHandlerBase
                 executeSQL("USE " + databaseName, null, conn, null);
             // Sequence Table
             if (useSequenceTable && db.getTable(sequenceTableName)==null)
-                new DBSeqTable(sequenceTableName, db);
+                new DBSeqTable(sequenceTableName, db).setBlockSize(sequenceBlockSize);
             // call Base implementation
             super.attachDatabase(db, conn);
             
@@ -925,6 +1011,22 @@ public class DBMSHandlerMySQL extends DBMSHandlerBase
         }
     }
 
+    /**
+     * MySQL loads the full result into memory unless row streaming or cursor fetch is used.
+     * Row streaming is enabled by setting the fetch size to Integer.MIN_VALUE on a forward-only statement.
+     */
+    @Override
+    protected void setFetchSize(Statement stmt, int fetchSize, Connection conn)
+        throws SQLException
+    {
+        if (fetchSize>0 && !useCursorFetch && stmt.getResultSetType()==ResultSet.TYPE_FORWARD_ONLY)
+        {   // enable row streaming
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            return;
+        }
+        super.setFetchSize(stmt, fetchSize, conn);
+    }
+
     /**
      * Creates a new MySQL command object.
      * 
@@ -1012,6 +1114,7 @@ public class DBMSHandlerMySQL extends DBMSHandlerBase
             case SEQUENCES:         return useSequenceTable;
             case QUERY_LIMIT_ROWS:  return true;
             case QUERY_SKIP_ROWS:   return true;
+            case UPSERT:            return true;
             default:
                 // All other features are not supported by default
                 return false;
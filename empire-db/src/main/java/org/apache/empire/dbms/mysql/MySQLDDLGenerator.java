@@ -127,7 +127,7 @@ public class MySQLDDLGenerator extends DBDDLGenerator<DBMSHandlerMySQL>
             // appendDDLStmt(db, "SET DATEFORMAT ymd", buf);
             // Sequence Table
             if (dbms.isUseSequenceTable() && db.getTable(dbms.getSequenceTableName())==null)
-                new DBSeqTable(dbms.getSequenceTableName(), db);
+                new DBSeqTable(dbms.getSequenceTableName(), db).setBlockSize(dbms.getSequenceBlockSize());
         }
         // default processing
         super.createDatabase(db, script);
@@ -31,6 +31,7 @@ import org.apache.empire.db.DBCommand;
 import org.apache.empire.db.DBIndex;
 import org.apache.empire.db.DBRowSet;
 import org.apache.empire.db.DBSQLBuilder;
+import org.apache.empire.db.DBTable;
 import org.apache.empire.db.exceptions.NoPrimaryKeyException;
 import org.apache.empire.db.expr.column.DBAliasExpr;
 import org.apache.empire.db.expr.column.DBValueExpr;
@@ -70,6 +71,35 @@ public class DBCommandOracle extends DBCommand
         super(dbms, autoPrepareStmt);
     }
 
+    /**
+     * Creates a MERGE statement
+     */
+    @Override
+    public String getUpsert(DBTable table, DBColumn... conflictColumns)
+    {
+        return getMergeUpsert(table, conflictColumns);
+    }
+
+    /**
+     * Adds the source row of a MERGE statement in the form:
+     *      (SELECT val1 AS col1, val2 AS col2, ... FROM DUAL) q0
+     */
+    @Override
+    protected void addMergeSource(DBSQLBuilder sql)
+    {
+        sql.append("(SELECT ");
+        for (int i=0; i<set.size(); i++)
+        {
+            DBSetExpr setExpr = set.get(i);
+            if (i>0)
+                sql.append(", ");
+            setExpr.addSQL(sql, CTX_VALUE);
+            sql.append(" AS ");
+            setExpr.getColumn().addSQL(sql, CTX_NAME);
+        }
+        sql.append(" FROM DUAL) q0");
+    }
+
     public String getOptimizerHint()
     {
         return optimizerHint;
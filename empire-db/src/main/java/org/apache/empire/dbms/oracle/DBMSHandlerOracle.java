@@ -38,6 +38,7 @@ import org.apache.empire.db.DBExpr;
 import org.apache.empire.db.DBObject;
 import org.apache.empire.db.DBReader;
 import org.apache.empire.db.DBRelation;
+import org.apache.empire.db.DBRowSet;
 import org.apache.empire.db.DBSQLBuilder;
 import org.apache.empire.db.DBSQLScript;
 import org.apache.empire.db.DBTable;
@@ -141,12 +142,31 @@ public class DBMSHandlerOracle extends DBMSHandlerBase
             case SEQUENCE_NEXTVAL:  return true;
             case QUERY_LIMIT_ROWS:  return true;
             case QUERY_SKIP_ROWS:   return true;
+            case UPSERT:            return true;
             default:
                 // All other features are not supported by default
                 return false;
         }
     }
 
+    /**
+     * Appends a multi-row insert statement using INSERT ALL which is supported by all Oracle versions:
+     *      INSERT ALL INTO table (col1, col2) VALUES (?, ?) INTO table (col1, col2) VALUES (?, ?) ... SELECT 1 FROM DUAL
+     */
+    @Override
+    public void appendBulkInsert(DBSQLBuilder sql, DBRowSet rowset, DBColumn[] columns, int rowCount)
+    {
+        sql.append("INSERT ALL");
+        for (int i=0; i<rowCount; i++)
+        {
+            sql.append(" INTO ");
+            appendBulkInsertInto(sql, rowset, columns);
+            sql.append(" VALUES ");
+            appendBulkInsertValues(sql, columns.length);
+        }
+        sql.append(" SELECT 1 FROM DUAL");
+    }
+
     /**
      * Creates a new Oracle command object.
      * 
@@ -324,6 +344,15 @@ public class DBMSHandlerOracle extends DBMSHandlerBase
             msg = msg.substring(0, end - 1);
         return msg;
     }
+
+    /**
+     * Oracle reports both a query timeout and a cancelled statement with ORA-01013 (user requested cancel of current operation)
+     */
+    @Override
+    public boolean isQueryTimeout(SQLException sqle)
+    {
+        return (sqle.getErrorCode()==1013) || super.isQueryTimeout(sqle);
+    }
     
     /**
      * Gets the value of a sql ResultSet.
@@ -354,6 +383,35 @@ public class DBMSHandlerOracle extends DBMSHandlerBase
         return super.getResultValue(rset, columnIndex, dataType);
     }
 
+    /**
+     * Boolean values are stored as characters and must be converted.
+     */
+    @Override
+    public boolean getResultBoolean(ResultSet rset, int columnIndex, DataType dataType)
+        throws SQLException
+    {
+        if (dataType == DataType.BOOL)
+            return Boolean.TRUE.equals(getResultValue(rset, columnIndex, dataType));
+        // Default
+        return super.getResultBoolean(rset, columnIndex, dataType);
+    }
+
+    /**
+     * Boolean values are stored as characters and cannot be checked using ResultSet.getBoolean().
+     */
+    @Override
+    public boolean isResultNull(ResultSet rset, int columnIndex, DataType dataType)
+        throws SQLException
+    {
+        if (dataType == DataType.BOOL)
+        {   // Check character value
+            rset.getString(columnIndex);
+            return rset.wasNull();
+        }
+        // Default
+        return super.isResultNull(rset, columnIndex, dataType);
+    }
+
     /**
      * @see DBMSHandlerBase#getNextSequenceValue(DBDatabase, String, int, Connection)
      */
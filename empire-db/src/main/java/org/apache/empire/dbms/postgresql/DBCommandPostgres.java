@@ -24,6 +24,7 @@ import org.apache.empire.db.DBColumnExpr;
 import org.apache.empire.db.DBCommand;
 import org.apache.empire.db.DBRowSet;
 import org.apache.empire.db.DBSQLBuilder;
+import org.apache.empire.db.DBTable;
 import org.apache.empire.db.exceptions.NoPrimaryKeyException;
 import org.apache.empire.db.expr.compare.DBCompareExpr;
 import org.apache.empire.dbms.postgresql.PostgresIntervalExpr.PostgresIntervalUnitField;
@@ -42,6 +43,15 @@ public class DBCommandPostgres extends DBCommand
     {
         super(dbms, autoPrepareStmt);
     }
+
+    /**
+     * Creates an INSERT ... ON CONFLICT DO UPDATE statement
+     */
+    @Override
+    public String getUpsert(DBTable table, DBColumn... conflictColumns)
+    {
+        return getInsertOnConflictUpsert(table, conflictColumns);
+    }
     
     /**
      * See https://www.postgresql.org/docs/current/functions-datetime.html
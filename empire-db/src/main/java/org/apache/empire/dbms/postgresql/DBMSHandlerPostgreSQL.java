@@ -21,9 +21,11 @@ package org.apache.empire.dbms.postgresql;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.empire.commons.StringUtils;
 import org.apache.empire.data.DataType;
@@ -37,6 +39,7 @@ import org.apache.empire.db.DBSQLBuilder;
 import org.apache.empire.db.DBSQLScript;
 import org.apache.empire.db.DBTable;
 import org.apache.empire.db.DBTableColumn;
+import org.apache.empire.db.exceptions.EmpireSQLException;
 import org.apache.empire.db.expr.column.DBValueExpr;
 import org.apache.empire.dbms.DBMSFeature;
 import org.apache.empire.dbms.DBMSHandler;
@@ -64,6 +67,9 @@ public class DBMSHandlerPostgreSQL extends DBMSHandlerBase
     private boolean usePostgresSerialType = true;
 
     private DBDDLGenerator<?> ddlGenerator = null; // lazy creation
+
+    // statements for which autocommit has been switched off
+    private final Map<Statement, Connection> cursorStatements = new ConcurrentHashMap<Statement, Connection>();
     
     /**
      * Constructor for the PostgreSQL database dbms.<br>
@@ -149,6 +155,7 @@ public class DBMSHandlerPostgreSQL extends DBMSHandlerBase
             case SEQUENCE_NEXTVAL:  return true;
             case QUERY_LIMIT_ROWS:  return true;
             case QUERY_SKIP_ROWS:   return true;
+            case UPSERT:            return true;
             default:
                 // All other features are not supported by default
                 return false;
@@ -330,6 +337,78 @@ public class DBMSHandlerPostgreSQL extends DBMSHandlerBase
         getDDLGenerator().getDDLScript(type, dbo, script); 
     }
     
+    /**
+     * PostgreSQL only uses a cursor for fetching rows, if autocommit is off.<br>
+     * Hence for forward-only queries with a fetch size autocommit is temporarily switched off 
+     * and restored when the result set is closed. 
+     */
+    @Override
+    protected void setFetchSize(Statement stmt, int fetchSize, Connection conn)
+        throws SQLException
+    {
+        super.setFetchSize(stmt, fetchSize, conn);
+        // enable cursor mode
+        if (fetchSize>0 && stmt.getResultSetType()==ResultSet.TYPE_FORWARD_ONLY && conn.getAutoCommit())
+        {   // switch off autocommit
+            log.debug("Switching off autocommit for cursor based fetch.");
+            conn.setAutoCommit(false);
+            cursorStatements.put(stmt, conn);
+        }
+    }
+
+    /**
+     * Restores autocommit, if it has been switched off for cursor based fetch
+     */
+    @Override
+    protected void closeStatement(Statement stmt)
+    {
+        try {
+            super.closeStatement(stmt);
+        } finally {
+            // restore autocommit
+            Connection conn = (stmt!=null && !cursorStatements.isEmpty() ? cursorStatements.remove(stmt) : null);
+            if (conn!=null)
+            {   try {
+                    log.debug("Restoring autocommit after cursor based fetch.");
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    throw new EmpireSQLException(this, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores autocommit, if it has been switched off for a failed cursor based fetch.<br>
+     * As the transaction has only been started for the cursor, it is rolled back.
+     */
+    @Override
+    protected void discardStatement(Statement stmt)
+    {
+        super.discardStatement(stmt);
+        // restore autocommit
+        Connection conn = (stmt!=null && !cursorStatements.isEmpty() ? cursorStatements.remove(stmt) : null);
+        if (conn!=null)
+        {   try {
+                log.debug("Restoring autocommit after failed cursor based fetch.");
+                conn.rollback();
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                // don't throw, the original error is more important
+                log.warn("Failed to restore autocommit after cursor based fetch: "+e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * PostgreSQL reports both a statement timeout and a cancelled statement with SQLState 57014 (query_canceled)
+     */
+    @Override
+    public boolean isQueryTimeout(SQLException e)
+    {
+        return "57014".equals(e.getSQLState()) || super.isQueryTimeout(e);
+    }
+
     /**
      * Postgre needs special handling for CLOBs and BLOB's
      */
@@ -31,6 +31,7 @@ import java.util.GregorianCalendar;
 import java.util.List;
 
 import org.apache.empire.data.DataType;
+import org.apache.empire.db.DBColumn;
 import org.apache.empire.db.DBColumnExpr;
 import org.apache.empire.db.DBCommand;
 import org.apache.empire.db.DBDDLGenerator;
@@ -39,6 +40,7 @@ import org.apache.empire.db.DBDatabase;
 import org.apache.empire.db.DBJoinType;
 import org.apache.empire.db.DBObject;
 import org.apache.empire.db.DBSQLScript;
+import org.apache.empire.db.DBTable;
 import org.apache.empire.db.DBTableColumn;
 import org.apache.empire.db.expr.join.DBColumnJoinExpr;
 import org.apache.empire.db.expr.join.DBJoinExpr;
@@ -77,6 +79,15 @@ public class DBMSHandlerSQLite extends DBMSHandlerBase
         {
             super(dmbs, autoPrepareStmt);
         }
+
+        /**
+         * Creates an INSERT ... ON CONFLICT DO UPDATE statement (requires SQLite 3.24 or higher)
+         */
+        @Override
+        public String getUpsert(DBTable table, DBColumn... conflictColumns)
+        {
+            return getInsertOnConflictUpsert(table, conflictColumns);
+        }
         
         @Override
 		public DBCommandSQLite join(DBJoinExpr join)
@@ -120,6 +131,8 @@ public class DBMSHandlerSQLite extends DBMSHandlerBase
     public DBMSHandlerSQLite()
     {
         setReservedKeywords();
+        // SQLITE_MAX_VARIABLE_NUMBER defaults to 999
+        setMaxStatementParams(999);
     }
     
     private void addReservedKeyWord(final String keyWord)
@@ -290,11 +303,24 @@ public class DBMSHandlerSQLite extends DBMSHandlerBase
                 return true;
             case QUERY_SKIP_ROWS:
                 return true;
+            case UPSERT:
+                return true;
             default:
                 // All other features are not supported by default
                 return false;
         }
     }
+
+    /**
+     * Returns the maximum number of rows for a bulk insert statement.
+     * Besides the parameter limit, SQLite versions prior to 3.8.8 limit a VALUES clause 
+     * to SQLITE_MAX_COMPOUND_SELECT (500) rows.
+     */
+    @Override
+    public int getMaxBulkInsertRows(int columnCount)
+    {
+        return Math.min(500, super.getMaxBulkInsertRows(columnCount));
+    }
     
     /**
      * Gets an sql phrase template for this database system.<br>
@@ -433,11 +459,13 @@ public class DBMSHandlerSQLite extends DBMSHandlerBase
                 PreparedStatement pstmt = conn.prepareStatement(sqlCmd);
                 stmt = pstmt;
                 prepareStatement(pstmt, sqlParams);
+                applyStatementControl(pstmt);
                 count = pstmt.executeUpdate();
             }
             else
             { // Execute a simple statement
                 stmt = conn.createStatement();
+                applyStatementControl(stmt);
                 count = stmt.executeUpdate(sqlCmd);
             }
             // Retrieve any auto-generated keys
@@ -26,6 +26,7 @@ import java.util.GregorianCalendar;
 
 import org.apache.empire.commons.StringUtils;
 import org.apache.empire.data.DataType;
+import org.apache.empire.db.DBColumn;
 import org.apache.empire.db.DBColumnExpr;
 import org.apache.empire.db.DBCommand;
 import org.apache.empire.db.DBDDLGenerator;
@@ -70,6 +71,26 @@ public class DBMSHandlerMSSQL extends DBMSHandlerBase
     	{
     		super(dbms, autoPrepareStmt);
     	}
+
+        /**
+         * Creates a MERGE statement (which must be terminated by a semicolon)
+         */
+        @Override
+        public String getUpsert(DBTable table, DBColumn... conflictColumns)
+        {
+            return getMergeUpsert(table, conflictColumns)+";";
+        }
+
+        /**
+         * Adds the target table with a HOLDLOCK hint to prevent concurrent inserts of the same row
+         */
+        @Override
+        protected void addMergeTarget(DBSQLBuilder sql, DBTable table)
+        {
+            table.addSQL(sql, CTX_FULLNAME);
+            sql.append(" WITH (HOLDLOCK) AS ");
+            sql.append(table.getAlias());
+        }
         
         @Override
         public DBCommand limitRows(int numRows)
@@ -137,6 +158,7 @@ public class DBMSHandlerMSSQL extends DBMSHandlerBase
     private String databaseName = null;
     private String objectOwner = "dbo";
     private String sequenceTableName = "Sequences";
+    private int sequenceBlockSize = 1;
     // Sequence treatment
     // When set to 'false' (default) MySQL's IDENTITY feature is used.
     private boolean useSequenceTable = false;
@@ -156,6 +178,8 @@ public class DBMSHandlerMSSQL extends DBMSHandlerBase
         for (String keyWord:MSSQL_SQL_KEYWORDS){
              reservedSQLKeywords.add(keyWord);
         }
+        // SQL Server accepts up to 2100 parameters per statement (some are reserved here for the driver)
+        setMaxStatementParams(2000);
     }
 
     public String getDatabaseName()
@@ -216,6 +240,26 @@ public class DBMSHandlerMSSQL extends DBMSHandlerBase
 		this.sequenceTableName = sequenceTableName;
 	}
 
+    /**
+     * returns the number of sequence values reserved with a single round-trip if a sequence table is used
+     * @return the sequence block size
+     */
+    public int getSequenceBlockSize()
+    {
+        return sequenceBlockSize;
+    }
+
+    /**
+     * Sets the number of sequence values reserved with a single round-trip.<br>
+     * Only applicable if useSequenceTable is set to true. Must be set before the database is attached.
+     * @see DBSeqTable#setBlockSize(int)
+     * @param sequenceBlockSize the sequence block size
+     */
+    public void setSequenceBlockSize(int sequenceBlockSize)
+    {
+        this.sequenceBlockSize = sequenceBlockSize;
+    }
+
 	/**
 	 * Indicates whether or not a Unicode Prefix (N) is prepended to all text values
 	 */
@@ -287,7 +331,7 @@ public class DBMSHandlerMSSQL extends DBMSHandlerBase
             executeSQL("set dateformat ymd", null, conn, null);
             // Sequence Table
             if (useSequenceTable && db.getTable(sequenceTableName)==null)
-                new DBSeqTable(sequenceTableName, db);
+                new DBSeqTable(sequenceTableName, db).setBlockSize(sequenceBlockSize);
             // Check Schema
             String schema = db.getSchema();
             if (StringUtils.isNotEmpty(schema) && schema.indexOf('.')<0 && StringUtils.isNotEmpty(objectOwner))
@@ -338,12 +382,23 @@ public class DBMSHandlerMSSQL extends DBMSHandlerBase
             case SEQUENCES:         return useSequenceTable;    
             case QUERY_LIMIT_ROWS:  return true;
             case QUERY_SKIP_ROWS:   return false;
+            case UPSERT:            return true;
             default:
                 // All other features are not supported by default
                 return false;
         }
     }
 
+    /**
+     * Returns the maximum number of rows for a bulk insert statement.
+     * SQL Server accepts no more than 1000 rows in a VALUES clause.
+     */
+    @Override
+    public int getMaxBulkInsertRows(int columnCount)
+    {
+        return Math.min(1000, super.getMaxBulkInsertRows(columnCount));
+    }
+
     /**
      * Gets an sql phrase template for this database system.<br>
      * @see DBMSHandler#getSQLPhrase(DBSqlPhrase)
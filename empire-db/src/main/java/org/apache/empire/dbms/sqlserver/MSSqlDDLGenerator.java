@@ -123,7 +123,7 @@ public class MSSqlDDLGenerator extends DBDDLGenerator<DBMSHandlerMSSQL>
             script.addStmt("SET DATEFORMAT ymd");
             // Sequence Table
             if (dbms.isUseSequenceTable() && db.getTable(dbms.getSequenceTableName())==null)
-                new DBSeqTable(dbms.getSequenceTableName(), db);
+                new DBSeqTable(dbms.getSequenceTableName(), db).setBlockSize(dbms.getSequenceBlockSize());
         }
         // default processing
         super.createDatabase(db, script);
@@ -25,6 +25,8 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -357,4 +359,88 @@ public class OptionsTest
         assertEquals("txt2", node.getTextContent());
     }
 
+    @Test
+    public void testIndexedLookup()
+    {
+        Options options = new Options();
+        for (int i=0; i<1000; i++)
+            options.add(Integer.valueOf(i), "txt"+i);
+        // numeric and string equality
+        assertEquals("txt500", options.get(Long.valueOf(500)));
+        assertEquals("txt500", options.get(Double.valueOf(500)));
+        assertEquals("txt500", options.get("500"));
+        assertFalse(options.has(Double.valueOf(500.5)));
+        assertFalse(options.has("abc"));
+        // maintained on set, add and remove
+        options.set(Integer.valueOf(500), "changed");
+        assertEquals("changed", options.get("500"));
+        options.set(Integer.valueOf(-1), "top", InsertPos.Top);
+        assertEquals("top", options.get(Long.valueOf(-1)));
+        assertEquals(Integer.valueOf(-1), options.getValueAt(0));
+        options.add(new OptionEntry(Integer.valueOf(7), "seven"));
+        assertEquals("seven", options.get(Integer.valueOf(7)));
+        assertEquals(1001, options.size());
+        assertTrue(options.remove(Integer.valueOf(7)));
+        assertFalse(options.has(Integer.valueOf(7)));
+        Iterator<OptionEntry> iterator = options.iterator();
+        iterator.next();
+        iterator.remove();
+        assertFalse(options.has(Integer.valueOf(-1)));
+        assertEquals(Integer.valueOf(0), options.getValueAt(0));
+        assertEquals(999, options.size());
+        // empty value
+        options.add(null, "none");
+        assertEquals("none", options.get(""));
+        // enums by name and ordinal
+        Options enumOptions = new Options();
+        for (int i=0; i<20; i++)
+            enumOptions.add("X"+i, "x"+i);
+        enumOptions.add(InsertPos.Sort, "sort");
+        assertEquals("sort", enumOptions.get("Sort"));
+        assertEquals("sort", enumOptions.get(Integer.valueOf(InsertPos.Sort.ordinal())));
+        assertEquals("x3", enumOptions.get("X3"));
+    }
+
+    @Test
+    public void testConcurrentLookup()
+        throws InterruptedException
+    {
+        final Options options = new Options();
+        for (int i=0; i<=1000; i++)
+            options.add(Integer.valueOf(i), "txt"+i);
+        for (int run=0; run<20; run++)
+        {   // drop the index
+            Iterator<OptionEntry> iterator = options.iterator();
+            iterator.next();
+            iterator.remove();
+            // concurrent first lookup
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicInteger failures = new AtomicInteger();
+            Thread[] threads = new Thread[8];
+            for (int i=0; i<threads.length; i++)
+            {   final int value = 1000 - i;
+                threads[i] = new Thread() {
+                    @Override
+                    public void run()
+                    {
+                        try {
+                            start.await();
+                            if (!("txt"+value).equals(options.get(Integer.valueOf(value))))
+                                failures.incrementAndGet();
+                        } catch (InterruptedException e) {
+                            failures.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            start.countDown();
+            for (int i=0; i<threads.length; i++)
+                threads[i].join();
+            assertEquals(0, failures.get());
+        }
+    }
+
 }
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.data.list;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.db.CompanyDB;
+import org.apache.empire.db.DBCommand;
+import org.apache.empire.db.DBReader;
+import org.apache.empire.db.DBRecord;
+import org.apache.empire.db.DBSQLScript;
+import org.apache.empire.db.context.DBContextStatic;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ColumnarDataListTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testColumnarDataList()
+    {
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+        dep.create();
+        dep.set(db.DEPARTMENT.NAME, "junit");
+        dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+        dep.update();
+        for (int i=0; i<10; i++)
+        {   DBRecord emp = new DBRecord(context, db.EMPLOYEE);
+            emp.create();
+            emp.set(db.EMPLOYEE.FIRSTNAME, "first"+i);
+            emp.set(db.EMPLOYEE.LASTNAME, "last"+(i % 3));
+            emp.set(db.EMPLOYEE.DEPARTMENT_ID, dep.get(db.DEPARTMENT.ID));
+            emp.set(db.EMPLOYEE.GENDER, ((i % 4)==0 ? null : "M"));
+            emp.set(db.EMPLOYEE.SALARY, ((i % 2)==0 ? new BigDecimal(1000+i) : null));
+            emp.set(db.EMPLOYEE.RETIRED, ((i % 3)==0));
+            emp.update();
+        }
+
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.EMPLOYEE.ID, db.EMPLOYEE.FIRSTNAME, db.EMPLOYEE.LASTNAME, db.EMPLOYEE.GENDER);
+        cmd.select(db.EMPLOYEE.DEPARTMENT_ID, db.EMPLOYEE.SALARY, db.EMPLOYEE.RETIRED, db.EMPLOYEE.UPDATE_TIMESTAMP);
+        cmd.orderBy(db.EMPLOYEE.ID);
+
+        // compare with DataListEntry
+        List<DataListEntry> entries = context.getUtils().queryDataList(cmd);
+        ColumnarDataList list = context.getUtils().queryColumnarList(cmd);
+        assertEquals(entries.size(), list.size());
+        for (int i=0; i<list.size(); i++)
+        {   DataListEntry entry = entries.get(i);
+            ColumnarDataList.Row row = list.get(i);
+            assertEquals(i, row.getRownum());
+            for (int f=0; f<entry.getFieldCount(); f++)
+            {   assertEquals(entry.getValue(f), row.getValue(f));
+                assertEquals(entry.isNull(f), row.isNull(f));
+            }
+            assertEquals(entry.getLong(db.EMPLOYEE.ID), row.getLong(db.EMPLOYEE.ID));
+            assertEquals(entry.getBoolean(db.EMPLOYEE.RETIRED), row.getBoolean(db.EMPLOYEE.RETIRED));
+            assertEquals(entry.toString(), row.toString());
+        }
+        assertNull(list.get(1).getValue(list.get(1).getFieldIndex(db.EMPLOYEE.SALARY)));
+        assertTrue(list.get(1).isNull(db.EMPLOYEE.SALARY));
+        assertFalse(list.get(1).isNull(db.EMPLOYEE.RETIRED));
+
+        // paging
+        ColumnarDataList page = context.getUtils().queryColumnarList(cmd, 8, 5);
+        assertEquals(2, page.size());
+        assertEquals(entries.get(8).getValue(0), page.get(0).getValue(0));
+        cmd.clearLimit();
+
+        // dictionary limit exceeded
+        DBReader reader = new DBReader(context);
+        try {
+            reader.open(cmd);
+            ColumnarDataList small = new ColumnarDataList(list.getHead(), 2, 2);
+            while (reader.moveNext())
+                small.appendRow(reader);
+            assertEquals(list.size(), small.size());
+            for (int i=0; i<small.size(); i++)
+            {   assertEquals(list.get(i).getString(db.EMPLOYEE.FIRSTNAME), small.get(i).getString(db.EMPLOYEE.FIRSTNAME));
+                assertEquals(list.get(i).getString(db.EMPLOYEE.LASTNAME), small.get(i).getString(db.EMPLOYEE.LASTNAME));
+            }
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.data.DataType;
+import org.apache.empire.db.context.DBContextStatic;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BulkCascadeDeleteTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    /**
+     * A database with three levels of depending records
+     */
+    public static class OrderDB extends DBDatabase
+    {
+        public static class Table extends DBTable
+        {
+            public final DBTableColumn ID;
+            public final DBTableColumn PARENT_ID;
+
+            public Table(String name, DBDatabase db, boolean hasParent)
+            {
+                super(name, db);
+                ID        = addColumn(name+"_ID", DataType.AUTOINC, 0, true, name+"_SEQ");
+                PARENT_ID = (hasParent ? addColumn("PARENT_ID", DataType.INTEGER, 0, true) : null);
+                setPrimaryKey(ID);
+            }
+        }
+
+        public final Table ORDERS = new Table("ORDERS", this, false);
+        public final Table ITEMS  = new Table("ITEMS",  this, true);
+        public final Table NOTES  = new Table("NOTES",  this, true);
+
+        public OrderDB()
+        {
+            addRelation(ITEMS.PARENT_ID.referenceOn(ORDERS.ID)).onDeleteCascadeRecords();
+            addRelation(NOTES.PARENT_ID.referenceOn(ITEMS.ID)).onDeleteCascadeRecords();
+        }
+    }
+
+    @Test
+    public void testBulkCascadeDelete()
+    {
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), dbResource.getConnection());
+        OrderDB db = new OrderDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+        db.setBulkCascadeDeleteEnabled(true);
+
+        Object[] keys = new Object[2];
+        for (int o=0; o<keys.length; o++)
+        {   DBRecord order = new DBRecord(context, db.ORDERS);
+            order.create().update();
+            keys[o] = order.get(db.ORDERS.ID);
+            for (int i=0; i<5; i++)
+            {   DBRecord item = new DBRecord(context, db.ITEMS);
+                item.create().set(db.ITEMS.PARENT_ID, keys[o]).update();
+                for (int n=0; n<3; n++)
+                {   DBRecord note = new DBRecord(context, db.NOTES);
+                    note.create().set(db.NOTES.PARENT_ID, item.get(db.ITEMS.ID)).update();
+                }
+            }
+        }
+        assertEquals(30, count(context, db.NOTES));
+
+        // delete first order
+        assertEquals(20, db.ORDERS.deleteAllReferencesBulk(new Object[] { keys[0] }, context));
+        db.ORDERS.deleteRecord(new Object[] { keys[0] }, context);
+        assertEquals(1, count(context, db.ORDERS));
+        assertEquals(5, count(context, db.ITEMS));
+        assertEquals(15, count(context, db.NOTES));
+
+        // record by record
+        db.setBulkCascadeDeleteEnabled(false);
+        db.ORDERS.deleteRecord(new Object[] { keys[1] }, context);
+        assertEquals(0, count(context, db.ITEMS));
+        assertEquals(0, count(context, db.NOTES));
+    }
+
+    private int count(DBContext context, DBTable table)
+    {
+        DBCommand cmd = context.createCommand();
+        cmd.select(table.count());
+        return context.getUtils().querySingleInt(cmd);
+    }
+}
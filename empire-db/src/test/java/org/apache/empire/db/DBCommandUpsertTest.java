@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Timestamp;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.dbms.DBMSFeature;
+import org.apache.empire.dbms.DBMSHandler;
+import org.apache.empire.dbms.hsql.DBMSHandlerHSql;
+import org.apache.empire.dbms.postgresql.DBMSHandlerPostgreSQL;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBCommandUpsertTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testNativeUpsert()
+    {
+        testUpsert(new DBMSHandlerHSql());
+    }
+
+    @Test
+    public void testEmulatedUpsert()
+    {
+        DBMSHandler dbms = new DBMSHandlerHSql() {
+            @Override
+            public boolean isSupported(DBMSFeature type)
+            {
+                return (type==DBMSFeature.UPSERT ? false : super.isSupported(type));
+            }
+        };
+        testUpsert(dbms);
+    }
+
+    @Test
+    public void testInsertOnConflictSQL()
+    {
+        CompanyDB db = new CompanyDB();
+        db.open(new DBContextStatic(new DBMSHandlerHSql(), dbResource.getConnection()));
+        DBCommand cmd = new DBMSHandlerPostgreSQL().createCommand(false);
+        cmd.set(db.DEPARTMENT.ID.to(1));
+        cmd.set(db.DEPARTMENT.NAME.to("Sales"));
+        assertEquals("INSERT INTO DEPARTMENTS (DEPARTMENT_ID, NAME)\r\nVALUES (1, 'Sales')\r\nON CONFLICT (DEPARTMENT_ID) DO UPDATE SET NAME=EXCLUDED.NAME", cmd.getUpsert(db.DEPARTMENT));
+    }
+
+    private void testUpsert(DBMSHandler dbms)
+    {
+        DBContextStatic context = new DBContextStatic(dbms, dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+        // insert
+        context.executeUpsert(db.DEPARTMENT, createUpsertCmd(context, db, 1, "Sales", timestamp));
+        // update
+        context.executeUpsert(db.DEPARTMENT, createUpsertCmd(context, db, 1, "Marketing", timestamp));
+        context.executeUpsert(db.DEPARTMENT, createUpsertCmd(context, db, 2, "Development", timestamp));
+
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.count());
+        assertEquals(2, context.getUtils().querySingleInt(cmd));
+        cmd.where(db.DEPARTMENT.NAME.is("Marketing"));
+        assertEquals(1, context.getUtils().querySingleInt(cmd));
+
+        if (dbms.isSupported(DBMSFeature.UPSERT))
+        {   // batch
+            script = new DBSQLScript(context);
+            script.addUpsert(createUpsertCmd(context, db, 2, "Research", timestamp), db.DEPARTMENT);
+            script.addUpsert(createUpsertCmd(context, db, 3, "Support", timestamp), db.DEPARTMENT);
+            script.executeBatch();
+            cmd = context.createCommand();
+            cmd.select(db.DEPARTMENT.count());
+            assertEquals(3, context.getUtils().querySingleInt(cmd));
+            cmd.where(db.DEPARTMENT.NAME.is("Research"));
+            assertEquals(1, context.getUtils().querySingleInt(cmd));
+        }
+    }
+
+    private DBCommand createUpsertCmd(DBContext context, CompanyDB db, int id, String name, Timestamp timestamp)
+    {
+        DBCommand cmd = context.createCommand();
+        cmd.set(db.DEPARTMENT.ID.to(id));
+        cmd.set(db.DEPARTMENT.NAME.to(name));
+        cmd.set(db.DEPARTMENT.BUSINESS_UNIT.to("ITTK"));
+        cmd.set(db.DEPARTMENT.UPDATE_TIMESTAMP.to(timestamp));
+        return cmd;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.data.list.DataListEntry;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.exceptions.InvalidArgumentException;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBKeysetPaginationTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testKeysetPagination()
+    {
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        // 25 departments with 3 business units
+        DBColumn[] columns = new DBColumn[] { db.DEPARTMENT.ID, db.DEPARTMENT.NAME, db.DEPARTMENT.BUSINESS_UNIT, db.DEPARTMENT.UPDATE_TIMESTAMP };
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i=1; i<=25; i++)
+            rows.add(new Object[] { i, "dep"+i, "BU"+(i%3), timestamp });
+        db.DEPARTMENT.insertBulk(context, columns, rows);
+
+        // expected order
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.ID);
+        cmd.orderBy(db.DEPARTMENT.BUSINESS_UNIT.desc());
+        cmd.orderBy(db.DEPARTMENT.ID);
+        List<Object> expected = context.getUtils().querySimpleList(cmd);
+
+        // records
+        cmd = context.createCommand();
+        cmd.orderBy(db.DEPARTMENT.BUSINESS_UNIT.desc());
+        List<Object> actual = new ArrayList<Object>();
+        DBPageToken token = null;
+        int pages = 0;
+        while (true)
+        {
+            List<DBRecord> list = context.getUtils().queryRecordList(cmd, db.DEPARTMENT, token, 10);
+            if (list.isEmpty())
+                break;
+            for (DBRecord record : list)
+                actual.add(record.get(db.DEPARTMENT.ID));
+            // pass the encoded token as a client would
+            token = DBPageToken.decode(cmd.getPageToken(list.get(list.size()-1), db.DEPARTMENT).encode());
+            pages++;
+        }
+        assertEquals(3, pages);
+        assertEquals(expected, actual);
+        // the command of the caller must not be modified
+        assertEquals(1, cmd.getOrderBy().size());
+        assertNull(cmd.getWhereConstraints());
+
+        // data list
+        cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.ID, db.DEPARTMENT.BUSINESS_UNIT);
+        cmd.orderBy(db.DEPARTMENT.BUSINESS_UNIT.desc());
+        List<DataListEntry> page = context.getUtils().queryDataList(cmd, db.DEPARTMENT, null, 10);
+        assertEquals(10, page.size());
+        page = context.getUtils().queryDataList(cmd, db.DEPARTMENT, cmd.getPageToken(page.get(9), db.DEPARTMENT), 10);
+        assertEquals(10, page.size());
+        assertEquals(expected.get(10), page.get(0).get(db.DEPARTMENT.ID));
+
+        // seek must not replace an existing constraint on a sort column
+        cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.ID);
+        cmd.where(db.DEPARTMENT.ID.isLessOrEqual(15));
+        cmd.orderBy(db.DEPARTMENT.ID);
+        page = context.getUtils().queryDataList(cmd, db.DEPARTMENT, new DBPageToken(10), 10);
+        assertEquals(5, page.size());
+        // leading bound on the first sort column
+        cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.ID);
+        cmd.orderBy(db.DEPARTMENT.BUSINESS_UNIT.desc());
+        cmd.orderByKeyColumns(db.DEPARTMENT);
+        cmd.seekAfter(new DBPageToken("BU1", 10));
+        String where = cmd.getSelect();
+        assertTrue(where, where.contains(".BUSINESS_UNIT<='BU1' AND ("));
+        // null values cannot be sought
+        try {
+            cmd.clone().seekAfter(new DBPageToken((Object)null));
+            fail("InvalidArgumentException expected");
+        } catch (InvalidArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPageTokenEncoding()
+    {
+        DBPageToken token = new DBPageToken("a.b/c", 5, 7L, new BigDecimal("1.50"), Timestamp.valueOf("2024-02-29 12:30:45.123456"), new Date(1000L), Boolean.TRUE);
+        assertEquals(token, DBPageToken.decode(token.encode()));
+        assertNull(DBPageToken.decode(""));
+    }
+}
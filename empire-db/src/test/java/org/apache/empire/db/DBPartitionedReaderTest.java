@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.data.list.DataListEntry;
+import org.apache.empire.db.context.DBContextFactory;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.dbms.DBMSHandler;
+import org.apache.empire.exceptions.InternalException;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBPartitionedReaderTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testPartitionedRead() throws Exception
+    {
+        final DBMSHandler dbms = dbResource.newDriver();
+        DBContextStatic context = new DBContextStatic(dbms, dbResource.getConnection());
+        final CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        int minId = Integer.MAX_VALUE;
+        for (int i=0; i<25; i++)
+        {   DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+            dep.create();
+            dep.set(db.DEPARTMENT.NAME, "dep"+i);
+            dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+            dep.update();
+            minId = Math.min(minId, dep.getInt(db.DEPARTMENT.ID));
+        }
+        context.commit();
+
+        final String url = dbResource.getConnection().getMetaData().getURL();
+        DBContextFactory contextFactory = new DBContextFactory()
+        {
+            @Override
+            public DBContext acquireContext()
+            {
+                try {
+                    Connection conn = DriverManager.getConnection(url, "sa", "");
+                    return new DBContextStatic(dbms, conn, true);
+                } catch (SQLException e) {
+                    throw new InternalException(e);
+                }
+            }
+            @Override
+            public void releaseContext(DBContext context)
+            {
+                context.discard();
+            }
+        };
+
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.ID, db.DEPARTMENT.NAME);
+        cmd.orderBy(db.DEPARTMENT.ID);
+
+        // ordered with calculated split points
+        final List<Integer> ids = new ArrayList<Integer>();
+        Consumer<DataListEntry> consumer = new Consumer<DataListEntry>() {
+            @Override
+            public void accept(DataListEntry row)
+            {
+                ids.add(row.getInt(db.DEPARTMENT.ID));
+            }
+        };
+        DBPartitionedReader reader = new DBPartitionedReader(contextFactory, cmd, db.DEPARTMENT.ID, 4);
+        reader.setOrdered(true).setQueueCapacity(2);
+        assertEquals(25, reader.read(consumer));
+        assertEquals(25, ids.size());
+        for (int i=1; i<ids.size(); i++)
+            assertTrue(ids.get(i-1) < ids.get(i));
+
+        // unordered with explicit split points and an existing constraint on the partition column
+        ids.clear();
+        cmd.where(db.DEPARTMENT.ID.isGreaterThan(minId+4));
+        reader = new DBPartitionedReader(contextFactory, cmd, db.DEPARTMENT.ID, 1);
+        reader.setSplitPoints(minId+10, minId+15);
+        assertEquals(3, reader.getPartitionCount());
+        assertEquals(20, reader.read(consumer));
+        assertEquals(20, ids.size());
+    }
+}
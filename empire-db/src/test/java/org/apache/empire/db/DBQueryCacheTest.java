@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.commons.Options;
+import org.apache.empire.db.context.DBContextStatic;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBQueryCacheTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testOptionListCache() throws InterruptedException
+    {
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+        
+        DBQueryCache cache = new DBQueryCache(10);
+        db.setQueryCache(cache);
+
+        DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+        dep.create();
+        dep.set(db.DEPARTMENT.NAME, "Sales");
+        dep.set(db.DEPARTMENT.BUSINESS_UNIT, "ITTK");
+        dep.update();
+
+        // employee lookup list depends on EMPLOYEES and DEPARTMENTS
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.ID, db.DEPARTMENT.NAME);
+        cmd.join(db.DEPARTMENT.ID, db.EMPLOYEE.DEPARTMENT_ID, DBJoinType.LEFT);
+        cmd.groupBy(db.DEPARTMENT.ID, db.DEPARTMENT.NAME);
+        Options options = context.getUtils().queryOptionList(cmd);
+        assertEquals(1, options.size());
+        options = context.getUtils().queryOptionList(cmd);
+        assertEquals(1, cache.getHitCount());
+
+        // record update invalidates
+        dep.set(db.DEPARTMENT.NAME, "Marketing");
+        dep.update();
+        assertEquals(0, cache.size());
+        options = context.getUtils().queryOptionList(cmd);
+        assertEquals("Marketing", options.get(dep.get(db.DEPARTMENT.ID)));
+
+        // statements on referenced rowsets invalidate
+        DBCommand upd = context.createCommand();
+        upd.set(db.EMPLOYEE.SALARY.to(0));
+        context.executeUpdate(upd);
+        assertEquals(0, cache.size());
+        context.getUtils().querySimpleList(cmd);
+        assertEquals(1, cache.size());
+        // other rowsets do not
+        context.executeDelete(db.DATA, context.createCommand());
+        assertEquals(1, cache.size());
+        // delete
+        context.executeDelete(db.EMPLOYEE, context.createCommand());
+        assertEquals(0, cache.size());
+
+        // changes made directly are detected after the time to live 
+        context.getUtils().queryOptionList(cmd);
+        context.executeSQL("UPDATE DEPARTMENTS SET NAME='Support'", null);
+        assertEquals("Marketing", context.getUtils().queryOptionList(cmd).get(dep.get(db.DEPARTMENT.ID)));
+        cache.setTimeToLive(1);
+        Thread.sleep(10);
+        assertEquals("Support", context.getUtils().queryOptionList(cmd).get(dep.get(db.DEPARTMENT.ID)));
+    }
+
+    @Test
+    public void testUncommittedChanges() throws SQLException
+    {
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        DBQueryCache cache = new DBQueryCache(10);
+        db.setQueryCache(cache);
+
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.NAME);
+        cmd.orderBy(db.DEPARTMENT.NAME);
+        assertEquals(0, context.getUtils().querySimpleList(cmd).size());
+        assertEquals(1, cache.size());
+
+        // bulk insert invalidates
+        DBColumn[] columns = new DBColumn[] { db.DEPARTMENT.ID, db.DEPARTMENT.NAME, db.DEPARTMENT.BUSINESS_UNIT, db.DEPARTMENT.UPDATE_TIMESTAMP };
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[] { 1000, "Sales", "ITTK", new Timestamp(System.currentTimeMillis()) });
+        db.DEPARTMENT.insertBulk(context, columns, rows);
+        assertEquals(0, cache.size());
+        assertEquals(1, context.getUtils().querySimpleList(cmd).size());
+        assertEquals(1, cache.size());
+
+        // uncommitted changes are not cached
+        context.getConnection().setAutoCommit(false);
+        DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+        dep.create();
+        dep.set(db.DEPARTMENT.NAME, "Marketing");
+        dep.set(db.DEPARTMENT.BUSINESS_UNIT, "ITTK");
+        dep.update();
+        assertTrue(context.hasUncommittedChanges(db.DEPARTMENT));
+        assertEquals(2, context.getUtils().querySimpleList(cmd).size());
+        assertEquals(0, cache.size());
+        
+        // rollback
+        context.rollback();
+        assertFalse(context.hasUncommittedChanges(db.DEPARTMENT));
+        assertEquals(1, context.getUtils().querySimpleList(cmd).size());
+        assertEquals(1, cache.size());
+
+        // commit invalidates results cached meanwhile
+        context.executeDelete(db.DEPARTMENT, context.createCommand());
+        cache.putSimpleList(Object.class, cmd.getSelect(), cmd.getParamValues(), new ArrayList<Object>(), DBQueryCache.getReferencedRowSets(cmd), cache.getGeneration());
+        assertEquals(1, cache.size());
+        context.commit();
+        assertEquals(0, cache.size());
+        context.getConnection().setAutoCommit(true);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.commons.ObjectUtils;
+import org.apache.empire.db.context.DBContextStatic;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBReaderTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testPrimitiveGetters()
+    {
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+        dep.create();
+        dep.set(db.DEPARTMENT.NAME, "junit");
+        dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+        dep.update();
+        for (int i=0; i<2; i++)
+        {   DBRecord emp = new DBRecord(context, db.EMPLOYEE);
+            emp.create();
+            emp.set(db.EMPLOYEE.FIRSTNAME, "first"+i);
+            emp.set(db.EMPLOYEE.LASTNAME, "last"+i);
+            emp.set(db.EMPLOYEE.DEPARTMENT_ID, dep.get(db.DEPARTMENT.ID));
+            emp.set(db.EMPLOYEE.SALARY, (i==0 ? new BigDecimal("1234.56") : null));
+            emp.set(db.EMPLOYEE.RETIRED, (i==0));
+            emp.update();
+        }
+
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.EMPLOYEE.ID, db.EMPLOYEE.DEPARTMENT_ID, db.EMPLOYEE.SALARY, db.EMPLOYEE.RETIRED, db.EMPLOYEE.LASTNAME);
+        cmd.orderBy(db.EMPLOYEE.ID);
+        DBReader reader = new DBReader(context);
+        try {
+            reader.open(cmd);
+            // with values
+            assertTrue(reader.moveNext());
+            assertEquals(ObjectUtils.getInteger(reader.getValue(db.EMPLOYEE.ID)), reader.getInt(db.EMPLOYEE.ID));
+            assertEquals(dep.getLong(db.DEPARTMENT.ID), reader.getLong(db.EMPLOYEE.DEPARTMENT_ID));
+            assertEquals(1234.56d, reader.getDouble(db.EMPLOYEE.SALARY), 0.001d);
+            assertTrue(reader.getBoolean(db.EMPLOYEE.RETIRED));
+            assertFalse(reader.isNull(db.EMPLOYEE.SALARY));
+            assertEquals(0, reader.getInt(db.EMPLOYEE.LASTNAME));
+            // without values
+            assertTrue(reader.moveNext());
+            assertEquals(0d, reader.getDouble(db.EMPLOYEE.SALARY), 0d);
+            assertEquals(0, reader.getLong(db.EMPLOYEE.SALARY));
+            assertTrue(reader.isNull(db.EMPLOYEE.SALARY));
+            assertFalse(reader.getBoolean(db.EMPLOYEE.RETIRED));
+            assertFalse(reader.isNull(db.EMPLOYEE.RETIRED));
+            assertFalse(reader.moveNext());
+        } finally {
+            reader.close();
+        }
+    }
+}
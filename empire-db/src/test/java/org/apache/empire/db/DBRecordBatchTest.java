@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.db.exceptions.EmpireSQLException;
+import org.apache.empire.db.exceptions.RecordUpdateFailedException;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBRecordBatchTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testRecordBatch()
+        throws SQLException
+    {
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), dbResource.getConnection());
+        context.setPreparedStatementsEnabled(true);
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        // insert
+        DBRecordBatch batch = new DBRecordBatch(context);
+        List<DBRecord> records = new ArrayList<DBRecord>();
+        for (int i=0; i<20; i++)
+        {   DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+            dep.create();
+            dep.set(db.DEPARTMENT.NAME, "batch"+i);
+            dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+            if ((i % 2)==0)
+                dep.set(db.DEPARTMENT.HEAD, "head"+i);
+            records.add(dep);
+        }
+        assertEquals(20, batch.addAll(records));
+        assertEquals(20, batch.executeBatch());
+        assertEquals(0, batch.getCount());
+        for (DBRecord dep : records)
+        {   assertTrue(dep.getInt(db.DEPARTMENT.ID)>0);
+            assertFalse(dep.isModified());
+        }
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.count());
+        assertEquals(20, context.getUtils().querySingleInt(cmd));
+
+        // update
+        for (DBRecord dep : records)
+        {   dep.set(db.DEPARTMENT.HEAD, "updated");
+            assertTrue(batch.add(dep));
+        }
+        assertFalse(batch.add(new DBRecord(context, db.DEPARTMENT).read(records.get(0).getKey())));
+        assertEquals(20, batch.executeBatch());
+        cmd.where(db.DEPARTMENT.HEAD.is("updated"));
+        assertEquals(20, context.getUtils().querySingleInt(cmd));
+
+        // concurrent change
+        DBRecord stale = new DBRecord(context, db.DEPARTMENT);
+        stale.read(records.get(1).getKey());
+        DBRecord current = new DBRecord(context, db.DEPARTMENT);
+        current.read(records.get(1).getKey());
+        current.set(db.DEPARTMENT.HEAD, "current");
+        current.update();
+        DBRecord valid = records.get(2);
+        valid.set(db.DEPARTMENT.HEAD, "valid");
+        batch.add(valid);
+        stale.set(db.DEPARTMENT.HEAD, "stale");
+        batch.add(stale);
+        try {
+            batch.executeBatch();
+            fail("Concurrent change not detected");
+        } catch(RecordUpdateFailedException e) {
+            // expected
+        }
+        // auto-commit: the saved record is completed, only the failed record is kept
+        assertEquals(1, batch.getCount());
+        assertFalse(valid.isModified());
+        assertTrue(stale.isModified());
+        batch.clear();
+
+        // transaction: the batch is rolled back
+        context.getConnection().setAutoCommit(false);
+        valid = records.get(3);
+        valid.set(db.DEPARTMENT.HEAD, "rolledback");
+        batch.add(valid);
+        stale = new DBRecord(context, db.DEPARTMENT);
+        stale.read(records.get(4).getKey());
+        current = new DBRecord(context, db.DEPARTMENT);
+        current.read(records.get(4).getKey());
+        current.set(db.DEPARTMENT.HEAD, "current");
+        current.update();
+        stale.set(db.DEPARTMENT.HEAD, "rolledback");
+        batch.add(stale);
+        try {
+            batch.executeBatch();
+            fail("Concurrent change not detected");
+        } catch(RecordUpdateFailedException e) {
+            // expected
+        }
+        assertEquals(2, batch.getCount());
+        assertTrue(valid.isModified());
+        assertTrue(stale.isModified());
+        cmd.clear();
+        cmd.select(db.DEPARTMENT.count());
+        cmd.where(db.DEPARTMENT.HEAD.is("rolledback"));
+        assertEquals(0, context.getUtils().querySingleInt(cmd));
+        batch.clear();
+
+        // failed statement
+        DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+        dep.create();
+        dep.set(db.DEPARTMENT.NAME, "inserted");
+        dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+        batch.add(dep);
+        DBRecord dup = new DBRecord(context, db.DEPARTMENT);
+        dup.create();
+        dup.set(db.DEPARTMENT.NAME, "batch0");
+        dup.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+        batch.add(dup);
+        try {
+            batch.executeBatch();
+            fail("Duplicate name not detected");
+        } catch(EmpireSQLException e) {
+            // expected
+        }
+        assertEquals(2, batch.getCount());
+        assertTrue(dep.isNew());
+        cmd.where(db.DEPARTMENT.NAME.is("inserted"));
+        assertEquals(0, context.getUtils().querySingleInt(cmd));
+        context.rollback();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.db.exceptions.RecordNotFoundException;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBRecordCacheTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testRecordCache()
+    {
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        DBRecordCache cache = new DBRecordCache(10);
+        db.DEPARTMENT.setRecordCache(cache);
+
+        DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+        dep.create();
+        dep.set(db.DEPARTMENT.NAME, "dep1");
+        dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+        dep.update();
+        Object[] key = dep.getKey();
+
+        // miss and hit
+        DBRecord rec = new DBRecord(context, db.DEPARTMENT);
+        rec.read(key);
+        rec.read(key);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals("dep1", rec.getString(db.DEPARTMENT.NAME));
+        assertEquals(false, rec.isModified());
+
+        // bypass
+        rec.read(key, false);
+        assertEquals(1, cache.getHitCount());
+
+        // update invalidates
+        rec.set(db.DEPARTMENT.NAME, "dep2");
+        rec.update();
+        assertEquals(0, cache.size());
+        rec.read(key);
+        assertEquals("dep2", rec.getString(db.DEPARTMENT.NAME));
+        assertEquals(2, cache.getMissCount());
+
+        // statements on the rowset invalidate
+        DBCommand cmd = context.createCommand();
+        cmd.set(db.DEPARTMENT.NAME.to("dep3"));
+        cmd.where(db.DEPARTMENT.ID.is(key[0]));
+        context.executeUpdate(cmd);
+        assertEquals(0, cache.size());
+        rec.read(key);
+        assertEquals("dep3", rec.getString(db.DEPARTMENT.NAME));
+        assertEquals(3, cache.getMissCount());
+
+        // external change is detected by timestamp validation
+        cache.setTimestampValidation(true);
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis()+1000);
+        context.executeSQL("UPDATE DEPARTMENTS SET NAME='dep4', UPDATE_TIMESTAMP=? WHERE DEPARTMENT_ID=?", new Object[] { timestamp, key[0] });
+        rec.read(key);
+        assertEquals("dep4", rec.getString(db.DEPARTMENT.NAME));
+        assertEquals(1, cache.getStaleCount());
+        rec.read(key);
+        assertEquals(2d/6d, cache.getHitRatio(), 0.001d);
+
+        // delete invalidates
+        rec.delete();
+        assertEquals(0, cache.size());
+        try {
+            rec.read(key);
+            fail("record must not exist");
+        } catch(RecordNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUncommittedChanges() throws SQLException
+    {
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        DBRecordCache cache = new DBRecordCache(10);
+        db.DEPARTMENT.setRecordCache(cache);
+
+        DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+        dep.create();
+        dep.set(db.DEPARTMENT.NAME, "dep1");
+        dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+        dep.update();
+        Object[] key = dep.getKey();
+
+        context.getConnection().setAutoCommit(false);
+        DBRecord rec = new DBRecord(context, db.DEPARTMENT);
+        rec.read(key);
+        assertEquals(1, cache.size());
+        
+        // uncommitted records are not cached
+        rec.set(db.DEPARTMENT.NAME, "dep2");
+        rec.update();
+        assertTrue(context.hasUncommittedChanges(db.DEPARTMENT));
+        rec.read(key);
+        assertEquals("dep2", rec.getString(db.DEPARTMENT.NAME));
+        assertEquals(0, cache.size());
+
+        // rollback
+        context.rollback();
+        rec.read(key);
+        assertEquals("dep1", rec.getString(db.DEPARTMENT.NAME));
+        assertEquals(1, cache.size());
+
+        // statement
+        DBCommand cmd = context.createCommand();
+        cmd.set(db.DEPARTMENT.NAME.to("dep3"));
+        context.executeUpdate(cmd);
+        assertEquals(0, cache.size());
+        // another context caches the record meanwhile
+        DBContextStatic other = new DBContextStatic(context.getDbms(), context.getConnection());
+        new DBRecord(other, db.DEPARTMENT).read(key);
+        assertEquals(1, cache.size());
+        // commit removes it again
+        context.commit();
+        assertEquals(0, cache.size());
+        context.getConnection().setAutoCommit(true);
+    }
+
+    @Test
+    public void testInvalidatedWhileReading()
+    {
+        DBRecordCache cache = new DBRecordCache(10);
+        long generation = cache.getGeneration();
+        // record is invalidated while being read
+        cache.remove("key");
+        cache.put("key", new Object[] { "old" }, null, generation);
+        assertEquals(0, cache.size());
+        // current generation
+        cache.put("key", new Object[] { "new" }, null, cache.getGeneration());
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.data.DataType;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.dbms.DBMSHandlerBase;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBRowSetReadRecordsTest
+{
+    public static class CodeDB extends DBDatabase
+    {
+        public static class Codes extends DBTable
+        {
+            public final DBTableColumn CODE;
+            public final DBTableColumn NAME;
+
+            public Codes(DBDatabase db)
+            {
+                super("CODES", db);
+                CODE = addColumn("CODE", DataType.CHAR,    5, true);
+                NAME = addColumn("NAME", DataType.VARCHAR, 40, true);
+                setPrimaryKey(CODE);
+            }
+        }
+
+        public final Codes CODES = new Codes(this);
+    }
+
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testReadRecords()
+    {
+        DBMSHandlerBase dbms = (DBMSHandlerBase)dbResource.newDriver();
+        // use small chunks
+        dbms.setMaxStatementParams(3);
+        DBContextStatic context = new DBContextStatic(dbms, dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        List<Object[]> keys = new ArrayList<Object[]>();
+        for (int i=0; i<8; i++)
+        {   DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+            dep.create();
+            dep.set(db.DEPARTMENT.NAME, "dep"+i);
+            dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+            dep.update();
+            keys.add(0, new Object[] { dep.getInt(db.DEPARTMENT.ID) });
+        }
+        // add a missing and a duplicate key
+        Object[] missing = new Object[] { Integer.valueOf(4711) };
+        keys.add(2, missing);
+        keys.add(keys.get(0));
+
+        List<Object[]> missingKeys = new ArrayList<Object[]>();
+        List<DBRecord> records = db.DEPARTMENT.readRecords(context, keys, missingKeys);
+        assertEquals(8, records.size());
+        assertEquals(1, missingKeys.size());
+        assertEquals(missing, missingKeys.get(0));
+        // records must be in key order
+        assertEquals("dep7", records.get(0).getString(db.DEPARTMENT.NAME));
+        assertEquals("dep0", records.get(7).getString(db.DEPARTMENT.NAME));
+        for (DBRecord record : records)
+            assertEquals(false, record.isNew());
+    }
+
+    @Test
+    public void testReadRecordsPaddedKeys()
+    {
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), dbResource.getConnection());
+        CodeDB db = new CodeDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+        context.executeSQL("INSERT INTO CODES (CODE, NAME) VALUES ('ab', 'first')", null);
+        context.executeSQL("INSERT INTO CODES (CODE, NAME) VALUES ('cd', 'second')", null);
+
+        // the database returns the keys padded
+        List<Object[]> keys = new ArrayList<Object[]>();
+        keys.add(new Object[] { "cd" });
+        keys.add(new Object[] { "ab" });
+        keys.add(new Object[] { "xy" });
+        List<Object[]> missingKeys = new ArrayList<Object[]>();
+        List<DBRecord> records = db.CODES.readRecords(context, keys, missingKeys);
+        assertEquals(2, records.size());
+        assertEquals("second", records.get(0).getString(db.CODES.NAME));
+        assertEquals("first", records.get(1).getString(db.CODES.NAME));
+        assertEquals(1, missingKeys.size());
+        assertEquals("xy", missingKeys.get(0)[0]);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.db.exceptions.QueryTimeoutException;
+import org.apache.empire.dbms.hsql.DBMSHandlerHSql;
+import org.apache.empire.dbms.postgresql.DBMSHandlerPostgreSQL;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBStatementControlTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testStatementControl()
+    {
+        final List<Integer> timeouts = new ArrayList<Integer>();
+        DBMSHandlerHSql dbms = new DBMSHandlerHSql() {
+            @Override
+            protected void setQueryTimeout(Statement stmt, int seconds)
+                throws SQLException
+            {
+                timeouts.add(seconds);
+                super.setQueryTimeout(stmt, seconds);
+            }
+        };
+        DBContextStatic context = new DBContextStatic(dbms, dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.count());
+
+        // no timeout
+        timeouts.clear();
+        context.getUtils().querySingleInt(cmd);
+        assertEquals(0, timeouts.get(0).intValue());
+        assertNull(DBStatementControl.getCurrent());
+
+        // context default
+        context.setQueryTimeout(30);
+        timeouts.clear();
+        context.getUtils().querySingleInt(cmd);
+        assertEquals(30, timeouts.get(0).intValue());
+
+        // command timeout
+        cmd.setQueryTimeout(5);
+        timeouts.clear();
+        context.getUtils().queryObjectList(cmd);
+        assertEquals(5, timeouts.get(0).intValue());
+
+        // deadline
+        cmd.setDeadline(System.currentTimeMillis()+2500);
+        timeouts.clear();
+        context.getUtils().querySingleInt(cmd);
+        assertTrue(timeouts.get(0).intValue()>0 && timeouts.get(0).intValue()<=3);
+
+        // update with command timeout
+        DBCommand upd = context.createCommand();
+        upd.set(db.DEPARTMENT.BUSINESS_UNIT.to("X"));
+        upd.setQueryTimeout(7);
+        timeouts.clear();
+        context.executeUpdate(upd);
+        assertEquals(7, timeouts.get(0).intValue());
+        assertNull(DBStatementControl.getCurrent());
+
+        // deadline passed
+        cmd.setDeadline(System.currentTimeMillis()-1);
+        try {
+            context.getUtils().querySingleInt(cmd);
+            fail("deadline must be exceeded");
+        } catch(QueryTimeoutException e) {
+            assertFalse(e.isCancelled());
+        }
+        assertNull(DBStatementControl.getCurrent());
+    }
+
+    @Test
+    public void testCancel()
+    {
+        DBContextStatic context = new DBContextStatic(new DBMSHandlerHSql(), dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.NAME);
+
+        // cancelled command
+        DBCancelHandle handle = new DBCancelHandle();
+        cmd.setCancelHandle(handle);
+        handle.cancel();
+        try {
+            context.getUtils().querySimpleList(cmd);
+            fail("query must be cancelled");
+        } catch(QueryTimeoutException e) {
+            assertTrue(e.isCancelled());
+        }
+        handle.reset();
+        context.getUtils().querySimpleList(cmd);
+
+        // reader
+        cmd.setCancelHandle(null);
+        DBReader reader = new DBReader(context);
+        try {
+            reader.open(cmd);
+            reader.cancel();
+            assertTrue(reader.getCancelHandle().isCancelled());
+            reader.close();
+            // reopen
+            reader.open(cmd);
+            fail("query must be cancelled");
+        } catch(QueryTimeoutException e) {
+            assertTrue(e.isCancelled());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testCancelDuringFetch() throws InterruptedException
+    {
+        DBContextStatic context = new DBContextStatic(new DBMSHandlerHSql(), dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+        for (int i=0; i<3; i++)
+        {   DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+            dep.create();
+            dep.set(db.DEPARTMENT.NAME, "dep"+i);
+            dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+            dep.update();
+        }
+
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.NAME);
+        final DBReader reader = new DBReader(context);
+        try {
+            reader.open(cmd);
+            assertTrue(reader.moveNext());
+            // cancel from another thread
+            Thread thread = new Thread() {
+                @Override
+                public void run()
+                {
+                    reader.cancel();
+                }
+            };
+            thread.start();
+            thread.join();
+            reader.moveNext();
+            fail("fetch must be cancelled");
+        } catch(QueryTimeoutException e) {
+            assertTrue(e.isCancelled());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testTimeoutDetection()
+    {
+        DBContextStatic context = new DBContextStatic(new DBMSHandlerPostgreSQL(), dbResource.getConnection());
+        // PostgreSQL reports timeouts with SQLState 57014 
+        SQLException timeout = new SQLException("canceling statement due to statement timeout", "57014");
+        QueryTimeoutException e = context.getUtils().getTimeoutException("SELECT 1", timeout);
+        assertFalse(e.isCancelled());
+        assertNull(context.getUtils().getTimeoutException("SELECT 1", new SQLException("syntax error", "42601")));
+        // SQLTimeoutException
+        assertTrue(new DBMSHandlerHSql().isQueryTimeout(new SQLTimeoutException()));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.dbms.DBMSHandlerBase;
+import org.apache.empire.dbms.oracle.DBMSHandlerOracle;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBTableBulkInsertTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testInsertBulk()
+    {
+        DBMSHandlerBase dbms = (DBMSHandlerBase)dbResource.newDriver();
+        // 4 columns: max 10 rows per statement
+        dbms.setMaxStatementParams(40);
+        DBContextStatic context = new DBContextStatic(dbms, dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        DBColumn[] columns = new DBColumn[] { db.DEPARTMENT.ID, db.DEPARTMENT.NAME, db.DEPARTMENT.BUSINESS_UNIT, db.DEPARTMENT.UPDATE_TIMESTAMP };
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i=1; i<=25; i++)
+            rows.add(new Object[] { i, "dep"+i, "ITTK", timestamp });
+        int[] counts = db.DEPARTMENT.insertBulk(context, columns, rows);
+        assertArrayEquals(new int[] { 10, 10, 5 }, counts);
+
+        // read, delete and insert again from records
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.getColumns());
+        cmd.where(db.DEPARTMENT.ID.isLessOrEqual(3));
+        List<DBRecord> records = context.getUtils().queryRecordList(cmd, db.DEPARTMENT);
+        context.executeDelete(db.DEPARTMENT, cmd);
+        counts = db.DEPARTMENT.insertRecordsBulk(context, columns, records);
+        assertArrayEquals(new int[] { 3 }, counts);
+
+        cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.count());
+        assertEquals(25, context.getUtils().querySingleInt(cmd));
+        cmd.where(db.DEPARTMENT.NAME.is("dep3"));
+        assertEquals(1, context.getUtils().querySingleInt(cmd));
+    }
+
+    @Test
+    public void testOracleBulkInsertSQL()
+    {
+        DBMSHandlerOracle dbms = new DBMSHandlerOracle();
+        CompanyDB db = new CompanyDB();
+        db.open(new DBContextStatic(dbms, dbResource.getConnection()));
+        DBSQLBuilder sql = dbms.createSQLBuilder();
+        dbms.appendBulkInsert(sql, db.DEPARTMENT, new DBColumn[] { db.DEPARTMENT.ID, db.DEPARTMENT.NAME }, 2);
+        assertEquals("INSERT ALL INTO DEPARTMENTS (DEPARTMENT_ID, NAME) VALUES (?, ?) INTO DEPARTMENTS (DEPARTMENT_ID, NAME) VALUES (?, ?) SELECT 1 FROM DUAL", sql.toString());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.data.list.DataListEntry;
+import org.apache.empire.db.context.DBContextFactory;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.dbms.DBMSHandler;
+import org.apache.empire.exceptions.InternalException;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBUtilsAsyncTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testAsyncQueries() throws Exception
+    {
+        final DBMSHandler dbms = dbResource.newDriver();
+        DBContextStatic context = new DBContextStatic(dbms, dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        for (int i=0; i<5; i++)
+        {   DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+            dep.create();
+            dep.set(db.DEPARTMENT.NAME, "dep"+i);
+            dep.set(db.DEPARTMENT.BUSINESS_UNIT, (i<3 ? "ITTK" : "SALE"));
+            dep.update();
+        }
+        context.commit();
+
+        // each task uses its own connection
+        final String url = dbResource.getConnection().getMetaData().getURL();
+        final AtomicInteger acquired = new AtomicInteger();
+        final AtomicInteger released = new AtomicInteger();
+        DBContextFactory contextFactory = new DBContextFactory()
+        {
+            @Override
+            public DBContext acquireContext()
+            {
+                try {
+                    Connection conn = DriverManager.getConnection(url, "sa", "");
+                    acquired.incrementAndGet();
+                    return new DBContextStatic(dbms, conn, true);
+                } catch (SQLException e) {
+                    throw new InternalException(e);
+                }
+            }
+            @Override
+            public void releaseContext(DBContext context)
+            {
+                context.discard();
+                released.incrementAndGet();
+            }
+        };
+
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.ID, db.DEPARTMENT.NAME);
+        cmd.where(db.DEPARTMENT.BUSINESS_UNIT.is("ITTK"));
+        cmd.orderBy(db.DEPARTMENT.NAME);
+
+        DBUtils utils = context.getUtils();
+        CompletableFuture<List<DataListEntry>> list = utils.queryDataListAsync(contextFactory, cmd);
+        CompletableFuture<Integer> count = utils.queryRowCountAsync(contextFactory, cmd);
+        // modifying the command must not affect the pending queries
+        cmd.where(db.DEPARTMENT.NAME.is("dep0"));
+        cmd.clearSelect();
+        cmd.select(db.DEPARTMENT.NAME);
+        CompletableFuture<String> name = utils.querySingleValueAsync(contextFactory, cmd, String.class, true);
+        CompletableFuture.allOf(list, count, name).join();
+
+        assertEquals(3, list.get().size());
+        assertEquals("dep0", list.get().get(0).getString(db.DEPARTMENT.NAME));
+        assertEquals(3, count.get().intValue());
+        assertEquals("dep0", name.get());
+        assertEquals(3, acquired.get());
+        assertEquals(3, released.get());
+    }
+}
@@ -90,4 +90,66 @@ public class PreparedStatementTest{
             r.close();
         }
     }
+
+    @Test
+    public void testCompiledCommand()
+    {
+        Connection conn = dbResource.getConnection();
+        
+        DBMSHandler dbms = dbResource.newDriver();
+        DBContext context = new DBContextStatic(dbms, conn); 
+        
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+        
+        CompanyDB.Departments DEP = db.DEPARTMENT;
+        for (int i=0; i<3; i++)
+        {   DBRecord department = new DBRecord(context, DEP);
+            department.create();
+            department.set(DEP.NAME, "junit"+i);
+            department.set(DEP.BUSINESS_UNIT, "test");
+            department.update();
+        }
+
+        // compile a command that uses the same param twice
+        DBCommand cmd = context.createCommand();
+        DBCmdParam nameParam = cmd.addParam("junit0");
+        cmd.select(DEP.ID, DEP.NAME);
+        cmd.where(DEP.NAME.is(nameParam).or(DEP.HEAD.is(nameParam)));
+        DBCompiledCommand compiled = cmd.compileSelect();
+        assertEquals(DBCompiledCommand.StatementType.SELECT, compiled.getType());
+        assertEquals(2, compiled.getParamCount());
+
+        // rebind only
+        DBReader r = new DBReader(context);
+        for (int i=0; i<3; i++)
+        {   nameParam.setValue("junit"+i);
+            assertEquals("junit"+i, compiled.getParamValues()[1]);
+            try {
+                r.open(compiled);
+                assertTrue(r.moveNext());
+                assertEquals("junit"+i, r.getString(DEP.NAME));
+            } finally {
+                r.close();
+            }
+        }
+
+        // compiled update
+        DBCommand upd = context.createCommand();
+        DBCmdParam headParam = upd.addParam(null);
+        DBCmdParam whereParam = upd.addParam(null);
+        upd.set(DEP.HEAD.to(headParam));
+        upd.where(DEP.NAME.is(whereParam));
+        DBCompiledCommand update = upd.compileUpdate();
+        for (int i=0; i<3; i++)
+        {   headParam.setValue("head"+i);
+            whereParam.setValue("junit"+i);
+            assertEquals(1, context.getUtils().executeSQL(update.getSql(), update.getParamValues(), null));
+        }
+        nameParam.setValue("head2");
+        assertEquals(1, context.getUtils().querySimpleList(cmd).size());
+    }
 }
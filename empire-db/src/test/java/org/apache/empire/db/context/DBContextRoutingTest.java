@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.db.CompanyDB;
+import org.apache.empire.db.DBCommand;
+import org.apache.empire.db.DBContext;
+import org.apache.empire.db.DBRecord;
+import org.apache.empire.db.DBRecordCache;
+import org.apache.empire.db.DBSQLScript;
+import org.apache.empire.dbms.hsql.DBMSHandlerHSql;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBContextRoutingTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testRouting()
+        throws Exception
+    {
+        DBMSHandlerHSql dbms = new DBMSHandlerHSql();
+        Connection primary = dbResource.getConnection();
+        Connection replica = DriverManager.getConnection("jdbc:hsqldb:mem:data/replica", "sa", "");
+        try {
+            CompanyDB db = new CompanyDB();
+            DBContext primaryContext = new DBContextStatic(dbms, primary);
+            db.open(primaryContext);
+            createDepartment(db, primaryContext, "Primary");
+            createDepartment(db, new DBContextStatic(dbms, replica), "Replica");
+
+            DBContextRouting context = new DBContextRouting(dbms, primary, replica);
+            context.setReadYourWritesWindow(0);
+            DBCommand cmd = context.createCommand();
+            cmd.select(db.DEPARTMENT.NAME);
+
+            // read from replica
+            assertFalse(context.isPrimaryRequired());
+            assertEquals("Replica", context.getUtils().querySingleString(cmd));
+            DBRecord rec = new DBRecord(context, db.DEPARTMENT);
+            rec.read(db.DEPARTMENT.ID.is(1));
+            assertEquals("Replica", rec.getString(db.DEPARTMENT.NAME));
+            assertFalse(context.isReadCacheable());
+
+            // results read from a replica are not cached
+            DBRecordCache recordCache = new DBRecordCache(10);
+            db.DEPARTMENT.setRecordCache(recordCache);
+            rec.read(rec.getKey());
+            assertEquals(0, recordCache.size());
+
+            // read your writes
+            context.setReadYourWritesWindow(60000);
+            DBCommand upd = context.createCommand();
+            upd.set(db.DEPARTMENT.BUSINESS_UNIT.to("X"));
+            context.executeUpdate(upd);
+            assertTrue(context.isPrimaryRequired());
+            assertEquals("Primary", context.getUtils().querySingleString(cmd));
+            assertEquals(1, context.getPrimaryReadCount());
+            assertTrue(context.isReadCacheable());
+            rec.read(rec.getKey());
+            assertEquals("Primary", rec.getString(db.DEPARTMENT.NAME));
+            assertEquals(1, recordCache.size());
+            db.DEPARTMENT.setRecordCache(null);
+
+            // write transaction
+            context.setReadYourWritesWindow(0);
+            assertFalse(context.isPrimaryRequired());
+            primary.setAutoCommit(false);
+            try {
+                context.executeUpdate(upd);
+                assertTrue(context.isPrimaryRequired());
+                assertEquals("Primary", context.getUtils().querySingleString(cmd));
+                context.commit();
+                assertFalse(context.isPrimaryRequired());
+                assertEquals("Replica", context.getUtils().querySingleString(cmd));
+            } finally {
+                primary.setAutoCommit(true);
+            }
+        } finally {
+            Statement st = replica.createStatement();
+            st.execute("SHUTDOWN");
+            replica.close();
+        }
+    }
+
+    @Test
+    public void testLoadBalancing()
+    {
+        Connection primary = dbResource.getConnection();
+        DBContextRouting context = new DBContextRouting(new DBMSHandlerHSql(), primary);
+        assertTrue(context.isPrimaryRequired());
+        // the connection objects are only used for routing
+        context.addReplica(primary, 2);
+        context.addReplica(primary, 1);
+        for (int i=0; i<30; i++)
+            context.getReadConnection();
+        assertEquals(20, context.getReplica(0).getReadCount());
+        assertEquals(10, context.getReplica(1).getReadCount());
+        // disable
+        context.setReplicaEnabled(0, false);
+        for (int i=0; i<10; i++)
+            context.getReadConnection();
+        assertEquals(20, context.getReplica(0).getReadCount());
+        assertEquals(20, context.getReplica(1).getReadCount());
+        context.setReplicaEnabled(1, false);
+        assertTrue(context.isPrimaryRequired());
+        context.getReadConnection();
+        assertEquals(1, context.getPrimaryReadCount());
+    }
+
+    @Test
+    public void testReplicaTransactions()
+        throws Exception
+    {
+        final Connection replica = DriverManager.getConnection("jdbc:hsqldb:mem:data/replica", "sa", "");
+        final int[] counts = new int[2];
+        try {
+            // count commits and rollbacks of the replica
+            replica.setAutoCommit(false);
+            Connection countingReplica = (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable
+                {
+                    if (method.getName().equals("commit"))
+                        counts[0]++;
+                    else if (method.getName().equals("rollback") && args==null)
+                        counts[1]++;
+                    try {
+                        return method.invoke(replica, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            });
+            DBContextRouting context = new DBContextRouting(new DBMSHandlerHSql(), dbResource.getConnection(), countingReplica);
+            context.setReadYourWritesWindow(0);
+            // commit
+            assertTrue(context.getReadConnection()==countingReplica);
+            context.commit();
+            assertEquals(1, counts[0]);
+            // unused replicas are not committed
+            context.commit();
+            assertEquals(1, counts[0]);
+            // rollback
+            context.getReadConnection();
+            context.rollback();
+            assertEquals(1, counts[1]);
+        } finally {
+            replica.setAutoCommit(true);
+            Statement st = replica.createStatement();
+            st.execute("SHUTDOWN");
+            replica.close();
+        }
+    }
+
+    private void createDepartment(CompanyDB db, DBContext context, String name)
+    {
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+        DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+        dep.create();
+        dep.set(db.DEPARTMENT.NAME, name);
+        dep.set(db.DEPARTMENT.BUSINESS_UNIT, "TEST");
+        dep.update();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db.list;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class DBBeanFactoryCacheTest
+{
+    public static class SampleBean
+    {
+        private String name;
+
+        public String getName()
+        {
+            return name;
+        }
+        public void setName(String name)
+        {
+            this.name = name;
+        }
+    }
+
+    @Test
+    public void testCreateOnce()
+        throws InterruptedException
+    {
+        final AtomicInteger createCount = new AtomicInteger();
+        final DBBeanFactoryCache.FactoryCreator<SampleBean> creator = new DBBeanFactoryCache.FactoryCreator<SampleBean>() {
+            @Override
+            public DBBeanListFactory<SampleBean> createFactory(Class<SampleBean> beanType)
+            {
+                createCount.incrementAndGet();
+                return new DBBeanListFactoryImpl<SampleBean>(beanType, null);
+            }
+        };
+        assertNull(DBBeanFactoryCache.getFactoryForType(SampleBean.class));
+        // concurrent access
+        final int threadCount = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<DBBeanListFactory<SampleBean>> results = new ArrayList<DBBeanListFactory<SampleBean>>();
+        List<Thread> threads = new ArrayList<Thread>(threadCount);
+        for (int i=0; i<threadCount; i++)
+        {   Thread t = new Thread() {
+                @Override
+                public void run()
+                {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    DBBeanListFactory<SampleBean> factory = DBBeanFactoryCache.getFactoryForType(SampleBean.class, creator);
+                    synchronized(results) {
+                        results.add(factory);
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread t : threads)
+            t.join();
+        // check
+        assertEquals(1, createCount.get());
+        assertEquals(threadCount, results.size());
+        DBBeanListFactory<SampleBean> factory = DBBeanFactoryCache.getFactoryForType(SampleBean.class);
+        for (DBBeanListFactory<SampleBean> f : results)
+            assertSame(factory, f);
+        // remove
+        DBBeanFactoryCache.setFactoryForType(SampleBean.class, null);
+        assertNull(DBBeanFactoryCache.getFactoryForType(SampleBean.class));
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db.list;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.db.CompanyDB;
+import org.apache.empire.db.DBCommand;
+import org.apache.empire.db.DBRecord;
+import org.apache.empire.db.DBRecordData;
+import org.apache.empire.db.DBSQLScript;
+import org.apache.empire.db.context.DBContextStatic;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBBeanMapperTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    public static class Department
+    {
+        private int     departmentId;
+        private String  name;
+        private String  head;
+        private String  businessUnit;
+
+        public int getDepartmentId()
+        {
+            return departmentId;
+        }
+        public void setDepartmentId(int departmentId)
+        {
+            this.departmentId = departmentId;
+        }
+        public String getName()
+        {
+            return name;
+        }
+        public void setName(String name)
+        {
+            this.name = name;
+        }
+        public String getHead()
+        {
+            return head;
+        }
+        public void setHead(String head)
+        {
+            this.head = head;
+        }
+        public String getBusinessUnit()
+        {
+            return businessUnit;
+        }
+        // read only
+        public String getUpdateTimestamp()
+        {
+            return null;
+        }
+    }
+
+    public static class DepartmentInfo
+    {
+        private final long id;
+        private String name;
+        private String businessUnit;
+
+        public DepartmentInfo(long id)
+        {
+            this.id = id;
+        }
+        public long getId()
+        {
+            return id;
+        }
+        public String getName()
+        {
+            return name;
+        }
+        public void setName(String name)
+        {
+            this.name = name;
+        }
+        public String getBusinessUnit()
+        {
+            return businessUnit;
+        }
+        public void setBusinessUnit(String businessUnit)
+        {
+            this.businessUnit = businessUnit;
+        }
+    }
+
+    @Test
+    public void testBeanMapping()
+    {
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        for (int i=0; i<3; i++)
+        {   DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+            dep.create();
+            dep.set(db.DEPARTMENT.NAME, "junit"+i);
+            dep.set(db.DEPARTMENT.HEAD, (i==0 ? null : "head"+i));
+            dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+            dep.update();
+        }
+
+        // default constructor with setters
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.getColumns());
+        cmd.orderBy(db.DEPARTMENT.NAME);
+        List<Department> list = context.getUtils().queryBeanList(cmd, Department.class, null);
+        assertEquals(3, list.size());
+        assertTrue(list.get(0).getDepartmentId()>0);
+        assertEquals("junit0", list.get(0).getName());
+        assertNull(list.get(0).getHead());
+        assertEquals("head2", list.get(2).getHead());
+        assertNull(list.get(2).getBusinessUnit());
+
+        // select list changes
+        cmd.clearSelect();
+        cmd.select(db.DEPARTMENT.NAME, db.DEPARTMENT.HEAD);
+        list = context.getUtils().queryBeanList(cmd, Department.class, null);
+        assertEquals(0, list.get(1).getDepartmentId());
+        assertEquals("head1", list.get(1).getHead());
+
+        // constructor params
+        DBBeanListFactory<DepartmentInfo> factory = new DBBeanListFactoryImpl<DepartmentInfo>(DepartmentInfo.class,
+                                                        db.DEPARTMENT.getKeyColumns(), db.DEPARTMENT.getColumns());
+        cmd.clearSelect();
+        cmd.select(db.DEPARTMENT.ID, db.DEPARTMENT.BUSINESS_UNIT);
+        List<DepartmentInfo> infos = context.getUtils().queryBeanList(cmd, factory, null);
+        assertEquals(3, infos.size());
+        assertTrue(infos.get(0).getId()>0);
+        assertNull(infos.get(0).getName());
+        assertEquals("test", infos.get(0).getBusinessUnit());
+    }
+
+    @Test
+    public void testMapperCache()
+    {
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        for (int i=0; i<3; i++)
+        {   DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+            dep.create();
+            dep.set(db.DEPARTMENT.NAME, "junit"+i);
+            dep.set(db.DEPARTMENT.HEAD, "head"+i);
+            dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+            dep.update();
+        }
+
+        final AtomicInteger createCount = new AtomicInteger();
+        DBBeanListFactory<Department> factory = new DBBeanListFactoryImpl<Department>(Department.class, null) {
+            @Override
+            protected DBBeanMapper<Department> createBeanMapper(DBRecordData recData)
+            {
+                createCount.incrementAndGet();
+                return super.createBeanMapper(recData);
+            }
+        };
+        DBCommand cmd1 = context.createCommand();
+        cmd1.select(db.DEPARTMENT.NAME, db.DEPARTMENT.HEAD);
+        DBCommand cmd2 = context.createCommand();
+        cmd2.select(db.DEPARTMENT.ID, db.DEPARTMENT.NAME);
+        // alternate the select list
+        for (int i=0; i<3; i++)
+        {   List<Department> list = context.getUtils().queryBeanList(cmd1, factory, null);
+            assertEquals(3, list.size());
+            assertEquals(0, list.get(0).getDepartmentId());
+            assertTrue(list.get(0).getHead().startsWith("head"));
+            list = context.getUtils().queryBeanList(cmd2, factory, null);
+            assertEquals(3, list.size());
+            assertTrue(list.get(0).getDepartmentId()>0);
+            assertNull(list.get(0).getHead());
+            // computed expressions are new objects for every query
+            DBCommand cmd3 = context.createCommand();
+            cmd3.select(db.DEPARTMENT.NAME.upper().as("NAME"));
+            list = context.getUtils().queryBeanList(cmd3, factory, null);
+            assertEquals(3, list.size());
+            assertTrue(list.get(0).getName().startsWith("JUNIT"));
+        }
+        // one mapper per select list
+        assertEquals(3, createCount.get());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db.monitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.db.CompanyDB;
+import org.apache.empire.db.DBCommand;
+import org.apache.empire.db.DBReader;
+import org.apache.empire.db.DBSQLScript;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.dbms.DBMSHandlerBase;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBReaderLeakDetectorTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testLeakDetector()
+        throws Exception
+    {
+        DBMSHandlerBase dbms = (DBMSHandlerBase)dbResource.newDriver();
+        DBContextStatic context = new DBContextStatic(dbms, dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        DBReaderLeakDetector detector = new DBReaderLeakDetector(2)
+        {   // the test class is the call site
+            @Override
+            protected boolean isCallSite(StackTraceElement frame)
+            {
+                return frame.getClassName().startsWith(DBReaderLeakDetectorTest.class.getName());
+            }
+        };
+        DBReader.setLeakDetector(detector);
+        try {
+            DBCommand cmd = context.createCommand();
+            cmd.select(db.DEPARTMENT.NAME);
+            DBReader[] readers = new DBReader[4];
+            for (int i=0; i<readers.length; i++)
+            {   readers[i] = new DBReader(context);
+                readers[i].open(cmd);
+            }
+            assertEquals(4, detector.getOpenedCount());
+            assertEquals(4, detector.getOpenCount());
+            Map<String, Integer> byThread = detector.getOpenCountByThread();
+            assertEquals(Integer.valueOf(4), byThread.get(Thread.currentThread().getName()));
+            // every second reader is sampled
+            Map<String, Integer> byCallSite = detector.getOpenCountByCallSite();
+            assertEquals(1, byCallSite.size());
+            String callSite = byCallSite.keySet().iterator().next();
+            assertTrue(callSite, callSite.contains("testLeakDetector"));
+            assertEquals(Integer.valueOf(2), byCallSite.get(callSite));
+            // close
+            for (int i=0; i<readers.length; i++)
+                readers[i].close();
+            assertEquals(0, detector.getOpenCount());
+            assertTrue(detector.getOpenCountByThread().isEmpty());
+            assertTrue(detector.getOpenCountByCallSite().isEmpty());
+            assertEquals(0, detector.getStatisticsSize());
+            assertEquals(0, detector.getLeakCount());
+
+            // unnamed thread
+            final DBReader reader = new DBReader(context);
+            final DBCommand threadCmd = cmd;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run()
+                {
+                    reader.open(threadCmd);
+                }
+            }, "");
+            thread.start();
+            thread.join();
+            assertEquals(Integer.valueOf(1), detector.getOpenCountByThread().get("Thread#"+thread.getId()));
+            reader.close();
+            assertEquals(0, detector.getStatisticsSize());
+
+            // leak a reader
+            openReader(context, cmd);
+            assertEquals(1, detector.getOpenCount());
+            for (int i=0; i<50 && detector.getLeakCount()==0; i++)
+            {   System.gc();
+                Thread.sleep(20);
+                detector.checkLeaks();
+            }
+            assertEquals(1, detector.getLeakCount());
+            assertEquals(0, detector.getOpenCount());
+        } finally {
+            DBReader.setLeakDetector(null);
+        }
+    }
+
+    private void openReader(DBContextStatic context, DBCommand cmd)
+    {
+        DBReader reader = new DBReader(context);
+        reader.open(cmd);
+    }
+}
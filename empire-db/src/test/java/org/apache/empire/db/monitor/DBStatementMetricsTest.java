@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.db.monitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.db.CompanyDB;
+import org.apache.empire.db.DBCommand;
+import org.apache.empire.db.DBReader;
+import org.apache.empire.db.DBRecord;
+import org.apache.empire.db.DBSQLScript;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.db.exceptions.QueryFailedException;
+import org.apache.empire.dbms.DBMSHandlerBase;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBStatementMetricsTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testStatementShape()
+    {
+        DBStatementMetrics metrics = new DBStatementMetrics();
+        assertEquals("SELECT t.A FROM T t WHERE t.ID IN (?) AND t.NAME=? AND t.X1=?",
+                     metrics.getStatementShape("SELECT t.A FROM T t\r\n WHERE t.ID IN (1, 2, 3) AND t.NAME='it''s' AND t.X1=?"));
+    }
+
+    @Test
+    public void testStatementMetrics()
+        throws Exception
+    {
+        DBMSHandlerBase dbms = (DBMSHandlerBase)dbResource.newDriver();
+        DBContextStatic context = new DBContextStatic(dbms, dbResource.getConnection());
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        DBStatementMetrics metrics = new DBStatementMetrics();
+        dbms.setStatementListener(metrics);
+        for (int i=0; i<3; i++)
+        {   DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+            dep.create();
+            dep.set(db.DEPARTMENT.NAME, "dep"+i);
+            dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+            dep.update();
+        }
+        assertEquals(3, metrics.getStatementCount());
+        assertEquals(1, metrics.getShapeCount());
+
+        // reader
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.DEPARTMENT.NAME);
+        cmd.where(db.DEPARTMENT.BUSINESS_UNIT.is("test"));
+        DBReader reader = new DBReader(context);
+        try {
+            reader.open(cmd);
+            while (reader.moveNext())
+                assertNotNull(reader.getString(db.DEPARTMENT.NAME));
+        } finally {
+            reader.close();
+        }
+        DBStatementMetrics.Statistics stats = metrics.getStatistics(cmd.getSelect());
+        assertEquals(1, stats.getCount());
+        assertEquals(3, stats.getRowCount());
+
+        // list query
+        context.getUtils().queryObjectList(cmd);
+        stats = metrics.getStatistics(cmd.getSelect());
+        assertEquals(2, stats.getCount());
+        assertEquals(6, stats.getRowCount());
+
+        // failure
+        try {
+            context.getUtils().querySingleValue("SELECT NOT_EXISTS FROM DEPARTMENTS", null, null, false);
+            fail("query must fail");
+        } catch(QueryFailedException e) {
+            // expected
+        }
+        assertEquals(1, metrics.getErrorCount());
+
+        // JMX
+        ObjectName name = metrics.register("test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(metrics.getStatementCount(), server.getAttribute(name, "StatementCount"));
+            CompositeData[] data = (CompositeData[])server.getAttribute(name, "Statistics");
+            assertEquals(metrics.getShapeCount(), data.length);
+            assertTrue(((Long)data[0].get("count"))>0);
+        } finally {
+            metrics.unregister();
+        }
+        dbms.setStatementListener(null);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.dbms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.db.CompanyDB;
+import org.apache.empire.db.DBSQLScript;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.dbms.DBMSHandlerBase.DBSeqTable;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBSeqTableTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testBlockAllocation()
+        throws InterruptedException
+    {
+        final Connection conn = dbResource.getConnection();
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), conn);
+        CompanyDB db = new CompanyDB();
+        final DBSeqTable seqTable = new DBSeqTable("SEQUENCES", db);
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        // single values
+        assertEquals(1L, seqTable.getNextValue("SINGLE", 1, conn));
+        assertEquals(2L, seqTable.getNextValue("SINGLE", 1, conn));
+        assertEquals(2, seqTable.getAllocationCount());
+
+        // blocks
+        seqTable.setBlockSize(10);
+        for (long i=1; i<=25; i++)
+            assertEquals(i, seqTable.getNextValue("BLOCK", 1, conn));
+        assertEquals(5, seqTable.getAllocationCount());
+        // the table holds the end of the last block
+        assertEquals(31L, seqTable.allocateValues("BLOCK", 1, 1, conn));
+        assertEquals(26L, seqTable.getNextValue("BLOCK", 1, conn));
+
+        // concurrent
+        final Set<Object> values = new HashSet<Object>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t=0; t<4; t++)
+        {   Thread thread = new Thread() {
+                @Override
+                public void run()
+                {
+                    for (int i=0; i<50; i++)
+                    {   Object value = seqTable.getNextValue("CONCURRENT", 1, conn);
+                        synchronized(values) {
+                            values.add(value);
+                        }
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(200, values.size());
+        assertEquals(228, seqTable.getValueCount());
+    }
+
+    @Test
+    public void testSeparateConnection()
+        throws Exception
+    {
+        final Connection conn = dbResource.getConnection();
+        DBContextStatic context = new DBContextStatic(dbResource.newDriver(), conn);
+        CompanyDB db = new CompanyDB();
+        final DBSeqTable seqTable = new DBSeqTable("SEQUENCES", db);
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        // data source for a separate connection
+        final int[] connCount = new int[1];
+        DataSource dataSource = (DataSource)Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[] { DataSource.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable
+            {
+                if (!method.getName().equals("getConnection"))
+                    throw new UnsupportedOperationException(method.getName());
+                connCount[0]++;
+                return DriverManager.getConnection("jdbc:hsqldb:mem:data/derby/test", "sa", "");
+            }
+        });
+        seqTable.setBlockSize(10);
+        seqTable.setDataSource(dataSource);
+
+        // the reservation must survive a rollback of the caller
+        conn.setAutoCommit(false);
+        try {
+            assertEquals(1L, seqTable.getNextValue("SEPARATE", 1, conn));
+            assertEquals(2L, seqTable.getNextValue("SEPARATE", 1, conn));
+            conn.rollback();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        assertEquals(1, connCount[0]);
+        assertEquals(11L, seqTable.allocateValues("SEPARATE", 1, 1, conn));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.dbms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.apache.empire.db.CompanyDB;
+import org.apache.empire.db.DBCmdParam;
+import org.apache.empire.db.DBCommand;
+import org.apache.empire.db.DBReader;
+import org.apache.empire.db.DBRecord;
+import org.apache.empire.db.DBSQLScript;
+import org.apache.empire.db.context.DBContextStatic;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class DBStatementCacheTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testStatementCache()
+    {
+        Connection conn = dbResource.getConnection();
+
+        DBMSHandlerBase dbms = (DBMSHandlerBase)dbResource.newDriver();
+        dbms.setStatementCacheSize(4);
+        DBContextStatic context = new DBContextStatic(dbms, conn);
+        context.setPreparedStatementsEnabled(true);
+
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        for (int i=0; i<3; i++)
+        {   DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+            dep.create();
+            dep.set(db.DEPARTMENT.NAME, "junit"+i);
+            dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+            dep.update();
+        }
+
+        // Query the same statement repeatedly
+        DBCommand cmd = context.createCommand();
+        DBCmdParam nameParam = cmd.addParam("junit0");
+        cmd.select(db.DEPARTMENT.ID);
+        cmd.where(db.DEPARTMENT.NAME.is(nameParam));
+
+        long hits = dbms.getStatementCacheHitCount();
+        for (int i=0; i<3; i++)
+        {   nameParam.setValue("junit"+i);
+            assertTrue(context.getUtils().querySingleInt(cmd, -1)>0);
+        }
+        assertTrue("Statement not reused", dbms.getStatementCacheHitCount()>=hits+2);
+
+        // Nested use of the same statement
+        DBReader r = new DBReader(context);
+        try {
+            nameParam.setValue("junit1");
+            r.open(cmd);
+            assertTrue(r.moveNext());
+            int id = r.getInt(db.DEPARTMENT.ID);
+            assertEquals(id, context.getUtils().querySingleInt(cmd, -1));
+        } finally {
+            r.close();
+        }
+
+        // Discard releases the statements
+        DBStatementCache cache = dbms.getStatementCache(conn);
+        assertNotNull(cache);
+        assertTrue(cache.size()<=cache.getMaxSize());
+        context.discard();
+        assertNull(dbms.getStatementCache(conn));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEviction()
+    {
+        Connection conn = dbResource.getConnection();
+
+        DBMSHandlerBase dbms = (DBMSHandlerBase)dbResource.newDriver();
+        dbms.setStatementCacheSize(1);
+        DBContextStatic context = new DBContextStatic(dbms, conn);
+
+        context.getUtils().querySingleValue("VALUES(1)", new Object[0], null, true);
+        context.getUtils().querySingleValue("VALUES(2)", new Object[0], null, true);
+        context.getUtils().querySingleValue("VALUES(1)", new Object[0], null, true);
+
+        DBStatementCache cache = dbms.getStatementCache(conn);
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(2, cache.getEvictionCount());
+        context.discard();
+    }
+
+    @Test
+    public void testClosedConnection()
+        throws SQLException
+    {
+        DBMSHandlerBase dbms = (DBMSHandlerBase)dbResource.newDriver();
+        dbms.setStatementCacheSize(4);
+
+        // connection closed without clearing the cache
+        Connection conn = DriverManager.getConnection("jdbc:hsqldb:mem:data/derby/test", "sa", "");
+        DBContextStatic context = new DBContextStatic(dbms, conn);
+        context.getUtils().querySingleValue("VALUES(1)", new Object[0], null, true);
+        DBStatementCache cache = dbms.getStatementCache(conn);
+        assertEquals(1, cache.size());
+        conn.close();
+
+        // removed when the next connection is used
+        Connection next = dbResource.getConnection();
+        DBContextStatic nextContext = new DBContextStatic(dbms, next);
+        nextContext.getUtils().querySingleValue("VALUES(1)", new Object[0], null, true);
+        assertNull(dbms.getStatementCache(conn));
+        assertEquals(0, cache.size());
+        assertNotNull(dbms.getStatementCache(next));
+        nextContext.discard();
+    }
+}
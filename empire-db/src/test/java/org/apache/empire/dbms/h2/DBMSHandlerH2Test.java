@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.dbms.h2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.apache.empire.db.CompanyDB;
+import org.apache.empire.db.DBCommand;
+import org.apache.empire.db.DBContext;
+import org.apache.empire.db.DBRecord;
+import org.apache.empire.db.DBSQLScript;
+import org.apache.empire.db.DBTools;
+import org.apache.empire.db.context.DBContextStatic;
+import org.apache.empire.dbms.DBSqlPhrase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DBMSHandlerH2Test
+{
+    // a private in-memory database, as other tests may keep the shared one open with different credentials
+    private Connection conn;
+
+    @Before
+    public void before() throws SQLException
+    {
+        conn = DriverManager.getConnection("jdbc:h2:mem:data/h2/handlertest", "sa", "");
+    }
+
+    @After
+    public void after() throws SQLException
+    {
+        DBTools.close(conn);
+    }
+
+    /**
+     * H2 2.x does not accept 1 and 0 as boolean literals
+     */
+    @Test
+    public void testBooleanLiterals()
+    {
+        DBContext context = new DBContextStatic(new DBMSHandlerH2(), conn);
+        CompanyDB db = new CompanyDB();
+        db.open(context);
+        DBSQLScript script = new DBSQLScript(context);
+        db.getCreateDDLScript(script);
+        script.executeAll(false);
+
+        assertEquals("TRUE", context.getDbms().getSQLPhrase(DBSqlPhrase.SQL_BOOLEAN_TRUE));
+        assertEquals("FALSE", context.getDbms().getSQLPhrase(DBSqlPhrase.SQL_BOOLEAN_FALSE));
+
+        DBRecord dep = new DBRecord(context, db.DEPARTMENT);
+        dep.create();
+        dep.set(db.DEPARTMENT.NAME, "junit");
+        dep.set(db.DEPARTMENT.BUSINESS_UNIT, "test");
+        dep.update();
+        DBRecord emp = new DBRecord(context, db.EMPLOYEE);
+        emp.create();
+        emp.set(db.EMPLOYEE.FIRSTNAME, "junit");
+        emp.set(db.EMPLOYEE.LASTNAME, "test");
+        emp.set(db.EMPLOYEE.GENDER, "m");
+        emp.set(db.EMPLOYEE.RETIRED, false);
+        emp.set(db.EMPLOYEE.DEPARTMENT_ID, dep.getInt(db.DEPARTMENT.ID));
+        emp.update();
+
+        // boolean literal in a constraint
+        DBCommand cmd = context.createCommand();
+        cmd.select(db.EMPLOYEE.count());
+        cmd.where(db.EMPLOYEE.RETIRED.is(false));
+        assertEquals(1, context.getUtils().querySingleInt(cmd));
+        cmd.where(db.EMPLOYEE.RETIRED.is(true));
+        assertEquals(0, context.getUtils().querySingleInt(cmd));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.empire.dbms.postgresql;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.empire.DBResource;
+import org.apache.empire.DBResource.DB;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Checks that autocommit is restored after a cursor based fetch.<br>
+ * The handler logic only relies on JDBC, hence it is run against the HSQL test database. 
+ */
+public class DBMSHandlerPostgreSQLFetchTest
+{
+    @Rule
+    public DBResource dbResource = new DBResource(DB.HSQL);
+
+    @Test
+    public void testAutoCommitRestoredOnClose() throws SQLException
+    {
+        Connection conn = dbResource.getConnection();
+        conn.setAutoCommit(true);
+        DBMSHandlerPostgreSQL dbms = new DBMSHandlerPostgreSQL();
+        ResultSet rset = dbms.executeQuery("SELECT 1 FROM (VALUES(0))", null, false, 10, conn);
+        assertFalse(conn.getAutoCommit());
+        dbms.closeResultSet(rset);
+        assertTrue(conn.getAutoCommit());
+    }
+
+    @Test
+    public void testAutoCommitRestoredOnError() throws SQLException
+    {
+        Connection conn = dbResource.getConnection();
+        conn.setAutoCommit(true);
+        DBMSHandlerPostgreSQL dbms = new DBMSHandlerPostgreSQL();
+        try {
+            dbms.executeQuery("SELECT NO_SUCH_COLUMN FROM NO_SUCH_TABLE", null, false, 10, conn);
+            fail("SQLException expected");
+        } catch (SQLException e) {
+            // expected
+        }
+        assertTrue(conn.getAutoCommit());
+    }
+}